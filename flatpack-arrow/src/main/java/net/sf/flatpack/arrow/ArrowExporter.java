@@ -0,0 +1,499 @@
+/*
+ * ObjectLab, http://www.objectlab.co.uk/open is supporting FlatPack.
+ *
+ * Based in London, we are world leaders in the design and development
+ * of bespoke applications for the securities financing markets.
+ *
+ * <a href="http://www.objectlab.co.uk/open">Click here to learn more</a>
+ *           ___  _     _           _   _          _
+ *          / _ \| |__ (_) ___  ___| |_| |    __ _| |__
+ *         | | | | '_ \| |/ _ \/ __| __| |   / _` | '_ \
+ *         | |_| | |_) | |  __/ (__| |_| |__| (_| | |_) |
+ *          \___/|_.__// |\___|\___|\__|_____\__,_|_.__/
+ *                   |__/
+ *
+ *                     www.ObjectLab.co.uk
+ *
+ * $Id: ColorProvider.java 74 2006-10-24 22:19:05Z benoitx $
+ *
+ * Copyright 2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sf.flatpack.arrow;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.DecimalVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.dictionary.Dictionary;
+import org.apache.arrow.vector.dictionary.DictionaryProvider;
+import org.apache.arrow.vector.ipc.ArrowFileWriter;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.ipc.ArrowWriter;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.DictionaryEncoding;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import net.sf.flatpack.DataSet;
+import net.sf.flatpack.DefaultDataSet;
+import net.sf.flatpack.Record;
+import net.sf.flatpack.brparse.BuffReaderDataSet;
+import net.sf.flatpack.structure.ColumnMetaData;
+import net.sf.flatpack.structure.Row;
+import net.sf.flatpack.structure.RowStore;
+import net.sf.flatpack.structure.TypedValues;
+import net.sf.flatpack.util.FPConstants;
+import net.sf.flatpack.util.ParserUtils;
+import net.sf.flatpack.xml.MetaData;
+
+/**
+ * Writes the detail records of a DataSet, or a stream of Records, in the Apache Arrow IPC
+ * file or stream format so they can be handed to Arrow based tools without going through
+ * CSV again.
+ *
+ * The schema follows the columns of the mapping: a column declaring a type becomes the
+ * matching Arrow type (int to Int32, long to Int64, double to Float64, decimal with a scale
+ * to Decimal(38, scale), date to Date(DAY), boolean to Bool), every other column is Utf8
+ * and an empty typed value is null.  The values already converted by the parser are used
+ * as they are, a value is only parsed again if the row does not hold it.
+ *
+ * The rows are written in record batches of getBatchSize() rows, each batch being filled
+ * one column at a time.  A String column of a DataSet where each value is repeated on
+ * average at least twice is dictionary encoded.  Header and trailer records are not exported.
+ *
+ * @since 4.1
+ */
+public class ArrowExporter {
+    public static final int DEFAULT_BATCH_SIZE = 64 * 1024;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private boolean dictionaryEncoding = true;
+
+    /**
+     * Default is 65536
+     *
+     * @return the maximum number of rows in a record batch
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @param batchSize the maximum number of rows in a record batch, must be greater than 0
+     * @return the exporter
+     */
+    public ArrowExporter setBatchSize(final int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be greater than 0, got " + batchSize);
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Default is true
+     *
+     * @return true if String columns with repeated values are dictionary encoded
+     */
+    public boolean isDictionaryEncoding() {
+        return dictionaryEncoding;
+    }
+
+    /**
+     * @param dictionaryEncoding
+     *            true if String columns of a DataSet with repeated values are dictionary encoded
+     * @return the exporter
+     */
+    public ArrowExporter setDictionaryEncoding(final boolean dictionaryEncoding) {
+        this.dictionaryEncoding = dictionaryEncoding;
+        return this;
+    }
+
+    /**
+     * Writes the detail records of the DataSet in the Arrow IPC file format (random access,
+     * the footer lists the batches).  The output stream is not closed.
+     *
+     * @param ds
+     *            the DataSet, a BuffReaderDataSet is read forward from its current position
+     * @param out
+     *            where the file is written
+     * @throws IOException if the output cannot be written
+     */
+    public void writeFile(final DataSet ds, final OutputStream out) throws IOException {
+        write(ds, out, true);
+    }
+
+    /**
+     * Writes the detail records of the DataSet in the Arrow IPC stream format.  The output
+     * stream is not closed.
+     *
+     * @param ds
+     *            the DataSet, a BuffReaderDataSet is read forward from its current position
+     * @param out
+     *            where the stream is written
+     * @throws IOException if the output cannot be written
+     */
+    public void writeStream(final DataSet ds, final OutputStream out) throws IOException {
+        write(ds, out, false);
+    }
+
+    /**
+     * Writes the detail records of a stream in the Arrow IPC stream format, one batch at a
+     * time.  The values are read through the Record getters and are not dictionary encoded as
+     * the dictionaries would have to be known before the first batch.  The output stream is
+     * not closed.
+     *
+     * @param records
+     *            the records, e.g. StreamingDataSet.stream()
+     * @param metaData
+     *            the mapping of the records, gives the columns and their types
+     * @param out
+     *            where the stream is written
+     * @throws IOException if the output cannot be written
+     */
+    public void writeStream(final Stream<Record> records, final MetaData metaData, final OutputStream out) throws IOException {
+        writeRecords(records.iterator(), metaData, out, false);
+    }
+
+    private void write(final DataSet ds, final OutputStream out, final boolean file) throws IOException {
+        if (!(ds instanceof DefaultDataSet)) {
+            throw new IllegalArgumentException("Cannot export a " + ds.getClass().getName() + ", its MetaData is not available");
+        }
+        final DefaultDataSet dds = (DefaultDataSet) ds;
+        if (ds instanceof BuffReaderDataSet) {
+            // the rows are only read one at a time
+            writeRecords(new Iterator<Record>() {
+                private Boolean hasNext;
+
+                @Override
+                public boolean hasNext() {
+                    if (hasNext == null) {
+                        hasNext = ds.next();
+                    }
+                    return hasNext;
+                }
+
+                @Override
+                public Record next() {
+                    hasNext = null;
+                    return ds;
+                }
+            }, dds.getMetaData(), out, file);
+            return;
+        }
+
+        final List<Column> columns = columns(dds.getMetaData());
+        final RowStore rows = dds.getRowStore();
+        final int[] detail = detailRows(rows);
+        if (dictionaryEncoding) {
+            collectDictionaries(columns, rows, detail);
+        }
+
+        try (BufferAllocator allocator = new RootAllocator()) {
+            final DictionaryProvider.MapDictionaryProvider provider = new DictionaryProvider.MapDictionaryProvider();
+            try (VectorSchemaRoot root = VectorSchemaRoot.create(schema(columns), allocator)) {
+                final List<Dictionary> dictionaries = dictionaries(columns, allocator);
+                try (ArrowWriter writer = newWriter(root, provider, dictionaries, out, file)) {
+                    writer.start();
+                    final Row[] batch = new Row[Math.min(batchSize, Math.max(detail.length, 1))];
+                    for (int from = 0; from < detail.length; from += batch.length) {
+                        final int count = Math.min(batch.length, detail.length - from);
+                        for (int i = 0; i < count; i++) {
+                            batch[i] = rows.get(detail[from + i]);
+                        }
+                        root.allocateNew();
+                        for (int c = 0; c < columns.size(); c++) {
+                            final Column column = columns.get(c);
+                            final FieldVector vector = root.getVector(c);
+                            for (int i = 0; i < count; i++) {
+                                final Row row = batch[i];
+                                final String value = column.position < row.getColumnCount() ? row.getValue(column.position) : null;
+                                set(vector, column, i, value, row.getTypedValues());
+                            }
+                        }
+                        root.setRowCount(count);
+                        writer.writeBatch();
+                    }
+                    writer.end();
+                } finally {
+                    for (final Dictionary dictionary : dictionaries) {
+                        dictionary.getVector().close();
+                    }
+                }
+            }
+        }
+    }
+
+    private void writeRecords(final Iterator<Record> records, final MetaData metaData, final OutputStream out, final boolean file)
+            throws IOException {
+        final List<Column> columns = columns(metaData);
+        try (BufferAllocator allocator = new RootAllocator();
+                VectorSchemaRoot root = VectorSchemaRoot.create(schema(columns), allocator);
+                ArrowWriter writer = newWriter(root, new DictionaryProvider.MapDictionaryProvider(), Collections.emptyList(), out, file)) {
+            writer.start();
+            int count = 0;
+            root.allocateNew();
+            while (records.hasNext()) {
+                final Record record = records.next();
+                if (!record.isRecordID(FPConstants.DETAIL_ID)) {
+                    continue;
+                }
+                for (int c = 0; c < columns.size(); c++) {
+                    final Column column = columns.get(c);
+                    final String name = column.cmd.getColName();
+                    set(root.getVector(c), column, count, record.contains(name) ? record.getString(name) : null, null);
+                }
+                if (++count == batchSize) {
+                    root.setRowCount(count);
+                    writer.writeBatch();
+                    count = 0;
+                    root.allocateNew();
+                }
+            }
+            if (count > 0) {
+                root.setRowCount(count);
+                writer.writeBatch();
+            }
+            writer.end();
+        }
+    }
+
+    private static ArrowWriter newWriter(final VectorSchemaRoot root, final DictionaryProvider.MapDictionaryProvider provider,
+            final List<Dictionary> dictionaries, final OutputStream out, final boolean file) {
+        for (final Dictionary dictionary : dictionaries) {
+            provider.put(dictionary);
+        }
+        if (file) {
+            return new ArrowFileWriter(root, provider, Channels.newChannel(out));
+        }
+        return new ArrowStreamWriter(root, provider, Channels.newChannel(out));
+    }
+
+    private static List<Column> columns(final MetaData metaData) {
+        final List<ColumnMetaData> cmds = metaData.getColumnsNames();
+        final List<Column> columns = new ArrayList<>(cmds.size());
+        for (int i = 0; i < cmds.size(); i++) {
+            columns.add(new Column(cmds.get(i), i));
+        }
+        return columns;
+    }
+
+    private static int[] detailRows(final RowStore rows) {
+        final int size = rows.size();
+        int[] detail = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (rows.get(i).getMdkey() == null) {
+                detail[count++] = i;
+            }
+        }
+        if (count < size) {
+            final int[] trimmed = new int[count];
+            System.arraycopy(detail, 0, trimmed, 0, count);
+            detail = trimmed;
+        }
+        return detail;
+    }
+
+    /**
+     * First pass over the String columns: a column gets a dictionary if it has at most one
+     * distinct value for two rows.  A column is dropped as soon as it has more distinct
+     * values than that, so the pass never holds more than half of a column.
+     */
+    private static void collectDictionaries(final List<Column> columns, final RowStore rows, final int[] detail) {
+        final List<Column> candidates = new ArrayList<>();
+        for (final Column column : columns) {
+            if (column.arrowType instanceof ArrowType.Utf8 && detail.length > 1) {
+                column.dictionary = new LinkedHashMap<>();
+                candidates.add(column);
+            }
+        }
+        final int max = detail.length / 2;
+        for (int i = 0; i < detail.length && !candidates.isEmpty(); i++) {
+            final Row row = rows.get(detail[i]);
+            for (final Iterator<Column> it = candidates.iterator(); it.hasNext();) {
+                final Column column = it.next();
+                final String value = column.position < row.getColumnCount() ? row.getValue(column.position) : null;
+                if (value != null && !column.dictionary.containsKey(value)) {
+                    if (column.dictionary.size() == max) {
+                        column.dictionary = null;
+                        it.remove();
+                        continue;
+                    }
+                    column.dictionary.put(value, column.dictionary.size());
+                }
+            }
+        }
+        long id = 0;
+        for (final Column column : candidates) {
+            column.encoding = new DictionaryEncoding(id++, false, new ArrowType.Int(32, true));
+        }
+    }
+
+    private static List<Dictionary> dictionaries(final List<Column> columns, final BufferAllocator allocator) {
+        final List<Dictionary> dictionaries = new ArrayList<>();
+        for (final Column column : columns) {
+            if (column.encoding == null) {
+                continue;
+            }
+            final VarCharVector values = new VarCharVector("dictionary-" + column.encoding.getId(), allocator);
+            values.allocateNew(column.dictionary.size());
+            for (final Map.Entry<String, Integer> entry : column.dictionary.entrySet()) {
+                values.setSafe(entry.getValue(), entry.getKey().getBytes(StandardCharsets.UTF_8));
+            }
+            values.setValueCount(column.dictionary.size());
+            dictionaries.add(new Dictionary(values, column.encoding));
+        }
+        return dictionaries;
+    }
+
+    private static Schema schema(final List<Column> columns) {
+        final List<Field> fields = new ArrayList<>(columns.size());
+        for (final Column column : columns) {
+            if (column.encoding != null) {
+                fields.add(new Field(column.cmd.getColName(), new FieldType(true, column.encoding.getIndexType(), column.encoding), null));
+            } else {
+                fields.add(new Field(column.cmd.getColName(), FieldType.nullable(column.arrowType), null));
+            }
+        }
+        return new Schema(fields);
+    }
+
+    private static ArrowType arrowType(final ColumnMetaData cmd) {
+        final String type = cmd.getType();
+        if (type == null) {
+            return ArrowType.Utf8.INSTANCE;
+        }
+        switch (type) {
+        case ColumnMetaData.TYPE_INT:
+            return new ArrowType.Int(32, true);
+        case ColumnMetaData.TYPE_LONG:
+            return new ArrowType.Int(64, true);
+        case ColumnMetaData.TYPE_DOUBLE:
+            return new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE);
+        case ColumnMetaData.TYPE_DECIMAL:
+            // without a scale the values do not share one, keep them as text
+            return cmd.getScale() >= 0 ? new ArrowType.Decimal(38, cmd.getScale(), 128) : ArrowType.Utf8.INSTANCE;
+        case ColumnMetaData.TYPE_DATE:
+            return new ArrowType.Date(DateUnit.DAY);
+        case ColumnMetaData.TYPE_BOOLEAN:
+            return ArrowType.Bool.INSTANCE;
+        default:
+            return ArrowType.Utf8.INSTANCE;
+        }
+    }
+
+    private static void set(final FieldVector vector, final Column column, final int index, final String value, final TypedValues row) {
+        if (column.encoding != null) {
+            if (value == null) {
+                ((IntVector) vector).setNull(index);
+            } else {
+                ((IntVector) vector).setSafe(index, column.dictionary.get(value));
+            }
+            return;
+        }
+        if (vector instanceof VarCharVector) {
+            if (value == null) {
+                ((VarCharVector) vector).setNull(index);
+            } else {
+                ((VarCharVector) vector).setSafe(index, value.getBytes(StandardCharsets.UTF_8));
+            }
+            return;
+        }
+
+        TypedValues tv = row;
+        int col = column.position;
+        if (!has(tv, col, column.cmd)) {
+            if (value == null || value.trim().length() == 0) {
+                vector.setNull(index);
+                return;
+            }
+            // not converted with the row (e.g. a Record from a stream), convert it the same way
+            tv = ParserUtils.convertTypedColumns(Collections.singletonList(column.cmd), Collections.singletonList(value));
+            col = 0;
+        }
+        if (vector instanceof IntVector) {
+            ((IntVector) vector).setSafe(index, (int) tv.getLong(col));
+        } else if (vector instanceof BigIntVector) {
+            ((BigIntVector) vector).setSafe(index, tv.getLong(col));
+        } else if (vector instanceof Float8Vector) {
+            ((Float8Vector) vector).setSafe(index, tv.getDouble(col));
+        } else if (vector instanceof DecimalVector) {
+            ((DecimalVector) vector).setSafe(index, tv.getBigDecimal(col));
+        } else if (vector instanceof DateDayVector) {
+            ((DateDayVector) vector).setSafe(index, (int) tv.getLocalDateEpochDay(col));
+        } else if (vector instanceof BitVector) {
+            ((BitVector) vector).setSafe(index, tv.getBoolean(col) ? 1 : 0);
+        }
+    }
+
+    private static boolean has(final TypedValues tv, final int col, final ColumnMetaData cmd) {
+        if (tv == null) {
+            return false;
+        }
+        switch (cmd.getType()) {
+        case ColumnMetaData.TYPE_INT:
+        case ColumnMetaData.TYPE_LONG:
+            return tv.hasLong(col);
+        case ColumnMetaData.TYPE_DOUBLE:
+            return tv.hasDouble(col);
+        case ColumnMetaData.TYPE_DECIMAL:
+            return tv.hasBigDecimal(col);
+        case ColumnMetaData.TYPE_DATE:
+            return tv.hasLocalDate(col, cmd.getFormat());
+        case ColumnMetaData.TYPE_BOOLEAN:
+            return tv.hasBoolean(col);
+        default:
+            return false;
+        }
+    }
+
+    private static final class Column {
+        private final ColumnMetaData cmd;
+        private final int position;
+        private final ArrowType arrowType;
+        private Map<String, Integer> dictionary;
+        private DictionaryEncoding encoding;
+
+        private Column(final ColumnMetaData cmd, final int position) {
+            this.cmd = cmd;
+            this.position = position;
+            this.arrowType = arrowType(cmd);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package net.sf.flatpack.arrow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.dictionary.Dictionary;
+import org.apache.arrow.vector.ipc.ArrowFileReader;
+import org.apache.arrow.vector.ipc.ArrowReader;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.util.ByteArrayReadableSeekableByteChannel;
+import org.apache.arrow.vector.util.Text;
+
+import junit.framework.TestCase;
+import net.sf.flatpack.DataSet;
+import net.sf.flatpack.DefaultParserFactory;
+import net.sf.flatpack.Parser;
+import net.sf.flatpack.ParserFactory;
+import net.sf.flatpack.brparse.BuffReaderDataSet;
+import net.sf.flatpack.brparse.BuffReaderParseFactory;
+import net.sf.flatpack.util.FPConstants;
+import net.sf.flatpack.xml.MapParser;
+import net.sf.flatpack.xml.MetaData;
+
+public class ArrowExporterTest extends TestCase {
+    private static final String TYPED_MAP = "<?xml version='1.0'?>\n" + //
+            "<!DOCTYPE PZMAP SYSTEM\n" + //
+            "    \"flatpack.dtd\" >\n" + //
+            "<PZMAP>\n" + //
+            "    <COLUMN name=\"NAME\" />\n" + //
+            "    <COLUMN name=\"CITY\" />\n" + //
+            "    <COLUMN name=\"QTY\" type=\"int\" />\n" + //
+            "    <COLUMN name=\"COUNT\" type=\"long\" />\n" + //
+            "    <COLUMN name=\"RATE\" type=\"double\" />\n" + //
+            "    <COLUMN name=\"PRICE\" type=\"decimal\" scale=\"2\" />\n" + //
+            "    <COLUMN name=\"SHIPPED\" type=\"date\" format=\"dd/MM/yyyy\" />\n" + //
+            "    <COLUMN name=\"ACTIVE\" type=\"boolean\" format=\"T/F\" />\n" + //
+            "</PZMAP> \n";
+
+    private static final String DATA = "ann,London,3,10000000000,1.5,1.255,31/01/2020,T\n" + //
+            "bob,Paris,,,,,,\n" + //
+            "eve,London,-7,-1,2.25,10,01/02/2020,F\n" + //
+            "ian,Paris,0,0,0,0.5,29/02/2000,T\n";
+
+    private static final List<List<Object>> EXPECTED = Arrays.asList(
+            Arrays.asList("ann", "London", 3, 10000000000L, 1.5, new BigDecimal("1.26"), LocalDate.of(2020, 1, 31).toEpochDay(), true),
+            Arrays.asList("bob", "Paris", null, null, null, null, null, null),
+            Arrays.asList("eve", "London", -7, -1L, 2.25, new BigDecimal("10.00"), LocalDate.of(2020, 2, 1).toEpochDay(), false),
+            Arrays.asList("ian", "Paris", 0, 0L, 0.0, new BigDecimal("0.50"), LocalDate.of(2000, 2, 29).toEpochDay(), true));
+
+    public void testFileRoundTrip() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ArrowExporter().writeFile(parse(DefaultParserFactory.getInstance()), out);
+
+        try (BufferAllocator allocator = new RootAllocator();
+                ArrowFileReader reader = new ArrowFileReader(new ByteArrayReadableSeekableByteChannel(out.toByteArray()), allocator)) {
+            assertThat(reader.getRecordBlocks()).hasSize(1);
+            final List<Field> fields = reader.getVectorSchemaRoot().getSchema().getFields();
+            assertThat(fields).extracting("name").containsExactly("NAME", "CITY", "QTY", "COUNT", "RATE", "PRICE", "SHIPPED", "ACTIVE");
+            assertThat(fields).extracting("type").containsExactly(ArrowType.Utf8.INSTANCE, new ArrowType.Int(32, true),
+                    new ArrowType.Int(32, true), new ArrowType.Int(64, true), new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE),
+                    new ArrowType.Decimal(38, 2, 128), new ArrowType.Date(DateUnit.DAY), ArrowType.Bool.INSTANCE);
+            // 4 distinct names in 4 rows fall back to Utf8, 2 cities are dictionary encoded
+            assertNull(fields.get(0).getDictionary());
+            assertNotNull(fields.get(1).getDictionary());
+            assertEquals(EXPECTED, read(reader));
+        }
+    }
+
+    public void testStreamRoundTrip() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ArrowExporter().setBatchSize(3).writeStream(parse(DefaultParserFactory.getInstance()), out);
+
+        try (BufferAllocator allocator = new RootAllocator();
+                ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(out.toByteArray()), allocator)) {
+            assertNotNull(reader.getVectorSchemaRoot().getSchema().getFields().get(1).getDictionary());
+            assertEquals(EXPECTED, read(reader));
+        }
+    }
+
+    public void testWithoutDictionary() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ArrowExporter().setDictionaryEncoding(false).writeFile(parse(DefaultParserFactory.getInstance()), out);
+
+        try (BufferAllocator allocator = new RootAllocator();
+                ArrowFileReader reader = new ArrowFileReader(new ByteArrayReadableSeekableByteChannel(out.toByteArray()), allocator)) {
+            final Field city = reader.getVectorSchemaRoot().getSchema().getFields().get(1);
+            assertNull(city.getDictionary());
+            assertEquals(ArrowType.Utf8.INSTANCE, city.getType());
+            assertEquals(EXPECTED, read(reader));
+        }
+    }
+
+    public void testBuffReaderDataSet() throws Exception {
+        final DataSet ds = parse(BuffReaderParseFactory.getInstance());
+        assertTrue(ds instanceof BuffReaderDataSet);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ArrowExporter().setBatchSize(2).writeFile(ds, out);
+
+        try (BufferAllocator allocator = new RootAllocator();
+                ArrowFileReader reader = new ArrowFileReader(new ByteArrayReadableSeekableByteChannel(out.toByteArray()), allocator)) {
+            assertThat(reader.getRecordBlocks()).hasSize(2);
+            // read one row at a time, the columns are never dictionary encoded
+            assertThat(reader.getVectorSchemaRoot().getSchema().getFields()).extracting("dictionary").containsOnlyNulls();
+            assertEquals(EXPECTED, read(reader));
+        }
+    }
+
+    public void testRecordStream() throws Exception {
+        final MetaData metaData = MapParser.parseMap(new StringReader(TYPED_MAP), null);
+        final Parser parser = DefaultParserFactory.getInstance().newDelimitedParser(metaData, new StringReader(DATA), ',',
+                FPConstants.NO_QUALIFIER, false);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ArrowExporter().setBatchSize(3).writeStream(parser.stream(), metaData, out);
+
+        try (BufferAllocator allocator = new RootAllocator();
+                ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(out.toByteArray()), allocator)) {
+            assertEquals(EXPECTED, read(reader));
+        }
+    }
+
+    public void testEmptyDataSet() throws Exception {
+        final Parser parser = DefaultParserFactory.getInstance().newDelimitedParser(new StringReader(TYPED_MAP), new StringReader(""), ',',
+                FPConstants.NO_QUALIFIER, false);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ArrowExporter().writeFile(parser.parse(), out);
+
+        try (BufferAllocator allocator = new RootAllocator();
+                ArrowFileReader reader = new ArrowFileReader(new ByteArrayReadableSeekableByteChannel(out.toByteArray()), allocator)) {
+            assertThat(reader.getVectorSchemaRoot().getSchema().getFields()).hasSize(8);
+            assertThat(read(reader)).isEmpty();
+        }
+    }
+
+    private static DataSet parse(final ParserFactory factory) {
+        return factory.newDelimitedParser(new StringReader(TYPED_MAP), new StringReader(DATA), ',', FPConstants.NO_QUALIFIER, false).parse();
+    }
+
+    /**
+     * @return the values of every batch, dictionary encoded values decoded, dates as epoch days
+     */
+    private static List<List<Object>> read(final ArrowReader reader) throws IOException {
+        final List<List<Object>> rows = new ArrayList<>();
+        final VectorSchemaRoot root = reader.getVectorSchemaRoot();
+        while (reader.loadNextBatch()) {
+            for (int i = 0; i < root.getRowCount(); i++) {
+                final List<Object> row = new ArrayList<>();
+                for (final FieldVector vector : root.getFieldVectors()) {
+                    Object value = vector.getObject(i);
+                    if (value != null && vector.getField().getDictionary() != null) {
+                        final Dictionary dictionary = reader.getDictionaryVectors().get(vector.getField().getDictionary().getId());
+                        value = dictionary.getVector().getObject(((IntVector) vector).get(i));
+                    }
+                    if (value instanceof Text) {
+                        value = value.toString();
+                    } else if (value instanceof Integer && vector.getField().getType() instanceof ArrowType.Date) {
+                        value = ((Integer) value).longValue();
+                    }
+                    row.add(value);
+                }
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
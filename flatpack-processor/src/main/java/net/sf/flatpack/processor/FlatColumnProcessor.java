@@ -0,0 +1,501 @@
+/*
+ * ObjectLab, http://www.objectlab.co.uk/open is supporting FlatPack.
+ *
+ * Based in London, we are world leaders in the design and development
+ * of bespoke applications for the securities financing markets.
+ *
+ * <a href="http://www.objectlab.co.uk/open">Click here to learn more</a>
+ *           ___  _     _           _   _          _
+ *          / _ \| |__ (_) ___  ___| |_| |    __ _| |__
+ *         | | | | '_ \| |/ _ \/ __| __| |   / _` | '_ \
+ *         | |_| | |_) | |  __/ (__| |_| |__| (_| | |_) |
+ *          \___/|_.__// |\___|\___|\__|_____\__,_|_.__/
+ *                   |__/
+ *
+ *                     www.ObjectLab.co.uk
+ *
+ * $Id: ColorProvider.java 74 2006-10-24 22:19:05Z benoitx $
+ *
+ * Copyright 2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sf.flatpack.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import net.sf.flatpack.bind.FlatColumn;
+import net.sf.flatpack.structure.ColumnMetaData;
+
+/**
+ * Generates a mapper class for every class with @FlatColumn fields, the compile time
+ * alternative to the RecordBinder.  For a class Trade the processor writes TradeFlatMapper
+ * in the same package, with static methods:
+ *
+ * <ul>
+ * <li>columns() / metaData(): the column layout, in field declaration order, as MapParser
+ * would build it from a pzmap.  Hand metaData() to ParserFactory.newDelimitedParser(MetaData, ...)
+ * or newFixedLengthParser(MetaData, ...) and no mapping file is parsed at start up.</li>
+ * <li>mapping(): the same layout for DelimiterWriterFactory / FixedWriterFactory.</li>
+ * <li>decode(Record): a new Trade, one straight-line getter call per column.</li>
+ * <li>encode(Trade, Writer): writes the fields and moves the writer to the next record.</li>
+ * </ul>
+ *
+ * Fields are read and written directly, or through their getter / setter when private.
+ * Supported field types are the same as the RecordBinder: String, int, long, double,
+ * boolean (and their wrappers), BigDecimal, LocalDate and Date.
+ *
+ * @since 4.1
+ */
+@SupportedAnnotationTypes("net.sf.flatpack.bind.FlatColumn")
+public class FlatColumnProcessor extends AbstractProcessor {
+    static final String SUFFIX = "FlatMapper";
+
+    private static final String DEFAULT_DATE_FORMAT = "yyyyMMdd";
+    private static final String DEFAULT_LOCAL_DATE_FORMAT = "yyyy-MM-dd";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        final Map<TypeElement, List<VariableElement>> fieldsByType = new LinkedHashMap<>();
+        for (final Element element : roundEnv.getElementsAnnotatedWith(FlatColumn.class)) {
+            if (element.getKind() == ElementKind.FIELD) {
+                fieldsByType.computeIfAbsent((TypeElement) element.getEnclosingElement(), k -> new ArrayList<>()).add((VariableElement) element);
+            }
+        }
+        for (final Map.Entry<TypeElement, List<VariableElement>> entry : fieldsByType.entrySet()) {
+            generate(entry.getKey(), entry.getValue());
+        }
+        return true;
+    }
+
+    private void generate(final TypeElement type, final List<VariableElement> annotated) {
+        if (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)
+                || type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+            error(type, "@FlatColumn classes must be top level or static nested classes");
+            return;
+        }
+        if (type.getModifiers().contains(Modifier.ABSTRACT) || !hasNoArgConstructor(type)) {
+            error(type, "@FlatColumn classes need a non-private no-arg constructor");
+            return;
+        }
+
+        // the fields in declaration order, getElementsAnnotatedWith does not guarantee it
+        final List<Column> columns = new ArrayList<>();
+        int position = 1;
+        for (final VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (!annotated.contains(field)) {
+                continue;
+            }
+            final Column column = column(type, field, position);
+            if (column == null) {
+                return;
+            }
+            columns.add(column);
+            position += column.length;
+        }
+
+        final String pkg = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        final String mapperName = mapperName(type);
+        try {
+            final JavaFileObject file = processingEnv.getFiler().createSourceFile(pkg.isEmpty() ? mapperName : pkg + "." + mapperName, type);
+            try (PrintWriter out = new PrintWriter(file.openWriter())) {
+                write(out, pkg, mapperName, type.getQualifiedName().toString(), columns);
+            }
+        } catch (final IOException e) {
+            error(type, "Cannot write " + mapperName + ": " + e.getMessage());
+        }
+    }
+
+    private Column column(final TypeElement type, final VariableElement field, final int position) {
+        final FlatColumn annotation = field.getAnnotation(FlatColumn.class);
+        final Column column = new Column();
+        column.field = field.getSimpleName().toString();
+        column.name = annotation.name().isEmpty() ? column.field : annotation.name();
+        column.length = annotation.length();
+        column.start = position;
+        column.type = annotation.type().isEmpty() ? null : annotation.type();
+        column.format = annotation.format().isEmpty() ? null : annotation.format();
+        column.javaType = javaType(field.asType());
+
+        if (field.getModifiers().contains(Modifier.STATIC)) {
+            error(field, "@FlatColumn cannot be used on static fields");
+            return null;
+        }
+        if (column.javaType == null) {
+            error(field, "Unsupported type " + field.asType() + " for @FlatColumn");
+            return null;
+        }
+        if (column.length < 0) {
+            error(field, "@FlatColumn length cannot be negative");
+            return null;
+        }
+        if (column.type != null && !isKnownType(column.type)) {
+            error(field, "Unknown @FlatColumn type " + column.type);
+            return null;
+        }
+        if (column.format != null && isBoolean(column.javaType) && column.format.indexOf('/') < 0) {
+            error(field, "@FlatColumn format of a boolean must be true/false, got " + column.format);
+            return null;
+        }
+
+        final boolean direct = !field.getModifiers().contains(Modifier.PRIVATE);
+        final String property = Character.toUpperCase(column.field.charAt(0)) + column.field.substring(1);
+        column.getter = direct ? column.field : accessor(type, field, ("boolean".equals(column.javaType) ? "is" : "get") + property, 0);
+        if (column.getter == null && "boolean".equals(column.javaType)) {
+            column.getter = accessor(type, field, "get" + property, 0);
+        }
+        column.setter = direct && !field.getModifiers().contains(Modifier.FINAL) ? column.field : accessor(type, field, "set" + property, 1);
+        if (column.getter == null || column.setter == null) {
+            error(field, "@FlatColumn field " + column.field + " is private and has no getter / setter");
+            return null;
+        }
+        return column;
+    }
+
+    private String accessor(final TypeElement type, final VariableElement field, final String name, final int params) {
+        for (final ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            if (method.getSimpleName().contentEquals(name) && method.getParameters().size() == params && !method.getModifiers().contains(Modifier.PRIVATE)
+                    && !method.getModifiers().contains(Modifier.STATIC)
+                    && (params == 0 ? processingEnv.getTypeUtils().isSameType(method.getReturnType(), field.asType())
+                            : processingEnv.getTypeUtils().isSameType(method.getParameters().get(0).asType(), field.asType()))) {
+                return name + "()";
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasNoArgConstructor(final TypeElement type) {
+        for (final ExecutableElement c : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (c.getParameters().isEmpty() && !c.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String mapperName(final TypeElement type) {
+        final StringBuilder name = new StringBuilder(type.getSimpleName());
+        for (Element e = type.getEnclosingElement(); e != null && !(e instanceof PackageElement); e = e.getEnclosingElement()) {
+            name.insert(0, '_').insert(0, e.getSimpleName());
+        }
+        return name.append(SUFFIX).toString();
+    }
+
+    private static String javaType(final TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            final TypeKind kind = type.getKind();
+            return kind == TypeKind.INT || kind == TypeKind.LONG || kind == TypeKind.DOUBLE || kind == TypeKind.BOOLEAN ? type.toString() : null;
+        }
+        switch (type.toString()) {
+        case "java.lang.String":
+        case "java.lang.Integer":
+        case "java.lang.Long":
+        case "java.lang.Double":
+        case "java.lang.Boolean":
+        case "java.math.BigDecimal":
+        case "java.time.LocalDate":
+        case "java.util.Date":
+            return type.toString();
+        default:
+            return null;
+        }
+    }
+
+    private static boolean isKnownType(final String type) {
+        return ColumnMetaData.TYPE_INT.equals(type) || ColumnMetaData.TYPE_LONG.equals(type) || ColumnMetaData.TYPE_DOUBLE.equals(type)
+                || ColumnMetaData.TYPE_DECIMAL.equals(type) || ColumnMetaData.TYPE_DATE.equals(type) || ColumnMetaData.TYPE_BOOLEAN.equals(type);
+    }
+
+    private static boolean isBoolean(final String javaType) {
+        return "boolean".equals(javaType) || "java.lang.Boolean".equals(javaType);
+    }
+
+    private static boolean isDate(final String javaType) {
+        return "java.time.LocalDate".equals(javaType) || "java.util.Date".equals(javaType);
+    }
+
+    private void error(final Element element, final String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    // --------------------------------------------------------------- code generation
+
+    private static void write(final PrintWriter out, final String pkg, final String mapperName, final String typeName, final List<Column> columns) {
+        if (!pkg.isEmpty()) {
+            out.println("package " + pkg + ";");
+            out.println();
+        }
+        out.println("/**");
+        out.println(" * Flatpack mapping of {@link " + typeName + "}, generated from its @FlatColumn fields.  Do not edit.");
+        out.println(" */");
+        out.println("public final class " + mapperName + " {");
+        for (final Column c : columns) {
+            if ("java.time.LocalDate".equals(c.javaType)) {
+                out.println("    private static final java.time.format.DateTimeFormatter " + formatterName(c) + " = java.time.format.DateTimeFormatter.ofPattern("
+                        + literal(c.format != null ? c.format : DEFAULT_LOCAL_DATE_FORMAT) + ");");
+            }
+        }
+        out.println();
+        out.println("    private " + mapperName + "() {");
+        out.println("    }");
+        out.println();
+
+        out.println("    /**");
+        out.println("     * @return the columns, in the order of the fields");
+        out.println("     */");
+        out.println("    public static java.util.List<net.sf.flatpack.structure.ColumnMetaData> columns() {");
+        out.println("        final java.util.List<net.sf.flatpack.structure.ColumnMetaData> columns = new java.util.ArrayList<>(" + columns.size() + ");");
+        for (final Column c : columns) {
+            out.println("        columns.add(column(" + literal(c.name) + ", " + c.length + ", " + c.start + ", " + literal(c.type) + ", " + literal(c.format)
+                    + "));");
+        }
+        out.println("        return columns;");
+        out.println("    }");
+        out.println();
+        out.println("    private static net.sf.flatpack.structure.ColumnMetaData column(final String name, final int length, final int start, final String type,");
+        out.println("            final String format) {");
+        out.println("        final net.sf.flatpack.structure.ColumnMetaData column = new net.sf.flatpack.structure.ColumnMetaData(name);");
+        out.println("        column.setColLength(length);");
+        out.println("        column.setStartPosition(start);");
+        out.println("        column.setEndPosition(start + length - 1);");
+        out.println("        column.setType(type);");
+        out.println("        column.setFormat(format);");
+        out.println("        return column;");
+        out.println("    }");
+        out.println();
+
+        out.println("    /**");
+        out.println("     * @return the MetaData to give to the ParserFactory, no pzmap needed");
+        out.println("     */");
+        out.println("    public static net.sf.flatpack.xml.MetaData metaData() {");
+        out.println("        final java.util.List<net.sf.flatpack.structure.ColumnMetaData> columns = columns();");
+        out.println("        return new net.sf.flatpack.xml.MetaData(columns, net.sf.flatpack.util.ParserUtils.buidColumnIndexMap(columns, null));");
+        out.println("    }");
+        out.println();
+
+        out.println("    /**");
+        out.println("     * @return the mapping to give to a DelimiterWriterFactory or FixedWriterFactory");
+        out.println("     */");
+        out.println("    public static java.util.Map<String, Object> mapping() {");
+        out.println("        final java.util.List<net.sf.flatpack.structure.ColumnMetaData> columns = columns();");
+        out.println("        final java.util.Map<String, Object> mapping = new java.util.HashMap<>();");
+        out.println("        mapping.put(net.sf.flatpack.util.FPConstants.DETAIL_ID, columns);");
+        out.println("        mapping.put(net.sf.flatpack.util.FPConstants.COL_IDX, net.sf.flatpack.util.ParserUtils.buidColumnIndexMap(columns, null));");
+        out.println("        return mapping;");
+        out.println("    }");
+        out.println();
+
+        writeDecode(out, typeName, columns);
+        out.println();
+        writeEncode(out, typeName, columns);
+        out.println("}");
+    }
+
+    private static void writeDecode(final PrintWriter out, final String typeName, final List<Column> columns) {
+        boolean parses = false;
+        for (final Column c : columns) {
+            parses |= isDate(c.javaType);
+        }
+        final String indent = parses ? "            " : "        ";
+        out.println("    /**");
+        out.println("     * @param record");
+        out.println("     *          a record with the columns of this mapping");
+        out.println("     * @return a new instance populated from the record");
+        out.println("     */");
+        out.println("    public static " + typeName + " decode(final net.sf.flatpack.Record record) {");
+        out.println("        final " + typeName + " bean = new " + typeName + "();");
+        if (parses) {
+            out.println("        try {");
+        }
+        for (final Column c : columns) {
+            final String value = decodeExpression(c);
+            if (c.setter.endsWith("()")) {
+                out.println(indent + "bean." + c.setter.substring(0, c.setter.length() - 1) + value + ");");
+            } else {
+                out.println(indent + "bean." + c.setter + " = " + value + ";");
+            }
+        }
+        if (parses) {
+            out.println("        } catch (final java.text.ParseException e) {");
+            out.println("            throw new net.sf.flatpack.util.FPException(\"Cannot decode row \" + record.getRowNo(), e);");
+            out.println("        }");
+        }
+        out.println("        return bean;");
+        out.println("    }");
+    }
+
+    private static String decodeExpression(final Column c) {
+        final String col = literal(c.name);
+        final String isBlank = "net.sf.flatpack.util.FPStringUtils.isBlank(record.getString(" + col + "))";
+        final String blank = isBlank + " ? null : ";
+        switch (c.javaType) {
+        case "java.lang.String":
+            return "record.getString(" + col + ")";
+        case "int":
+            return isBlank + " ? 0 : record.getInt(" + col + ")";
+        case "long":
+            return isBlank + " ? 0L : record.getLong(" + col + ")";
+        case "double":
+            return isBlank + " ? 0d : record.getDouble(" + col + ")";
+        case "boolean":
+            return "!" + isBlank + " && " + booleanExpression(c);
+        case "java.lang.Integer":
+            return blank + "Integer.valueOf(record.getInt(" + col + "))";
+        case "java.lang.Long":
+            return blank + "Long.valueOf(record.getLong(" + col + "))";
+        case "java.lang.Double":
+            return blank + "Double.valueOf(record.getDouble(" + col + "))";
+        case "java.lang.Boolean":
+            return blank + "Boolean.valueOf(" + booleanExpression(c) + ")";
+        case "java.math.BigDecimal":
+            return "record.getBigDecimal(" + col + ")";
+        case "java.time.LocalDate":
+            return "record.getLocalDate(" + col + ", " + formatterName(c) + ")";
+        default:
+            // java.util.Date
+            return "record.getDate(" + col + ", new java.text.SimpleDateFormat(" + literal(c.format != null ? c.format : DEFAULT_DATE_FORMAT) + "))";
+        }
+    }
+
+    private static String booleanExpression(final Column c) {
+        if (c.format == null || ColumnMetaData.TYPE_BOOLEAN.equals(c.type)) {
+            // a typed column is converted with its format at parse time
+            return "record.getBoolean(" + literal(c.name) + ")";
+        }
+        return "net.sf.flatpack.util.ParserUtils.parseBoolean(record.getString(" + literal(c.name) + "), " + literal(c.format) + ")";
+    }
+
+    private static void writeEncode(final PrintWriter out, final String typeName, final List<Column> columns) {
+        out.println("    /**");
+        out.println("     * Adds the fields to the writer and moves it to the next record.");
+        out.println("     *");
+        out.println("     * @param bean");
+        out.println("     *          the instance to write");
+        out.println("     * @param writer");
+        out.println("     *          a writer created with the mapping of this class");
+        out.println("     * @return the writer");
+        out.println("     * @throws java.io.IOException");
+        out.println("     */");
+        out.println("    public static net.sf.flatpack.writer.Writer encode(final " + typeName + " bean, final net.sf.flatpack.writer.Writer writer)");
+        out.println("            throws java.io.IOException {");
+        for (final Column c : columns) {
+            out.println("        writer.addRecordEntry(" + literal(c.name) + ", " + encodeExpression(c, "bean." + c.getter) + ");");
+        }
+        out.println("        return writer.nextRecord();");
+        out.println("    }");
+    }
+
+    private static String encodeExpression(final Column c, final String value) {
+        switch (c.javaType) {
+        case "boolean":
+            return c.format == null ? value : value + " ? " + literal(trueValue(c)) + " : " + literal(falseValue(c));
+        case "java.lang.Boolean":
+            return c.format == null ? value
+                    : value + " == null ? null : " + value + ".booleanValue() ? " + literal(trueValue(c)) + " : " + literal(falseValue(c));
+        case "java.time.LocalDate":
+            return value + " == null ? null : " + formatterName(c) + ".format(" + value + ")";
+        case "java.util.Date":
+            return value + " == null ? null : new java.text.SimpleDateFormat(" + literal(c.format != null ? c.format : DEFAULT_DATE_FORMAT) + ").format("
+                    + value + ")";
+        default:
+            return value;
+        }
+    }
+
+    private static String trueValue(final Column c) {
+        return c.format.substring(0, c.format.indexOf('/'));
+    }
+
+    private static String falseValue(final Column c) {
+        return c.format.substring(c.format.indexOf('/') + 1);
+    }
+
+    private static String formatterName(final Column c) {
+        // the field name as is, rate and Rate must not share a constant
+        return "FORMAT_" + c.field;
+    }
+
+    private static String literal(final String value) {
+        if (value == null) {
+            return "null";
+        }
+        final StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (final char ch : value.toCharArray()) {
+            switch (ch) {
+            case '"':
+                sb.append("\\\"");
+                break;
+            case '\\':
+                sb.append("\\\\");
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            case '\r':
+                sb.append("\\r");
+                break;
+            case '\t':
+                sb.append("\\t");
+                break;
+            default:
+                sb.append(ch);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * A @FlatColumn field.
+     */
+    private static final class Column {
+        private String field;
+        private String name;
+        private int length;
+        private int start;
+        private String type;
+        private String format;
+        private String javaType;
+        /** field name or accessor call */
+        private String getter;
+        private String setter;
+    }
+}
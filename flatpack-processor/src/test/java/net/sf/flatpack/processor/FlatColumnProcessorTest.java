@@ -0,0 +1,154 @@
+/*
+ * ObjectLab, http://www.objectlab.co.uk/open is supporting FlatPack.
+ *
+ * Based in London, we are world leaders in the design and development
+ * of bespoke applications for the securities financing markets.
+ *
+ * <a href="http://www.objectlab.co.uk/open">Click here to learn more</a>
+ *           ___  _     _           _   _          _
+ *          / _ \| |__ (_) ___  ___| |_| |    __ _| |__
+ *         | | | | '_ \| |/ _ \/ __| __| |   / _` | '_ \
+ *         | |_| | |_) | |  __/ (__| |_| |__| (_| | |_) |
+ *          \___/|_.__// |\___|\___|\__|_____\__,_|_.__/
+ *                   |__/
+ *
+ *                     www.ObjectLab.co.uk
+ *
+ * $Id: ColorProvider.java 74 2006-10-24 22:19:05Z benoitx $
+ *
+ * Copyright 2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sf.flatpack.processor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import junit.framework.TestCase;
+import net.sf.flatpack.DataSet;
+import net.sf.flatpack.DefaultParserFactory;
+import net.sf.flatpack.Parser;
+import net.sf.flatpack.Record;
+import net.sf.flatpack.bind.RecordBinder;
+import net.sf.flatpack.structure.ColumnMetaData;
+import net.sf.flatpack.writer.DelimiterWriterFactory;
+import net.sf.flatpack.writer.FixedWriterFactory;
+import net.sf.flatpack.writer.Writer;
+
+public class FlatColumnProcessorTest extends TestCase {
+    private static final String CSV = "T1,10,1.5,31/01/2020,Y,42\r\nT2,,2.25,01/02/2020,N,\r\n";
+
+    public void testColumns() {
+        final List<ColumnMetaData> columns = TradeFlatMapper.columns();
+        assertThat(columns).extracting(ColumnMetaData::getColName).containsExactly("id", "qty", "price", "tradeDate", "settled", "account");
+        assertThat(columns.get(1).getType()).isEqualTo(ColumnMetaData.TYPE_INT);
+        assertThat(columns.get(2).getStartPosition()).isEqualTo(12);
+        assertThat(columns.get(2).getEndPosition()).isEqualTo(19);
+        assertThat(TradeFlatMapper.metaData().getColumnIndexMap().get("tradeDate")).isEqualTo(3);
+    }
+
+    public void testDecodeDelimited() {
+        final Parser p = DefaultParserFactory.getInstance().newDelimitedParser(TradeFlatMapper.metaData(), new StringReader(CSV), ',', '"', false);
+        final List<Trade> trades = p.stream().map(TradeFlatMapper::decode).collect(Collectors.toList());
+        assertThat(trades).hasSize(2);
+        final Trade t1 = trades.get(0);
+        assertThat(t1.id).isEqualTo("T1");
+        assertThat(t1.quantity).isEqualTo(10);
+        assertThat(t1.getPrice()).isEqualTo(new BigDecimal("1.5"));
+        assertThat(t1.tradeDate).isEqualTo(LocalDate.of(2020, 1, 31));
+        assertTrue(t1.isSettled());
+        assertThat(t1.account).isEqualTo(42L);
+        final Trade t2 = trades.get(1);
+        assertThat(t2.quantity).isEqualTo(0);
+        assertFalse(t2.isSettled());
+        assertThat(t2.account).isNull();
+    }
+
+    public void testRecordBinderReadsLikeTheMapper() {
+        final String csv = CSV + "T3,,3,,,\r\n";
+        final RecordBinder<Trade> binder = RecordBinder.of(Trade.class);
+        final Parser p = DefaultParserFactory.getInstance().newDelimitedParser(TradeFlatMapper.metaData(), new StringReader(csv), ',', '"', false);
+        p.stream().forEach(r -> assertSameTrade(TradeFlatMapper.decode(r), binder.bind(r)));
+
+        // blank primitives are 0 / false even with a strict parse
+        final DataSet ds = DefaultParserFactory.getInstance().newDelimitedParser(TradeFlatMapper.metaData(), new StringReader(csv), ',', '"', false)
+                .parse();
+        ds.setStrictNumericParse(true);
+        while (ds.next()) {
+            assertSameTrade(TradeFlatMapper.decode(ds), binder.bind((Record) ds));
+        }
+    }
+
+    private static void assertSameTrade(final Trade expected, final Trade actual) {
+        assertThat(actual.id).isEqualTo(expected.id);
+        assertThat(actual.quantity).isEqualTo(expected.quantity);
+        assertThat(actual.getPrice()).isEqualTo(expected.getPrice());
+        assertThat(actual.tradeDate).isEqualTo(expected.tradeDate);
+        assertThat(actual.isSettled()).isEqualTo(expected.isSettled());
+        assertThat(actual.account).isEqualTo(expected.account);
+    }
+
+    public void testFieldsDifferingByCase() {
+        final Parser p = DefaultParserFactory.getInstance().newDelimitedParser(RatesFlatMapper.metaData(), new StringReader("31/01/2020,2020-02-01\r\n"),
+                ',', '"', false);
+        final Rates rates = p.stream().map(RatesFlatMapper::decode).findFirst().get();
+        assertThat(rates.rate).isEqualTo(LocalDate.of(2020, 1, 31));
+        assertThat(rates.Rate).isEqualTo(LocalDate.of(2020, 2, 1));
+    }
+
+    public void testRoundTripFixedLength() throws IOException {
+        final Trade trade = new Trade();
+        trade.id = "T9";
+        trade.quantity = 7;
+        trade.setPrice(new BigDecimal("99.5"));
+        trade.tradeDate = LocalDate.of(2021, 12, 24);
+        trade.setSettled(true);
+
+        final StringWriter out = new StringWriter();
+        try (Writer writer = new FixedWriterFactory(TradeFlatMapper.mapping()).createWriter(out)) {
+            TradeFlatMapper.encode(trade, writer);
+        }
+        assertThat(out.toString()).startsWith("T9    7    99.5    24/12/2021Y    ");
+
+        final Parser p = DefaultParserFactory.getInstance().newFixedLengthParser(TradeFlatMapper.metaData(), new StringReader(out.toString()));
+        final Trade back = p.stream().map(TradeFlatMapper::decode).findFirst().get();
+        assertThat(back.id).isEqualTo("T9");
+        assertThat(back.quantity).isEqualTo(7);
+        assertThat(back.getPrice()).isEqualTo(new BigDecimal("99.5"));
+        assertThat(back.tradeDate).isEqualTo(trade.tradeDate);
+        assertTrue(back.isSettled());
+        assertThat(back.account).isNull();
+    }
+
+    public void testEncodeDelimited() throws IOException {
+        final Trade trade = new Trade();
+        trade.id = "T3";
+        trade.quantity = 1;
+        trade.tradeDate = LocalDate.of(2020, 3, 1);
+        trade.account = 5L;
+
+        final StringWriter out = new StringWriter();
+        try (Writer writer = new DelimiterWriterFactory(TradeFlatMapper.mapping(), ',', '"').createWriter(out)) {
+            TradeFlatMapper.encode(trade, writer);
+        }
+        assertThat(out.toString()).startsWith("id,qty,price,tradeDate,settled,account").contains("T3,1,,01/03/2020,N,5");
+    }
+}
@@ -12,6 +12,7 @@ import net.objectlab.kit.console.ConsoleMenu;
 import net.objectlab.kit.console.Repeater;
 import net.sf.flatpack.examples.createsamplecsv.CSVTestFileCreator;
 import net.sf.flatpack.examples.csvheaderandtrailer.CSVHeaderAndTrailer;
+import net.sf.flatpack.examples.binding.BindingBenchmark;
 import net.sf.flatpack.examples.csvperformancetest.CSVPerformanceTest;
 import net.sf.flatpack.examples.delimiteddynamiccolumns.DelimitedWithPZMap;
 import net.sf.flatpack.examples.delimiteddynamiccolumnswitherrors.DelimitedWithPZMapErrors;
@@ -76,6 +77,7 @@ public class Examples implements Repeater {
         menu.addMenuItem("LowLevelParse", "doLowLevelParse", false);
         menu.addMenuItem("DelimitedMultiLine", "doDelimitedMultiLine", false);
         menu.addMenuItem("NumericsAndDates", "doNumericsAndDates", false);
+        menu.addMenuItem("BindingBenchmark", "doBindingBenchmark", false);
         menu.addMenuItem("Ask for GC", "doGC", false);
         menu.addMenuItem("Test StringBuffer", "doStringBuffer", false);
         menu.addMenuItem("Test Delim Parser Perform", "doTestParsers", false);
@@ -224,6 +226,16 @@ public class Examples implements Repeater {
         }
     }
 
+    public void doBindingBenchmark() {
+        try {
+            final int rows = ConsoleMenu.getInt("Rows ", 200_000);
+            final int iterations = ConsoleMenu.getInt("Iterations ", 10);
+            BindingBenchmark.call(rows, iterations);
+        } catch (final Exception e) {
+            LOG.error(ISSUE, e);
+        }
+    }
+
     public void doStringBuffer() {
         final int repeat = ConsoleMenu.getInt("How many times?", 100000);
         final int characters = ConsoleMenu.getInt("How many char?", 20);
@@ -0,0 +1,94 @@
+package net.sf.flatpack.examples.binding;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+
+import net.sf.flatpack.DataSet;
+import net.sf.flatpack.DefaultParserFactory;
+import net.sf.flatpack.bind.FlatColumn;
+import net.sf.flatpack.bind.RecordBinder;
+
+/**
+ * Compares populating beans with hand written getString/getInt calls against the
+ * RecordBinder, on the same parsed DataSet.
+ */
+public class BindingBenchmark {
+    public static class Trade {
+        @FlatColumn(name = "ID")
+        private long id;
+        @FlatColumn(name = "ACCOUNT")
+        private String account;
+        @FlatColumn(name = "QTY")
+        private int quantity;
+        @FlatColumn(name = "PRICE")
+        private double price;
+        @FlatColumn(name = "AMOUNT")
+        private BigDecimal amount;
+
+        public void setId(final long id) {
+            this.id = id;
+        }
+
+        public void setAccount(final String account) {
+            this.account = account;
+        }
+
+        public void setQuantity(final int quantity) {
+            this.quantity = quantity;
+        }
+
+        public void setPrice(final double price) {
+            this.price = price;
+        }
+
+        public void setAmount(final BigDecimal amount) {
+            this.amount = amount;
+        }
+    }
+
+    public static void main(final String[] args) {
+        final int rows = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        final int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        call(rows, iterations);
+    }
+
+    public static void call(final int rows, final int iterations) {
+        final DataSet ds = DefaultParserFactory.newCsvParser(new StringReader(createData(rows))).parse();
+        final RecordBinder<Trade> binder = RecordBinder.of(Trade.class);
+
+        for (int i = 0; i < iterations; i++) {
+            ds.goTop();
+            long start = System.nanoTime();
+            long check = 0;
+            while (ds.next()) {
+                final Trade t = new Trade();
+                t.setId(ds.getLong("ID"));
+                t.setAccount(ds.getString("ACCOUNT"));
+                t.setQuantity(ds.getInt("QTY"));
+                t.setPrice(ds.getDouble("PRICE"));
+                t.setAmount(ds.getBigDecimal("AMOUNT"));
+                check += t.quantity;
+            }
+            final long manual = System.nanoTime() - start;
+
+            ds.goTop();
+            start = System.nanoTime();
+            while (ds.next()) {
+                final Trade t = binder.bind(ds.getRecord().get());
+                check -= t.quantity;
+            }
+            final long bound = System.nanoTime() - start;
+
+            System.out.println("Iteration " + i + " manual: " + manual / 1_000_000 + "ms binder: " + bound / 1_000_000 + "ms (check " + check + ")");
+        }
+    }
+
+    private static String createData(final int rows) {
+        final StringBuilder sb = new StringBuilder("ID,ACCOUNT,QTY,PRICE,AMOUNT\r\n");
+        for (int i = 0; i < rows; i++) {
+            sb.append(i).append(",ACC").append(i % 100).append(',').append(i % 1000).append(',').append(i % 97).append(".25,")
+                    .append(i).append(".10\r\n");
+        }
+        return sb.toString();
+    }
+}
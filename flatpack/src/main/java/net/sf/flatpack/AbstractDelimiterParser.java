@@ -35,6 +35,7 @@ package net.sf.flatpack;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -60,6 +61,8 @@ public abstract class AbstractDelimiterParser extends AbstractParser {
 
     private int lineCount = 0;
 
+    private boolean pipelineFirstRead = false;
+
     public AbstractDelimiterParser(final Reader dataSourceReader, final String dataDefinition, final char delimiter, final char qualifier,
             final boolean ignoreFirstRecord) {
         super(dataSourceReader, dataDefinition);
@@ -116,6 +119,13 @@ public abstract class AbstractDelimiterParser extends AbstractParser {
         return lineCount;
     }
 
+    /**
+     * @since 4.1
+     */
+    protected void setLineCount(final int lineCount) {
+        this.lineCount = lineCount;
+    }
+
     /*
      * This is the new version of doDelimitedFile using InputStream instead of
      * File. This is more flexible especially it is working with WebStart.
@@ -127,7 +137,7 @@ public abstract class AbstractDelimiterParser extends AbstractParser {
         if (dataSource == null) {
             throw new IllegalArgumentException("dataSource is null");
         }
-        final DefaultDataSet ds = new DefaultDataSet(getPzMetaData(), this);
+        final DefaultDataSet ds = newDataSet();
         try (BufferedReader br = new BufferedReader(dataSource)) {
             // gather the conversion properties
             ds.setPZConvertProps(ParserUtils.loadConvertProperties());
@@ -136,6 +146,7 @@ public abstract class AbstractDelimiterParser extends AbstractParser {
             /** loop through each line in the file */
             String line = null;
             int estimatedColCount = FPConstants.SPLITLINE_SIZE_INIT;
+            final LazyRow.Splitter splitter = (row, record, report) -> splitLazyRow(ds, row, record, report);
             while ((line = fetchNextRecord(br, getQualifier(), getDelimiter())) != null) {
                 // check to see if the user has elected to skip the first record
                 if (!processedFirst && isIgnoreFirstRecord()) {
@@ -155,6 +166,11 @@ public abstract class AbstractDelimiterParser extends AbstractParser {
                     continue;
                 }
 
+                if (isSplitOnAccess(true)) {
+                    ds.addRow(newLazyRow(line, lineCount, null, splitter));
+                    continue;
+                }
+
                 List<String> columns = ParserUtils.splitLine(line, getDelimiter(), getQualifier(), estimatedColCount, isPreserveLeadingWhitespace(),
                         isPreserveTrailingWhitespace());
                 final String mdkey = ParserUtils.getCMDKeyForDelimitedFile(getPzMetaData(), columns);
@@ -207,6 +223,10 @@ public abstract class AbstractDelimiterParser extends AbstractParser {
                     row.setRawData(line);
                 }
 
+                if (!convertTypedColumns(ds, row, metaData, line)) {
+                    continue;
+                }
+
                 // add the row to the array
                 ds.addRow(row);
 
@@ -217,6 +237,163 @@ public abstract class AbstractDelimiterParser extends AbstractParser {
         return ds;
     }
 
+    @Override
+    protected long scan(final List<DataError> errors) throws IOException {
+        if (getDataSourceReader() == null) {
+            throw new IllegalArgumentException("dataSource is null");
+        }
+        lineCount = 0;
+        long count = 0;
+        try (BufferedReader br = new BufferedReader(getDataSourceReader())) {
+            boolean processedFirst = false;
+            String line = null;
+            while ((line = fetchNextRecord(br, getQualifier(), getDelimiter())) != null) {
+                if (!processedFirst && isIgnoreFirstRecord()) {
+                    processedFirst = true;
+                    continue;
+                } else if (!processedFirst && shouldCreateMDFromFile()) {
+                    processedFirst = true;
+                    if (errors != null) {
+                        setPzMetaData(ParserUtils.getPZMetaDataFromFile(line, delimiter, qualifier, this, isAddSuffixToDuplicateColumnNames()));
+                    }
+                    continue;
+                }
+                count++;
+                if (errors != null) {
+                    checkRecord(errors, line, lineCount);
+                }
+            }
+        } finally {
+            closeReaders();
+        }
+        return count;
+    }
+
+    /**
+     * Splits a record and runs the checks of the parse on it, for validate() and the
+     * pipeline; may be called from several threads.
+     *
+     * @param errors
+     *            receives the errors of the record
+     * @param line
+     *            the record
+     * @param lineNo
+     *            line number of the record
+     * @return the columns, padded or truncated to the mapping as the parse does, null if the
+     *         parse would leave the record out
+     * @since 4.1
+     */
+    protected List<String> checkRecord(final List<DataError> errors, final String line, final int lineNo) {
+        final String lineData = isStoreRawDataToDataError() ? line : null;
+        if (oddNumberOfQualifier(line, getQualifier())) {
+            addError(errors, "Odd number of Qualifier characters", lineNo, 1, lineData);
+            return null;
+        }
+        final List<String> columns = ParserUtils.splitLine(line, getDelimiter(), getQualifier(), FPConstants.SPLITLINE_SIZE_INIT,
+                isPreserveLeadingWhitespace(), isPreserveTrailingWhitespace());
+        final int columnCount = ParserUtils.getColumnMetaData(ParserUtils.getCMDKeyForDelimitedFile(getPzMetaData(), columns), getPzMetaData()).size();
+        if (columns.size() > columnCount) {
+            if (isIgnoreExtraColumns()) {
+                addError(errors, "Flatpack truncated line to correct number of columns", lineNo, 1, lineData);
+                return new ArrayList<>(columns.subList(0, columnCount));
+            }
+            addError(errors, "Too many columns expected: " + columnCount + " Flatpack got: " + columns.size(), lineNo, 2, lineData);
+            return null;
+        } else if (columns.size() < columnCount) {
+            if (isHandlingShortLines()) {
+                addError(errors, "Flatpack padded line to correct number of columns", lineNo, 1, lineData);
+                while (columns.size() < columnCount) {
+                    columns.add("");
+                }
+                return columns;
+            }
+            addError(errors, "Too few columns expected: " + columnCount + " only got: " + columns.size(), lineNo, 2, lineData);
+            return null;
+        }
+        return columns;
+    }
+
+    @Override
+    boolean isPipelineSupported() {
+        return true;
+    }
+
+    @Override
+    String nextPipelineRecord(final BufferedReader br) throws IOException {
+        String line = null;
+        while ((line = fetchNextRecord(br, getQualifier(), getDelimiter())) != null) {
+            if (!pipelineFirstRead && isIgnoreFirstRecord()) {
+                pipelineFirstRead = true;
+                continue;
+            } else if (!pipelineFirstRead && shouldCreateMDFromFile()) {
+                pipelineFirstRead = true;
+                setPzMetaData(ParserUtils.getPZMetaDataFromFile(line, delimiter, qualifier, this, isAddSuffixToDuplicateColumnNames()));
+                continue;
+            }
+            pipelineFirstRead = true;
+            return line;
+        }
+        return null;
+    }
+
+    @Override
+    int getPipelineLineNo() {
+        return lineCount;
+    }
+
+    @Override
+    Row buildPipelineRow(final String line, final int lineNo, final List<DataError> errors) {
+        final List<String> columns = checkRecord(errors, line, lineNo);
+        if (columns == null) {
+            return null;
+        }
+        final String mdkey = ParserUtils.getCMDKeyForDelimitedFile(getPzMetaData(), columns);
+        final Row row = new Row();
+        row.setMdkey(mdkey.equals(FPConstants.DETAIL_ID) ? null : mdkey);
+        row.setCols(columns);
+        row.setRowNumber(lineNo);
+        if (isFlagEmptyRows()) {
+            row.setEmpty(ParserUtils.isListElementsEmpty(columns));
+        }
+        if (isStoreRawDataToDataSet()) {
+            row.setRawData(line);
+        }
+        return convertPipelineRow(row, ParserUtils.getColumnMetaData(mdkey, getPzMetaData()), line, errors);
+    }
+
+    /**
+     * Splits the record of a lazy row, see setLazyRows.  The record is padded or truncated to
+     * the number of columns of the mapping.
+     */
+    private void splitLazyRow(final DefaultDataSet ds, final Row row, final String line, final boolean report) {
+        final List<ColumnMetaData> metaData = ParserUtils.getColumnMetaData(FPConstants.DETAIL_ID, getPzMetaData());
+        final int columnCount = metaData.size();
+        final List<String> columns = ParserUtils.splitLine(line, getDelimiter(), getQualifier(), columnCount, isPreserveLeadingWhitespace(),
+                isPreserveTrailingWhitespace());
+        final String lineData = isStoreRawDataToDataError() ? line : null;
+        if (columns.size() > columnCount) {
+            if (report && isIgnoreExtraColumns()) {
+                addError(ds, "Flatpack truncated line to correct number of columns", row.getRowNumber(), 1, lineData);
+            } else if (report) {
+                addError(ds, "Too many columns expected: " + columnCount + " Flatpack got: " + columns.size(), row.getRowNumber(), 2, lineData);
+            }
+            row.setCols(columns.subList(0, columnCount));
+        } else {
+            if (columns.size() < columnCount) {
+                if (report && isHandlingShortLines()) {
+                    addError(ds, "Flatpack padded line to correct number of columns", row.getRowNumber(), 1, lineData);
+                } else if (report) {
+                    addError(ds, "Too few columns expected: " + columnCount + " only got: " + columns.size(), row.getRowNumber(), 2, lineData);
+                }
+                while (columns.size() < columnCount) {
+                    columns.add("");
+                }
+            }
+            row.setCols(columns);
+        }
+        completeLazyRow(ds, row, metaData, line, report);
+    }
+
     private boolean oddNumberOfQualifier(final String line, final char q) {
         if (line == null || line.isEmpty()) {
             return false;
@@ -276,40 +453,12 @@ public abstract class AbstractDelimiterParser extends AbstractParser {
 
             final String trimmedLineData = lineData.toString().trim();
             if (processingMultiLine && trimmedLineData.length() > 0 && trimmedLen > 0) {
-                // need to do one last check here. it is possible that the "
-                // could be part of the data
-                // excel will escape these with another quote; here is some
-                // data "" This would indicate
-                // there is more to the multiline
-                if (trimmed.charAt(trimmed.length() - 1) == qual && !trimmed.endsWith("" + qual + qual)) {
-                    // it is safe to assume we have reached the end of the
-                    // line break
-                    processingMultiLine = false;
-                    lineData.append(LINE_BREAK).append(line);
-                } else {
-                    // check to see if this is the last line of the record
-                    // looking for a qualifier followed by a delimiter
-                    lineData.append(LINE_BREAK).append(line);
-                    boolean qualiFound = false;
-                    for (final char element : chrArry) {
-                        if (qualiFound) {
-                            if (element == ' ') {
-                                continue;
-                            } else if (element == delim) {
-                                processingMultiLine = ParserUtils.isMultiLine(chrArry, delim, qual);
-                                break;
-                            }
-                            qualiFound = false;
-                        } else if (element == qual) {
-                            qualiFound = true;
-                        }
-                    }
-
-                    // check to see if we are still in multi line mode, if
-                    // so grab the next line
-                    if (processingMultiLine) {
-                        continue;
-                    }
+                lineData.append(LINE_BREAK).append(line);
+                // check to see if we are still in multi line mode, if
+                // so grab the next line
+                processingMultiLine = ParserUtils.isMultiLineContinued(chrArry, trimmedLen, delim, qual);
+                if (processingMultiLine) {
+                    continue;
                 }
             } else {
                 // throw the line into lineData var.
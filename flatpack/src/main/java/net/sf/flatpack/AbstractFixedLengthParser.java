@@ -33,8 +33,10 @@
 package net.sf.flatpack;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Map;
 
@@ -45,6 +47,7 @@ import net.sf.flatpack.structure.ColumnMetaData;
 import net.sf.flatpack.structure.Row;
 import net.sf.flatpack.util.FPConstants;
 import net.sf.flatpack.util.FixedWidthParserUtils;
+import net.sf.flatpack.util.LineCounter;
 import net.sf.flatpack.util.ParserUtils;
 
 /**
@@ -53,6 +56,8 @@ import net.sf.flatpack.util.ParserUtils;
  */
 public abstract class AbstractFixedLengthParser extends AbstractParser {
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractFixedLengthParser.class);
+    private int pipelineLineNo = 0;
+    private volatile Map<String, Integer> pipelineRecordLengths;
 
     protected AbstractFixedLengthParser(final Reader dataSourceReader, final String dataDefinition) {
         super(dataSourceReader, dataDefinition);
@@ -81,13 +86,14 @@ public abstract class AbstractFixedLengthParser extends AbstractParser {
      */
     private DataSet doFixedLengthFile(final Reader dataSource) throws IOException {
 
-        final DefaultDataSet ds = new DefaultDataSet(getPzMetaData(), this);
+        final DefaultDataSet ds = newDataSet();
 
         try (BufferedReader br = new BufferedReader(dataSource)) {
             // gather the conversion properties
             ds.setPZConvertProps(ParserUtils.loadConvertProperties());
 
             final Map<String, Integer> recordLengths = ParserUtils.calculateRecordLengths(getPzMetaData());
+            final LazyRow.Splitter splitter = (row, record, report) -> splitLazyRow(ds, row, record, report);
 
             // Read in the flat file
             String line = null;
@@ -133,6 +139,11 @@ public abstract class AbstractFixedLengthParser extends AbstractParser {
                     }
                 }
 
+                if (isSplitOnAccess(false)) {
+                    ds.addRow(newLazyRow(line, lineCount, mdkey.equals(FPConstants.DETAIL_ID) ? null : mdkey, splitter));
+                    continue;
+                }
+
                 final Row row = new Row();
                 row.setMdkey(mdkey.equals(FPConstants.DETAIL_ID) ? null : mdkey); // try
 
@@ -150,6 +161,10 @@ public abstract class AbstractFixedLengthParser extends AbstractParser {
                     row.setRawData(line);
                 }
 
+                if (!convertTypedColumns(ds, row, cmds, line)) {
+                    continue;
+                }
+
                 // add the row to the array
                 ds.addRow(row);
             }
@@ -158,4 +173,130 @@ public abstract class AbstractFixedLengthParser extends AbstractParser {
         }
         return ds;
     }
+
+    @Override
+    protected long scan(final List<DataError> errors) throws IOException {
+        final File file = getDataSourceFile();
+        if (errors == null && file != null && LineCounter.isSupported(Charset.defaultCharset())) {
+            // one record per non blank line, counted without decoding the file
+            final long count = LineCounter.countNonBlankLines(file.toPath());
+            if (count >= 0) {
+                closeReaders();
+                return count;
+            }
+        }
+
+        long count = 0;
+        try (BufferedReader br = new BufferedReader(getDataSourceReader())) {
+            final Map<String, Integer> recordLengths = errors != null ? ParserUtils.calculateRecordLengths(getPzMetaData()) : null;
+            String line = null;
+            int lineCount = 0;
+            while ((line = br.readLine()) != null) {
+                lineCount++;
+                // empty line skip past it
+                if (line.trim().length() == 0) {
+                    continue;
+                }
+                count++;
+                if (errors != null) {
+                    checkRecord(errors, line, lineCount, recordLengths.get(FixedWidthParserUtils.getCMDKey(getPzMetaData(), line)));
+                }
+            }
+        } finally {
+            closeReaders();
+        }
+        return count;
+    }
+
+    /**
+     * Runs the length checks of the parse on a record, for validate() and the pipeline.
+     *
+     * @return the record padded or truncated to its length as the parse does, null if the
+     *         parse would leave it out
+     */
+    private String checkRecord(final List<DataError> errors, final String line, final int lineNo, final int recordLength) {
+        if (line.length() > recordLength) {
+            if (isIgnoreExtraColumns()) {
+                addError(errors, "TRUNCATED LINE TO CORRECT LENGTH", lineNo, 1, null);
+                return line.substring(0, recordLength);
+            }
+            addError(errors, "LINE TOO LONG. LINE IS " + line.length() + " LONG. SHOULD BE " + recordLength, lineNo, 2,
+                    isStoreRawDataToDataError() ? line : null);
+            return null;
+        } else if (line.length() < recordLength) {
+            if (isHandlingShortLines()) {
+                addError(errors, "PADDED LINE TO CORRECT RECORD LENGTH", lineNo, 1, null);
+                return line + ParserUtils.padding(recordLength - line.length(), ' ');
+            }
+            addError(errors, "LINE TOO SHORT. LINE IS " + line.length() + " LONG. SHOULD BE " + recordLength, lineNo, 2,
+                    isStoreRawDataToDataError() ? line : null);
+            return null;
+        }
+        return line;
+    }
+
+    @Override
+    boolean isPipelineSupported() {
+        return true;
+    }
+
+    @Override
+    String nextPipelineRecord(final BufferedReader br) throws IOException {
+        String line = null;
+        while ((line = br.readLine()) != null) {
+            pipelineLineNo++;
+            // empty line skip past it
+            if (line.trim().length() != 0) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    int getPipelineLineNo() {
+        return pipelineLineNo;
+    }
+
+    @Override
+    Row buildPipelineRow(final String record, final int lineNo, final List<DataError> errors) {
+        if (pipelineRecordLengths == null) {
+            pipelineRecordLengths = ParserUtils.calculateRecordLengths(getPzMetaData());
+        }
+        final String mdkey = FixedWidthParserUtils.getCMDKey(getPzMetaData(), record);
+        final String line = checkRecord(errors, record, lineNo, pipelineRecordLengths.get(mdkey));
+        if (line == null) {
+            return null;
+        }
+        final List<ColumnMetaData> cmds = ParserUtils.getColumnMetaData(mdkey, getPzMetaData());
+        final Row row = new Row();
+        row.setMdkey(mdkey.equals(FPConstants.DETAIL_ID) ? null : mdkey);
+        row.addColumn(FixedWidthParserUtils.splitFixedText(cmds, line, isPreserveLeadingWhitespace(), isPreserveTrailingWhitespace()));
+        row.setRowNumber(lineNo);
+        if (isFlagEmptyRows()) {
+            row.setEmpty(ParserUtils.isListElementsEmpty(row.getCols()));
+        }
+        if (isStoreRawDataToDataSet()) {
+            row.setRawData(line);
+        }
+        return convertPipelineRow(row, cmds, line, errors);
+    }
+
+    /**
+     * @return the file the data source reads, null if unknown; lets countRecords() count
+     *         its lines in parallel
+     * @since 4.1
+     */
+    protected File getDataSourceFile() {
+        return null;
+    }
+
+    /**
+     * Splits the record of a lazy row, see setLazyRows.  Its length has been checked by the parse.
+     */
+    private void splitLazyRow(final DefaultDataSet ds, final Row row, final String line, final boolean report) {
+        final List<ColumnMetaData> cmds = ParserUtils.getColumnMetaData(row.getMdkey() == null ? FPConstants.DETAIL_ID : row.getMdkey(), getPzMetaData());
+        row.setCols(FixedWidthParserUtils.splitFixedText(cmds, line, isPreserveLeadingWhitespace(), isPreserveTrailingWhitespace()));
+        completeLazyRow(ds, row, cmds, line, report);
+    }
 }
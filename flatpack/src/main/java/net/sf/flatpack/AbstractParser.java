@@ -32,6 +32,7 @@
  */
 package net.sf.flatpack;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
@@ -43,7 +44,17 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Stream;
 
+import net.sf.flatpack.bind.RecordBinder;
+import net.sf.flatpack.converter.FPConvertException;
 import net.sf.flatpack.structure.ColumnMetaData;
+import net.sf.flatpack.structure.ColumnarRowStore;
+import net.sf.flatpack.structure.ListRowStore;
+import net.sf.flatpack.structure.OffHeapRowStore;
+import net.sf.flatpack.structure.Row;
+import net.sf.flatpack.structure.RowStore;
+import net.sf.flatpack.structure.SpillRowStore;
+import net.sf.flatpack.util.FPException;
+import net.sf.flatpack.util.FPInvalidUsageException;
 import net.sf.flatpack.util.ParserUtils;
 import net.sf.flatpack.xml.MetaData;
 
@@ -91,6 +102,20 @@ public abstract class AbstractParser implements Parser {
 
     private boolean addSuffixToDuplicateColumnNames = false;
 
+    private boolean flyweightRecords = false;
+
+    private boolean cacheTypedValues = false;
+
+    private String rowStorage = RowStore.LIST;
+
+    private long memoryBudget = SpillRowStore.DEFAULT_MEMORY_BUDGET;
+
+    private long maxMemoryBytes;
+
+    private boolean lazyRows;
+
+    private boolean cacheLazyRows;
+
     public boolean isAddSuffixToDuplicateColumnNames() {
         return addSuffixToDuplicateColumnNames;
     }
@@ -194,8 +219,119 @@ public abstract class AbstractParser implements Parser {
         return new StreamingRecord(parse()).stream();
     }
 
+    @Override
+    public final <T> Stream<T> stream(final Class<T> type) {
+        return stream().map(RecordBinder.of(type)::bind);
+    }
+
+    @Override
+    public final long countRecords() {
+        if (!initialised) {
+            init();
+        }
+        try {
+            return scan(null);
+        } catch (final IOException e) {
+            throw new FPException("Error reading the data source", e);
+        }
+    }
+
+    @Override
+    public final List<DataError> validate() {
+        if (!initialised) {
+            init();
+        }
+        final List<DataError> errors = new ArrayList<>();
+        try {
+            scan(errors);
+        } catch (final IOException e) {
+            throw new FPException("Error reading the data source", e);
+        }
+        return errors;
+    }
+
+    @Override
+    public final PipelinedDataSet parseAsPipeline(final int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("workers must be at least 1: " + workers);
+        }
+        if (!isPipelineSupported()) {
+            throw new FPInvalidUsageException(getClass().getName() + " cannot be parsed as a pipeline");
+        }
+        if (!initialised) {
+            init();
+        }
+        return new PipelinedDataSet(this, workers);
+    }
+
     protected abstract DataSet doParse();
 
+    /**
+     * Reads the records of the data source without building rows, for countRecords() and
+     * validate().  The default throws FPInvalidUsageException, for parsers written before
+     * these methods existed.
+     *
+     * @param errors
+     *            receives what the parse would report for each record, null to only count
+     * @return the number of records read
+     * @throws IOException
+     *             if the data source cannot be read
+     * @since 4.1
+     */
+    protected long scan(final List<DataError> errors) throws IOException {
+        throw new FPInvalidUsageException(getClass().getName() + " does not support countRecords() and validate()");
+    }
+
+    /**
+     * The pipeline methods below are only implemented by the parsers of this package, a
+     * parser extending AbstractParser elsewhere cannot be parsed as a pipeline.
+     *
+     * @return true if the parser implements the pipeline methods
+     */
+    boolean isPipelineSupported() {
+        return false;
+    }
+
+    /**
+     * Reads the next record for the workers of a pipeline, on the reading thread.
+     *
+     * @return the record, null at the end of the data source
+     */
+    String nextPipelineRecord(final BufferedReader br) throws IOException {
+        throw new FPInvalidUsageException(getClass().getName() + " cannot be parsed as a pipeline");
+    }
+
+    /**
+     * @return line number of the last record returned by nextPipelineRecord
+     */
+    int getPipelineLineNo() {
+        throw new FPInvalidUsageException(getClass().getName() + " cannot be parsed as a pipeline");
+    }
+
+    /**
+     * Builds the row of a record as the parse does, on a worker thread of a pipeline.
+     *
+     * @return the row, null if the record is left out
+     */
+    Row buildPipelineRow(final String record, final int lineNo, final List<DataError> errors) {
+        throw new FPInvalidUsageException(getClass().getName() + " cannot be parsed as a pipeline");
+    }
+
+    /**
+     * Converts the typed columns of a row built by a pipeline worker.
+     *
+     * @return the row, null if a value could not be converted
+     */
+    Row convertPipelineRow(final Row row, final List<ColumnMetaData> cmds, final String line, final List<DataError> errors) {
+        try {
+            row.setTypedValues(ParserUtils.convertTypedColumns(cmds, row.getCols()));
+            return row;
+        } catch (final FPConvertException ex) {
+            addError(errors, ex.getMessage(), row.getRowNumber(), 2, isStoreRawDataToDataError() ? line : null);
+            return null;
+        }
+    }
+
     protected abstract void init();
 
     protected void closeReaders() throws IOException {
@@ -280,6 +416,80 @@ public abstract class AbstractParser implements Parser {
         ds.addError(new DataError(errorDesc, lineNo, errorLevel, lineData));
     }
 
+    /**
+     * Same as addError for a scan, see validate().
+     *
+     * @since 4.1
+     */
+    protected void addError(final List<DataError> errors, final String errorDesc, final int lineNo, final int errorLevel, final String lineData) {
+        if (errorLevel == 1 && isIgnoreParseWarnings()) {
+            // user has selected to not log warnings in the parser
+            return;
+        }
+        errors.add(new DataError(errorDesc, lineNo, errorLevel, lineData));
+    }
+
+    /**
+     * Converts the columns which declare a type in the mapping once, at parse time.  A value
+     * which does not convert is logged as an error and the row should be left out of the DataSet.
+     *
+     * @param ds
+     *            the data set from the parser
+     * @param row
+     *            the row, its columns already set
+     * @param cmds
+     *            column meta data of the row
+     * @param line
+     *            Data of the line being parsed
+     * @return false if a value could not be converted
+     * @since 4.1
+     */
+    protected boolean convertTypedColumns(final DefaultDataSet ds, final Row row, final List<ColumnMetaData> cmds, final String line) {
+        try {
+            row.setTypedValues(ParserUtils.convertTypedColumns(cmds, row.getCols()));
+            return true;
+        } catch (final FPConvertException ex) {
+            addError(ds, ex.getMessage(), row.getRowNumber(), 2, isStoreRawDataToDataError() ? line : null);
+            return false;
+        }
+    }
+
+    /**
+     * @param recordTypeFromColumns
+     *            true if the record type of a line is found from its columns
+     * @return true if the records should be kept as lazy rows, see setLazyRows
+     */
+    boolean isSplitOnAccess(final boolean recordTypeFromColumns) {
+        return lazyRows && RowStore.LIST.equals(rowStorage) && !(recordTypeFromColumns && getPzMetaData().isAnyRecordFormatSpecified());
+    }
+
+    LazyRow newLazyRow(final String line, final int lineNo, final String mdkey, final LazyRow.Splitter splitter) {
+        final LazyRow row = new LazyRow(line, splitter);
+        row.setMdkey(mdkey);
+        row.setRowNumber(lineNo);
+        if (isStoreRawDataToDataSet()) {
+            row.setRawData(line);
+        }
+        return row;
+    }
+
+    /**
+     * Flags and converts a lazy row once its columns are set.  Unlike at parse time, the row
+     * stays in the DataSet when a value does not convert.
+     */
+    void completeLazyRow(final DefaultDataSet ds, final Row row, final List<ColumnMetaData> cmds, final String line, final boolean report) {
+        if (isFlagEmptyRows()) {
+            row.setEmpty(ParserUtils.isListElementsEmpty(row.getCols()));
+        }
+        try {
+            row.setTypedValues(ParserUtils.convertTypedColumns(cmds, row.getCols()));
+        } catch (final FPConvertException ex) {
+            if (report) {
+                addError(ds, ex.getMessage(), row.getRowNumber(), 2, isStoreRawDataToDataError() ? line : null);
+            }
+        }
+    }
+
     /**
      * @return the dataSourceReader
      */
@@ -390,6 +600,113 @@ public abstract class AbstractParser implements Parser {
         return this;
     }
 
+    @Override
+    public boolean isFlyweightRecords() {
+        return flyweightRecords;
+    }
+
+    @Override
+    public Parser setFlyweightRecords(final boolean flyweightRecords) {
+        this.flyweightRecords = flyweightRecords;
+        return this;
+    }
+
+    @Override
+    public boolean isCacheTypedValues() {
+        return cacheTypedValues;
+    }
+
+    @Override
+    public Parser setCacheTypedValues(final boolean cacheTypedValues) {
+        this.cacheTypedValues = cacheTypedValues;
+        return this;
+    }
+
+    @Override
+    public String getRowStorage() {
+        return rowStorage;
+    }
+
+    @Override
+    public Parser setRowStorage(final String rowStorage) {
+        if (!RowStore.LIST.equals(rowStorage) && !RowStore.COLUMNAR.equals(rowStorage) && !RowStore.OFF_HEAP.equals(rowStorage)
+                && !RowStore.MAPPED.equals(rowStorage) && !RowStore.SPILL.equals(rowStorage)) {
+            throw new IllegalArgumentException("Unknown row storage: " + rowStorage);
+        }
+        this.rowStorage = rowStorage;
+        return this;
+    }
+
+    @Override
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    @Override
+    public Parser setMemoryBudget(final long memoryBudget) {
+        if (memoryBudget <= 0) {
+            throw new IllegalArgumentException("memoryBudget must be positive: " + memoryBudget);
+        }
+        this.memoryBudget = memoryBudget;
+        return this;
+    }
+
+    @Override
+    public long getMaxMemoryBytes() {
+        return maxMemoryBytes;
+    }
+
+    @Override
+    public Parser setMaxMemoryBytes(final long maxMemoryBytes) {
+        if (maxMemoryBytes < 0) {
+            throw new IllegalArgumentException("maxMemoryBytes cannot be negative: " + maxMemoryBytes);
+        }
+        this.maxMemoryBytes = maxMemoryBytes;
+        return this;
+    }
+
+    @Override
+    public boolean isLazyRows() {
+        return lazyRows;
+    }
+
+    @Override
+    public Parser setLazyRows(final boolean lazyRows) {
+        this.lazyRows = lazyRows;
+        return this;
+    }
+
+    @Override
+    public boolean isCacheLazyRows() {
+        return cacheLazyRows;
+    }
+
+    @Override
+    public Parser setCacheLazyRows(final boolean cacheLazyRows) {
+        this.cacheLazyRows = cacheLazyRows;
+        return this;
+    }
+
+    /**
+     * @return a new DataSet storing its rows as set by setRowStorage
+     * @since 4.1
+     */
+    protected DefaultDataSet newDataSet() {
+        final RowStore rowStore;
+        if (RowStore.COLUMNAR.equals(rowStorage)) {
+            rowStore = new ColumnarRowStore();
+        } else if (RowStore.OFF_HEAP.equals(rowStorage)) {
+            rowStore = new OffHeapRowStore();
+        } else if (RowStore.MAPPED.equals(rowStorage)) {
+            rowStore = new OffHeapRowStore(true, OffHeapRowStore.DEFAULT_CHUNK_SIZE);
+        } else if (RowStore.SPILL.equals(rowStorage)) {
+            rowStore = new SpillRowStore(memoryBudget, SpillRowStore.DEFAULT_BLOCK_SIZE);
+        } else {
+            rowStore = new ListRowStore();
+        }
+        return new DefaultDataSet(getPzMetaData(), this, rowStore);
+    }
+
     @Override
     public String getDataFileTable() {
         return dataFileTable;
@@ -122,4 +122,12 @@ public class DataError {
     public String getRawData() {
         return rawData;
     }
+
+    /**
+     * @return an estimate of the heap retained by this error, in bytes
+     * @since 4.1
+     */
+    public long getEstimatedSize() {
+        return 32 + (errorDesc != null ? 40 + errorDesc.length() : 0) + (rawData != null ? 40 + rawData.length() : 0);
+    }
 }
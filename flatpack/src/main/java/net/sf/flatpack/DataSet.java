@@ -32,7 +32,12 @@
  */
 package net.sf.flatpack;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
 import java.util.Properties;
+import java.util.stream.Stream;
 
 import net.sf.flatpack.ordering.OrderBy;
 
@@ -79,6 +84,40 @@ public interface DataSet extends Record, RecordDataSet {
      */
     int getRowCount();
 
+    /**
+     * Returns an estimate of the heap retained by the rows (with their raw data when kept)
+     * and the errors of the DataSet, maintained as the rows are parsed.  Rows kept off heap
+     * or spilled to disk are not counted.
+     *
+     * @return estimated bytes
+     * @since 4.1
+     */
+    long getEstimatedSize();
+
+    /**
+     * Saves the rows, MetaData and errors of the DataSet in a binary snapshot, which
+     * DataSetSnapshot.load() maps back without parsing the file again.
+     *
+     * @param snapshot
+     *            the file to write, replaced if it exists
+     * @throws IOException if the snapshot cannot be written
+     * @since 4.1
+     */
+    void saveSnapshot(Path snapshot) throws IOException;
+
+    /**
+     * Saves the DataSet as saveSnapshot(Path) does, with the size, last modified time and
+     * hash of the file it was parsed from, so the snapshot is only loaded for that file.
+     *
+     * @param snapshot
+     *            the file to write, replaced if it exists
+     * @param source
+     *            the parsed file
+     * @throws IOException if the snapshot cannot be written or the source read
+     * @since 4.1
+     */
+    void saveSnapshot(Path snapshot, Path source) throws IOException;
+
     /**
      * Returns true or false as to whether or not the line number contains an
      * error. The import will skip the line if it contains an error and it will
@@ -171,4 +210,77 @@ public interface DataSet extends Record, RecordDataSet {
      *
      */
     void clearAll();
+
+    /**
+     * Binds the records, from the current position to the end of the DataSet, to new
+     * instances of the given class.
+     *
+     * @param type
+     *          class bound to the records, see net.sf.flatpack.bind.RecordBinder
+     * @return a stream of T
+     * @since 4.1
+     */
+    <T> Stream<T> mapTo(Class<T> type);
+
+    /**
+     * Builds a hash index on the values of the given columns of the detail records, replacing
+     * the previous index if any.  findFirst and findAll then look records up by these values
+     * instead of scanning the DataSet.  The index follows remove and setValue in place; after
+     * orderRows it is built again on the first lookup.
+     *
+     * @param columns
+     *          names of the indexed columns
+     * @exception NoSuchElementException if a column is not in the detail records
+     * @since 4.1
+     */
+    void createIndex(String... columns);
+
+    /**
+     * Looks up the first detail record, in the order of the DataSet, holding the given values
+     * in the columns of createIndex.  The values are compared with getString() of each column.
+     * The current record of the DataSet does not change.
+     *
+     * @param key
+     *          one value per indexed column
+     * @return the record, empty if none matches
+     * @since 4.1
+     */
+    Optional<Record> findFirst(String... key);
+
+    /**
+     * Looks up every detail record holding the given values in the columns of createIndex, in
+     * the order of the DataSet.  The current record of the DataSet does not change.
+     *
+     * @param key
+     *          one value per indexed column
+     * @return the records, empty if none matches
+     * @since 4.1
+     */
+    List<Record> findAll(String... key);
+
+    /**
+     * Makes the DataSet read-only so that it can be read from several threads through
+     * newCursor() or a parallel stream, which a DataSet with lazy rows only allows once frozen.  Lazy rows are split and the index is built now; afterwards addRow,
+     * setValue, remove, orderRows and the clear methods throw an FPInvalidUsageException and
+     * the Records no longer cache typed values in the rows.  Freezing twice has no effect.
+     *
+     * @since 4.1
+     */
+    void freeze();
+
+    /**
+     * @return true once freeze() has been called
+     * @since 4.1
+     */
+    boolean isFrozen();
+
+    /**
+     * Creates a cursor reading the rows with its own position, the DataSet is frozen first.
+     * Each thread should use its own cursor; a cursor created by one thread may be handed
+     * to another one through any safe publication (e.g. an ExecutorService).
+     *
+     * @return a cursor before the first row
+     * @since 4.1
+     */
+    DataSetCursor newCursor();
 }
\ No newline at end of file
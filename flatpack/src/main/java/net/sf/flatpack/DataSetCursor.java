@@ -0,0 +1,81 @@
+/*
+ * ObjectLab, http://www.objectlab.co.uk/open is supporting FlatPack.
+ *
+ * Based in London, we are world leaders in the design and development
+ * of bespoke applications for the securities financing markets.
+ *
+ * <a href="http://www.objectlab.co.uk/open">Click here to learn more</a>
+ *           ___  _     _           _   _          _
+ *          / _ \| |__ (_) ___  ___| |_| |    __ _| |__
+ *         | | | | '_ \| |/ _ \/ __| __| |   / _` | '_ \
+ *         | |_| | |_) | |  __/ (__| |_| |__| (_| | |_) |
+ *          \___/|_.__// |\___|\___|\__|_____\__,_|_.__/
+ *                   |__/
+ *
+ *                     www.ObjectLab.co.uk
+ *
+ * $Id: ColorProvider.java 74 2006-10-24 22:19:05Z benoitx $
+ *
+ * Copyright 2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sf.flatpack;
+
+/**
+ * Reads the rows of a frozen DataSet with its own position, independently of the DataSet
+ * and of the other cursors.  A cursor is meant to be used by one thread; create one per
+ * thread with DataSet.newCursor() to read the same DataSet from several threads.
+ *
+ * The cursor moves as the DataSet does: next() on the last record and previous() on the first
+ * one return false and keep the position, with no current record.
+ *
+ * @since 4.1
+ */
+public interface DataSetCursor extends StreamingDataSet {
+    /**
+     * Moves back to the previous record.
+     *
+     * @return true if there is one, false if the cursor was on the first record or before it
+     */
+    boolean previous();
+
+    /**
+     * Moves to the record at the given position.
+     *
+     * @param position
+     *          0 based position of the record
+     * @exception IndexOutOfBoundsException if there is no such record
+     */
+    void absolute(int position);
+
+    /**
+     * Moves before the first record, next() then reads the first record.
+     */
+    void goTop();
+
+    /**
+     * Moves to the last record, previous() then reads the one before it.
+     */
+    void goBottom();
+
+    /**
+     * @return the position of the cursor, -1 before the first record
+     */
+    int getIndex();
+
+    /**
+     * @return the number of rows of the DataSet
+     */
+    int getRowCount();
+}
@@ -0,0 +1,325 @@
+/*
+ * ObjectLab, http://www.objectlab.co.uk/open is supporting FlatPack.
+ *
+ * Based in London, we are world leaders in the design and development
+ * of bespoke applications for the securities financing markets.
+ *
+ * <a href="http://www.objectlab.co.uk/open">Click here to learn more</a>
+ *           ___  _     _           _   _          _
+ *          / _ \| |__ (_) ___  ___| |_| |    __ _| |__
+ *         | | | | '_ \| |/ _ \/ __| __| |   / _` | '_ \
+ *         | |_| | |_) | |  __/ (__| |_| |__| (_| | |_) |
+ *          \___/|_.__// |\___|\___|\__|_____\__,_|_.__/
+ *                   |__/
+ *
+ *                     www.ObjectLab.co.uk
+ *
+ * $Id: ColorProvider.java 74 2006-10-24 22:19:05Z benoitx $
+ *
+ * Copyright 2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sf.flatpack;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+
+import net.sf.flatpack.structure.ColumnMetaData;
+import net.sf.flatpack.structure.OffHeapRowStore;
+import net.sf.flatpack.util.FPException;
+import net.sf.flatpack.util.ParserUtils;
+import net.sf.flatpack.xml.MetaData;
+import net.sf.flatpack.xml.XMLRecordElement;
+
+/**
+ * Binary snapshot of a parsed DataSet: its MetaData (with the record types), errors and rows.
+ * A file parsed once can then be loaded again by mapping the snapshot in memory, without
+ * reading and splitting the file again:
+ *
+ * <pre>
+ * DataSet ds = DataSetSnapshot.load(snapshot, file, parser).orElse(null);
+ * if (ds == null) {
+ *     ds = parser.parse();
+ *     ds.saveSnapshot(snapshot, file);
+ * }
+ * </pre>
+ *
+ * The rows are written in the serialized form of OffHeapRowStore and read in place from the
+ * mapped snapshot, a loaded DataSet uses the RowStore.OFF_HEAP storage.  A snapshot saved with
+ * its source file is only loaded for the same file: same size and, when the last modified time
+ * differs, same SHA-256 hash.
+ *
+ * @since 4.1
+ */
+public final class DataSetSnapshot {
+    /** "FPSNAPSH" */
+    private static final long MAGIC = 0x4650534E41505348L;
+    private static final int VERSION = 1;
+    /** magic, version and header length */
+    private static final int PREFIX = 16;
+
+    private DataSetSnapshot() {
+    }
+
+    /**
+     * Writes a snapshot, see DataSet.saveSnapshot().  The snapshot is written next to its final
+     * name, then moved, so a job loading it never sees a partial snapshot.
+     *
+     * @param ds
+     *          the DataSet, parsed by the DefaultParserFactory parsers
+     * @param snapshot
+     *          the file to write, replaced if it exists
+     * @param source
+     *          the file the DataSet was parsed from, null if the snapshot is not bound to one
+     * @throws IOException if the snapshot cannot be written or the source read
+     */
+    static void save(final DefaultDataSet ds, final Path snapshot, final Path source) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeBoolean(source != null);
+            if (source != null) {
+                out.writeLong(Files.size(source));
+                out.writeLong(Files.getLastModifiedTime(source).toMillis());
+                out.write(hash(source));
+            }
+            writeMetaData(out, ds.getMetaData());
+            out.writeInt(ds.getErrors().size());
+            for (final DataError error : ds.getErrors()) {
+                writeString(out, error.getErrorDesc());
+                out.writeInt(error.getLineNo());
+                out.writeInt(error.getErrorLevel());
+                writeString(out, error.getRawData());
+            }
+        }
+
+        final Path directory = snapshot.toAbsolutePath().getParent();
+        final Path temp = Files.createTempFile(directory, snapshot.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                final ByteBuffer prefix = ByteBuffer.allocate(PREFIX + bytes.size());
+                prefix.putLong(MAGIC).putInt(VERSION).putInt(bytes.size()).put(bytes.toByteArray());
+                prefix.flip();
+                while (prefix.hasRemaining()) {
+                    channel.write(prefix);
+                }
+                OffHeapRowStore.write(ds.getRowStore(), channel, PREFIX + bytes.size());
+            }
+            Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Loads a snapshot written by DataSet.saveSnapshot().
+     *
+     * @param snapshot
+     *          the snapshot file
+     * @param source
+     *          the file the snapshot should have been saved with, null to skip the check
+     * @param parser
+     *          the options of the DataSet (case sensitivity of the column names, records...)
+     *          are read from this parser, it does not parse anything
+     * @return the DataSet, empty if there is no snapshot, it is of another version or it does
+     *         not match the source file
+     * @throws IOException if the snapshot cannot be read
+     */
+    public static Optional<DataSet> load(final Path snapshot, final Path source, final Parser parser) throws IOException {
+        if (parser == null) {
+            throw new IllegalArgumentException("parser is null");
+        }
+        if (!Files.isRegularFile(snapshot)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            final ByteBuffer prefix = ByteBuffer.allocate(PREFIX);
+            while (prefix.hasRemaining()) {
+                if (channel.read(prefix) < 0) {
+                    throw new FPException(snapshot + " is not a DataSet snapshot");
+                }
+            }
+            if (prefix.getLong(0) != MAGIC) {
+                throw new FPException(snapshot + " is not a DataSet snapshot");
+            }
+            if (prefix.getInt(8) != VERSION) {
+                return Optional.empty();
+            }
+            final ByteBuffer header = ByteBuffer.allocate(prefix.getInt(12));
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    throw new FPException(snapshot + " is truncated");
+                }
+            }
+
+            final DataInputStream in = new DataInputStream(new ByteArrayInputStream(header.array()));
+            if (in.readBoolean()) {
+                final long size = in.readLong();
+                final long modified = in.readLong();
+                final byte[] hash = new byte[32];
+                in.readFully(hash);
+                if (source != null && !matches(source, size, modified, hash)) {
+                    return Optional.empty();
+                }
+            } else if (source != null) {
+                return Optional.empty();
+            }
+
+            final MetaData metaData = readMetaData(in, parser);
+            final DefaultDataSet ds = new DefaultDataSet(metaData, parser, OffHeapRowStore.map(channel, PREFIX + header.capacity()));
+            ds.setPZConvertProps(ParserUtils.loadConvertProperties());
+            final int errors = in.readInt();
+            for (int i = 0; i < errors; i++) {
+                ds.addError(new DataError(readString(in), in.readInt(), in.readInt(), readString(in)));
+            }
+            return Optional.of(ds);
+        }
+    }
+
+    private static boolean matches(final Path source, final long size, final long modified, final byte[] hash) throws IOException {
+        if (!Files.isRegularFile(source) || Files.size(source) != size) {
+            return false;
+        }
+        // a file copied or touched keeps its snapshot as long as its content is the same
+        return Files.getLastModifiedTime(source).toMillis() == modified || Arrays.equals(hash(source), hash);
+    }
+
+    private static byte[] hash(final Path source) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new FPException("SHA-256 is not available", e);
+        }
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return digest.digest();
+    }
+
+    private static void writeMetaData(final DataOutputStream out, final MetaData metaData) throws IOException {
+        writeColumns(out, metaData.getColumnsNames());
+        final List<Entry<String, XMLRecordElement>> records = new ArrayList<>();
+        if (metaData.isAnyRecordFormatSpecified()) {
+            final Iterator<Entry<String, XMLRecordElement>> it = metaData.xmlRecordIterator();
+            while (it.hasNext()) {
+                records.add(it.next());
+            }
+        }
+        out.writeInt(records.size());
+        for (final Entry<String, XMLRecordElement> entry : records) {
+            final XMLRecordElement record = entry.getValue();
+            out.writeUTF(entry.getKey());
+            out.writeInt(record.getStartPosition());
+            out.writeInt(record.getEndPositition());
+            out.writeInt(record.getElementNumber());
+            out.writeInt(record.getElementCount());
+            writeString(out, record.getIndicator());
+            writeColumns(out, record.getColumns());
+        }
+    }
+
+    private static MetaData readMetaData(final DataInputStream in, final Parser parser) throws IOException {
+        final List<ColumnMetaData> columns = readColumns(in);
+        final int recordCount = in.readInt();
+        final Map<String, XMLRecordElement> records = new LinkedHashMap<>();
+        for (int i = 0; i < recordCount; i++) {
+            final String id = in.readUTF();
+            final XMLRecordElement record = new XMLRecordElement();
+            record.setStartPosition(in.readInt());
+            record.setEndPositition(in.readInt());
+            record.setElementNumber(in.readInt());
+            record.setElementCount(in.readInt());
+            record.setIndicator(readString(in));
+            record.setColumns(readColumns(in), parser);
+            records.put(id, record);
+        }
+        return new MetaData(columns, ParserUtils.buidColumnIndexMap(columns, parser), records);
+    }
+
+    private static void writeColumns(final DataOutputStream out, final List<ColumnMetaData> columns) throws IOException {
+        out.writeInt(columns.size());
+        for (final ColumnMetaData column : columns) {
+            writeString(out, column.getColName());
+            out.writeInt(column.getColLength());
+            out.writeInt(column.getStartPosition());
+            out.writeInt(column.getEndPosition());
+            writeString(out, column.getType());
+            writeString(out, column.getFormat());
+            out.writeBoolean(column.isNullable());
+            out.writeInt(column.getScale());
+        }
+    }
+
+    private static List<ColumnMetaData> readColumns(final DataInputStream in) throws IOException {
+        final int count = in.readInt();
+        final List<ColumnMetaData> columns = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final ColumnMetaData column = new ColumnMetaData(readString(in));
+            column.setColLength(in.readInt());
+            column.setStartPosition(in.readInt());
+            column.setEndPosition(in.readInt());
+            column.setType(readString(in));
+            column.setFormat(readString(in));
+            column.setNullable(in.readBoolean());
+            column.setScale(in.readInt());
+            columns.add(column);
+        }
+        return columns;
+    }
+
+    private static void writeString(final DataOutputStream out, final String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+        } else {
+            final byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(b.length);
+            out.write(b);
+        }
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] b = new byte[length];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
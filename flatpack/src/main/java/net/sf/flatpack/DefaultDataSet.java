@@ -32,7 +32,9 @@
  */
 package net.sf.flatpack;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
@@ -43,14 +45,19 @@ import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.Spliterator;
 import java.util.function.DoubleSupplier;
 import java.util.function.IntSupplier;
 import java.util.function.LongSupplier;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
+import net.sf.flatpack.bind.RecordBinder;
 import net.sf.flatpack.ordering.OrderBy;
 import net.sf.flatpack.structure.ColumnMetaData;
+import net.sf.flatpack.structure.ListRowStore;
 import net.sf.flatpack.structure.Row;
+import net.sf.flatpack.structure.RowStore;
 import net.sf.flatpack.util.FPException;
 import net.sf.flatpack.util.FPInvalidUsageException;
 import net.sf.flatpack.util.ParserUtils;
@@ -64,10 +71,13 @@ import net.sf.flatpack.xml.MetaData;
 public class DefaultDataSet implements DataSet {
     private static final String NEW_LINE = System.lineSeparator();
 
-    private final List<Row> rows = new ArrayList<>();
+    private final RowStore rows;
 
     private final List<DataError> errors = new ArrayList<>();
 
+    /** estimated size of the errors */
+    private long errorBytes;
+
     private Properties pzConvertProps = null;
 
     /** Pointer for the current row in the array we are on */
@@ -92,17 +102,68 @@ public class DefaultDataSet implements DataSet {
 
     private Record currentRecord;
 
+    private Row currentRow;
+
+    private Optional<Record> currentOptional = Optional.empty();
+
+    /** record re-pointed at each row when the parser asks for flyweight records */
+    private RowRecord flyweight;
+
+    /** batch re-used by nextBatch, null until the first call */
+    private RecordBatch batch;
+
+    /** index of createIndex, null if none */
+    private RowIndex index;
+
+    /** set by freeze(), read by the threads reading through the cursors */
+    private volatile boolean frozen;
+
     public DefaultDataSet(final MetaData pzMetaData, final Parser pzparser) {
+        this(pzMetaData, pzparser, new ListRowStore());
+    }
+
+    /**
+     * @param pzMetaData
+     *          the MetaData of the rows
+     * @param pzparser
+     *          the parser creating the DataSet
+     * @param rowStore
+     *          storage of the rows
+     * @since 4.1
+     */
+    public DefaultDataSet(final MetaData pzMetaData, final Parser pzparser, final RowStore rowStore) {
         this.metaData = pzMetaData;
         this.parser = pzparser;
+        this.rows = rowStore;
     }
 
     public void addRow(final Row row) {
+        checkNotFrozen("addRow");
         rows.add(row);
+        invalidateIndex();
+        checkMemory();
     }
 
     public void addError(final DataError dataError) {
+        checkNotFrozen("addError");
         errors.add(dataError);
+        errorBytes += dataError.getEstimatedSize();
+        checkMemory();
+    }
+
+    /**
+     * Stops the parse before the DataSet grows beyond the limit set by setMaxMemoryBytes.
+     */
+    private void checkMemory() {
+        final long max = parser != null ? parser.getMaxMemoryBytes() : 0L;
+        if (max > 0) {
+            final long estimated = getEstimatedSize();
+            if (estimated > max) {
+                throw new FPException("DataSet estimated at " + estimated + " bytes after " + rows.size() + " rows and " + errors.size()
+                        + " errors, over the limit of " + max + " bytes set by setMaxMemoryBytes. Use the " + RowStore.SPILL
+                        + " row storage or a BuffReaderParseFactory parser for such files");
+            }
+        }
     }
 
     /*
@@ -245,6 +306,11 @@ public class DefaultDataSet implements DataSet {
         return currentRecord.getInt(column);
     }
 
+    @Override
+    public boolean getBoolean(final String column) {
+        return currentRecord.getBoolean(column);
+    }
+
     @Override
     public long getLong(final String column) {
         return currentRecord.getLong(column);
@@ -282,10 +348,15 @@ public class DefaultDataSet implements DataSet {
 
     @Override
     public void setValue(final String column, final String value) {
+        checkNotFrozen("setValue");
         final Row row = rows.get(pointer);
         final int colIndex = ParserUtils.getColumnIndex(row.getMdkey(), metaData, column, parser.isColumnNamesCaseSensitive());
 
         row.setValue(colIndex, value);
+        rows.set(pointer, row);
+        if (index != null && !index.isStale() && row.getMdkey() == null && index.isIndexed(colIndex)) {
+            index.update(pointer, row, newRecord(null));
+        }
     }
 
     /*
@@ -332,17 +403,45 @@ public class DefaultDataSet implements DataSet {
     public boolean next() {
         if (pointer < rows.size() && pointer + 1 != rows.size()) {
             pointer++;
-            currentRecord = new RowRecord(rows.get(pointer), metaData, parser.isColumnNamesCaseSensitive(), pzConvertProps, strictNumericParse,
-                    upperCase, lowerCase, parser.isNullEmptyStrings());
+            setCurrentRecord(row(pointer));
             return true;
         }
-        currentRecord = null;
+        setCurrentRecord(null);
         return false;
     }
 
     @Override
     public Optional<Record> getRecord() {
-        return Optional.ofNullable(currentRecord);
+        return currentOptional;
+    }
+
+    private void setCurrentRecord(final Row row) {
+        if (currentRow != row && currentRow instanceof LazyRow && !parser.isCacheLazyRows() && !frozen) {
+            ((LazyRow) currentRow).release();
+        }
+        currentRow = row;
+        final Record previous = currentRecord;
+        if (row == null) {
+            currentRecord = null;
+        } else if (parser.isFlyweightRecords()) {
+            if (flyweight == null) {
+                flyweight = newRecord(row);
+            } else {
+                flyweight.setRow(row);
+            }
+            currentRecord = flyweight;
+        } else {
+            currentRecord = newRecord(row);
+        }
+        if (currentRecord != previous) {
+            currentOptional = Optional.ofNullable(currentRecord);
+        }
+    }
+
+    private RowRecord newRecord(final Row row) {
+        // a frozen DataSet is read by several threads, the rows are not changed by caching
+        return new RowRecord(row, metaData, parser.isColumnNamesCaseSensitive(), pzConvertProps, strictNumericParse, upperCase, lowerCase,
+                parser.isNullEmptyStrings(), parser.isCacheTypedValues() && !frozen);
     }
 
     /*
@@ -353,9 +452,20 @@ public class DefaultDataSet implements DataSet {
     @Override
     public void orderRows(final OrderBy ob) {
         if (ob != null) {
+            checkNotFrozen("orderRows");
             ob.setMetaData(getMetaData());
             ob.setParser(parser);
-            Collections.sort(rows, ob);
+            rows.sort(ob);
+            invalidateIndex();
+            if (parser.isLazyRows() && !parser.isCacheLazyRows()) {
+                // the comparisons have split the rows
+                for (int i = 0; i < rows.size(); i++) {
+                    final Row row = rows.get(i);
+                    if (row instanceof LazyRow) {
+                        ((LazyRow) row).release();
+                    }
+                }
+            }
             goTop();
         }
     }
@@ -368,12 +478,11 @@ public class DefaultDataSet implements DataSet {
     @Override
     public boolean previous() {
         if (pointer <= 0) {
-            currentRecord = null;
+            setCurrentRecord(null);
             return false;
         }
         pointer--;
-        currentRecord = new RowRecord(rows.get(pointer), metaData, parser.isColumnNamesCaseSensitive(), pzConvertProps, strictNumericParse, upperCase,
-                lowerCase, parser.isNullEmptyStrings());
+        setCurrentRecord(row(pointer));
         return true;
     }
 
@@ -384,6 +493,9 @@ public class DefaultDataSet implements DataSet {
     public void setLowerCase() {
         upperCase = false;
         lowerCase = true;
+        flyweight = null;
+        batch = null;
+        invalidateIndex();
     }
 
     /**
@@ -393,6 +505,9 @@ public class DefaultDataSet implements DataSet {
     public void setUpperCase() {
         upperCase = true;
         lowerCase = false;
+        flyweight = null;
+        batch = null;
+        invalidateIndex();
     }
 
     /**
@@ -411,6 +526,14 @@ public class DefaultDataSet implements DataSet {
         return currentRecord.getRecordID();
     }
 
+    @Override
+    public Record copy() {
+        if (currentRecord == null) {
+            throw new FPInvalidUsageException("copy() needs a current record, call next() or absolute() first");
+        }
+        return currentRecord.copy();
+    }
+
     /**
      * Sets the absolute position of the record pointer
      *
@@ -425,8 +548,7 @@ public class DefaultDataSet implements DataSet {
         }
 
         pointer = localPointer;
-        currentRecord = new RowRecord(rows.get(pointer), metaData, parser.isColumnNamesCaseSensitive(), pzConvertProps, strictNumericParse, upperCase,
-                lowerCase, parser.isNullEmptyStrings());
+        setCurrentRecord(row(pointer));
     }
 
     /**
@@ -442,6 +564,8 @@ public class DefaultDataSet implements DataSet {
     @Override
     public void setStrictNumericParse(final boolean strictNumericParse) {
         this.strictNumericParse = strictNumericParse;
+        flyweight = null;
+        batch = null;
     }
 
     /*
@@ -451,13 +575,19 @@ public class DefaultDataSet implements DataSet {
      */
     @Override
     public void remove() {
+        checkNotFrozen("remove");
         rows.remove(pointer);
+        if (index != null && !index.isStale()) {
+            index.remove(pointer);
+        }
         pointer--;
     }
 
     @Override
     public void setPZConvertProps(final Properties props) {
         this.pzConvertProps = props;
+        flyweight = null;
+        batch = null;
     }
 
     /**
@@ -470,9 +600,11 @@ public class DefaultDataSet implements DataSet {
 
     @Override
     public void clearRows() {
+        checkNotFrozen("clearRows");
         pointer = -1; // set the pointer back to -1 directly just in case this
         // instance is a BuffReaderDataSet.
         rows.clear();
+        invalidateIndex();
     }
 
     @Override
@@ -483,7 +615,211 @@ public class DefaultDataSet implements DataSet {
 
     @Override
     public void clearErrors() {
+        checkNotFrozen("clearErrors");
         errors.clear();
+        errorBytes = 0;
+    }
+
+    @Override
+    public long getEstimatedSize() {
+        return rows.getEstimatedSize() + errorBytes;
+    }
+
+    @Override
+    public void saveSnapshot(final Path snapshot) throws IOException {
+        DataSetSnapshot.save(this, snapshot, null);
+    }
+
+    @Override
+    public void saveSnapshot(final Path snapshot, final Path source) throws IOException {
+        DataSetSnapshot.save(this, snapshot, source);
+    }
+
+    /**
+     * @return the storage holding the rows of the DataSet, in their current order
+     * @since 4.1
+     */
+    public RowStore getRowStore() {
+        return rows;
+    }
+
+    @Override
+    public <T> Stream<T> mapTo(final Class<T> type) {
+        return new StreamingRecord(this).stream().map(RecordBinder.of(type)::bind);
+    }
+
+    @Override
+    public void createIndex(final String... columns) {
+        if (columns == null || columns.length == 0) {
+            throw new IllegalArgumentException("createIndex needs at least one column");
+        }
+        final int[] positions = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            positions[i] = ParserUtils.getColumnIndex(null, metaData, columns[i], parser.isColumnNamesCaseSensitive());
+        }
+        index = new RowIndex(columns, positions);
+        index();
+    }
+
+    @Override
+    public Optional<Record> findFirst(final String... key) {
+        final int position = index().first(key);
+        return position < 0 ? Optional.empty() : Optional.of(newRecord(row(position)));
+    }
+
+    @Override
+    public List<Record> findAll(final String... key) {
+        final RowIndex idx = index();
+        final List<Record> found = new ArrayList<>();
+        for (int position = idx.first(key); position >= 0; position = idx.next(position)) {
+            found.add(newRecord(row(position)));
+        }
+        return found;
+    }
+
+    private RowIndex index() {
+        if (index == null) {
+            throw new FPInvalidUsageException("createIndex() must be called before findFirst() or findAll()");
+        }
+        if (index.isStale()) {
+            index.build(rows, newRecord(null), parser.isLazyRows() && !parser.isCacheLazyRows() && !frozen);
+        }
+        return index;
+    }
+
+    private void invalidateIndex() {
+        if (index != null) {
+            index.invalidate();
+        }
+    }
+
+    @Override
+    public synchronized void freeze() {
+        if (frozen) {
+            return;
+        }
+        if (parser.isLazyRows()) {
+            // split now, a frozen row is not released
+            for (int i = 0; i < rows.size(); i++) {
+                rows.get(i).getColumnCount();
+            }
+        }
+        if (index != null && index.isStale()) {
+            index.build(rows, newRecord(null), false);
+        }
+        // the records created from now on do not cache typed values
+        flyweight = null;
+        batch = null;
+        frozen = true;
+    }
+
+    @Override
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    @Override
+    public DataSetCursor newCursor() {
+        freeze();
+        return new RowCursor(rows, newRecord(null), parser.isFlyweightRecords(), Collections.unmodifiableList(errors));
+    }
+
+    /**
+     * Spliterator over the rows after the current position, with the exact size of each split
+     * so that parallel streams divide the rows evenly.  Each row gets its own Record, the
+     * current position of the DataSet does not move; with setFlyweightRecords one Record per
+     * split is re-pointed at each row instead, valid until the next row.  The rows must not be
+     * changed while the spliterator is in use.  Lazy rows are split, and their errors reported, by the thread
+     * reading them: freeze() the DataSet before handing the splits to several threads.
+     *
+     * @return a spliterator of Records, IMMUTABLE once the DataSet is frozen
+     * @since 4.1
+     */
+    public Spliterator<Record> rowSpliterator() {
+        return new RowSpliterator(rows, newRecord(null), parser.isFlyweightRecords(), parser.isLazyRows() && !parser.isCacheLazyRows() && !frozen,
+                frozen, pointer + 1, rows.size());
+    }
+
+    /**
+     * Spliterator of a parallel stream.  Lazy rows would be split, and their errors added, by
+     * several threads at once, so such a DataSet must have been frozen.
+     */
+    Spliterator<Record> parallelRowSpliterator() {
+        if (parser.isLazyRows() && !frozen) {
+            throw new FPInvalidUsageException("A DataSet with lazy rows must be frozen before its parallelStream(), call freeze() first");
+        }
+        return rowSpliterator();
+    }
+
+    /**
+     * Reads the rows after the current position into a batch, re-used from one call to the
+     * next, and moves the position to the last of them.  The DataSet has no current record
+     * afterwards, next() reads the row following the batch.
+     *
+     * @param maxRows
+     *          the maximum number of records in the batch, greater than 0
+     * @return the batch, empty at the end of the DataSet
+     * @since 4.1
+     */
+    public RecordBatch nextBatch(final int maxRows) {
+        if (maxRows <= 0) {
+            throw new IllegalArgumentException("maxRows must be greater than 0, got " + maxRows);
+        }
+        setCurrentRecord(null);
+        if (batch != null) {
+            releaseLazyRows(batch.getRows(), batch.size());
+            batch.clear();
+        }
+        int count = 0;
+        while (count < maxRows) {
+            final Row row = fetchNextRow();
+            if (row == null) {
+                break;
+            }
+            // created after the first row, a parser may only read the MetaData from the file then
+            if (batch == null) {
+                batch = new RecordBatch(newRecord(null), Math.min(maxRows, 1024));
+            }
+            batch.add(row);
+            count++;
+        }
+        if (batch == null) {
+            batch = new RecordBatch(newRecord(null), 1);
+        }
+        return batch;
+    }
+
+    /**
+     * @return the row after the current position, the position moves to it; null at the end
+     * @since 4.1
+     */
+    protected Row fetchNextRow() {
+        if (pointer + 1 >= rows.size()) {
+            return null;
+        }
+        pointer++;
+        return row(pointer);
+    }
+
+    private void releaseLazyRows(final Row[] released, final int count) {
+        if (parser.isLazyRows() && !parser.isCacheLazyRows() && !frozen) {
+            for (int i = 0; i < count; i++) {
+                if (released[i] instanceof LazyRow) {
+                    ((LazyRow) released[i]).release();
+                }
+            }
+        }
+    }
+
+    private Row row(final int index) {
+        // the spill storage changes on reads, the cursors of a frozen DataSet share it
+        return RowCursor.read(rows, index, frozen && !rows.isConcurrentReadSafe());
+    }
+
+    private void checkNotFrozen(final String method) {
+        if (frozen) {
+            throw new FPInvalidUsageException(method + "() cannot be used once the DataSet is frozen");
+        }
     }
 
     public MetaData getMetaData() {
@@ -493,6 +829,8 @@ public class DefaultDataSet implements DataSet {
     public void setMetaData(final MetaData metaData) {
         this.metaData = metaData;
         this.columns = null;
+        this.flyweight = null;
+        this.batch = null;
     }
 
     @Override
@@ -533,7 +871,7 @@ public class DefaultDataSet implements DataSet {
             throw new FPException("Cursor on invalid row..  Make sure next() is called and returns true");
         }
 
-        return rows.get(pointer).isEmpty();
+        return row(pointer).isEmpty();
     }
 
     /**
@@ -553,7 +891,7 @@ public class DefaultDataSet implements DataSet {
             throw new FPException("Cursor on invalid row.. Make sure next() is called and returns true");
         }
 
-        return rows.get(pointer).getRawData();
+        return row(pointer).getRawData();
     }
 
     @Override
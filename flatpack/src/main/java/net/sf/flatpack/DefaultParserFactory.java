@@ -37,6 +37,8 @@ import java.io.InputStream;
 import java.io.Reader;
 import java.sql.Connection;
 
+import net.sf.flatpack.xml.MetaData;
+
 /**
  * @author xhensevb
  *
@@ -102,6 +104,11 @@ public class DefaultParserFactory implements ParserFactory {
         return new FixedLengthParser(pzmapXMLStream, dataSource);
     }
 
+    @Override
+    public Parser newFixedLengthParser(final MetaData pzMetaData, final Reader dataSource) {
+        return new FixedLengthParser(pzMetaData, dataSource);
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -195,4 +202,10 @@ public class DefaultParserFactory implements ParserFactory {
         return new DelimiterParser(dataSource, pzmapXML, delimiter, qualifier, ignoreFirstRecord);
     }
 
+    @Override
+    public Parser newDelimitedParser(final MetaData pzMetaData, final Reader dataSource, final char delimiter, final char qualifier,
+            final boolean ignoreFirstRecord) {
+        return new DelimiterParser(pzMetaData, dataSource, delimiter, qualifier, ignoreFirstRecord);
+    }
+
 }
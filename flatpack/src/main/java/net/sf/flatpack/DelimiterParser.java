@@ -38,7 +38,9 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 
+import net.sf.flatpack.util.ParserUtils;
 import net.sf.flatpack.xml.MapParser;
+import net.sf.flatpack.xml.MetaData;
 
 /**
  * @author xhensevb
@@ -48,6 +50,7 @@ public class DelimiterParser extends AbstractDelimiterParser {
     private InputStream pzmapXMLStream = null;
     private File pzmapXML = null;
     private Reader pzmapReader;
+    private boolean metaDataProvided = false;
 
     // this InputStream and file can be removed after support for
     // file and inputstream is removed from the parserfactory. The
@@ -88,6 +91,26 @@ public class DelimiterParser extends AbstractDelimiterParser {
         this.pzmapReader = pzmapReader;
     }
 
+    /**
+     * @param pzMetaData
+     *            mapping built in code, for example by a generated mapper, instead of read from XML
+     * @param dataSourceReader
+     *            the data to parse
+     * @param delimiter
+     *            Char the file is delimited By
+     * @param qualifier
+     *            Char text is qualified by
+     * @param ignoreFirstRecord
+     *            skips the first line that contains data in the file
+     * @since 4.1
+     */
+    public DelimiterParser(final MetaData pzMetaData, final Reader dataSourceReader, final char delimiter, final char qualifier,
+            final boolean ignoreFirstRecord) {
+        super(dataSourceReader, delimiter, qualifier, ignoreFirstRecord);
+        setPzMetaData(pzMetaData);
+        this.metaDataProvided = true;
+    }
+
     @Override
     protected void init() {
         try {
@@ -114,6 +137,9 @@ public class DelimiterParser extends AbstractDelimiterParser {
                         this.pzmapReader.close();
                     }
                 }
+            } else if (metaDataProvided) {
+                // mapping given to the constructor, index the columns for this parser
+                getPzMetaData().setColumnIndexMap(ParserUtils.buidColumnIndexMap(getPzMetaData().getColumnsNames(), this));
             }
 
             setInitialised(true);
@@ -124,6 +150,6 @@ public class DelimiterParser extends AbstractDelimiterParser {
 
     @Override
     protected boolean shouldCreateMDFromFile() {
-        return pzmapReader == null;
+        return pzmapReader == null && !metaDataProvided;
     }
 }
\ No newline at end of file
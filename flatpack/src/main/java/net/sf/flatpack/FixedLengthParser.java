@@ -38,7 +38,9 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 
+import net.sf.flatpack.util.ParserUtils;
 import net.sf.flatpack.xml.MapParser;
+import net.sf.flatpack.xml.MetaData;
 
 /**
  * @author xhensevb
@@ -76,10 +78,27 @@ public class FixedLengthParser extends AbstractFixedLengthParser {
         this.pzmapReader = pzmapReader;
     }
 
+    /**
+     * @param pzMetaData
+     *            mapping built in code, for example by a generated mapper, instead of read from XML
+     * @param dataSourceReader
+     *            the data to parse
+     * @since 4.1
+     */
+    public FixedLengthParser(final MetaData pzMetaData, final Reader dataSourceReader) {
+        super(dataSourceReader);
+        setPzMetaData(pzMetaData);
+    }
+
     protected FixedLengthParser(final Reader dataSourceReader, final String dataDefinition) {
         super(dataSourceReader, dataDefinition);
     }
 
+    @Override
+    protected File getDataSourceFile() {
+        return dataSource;
+    }
+
     @Override
     protected void init() {
         try {
@@ -96,6 +115,12 @@ public class FixedLengthParser extends AbstractFixedLengthParser {
                 closeMapReader = true;
             }
 
+            if (this.pzmapReader == null && getPzMetaData() != null) {
+                // mapping given to the constructor, index the columns for this parser
+                getPzMetaData().setColumnIndexMap(ParserUtils.buidColumnIndexMap(getPzMetaData().getColumnsNames(), this));
+                return;
+            }
+
             try {
                 setPzMetaData(MapParser.parseMap(this.pzmapReader, this));
             } finally {
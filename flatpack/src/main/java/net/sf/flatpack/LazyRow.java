@@ -0,0 +1,165 @@
+/*
+ * ObjectLab, http://www.objectlab.co.uk/open is supporting FlatPack.
+ *
+ * Based in London, we are world leaders in the design and development
+ * of bespoke applications for the securities financing markets.
+ *
+ * <a href="http://www.objectlab.co.uk/open">Click here to learn more</a>
+ *           ___  _     _           _   _          _
+ *          / _ \| |__ (_) ___  ___| |_| |    __ _| |__
+ *         | | | | '_ \| |/ _ \/ __| __| |   / _` | '_ \
+ *         | |_| | |_) | |  __/ (__| |_| |__| (_| | |_) |
+ *          \___/|_.__// |\___|\___|\__|_____\__,_|_.__/
+ *                   |__/
+ *
+ *                     www.ObjectLab.co.uk
+ *
+ * $Id: ColorProvider.java 74 2006-10-24 22:19:05Z benoitx $
+ *
+ * Copyright 2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sf.flatpack;
+
+import java.util.Collections;
+import java.util.List;
+
+import net.sf.flatpack.structure.Row;
+import net.sf.flatpack.structure.TypedValues;
+
+/**
+ * Row holding the text of its record until a column is read; the parser splits it then.
+ * Without caching, the DataSet releases the columns once it moves to another row, the
+ * record is split again when the row is read again.  A row changed by setValue keeps its
+ * columns.
+ *
+ * @since 4.1
+ */
+final class LazyRow extends Row {
+    /**
+     * Fills the columns (and empty flag, typed values) of a row from its record.
+     */
+    interface Splitter {
+        /**
+         * @param row
+         *          the row to fill
+         * @param record
+         *          text of the record
+         * @param report
+         *          true the first time the row is split, errors are only added to the
+         *          DataSet then
+         */
+        void split(Row row, String record, boolean report);
+    }
+
+    private final String record;
+    private final Splitter splitter;
+    private boolean split;
+    private boolean splitting;
+    private boolean reported;
+    private boolean changed;
+
+    LazyRow(final String record, final Splitter splitter) {
+        this.record = record;
+        this.splitter = splitter;
+    }
+
+    /**
+     * Drops the columns, unless they have been changed.
+     */
+    void release() {
+        if (split && !changed && !splitting) {
+            super.setCols(Collections.<String> emptyList());
+            setEmpty(false);
+            split = false;
+        }
+    }
+
+    private void ensureSplit() {
+        if (split) {
+            return;
+        }
+        split = true;
+        splitting = true;
+        try {
+            splitter.split(this, record, !reported);
+        } finally {
+            splitting = false;
+        }
+        reported = true;
+    }
+
+    private void change() {
+        if (!splitting) {
+            changed = true;
+        }
+    }
+
+    @Override
+    public String getValue(final int colPosition) {
+        ensureSplit();
+        return super.getValue(colPosition);
+    }
+
+    @Override
+    public void setValue(final int columnIndex, final String value) {
+        ensureSplit();
+        super.setValue(columnIndex, value);
+        change();
+    }
+
+    @Override
+    public int getColumnCount() {
+        ensureSplit();
+        return super.getColumnCount();
+    }
+
+    @Override
+    public void setCols(final List<String> cols) {
+        ensureSplit();
+        super.setCols(cols);
+        change();
+    }
+
+    @Override
+    public void addColumn(final String colValue) {
+        ensureSplit();
+        super.addColumn(colValue);
+        change();
+    }
+
+    @Override
+    public void addColumn(final List<String> columns) {
+        ensureSplit();
+        super.addColumn(columns);
+        change();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        ensureSplit();
+        return super.isEmpty();
+    }
+
+    @Override
+    public TypedValues getTypedValues() {
+        ensureSplit();
+        return super.getTypedValues();
+    }
+
+    @Override
+    public long getEstimatedSize() {
+        return super.getEstimatedSize() + 64 + 40 + record.length();
+    }
+}
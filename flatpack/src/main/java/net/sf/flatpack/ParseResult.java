@@ -0,0 +1,120 @@
+/*
+ * ObjectLab, http://www.objectlab.co.uk/open is supporting FlatPack.
+ *
+ * Based in London, we are world leaders in the design and development
+ * of bespoke applications for the securities financing markets.
+ *
+ * <a href="http://www.objectlab.co.uk/open">Click here to learn more</a>
+ *           ___  _     _           _   _          _
+ *          / _ \| |__ (_) ___  ___| |_| |    __ _| |__
+ *         | | | | '_ \| |/ _ \/ __| __| |   / _` | '_ \
+ *         | |_| | |_) | |  __/ (__| |_| |__| (_| | |_) |
+ *          \___/|_.__// |\___|\___|\__|_____\__,_|_.__/
+ *                   |__/
+ *
+ *                     www.ObjectLab.co.uk
+ *
+ * $Id: ColorProvider.java 74 2006-10-24 22:19:05Z benoitx $
+ *
+ * Copyright 2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sf.flatpack;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import net.sf.flatpack.util.FPException;
+
+/**
+ * Outcome of the parse of one source by a ParseService: either the DataSet, with the
+ * errors of its records, or the exception or error that stopped the parse.
+ *
+ * @param <S>
+ *          type of the sources
+ * @since 4.1
+ */
+public final class ParseResult<S> {
+    private final S source;
+    private final DataSet dataSet;
+    private final Throwable failure;
+
+    ParseResult(final S source, final DataSet dataSet, final Throwable failure) {
+        this.source = source;
+        this.dataSet = dataSet;
+        this.failure = failure;
+    }
+
+    /**
+     * @return the source given to the ParseService
+     */
+    public S getSource() {
+        return source;
+    }
+
+    /**
+     * @return true if the source was parsed, even with errors in some of its records
+     */
+    public boolean isSuccess() {
+        return failure == null;
+    }
+
+    /**
+     * @return the DataSet of the source, empty if the parse failed
+     */
+    public Optional<DataSet> getDataSet() {
+        return Optional.ofNullable(dataSet);
+    }
+
+    /**
+     * @return the exception or error that stopped the parse, empty if it succeeded
+     */
+    public Optional<Throwable> getFailure() {
+        return Optional.ofNullable(failure);
+    }
+
+    /**
+     * @return the errors of the records of the source, empty if the parse failed
+     */
+    public List<DataError> getErrors() {
+        return dataSet != null ? dataSet.getErrors() : Collections.emptyList();
+    }
+
+    /**
+     * @return the number of errors of the records of the source
+     */
+    public int getErrorCount() {
+        return dataSet != null ? dataSet.getErrorCount() : 0;
+    }
+
+    /**
+     * Streams the records of the source.
+     *
+     * @return a stream of the records, in the order of the source
+     * @exception FPException if the parse failed, with its exception as cause
+     */
+    public Stream<Record> stream() {
+        if (failure != null) {
+            throw new FPException("Error parsing " + source, failure);
+        }
+        return new StreamingRecord(dataSet).stream();
+    }
+
+    @Override
+    public String toString() {
+        return "ParseResult[" + source + (failure != null ? ", failed: " + failure : ", errors: " + getErrorCount()) + "]";
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * ObjectLab, http://www.objectlab.co.uk/open is supporting FlatPack.
+ *
+ * Based in London, we are world leaders in the design and development
+ * of bespoke applications for the securities financing markets.
+ *
+ * <a href="http://www.objectlab.co.uk/open">Click here to learn more</a>
+ *           ___  _     _           _   _          _
+ *          / _ \| |__ (_) ___  ___| |_| |    __ _| |__
+ *         | | | | '_ \| |/ _ \/ __| __| |   / _` | '_ \
+ *         | |_| | |_) | |  __/ (__| |_| |__| (_| | |_) |
+ *          \___/|_.__// |\___|\___|\__|_____\__,_|_.__/
+ *                   |__/
+ *
+ *                     www.ObjectLab.co.uk
+ *
+ * $Id: ColorProvider.java 74 2006-10-24 22:19:05Z benoitx $
+ *
+ * Copyright 2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sf.flatpack;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import net.sf.flatpack.util.FPException;
+
+/**
+ * Parses many sources concurrently, at most maxConcurrency at a time, each parse reporting
+ * its own result or failure, be it an exception or an Error other than a VirtualMachineError.  The Parser of each source is created, and the source parsed,
+ * on the thread of the service, so the function given for the parsers usually opens the
+ * source and shares a mapping loaded once:
+ *
+ * <pre>
+ * final MetaData mapping = MapParser.parseMap(Files.newBufferedReader(Paths.get("partners.pzmap.xml")), null);
+ * final Function&lt;Path, Parser&gt; parsers = f -&gt; {
+ *     try {
+ *         return DefaultParserFactory.getInstance().newDelimitedParser(mapping, Files.newBufferedReader(f), ',', '"', true);
+ *     } catch (final IOException e) {
+ *         throw new UncheckedIOException(e);
+ *     }
+ * };
+ * try (ParseService service = new ParseService(32)) {
+ *     for (final ParseResult&lt;Path&gt; r : service.parseAll(files, parsers)) {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ *
+ * <p>
+ * On Java 21 and later each parse runs on a virtual thread, the maxConcurrency limit still
+ * applying; on earlier versions, or if virtual threads are not wanted, on a pool of
+ * maxConcurrency daemon threads.  A BuffReader parser only opens the source when parsed,
+ * its records being read as its DataSet is read.
+ * </p>
+ *
+ * @since 4.1
+ */
+public final class ParseService implements AutoCloseable {
+    private static final AtomicInteger SERVICES = new AtomicInteger();
+
+    private final int maxConcurrency;
+    private final Semaphore permits;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+
+    /**
+     * Creates a service running the parses on virtual threads if the JVM supports them.
+     *
+     * @param maxConcurrency
+     *          maximum number of sources parsed at the same time
+     */
+    public ParseService(final int maxConcurrency) {
+        this(maxConcurrency, true);
+    }
+
+    /**
+     * @param maxConcurrency
+     *          maximum number of sources parsed at the same time
+     * @param useVirtualThreads
+     *          true to run the parses on virtual threads if the JVM supports them, false to
+     *          always use a pool of platform threads
+     */
+    public ParseService(final int maxConcurrency, final boolean useVirtualThreads) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be greater than 0, got " + maxConcurrency);
+        }
+        this.maxConcurrency = maxConcurrency;
+        permits = new Semaphore(maxConcurrency);
+        final ExecutorService virtual = useVirtualThreads ? newVirtualThreadExecutor() : null;
+        virtualThreads = virtual != null;
+        if (virtual != null) {
+            executor = virtual;
+        } else {
+            final String name = "flatpack-parse-" + SERVICES.incrementAndGet() + "-";
+            final AtomicInteger threads = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(maxConcurrency, r -> {
+                final Thread t = new Thread(r, name + threads.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() is looked up at runtime, the library being
+     * built for Java 8.
+     *
+     * @return the executor, or null before Java 21
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return true if the parses run on virtual threads
+     */
+    public boolean isUsingVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * @return the maximum number of sources parsed at the same time
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Parses all the sources and waits for the end of all the parses.
+     *
+     * @param sources
+     *          the sources to parse
+     * @param parsers
+     *          creates the Parser of a source
+     * @return the result of each source, in the order of the sources
+     */
+    public <S> List<ParseResult<S>> parseAll(final Collection<? extends S> sources, final Function<? super S, ? extends Parser> parsers) {
+        final List<Future<ParseResult<S>>> futures = new ArrayList<>(sources.size());
+        try {
+            for (final S source : sources) {
+                futures.add(submit(source, parsers));
+            }
+            final List<ParseResult<S>> results = new ArrayList<>(futures.size());
+            for (final Future<ParseResult<S>> f : futures) {
+                results.add(await(f));
+            }
+            return results;
+        } finally {
+            futures.forEach(f -> f.cancel(true));
+        }
+    }
+
+    /**
+     * Parses the sources and streams their results in the order of the sources, as they
+     * complete.  Only the results of the next 2 * maxConcurrency sources are held ahead of
+     * the stream, so the DataSets already streamed can be collected.  Closing the stream
+     * cancels the parses not streamed yet.
+     *
+     * @param sources
+     *          the sources to parse, read as the stream is consumed
+     * @param parsers
+     *          creates the Parser of a source
+     * @return the results, in the order of the sources
+     */
+    public <S> Stream<ParseResult<S>> parseInOrder(final Iterable<? extends S> sources, final Function<? super S, ? extends Parser> parsers) {
+        final OrderedResults<S> results = new OrderedResults<>(sources.iterator(), parsers);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(results, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(results::cancel);
+    }
+
+    /**
+     * Parses the sources and merges their records in one stream, in the order of the sources
+     * and then of the records of each source.
+     *
+     * @param sources
+     *          the sources to parse, read as the stream is consumed
+     * @param parsers
+     *          creates the Parser of a source
+     * @return the records of all the sources
+     * @exception FPException when the stream reaches a source whose parse failed
+     */
+    public <S> Stream<Record> parseMerged(final Iterable<? extends S> sources, final Function<? super S, ? extends Parser> parsers) {
+        return parseInOrder(sources, parsers).flatMap(ParseResult::stream);
+    }
+
+    private <S> Future<ParseResult<S>> submit(final S source, final Function<? super S, ? extends Parser> parsers) {
+        return executor.submit(() -> {
+            permits.acquire();
+            try {
+                return new ParseResult<S>(source, parsers.apply(source).parse(), null);
+            } catch (final VirtualMachineError e) {
+                throw e;
+            } catch (final Throwable e) {
+                // an Error of one source, say a LinkageError of its parser, must not fail the others
+                return new ParseResult<S>(source, null, e);
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    private static <S> ParseResult<S> await(final Future<ParseResult<S>> future) {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FPException("Interrupted while waiting for a parse", e);
+        } catch (final ExecutionException e) {
+            throw new FPException("Error parsing a source", e.getCause());
+        } catch (final CancellationException e) {
+            throw new FPException("The ParseService is closed", e);
+        }
+    }
+
+    /**
+     * Stops the parses in progress and those not started; the DataSets already returned stay
+     * usable.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Keeps a window of parses submitted ahead of the one to return next.
+     */
+    private final class OrderedResults<S> implements Iterator<ParseResult<S>> {
+        private final Iterator<? extends S> sources;
+        private final Function<? super S, ? extends Parser> parsers;
+        private final Deque<Future<ParseResult<S>>> window = new ArrayDeque<>();
+
+        OrderedResults(final Iterator<? extends S> sources, final Function<? super S, ? extends Parser> parsers) {
+            this.sources = sources;
+            this.parsers = parsers;
+        }
+
+        private void fill() {
+            while (window.size() < 2 * maxConcurrency && sources.hasNext()) {
+                window.add(submit(sources.next(), parsers));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            fill();
+            return !window.isEmpty();
+        }
+
+        @Override
+        public ParseResult<S> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final ParseResult<S> result = await(window.peek());
+            window.poll();
+            fill();
+            return result;
+        }
+
+        void cancel() {
+            window.forEach(f -> f.cancel(true));
+            window.clear();
+        }
+    }
+}
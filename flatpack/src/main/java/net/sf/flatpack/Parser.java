@@ -32,6 +32,7 @@
  */
 package net.sf.flatpack;
 
+import java.util.List;
 import java.util.stream.Stream;
 
 /**
@@ -67,6 +68,50 @@ public interface Parser {
      */
     Stream<Record> stream();
 
+    /**
+     * Parse the data and return a stream of objects bound from each record.
+     *
+     * @param type
+     *          class bound to the records, see net.sf.flatpack.bind.RecordBinder
+     * @return a stream of T
+     * @since 4.1
+     */
+    <T> Stream<T> stream(Class<T> type);
+
+    /**
+     * Reads the data source for its records only, without building rows: multi line records
+     * count once, blank lines, the header and an ignored first record do not count.  Records
+     * a parse would reject are counted, see validate() for those.  The data source is read
+     * as by parse(), call one or the other.
+     *
+     * @return the number of records in the data source
+     * @since 4.1
+     */
+    long countRecords();
+
+    /**
+     * Runs the checks of a parse on each record, number of columns or record length for
+     * each record type, without building rows.  Values are not converted to the type of
+     * their column.  The data source is read as by parse(), call one or the other.
+     *
+     * @return the errors and warnings a parse would report, in the same order
+     * @since 4.1
+     */
+    List<DataError> validate();
+
+    /**
+     * Parses with several threads: the calling thread is given the records in the order of
+     * the data source while one thread reads it and the workers split, check and convert
+     * batches of records.  The options of the parser apply as for parse(); lazy rows are not
+     * used.  Works on any Reader, including ones that cannot be split such as stdin.
+     *
+     * @param workers
+     *            number of worker threads
+     * @return the records, to be closed if not read to the end
+     * @since 4.1
+     */
+    PipelinedDataSet parseAsPipeline(int workers);
+
     /**
      * @return true, lines with less columns then the amount of column headers
      *         will be added as empty's instead of producing an error
@@ -244,6 +289,179 @@ public interface Parser {
      */
     Parser setStoreRawDataToDataSet(boolean storeRawDataToDataError);
 
+    /**
+     * Default is false
+     *
+     * @return true, the DataSet re-points a single Record at each row instead of
+     *         creating a new Record every time the cursor moves.
+     * @since 4.1
+     */
+    boolean isFlyweightRecords();
+
+    /**
+     * Default is false
+     *
+     * when true, the DataSet re-points a single Record at each row instead of creating a
+     * new Record every time the cursor moves (next(), previous(), absolute()).  This removes
+     * an allocation per row on full traversals, but any Record obtained from getRecord() or
+     * stream() is only valid until the cursor moves again.  Use Record.copy() to retain it.
+     *
+     * @param flyweightRecords true if the Record instance should be reused
+     * @return the Parser
+     * @since 4.1
+     */
+    Parser setFlyweightRecords(boolean flyweightRecords);
+
+    /**
+     * Default is false
+     *
+     * @return true, the numeric and date values parsed by a Record are kept
+     *         alongside the row and re-used on the next access.
+     * @since 4.1
+     */
+    boolean isCacheTypedValues();
+
+    /**
+     * Default is false
+     *
+     * when true, the first getInt/getLong/getDouble/getBigDecimal/getDate/getLocalDate on a
+     * cell keeps the parsed value in primitive form alongside the row, so repeated reads
+     * (and numeric sorts) do not parse the String again.  The cached value is dropped when
+     * the cell is changed via setValue.  This costs memory per row that has been read.
+     * With RowStore.COLUMNAR, OFF_HEAP or MAPPED the cached values only last while the same
+     * Record is read, see ColumnarRowStore.
+     *
+     * @param cacheTypedValues true if parsed values should be cached
+     * @return the Parser
+     * @since 4.1
+     */
+    Parser setCacheTypedValues(boolean cacheTypedValues);
+
+    /**
+     * Default is RowStore.LIST
+     *
+     * @return how the DataSet returned by parse() stores its rows
+     * @since 4.1
+     */
+    String getRowStorage();
+
+    /**
+     * Default is RowStore.LIST
+     *
+     * RowStore.LIST keeps a Row object per row.  RowStore.COLUMNAR keeps the rows column
+     * by column in a few large arrays, which holds several times more rows in the same heap;
+     * reading a cell then decodes its String.  RowStore.OFF_HEAP and RowStore.MAPPED keep the
+     * rows outside of the heap (direct memory or mapped temporary files), for files too large
+     * for the heap; OFF_HEAP moves on to mapped files once -XX:MaxDirectMemorySize is
+     * reached.  RowStore.SPILL keeps rows on the heap up to the memory budget and
+     * writes the least recently used blocks of rows to a temporary file, see
+     * setMemoryBudget.  Ignored by the BuffReaderParseFactory parsers,
+     * which only keep the current row.
+     *
+     * @param rowStorage one of the RowStore constants
+     * @return the Parser
+     * @exception IllegalArgumentException if the storage is unknown
+     * @since 4.1
+     */
+    Parser setRowStorage(String rowStorage);
+
+    /**
+     * Default is 64MB
+     *
+     * @return the estimated bytes of rows kept on the heap by the RowStore.SPILL storage
+     * @since 4.1
+     */
+    long getMemoryBudget();
+
+    /**
+     * Default is 64MB
+     *
+     * Once the rows of a DataSet using the RowStore.SPILL storage are estimated to use more
+     * than this, blocks of rows are written to a temporary file and read back when the
+     * DataSet moves to them.  orderRows reads the rows many times, it is slow when they do
+     * not fit in the budget.
+     *
+     * @param memoryBudget estimated bytes, see Row.getEstimatedSize()
+     * @return the Parser
+     * @exception IllegalArgumentException if not positive
+     * @since 4.1
+     */
+    Parser setMemoryBudget(long memoryBudget);
+
+    /**
+     * Default is 0, no limit
+     *
+     * @return the limit of the estimated size of the DataSet, in bytes
+     * @since 4.1
+     */
+    long getMaxMemoryBytes();
+
+    /**
+     * Default is 0, no limit
+     *
+     * When set, the parse stops with an FPException as soon as the estimated size of the
+     * DataSet (see DataSet.getEstimatedSize()) goes over the limit, rather than running
+     * the JVM out of memory.  Rows held by the RowStore.SPILL, OFF_HEAP and MAPPED storages
+     * are not on the heap and only count for what they keep on it; with the
+     * BuffReaderParseFactory parsers only the errors accumulate.
+     *
+     * @param maxMemoryBytes estimated bytes, 0 for no limit
+     * @return the Parser
+     * @exception IllegalArgumentException if negative
+     * @since 4.1
+     */
+    Parser setMaxMemoryBytes(long maxMemoryBytes);
+
+    /**
+     * Default is false
+     *
+     * @return true if records are only split into columns when the DataSet reaches them
+     * @since 4.1
+     */
+    boolean isLazyRows();
+
+    /**
+     * Default is false
+     *
+     * when true, parse() only finds the records and keeps their text; a record is split into
+     * columns (and its typed columns converted) when next()/absolute()/previous() lands on it
+     * and a column is read.  Jobs reading a few rows of a large file then skip most of the
+     * splitting.  Only applies to the RowStore.LIST storage, and not to delimited mappings
+     * with &lt;RECORD&gt; elements, which need the columns to find the record type.
+     *
+     * A delimited record with a wrong number of columns, or a typed column which does not
+     * convert, is only found when split: the record is then padded or truncated (it stays in
+     * the DataSet, unlike a parse without lazy rows) and the error is added to the DataSet at
+     * that time.
+     *
+     * @param lazyRows true to split the records on access
+     * @return the Parser
+     * @since 4.1
+     */
+    Parser setLazyRows(boolean lazyRows);
+
+    /**
+     * Default is false
+     *
+     * @return true if lazy rows keep their columns once split
+     * @since 4.1
+     */
+    boolean isCacheLazyRows();
+
+    /**
+     * Default is false
+     *
+     * when false, the DataSet drops the columns of a lazy row when it moves to another row,
+     * keeping only the text of the records in memory; reading the row again splits it again.
+     * When true, a row stays split once read.  A row changed by setValue always keeps its
+     * columns.
+     *
+     * @param cacheLazyRows true to keep the columns of the rows read
+     * @return the Parser
+     * @since 4.1
+     */
+    Parser setCacheLazyRows(boolean cacheLazyRows);
+
     /**
      * Returns the table name that will be used to read the MetaData from the db.  The
      * default table name is DATAFILE.  This may be problimatic for some who are using case
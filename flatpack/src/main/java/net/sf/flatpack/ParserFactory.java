@@ -37,6 +37,8 @@ import java.io.InputStream;
 import java.io.Reader;
 import java.sql.Connection;
 
+import net.sf.flatpack.xml.MetaData;
+
 /**
  * Factory definitions for creating a PZParser (delimiter or fixed length). The
  * creation of a parser will not start the parsing. It should not fail either
@@ -155,6 +157,21 @@ public interface ParserFactory {
      */
     Parser newFixedLengthParser(Reader pzmapXMLStream, Reader dataSource);
 
+    /**
+     * Constructs a new parser for a FIXED LENGTH text file using a mapping
+     * built in code, for example by a mapper generated from @FlatColumn
+     * annotations, so that no XML is read.
+     *
+     * @param pzMetaData -
+     *            the column mapping
+     * @param dataSource -
+     *            Fixed length file Reader to read from, user must close it
+     *            after use.
+     * @return PZParser
+     * @since 4.1
+     */
+    Parser newFixedLengthParser(MetaData pzMetaData, Reader dataSource);
+
     //
     //
     // ------------------------------------------ DELIMITED -----------
@@ -274,6 +291,26 @@ public interface ParserFactory {
      */
     Parser newDelimitedParser(Reader pzmapXML, Reader dataSource, char delimiter, char qualifier, boolean ignoreFirstRecord);
 
+    /**
+     * Constructs a new parser for a DELIMITED text file using a mapping built
+     * in code, for example by a mapper generated from @FlatColumn annotations,
+     * so that no XML is read.
+     *
+     * @param pzMetaData -
+     *            the column mapping
+     * @param dataSource -
+     *            text file datasource to read from
+     * @param delimiter -
+     *            Char the file is delimited By
+     * @param qualifier -
+     *            Char text is qualified by
+     * @param ignoreFirstRecord -
+     *            skips the first line that contains data in the file
+     * @return PZParser
+     * @since 4.1
+     */
+    Parser newDelimitedParser(MetaData pzMetaData, Reader dataSource, char delimiter, char qualifier, boolean ignoreFirstRecord);
+
     /**
      * New constructor based on InputStream. Constructs a new DataSet using the
      * PZMAP XML file layout method. This is used for a DELIMITED text file.
@@ -0,0 +1,250 @@
+/*
+ * ObjectLab, http://www.objectlab.co.uk/open is supporting FlatPack.
+ *
+ * Based in London, we are world leaders in the design and development
+ * of bespoke applications for the securities financing markets.
+ *
+ * <a href="http://www.objectlab.co.uk/open">Click here to learn more</a>
+ *           ___  _     _           _   _          _
+ *          / _ \| |__ (_) ___  ___| |_| |    __ _| |__
+ *         | | | | '_ \| |/ _ \/ __| __| |   / _` | '_ \
+ *         | |_| | |_) | |  __/ (__| |_| |__| (_| | |_) |
+ *          \___/|_.__// |\___|\___|\__|_____\__,_|_.__/
+ *                   |__/
+ *
+ *                     www.ObjectLab.co.uk
+ *
+ * $Id: ColorProvider.java 74 2006-10-24 22:19:05Z benoitx $
+ *
+ * Copyright 2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sf.flatpack;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.flatpack.structure.Row;
+import net.sf.flatpack.util.FPException;
+import net.sf.flatpack.util.ParserUtils;
+
+/**
+ * Records of a parse run as a pipeline, see Parser.parseAsPipeline(int).  A reading thread
+ * cuts the data source into batches of records, the workers build the rows of each batch
+ * and the batches come back in order through a bounded queue of the batches in flight; the
+ * reading thread blocks while the queue is full, so memory stays bounded however fast the
+ * file is read, and the calling thread blocks until the next batch is built.
+ *
+ * <p>
+ * The errors are those of the batches read so far, in the order of the data source.  Close
+ * the DataSet if it is not read to the end, to stop the threads.
+ * </p>
+ *
+ * @since 4.1
+ */
+public final class PipelinedDataSet implements StreamingDataSet, AutoCloseable {
+    private static final int BATCH_SIZE = 256;
+    private static final int BATCHES_PER_WORKER = 4;
+    private static final AtomicInteger PIPELINES = new AtomicInteger();
+    // queued after the last batch, or by close()
+    private static final Future<Batch> END = CompletableFuture.completedFuture(null);
+
+    private final AbstractParser parser;
+    private final Properties pzConvertProps;
+    private final ExecutorService workers;
+    private final Thread reader;
+    private final BlockingQueue<Future<Batch>> batches;
+    private volatile Throwable failure;
+    private volatile boolean closed;
+
+    private final List<DataError> errors = new ArrayList<>();
+    private Batch current;
+    private int position;
+    private Optional<Record> record = Optional.empty();
+
+    PipelinedDataSet(final AbstractParser parser, final int workerCount) {
+        this.parser = parser;
+        try {
+            pzConvertProps = ParserUtils.loadConvertProperties();
+        } catch (final IOException e) {
+            throw new FPException("Error loading the conversion properties", e);
+        }
+        final String name = "flatpack-pipeline-" + PIPELINES.incrementAndGet();
+        final AtomicInteger threads = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, r -> {
+            final Thread t = new Thread(r, name + "-worker-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        batches = new ArrayBlockingQueue<>(workerCount * BATCHES_PER_WORKER);
+        reader = new Thread(this::read, name + "-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Runs on the reading thread: finds the records and hands them to the workers in batches.
+     */
+    private void read() {
+        try (BufferedReader br = new BufferedReader(parser.getDataSourceReader())) {
+            boolean more = true;
+            while (more && !closed) {
+                final Batch batch = new Batch();
+                String line = null;
+                while (batch.size < BATCH_SIZE && (line = parser.nextPipelineRecord(br)) != null) {
+                    batch.add(line, parser.getPipelineLineNo());
+                }
+                more = line != null;
+                if (batch.size == 0) {
+                    break;
+                }
+                // blocks while the queue is full
+                batches.put(workers.submit(() -> build(batch)));
+            }
+        } catch (final InterruptedException e) {
+            // closed
+        } catch (final Throwable t) {
+            failure = t;
+        } finally {
+            try {
+                parser.closeReaders();
+            } catch (final IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+            try {
+                if (!closed) {
+                    batches.put(END);
+                }
+            } catch (final InterruptedException e) {
+                // closed
+            }
+        }
+    }
+
+    /**
+     * Runs on a worker: builds the rows of a batch.
+     */
+    private Batch build(final Batch batch) {
+        batch.rows = new Row[batch.size];
+        for (int i = 0; i < batch.size; i++) {
+            final Row row = parser.buildPipelineRow(batch.lines[i], batch.lineNos[i], batch.errors);
+            if (row != null) {
+                batch.rows[batch.rowCount++] = row;
+            }
+        }
+        batch.lines = null;
+        return batch;
+    }
+
+    @Override
+    public boolean next() {
+        while (true) {
+            if (closed) {
+                current = null;
+                record = Optional.empty();
+                return false;
+            }
+            if (current != null && position < current.rowCount) {
+                record = Optional.of(newRecord(current.rows[position++]));
+                return true;
+            }
+            current = null;
+            try {
+                final Future<Batch> batch = batches.take();
+                if (batch == END) {
+                    record = Optional.empty();
+                    close();
+                    if (failure != null) {
+                        throw new FPException("Pipelined parse failed", failure);
+                    }
+                    return false;
+                }
+                current = batch.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new FPException("Interrupted while waiting for the pipeline", e);
+            } catch (final ExecutionException e) {
+                close();
+                throw new FPException("Pipelined parse failed", e.getCause());
+            }
+            position = 0;
+            errors.addAll(current.errors);
+        }
+    }
+
+    private Record newRecord(final Row row) {
+        return new RowRecord(row, parser.getPzMetaData(), parser.isColumnNamesCaseSensitive(), pzConvertProps, false, false, false,
+                parser.isNullEmptyStrings(), parser.isCacheTypedValues());
+    }
+
+    @Override
+    public Optional<Record> getRecord() {
+        return record;
+    }
+
+    @Override
+    public int getErrorCount() {
+        return errors.size();
+    }
+
+    @Override
+    public List<DataError> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Stops the threads of the pipeline; the records not read yet are dropped.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        workers.shutdownNow();
+        reader.interrupt();
+        // wakes up a next() waiting on another thread
+        batches.clear();
+        batches.offer(END);
+    }
+
+    /**
+     * Records of the data source cut by the reading thread, then their rows once built.
+     */
+    private static final class Batch {
+        private String[] lines = new String[BATCH_SIZE];
+        private final int[] lineNos = new int[BATCH_SIZE];
+        private int size;
+        private Row[] rows;
+        private int rowCount;
+        private final List<DataError> errors = new ArrayList<>(0);
+
+        void add(final String line, final int lineNo) {
+            lines[size] = line;
+            lineNos[size++] = lineNo;
+        }
+    }
+}
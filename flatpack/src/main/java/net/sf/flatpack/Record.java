@@ -12,6 +12,9 @@ import java.util.function.IntSupplier;
 import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 
+import net.sf.flatpack.util.FPStringUtils;
+import net.sf.flatpack.util.ParserUtils;
+
 /**
  * @since 3.4
  */
@@ -109,6 +112,24 @@ public interface Record {
      */
     int getInt(String column);
 
+    /**
+     * Returns the boolean value of a specified column.  true/y/yes/1 and
+     * false/n/no/0 are recognised, or the values given by the format
+     * attribute of a boolean column in the mapping.  An empty value is false.
+     * The default parses getString(column), without a format.
+     *
+     * @param column
+     *            - Name of the column
+     * @exception NoSuchElementException if no such record
+     * @exception NumberFormatException if the value is not a boolean
+     * @return boolean
+     * @since 4.1
+     */
+    default boolean getBoolean(final String column) {
+        final String s = getString(column);
+        return !FPStringUtils.isBlank(s) && ParserUtils.parseBoolean(s, null);
+    }
+
     /**
      * Returns the long value of a specified column
      *
@@ -356,4 +377,18 @@ public interface Record {
      * must be specified before calling this method.
      */
     String getRawData();
+
+    /**
+     * Returns a Record which is detached from any cursor and can safely be retained once the
+     * DataSet has moved on. This is required when Parser.setFlyweightRecords(true) is used as
+     * the same Record instance is then re-pointed at every row.
+     *
+     * The default returns this Record, for implementations which are never re-pointed.
+     *
+     * @return a Record holding the current row
+     * @since 4.1
+     */
+    default Record copy() {
+        return this;
+    }
 }
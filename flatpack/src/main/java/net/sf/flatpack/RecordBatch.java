@@ -0,0 +1,205 @@
+/*
+ * ObjectLab, http://www.objectlab.co.uk/open is supporting FlatPack.
+ *
+ * Based in London, we are world leaders in the design and development
+ * of bespoke applications for the securities financing markets.
+ *
+ * <a href="http://www.objectlab.co.uk/open">Click here to learn more</a>
+ *           ___  _     _           _   _          _
+ *          / _ \| |__ (_) ___  ___| |_| |    __ _| |__
+ *         | | | | '_ \| |/ _ \/ __| __| |   / _` | '_ \
+ *         | |_| | |_) | |  __/ (__| |_| |__| (_| | |_) |
+ *          \___/|_.__// |\___|\___|\__|_____\__,_|_.__/
+ *                   |__/
+ *
+ *                     www.ObjectLab.co.uk
+ *
+ * $Id: ColorProvider.java 74 2006-10-24 22:19:05Z benoitx $
+ *
+ * Copyright 2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sf.flatpack;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import net.sf.flatpack.structure.Row;
+
+/**
+ * A slice of consecutive records returned by nextBatch().  The records can be read one by
+ * one (get, iterator, stream) or a column at a time (getString(record, column), getColumn).
+ *
+ * A batch returned by a DataSet is re-used: its records are only valid until the next call
+ * to nextBatch(); copy() a Record to keep it longer, or hand the whole batch to another
+ * thread and ask for the next one once it is done with it.
+ *
+ * @since 4.1
+ */
+public final class RecordBatch implements Iterable<Record> {
+    /** template of the re-used records, null if the batch holds copies */
+    private final RowRecord template;
+    private Record[] records;
+    private Row[] rows;
+    private int size;
+
+    /**
+     * A batch of copied records, filled with add(Record).
+     *
+     * @param capacity
+     *          expected number of records
+     */
+    public RecordBatch(final int capacity) {
+        this(null, capacity);
+    }
+
+    RecordBatch(final RowRecord template, final int capacity) {
+        this.template = template;
+        this.records = new Record[Math.max(capacity, 1)];
+        this.rows = new Row[records.length];
+    }
+
+    /**
+     * @param record
+     *          the record to add, kept as it is
+     */
+    public void add(final Record record) {
+        ensureCapacity();
+        records[size++] = record;
+    }
+
+    /**
+     * Adds a row, read through a record of the batch re-pointed at it.
+     */
+    void add(final Row row) {
+        ensureCapacity();
+        if (records[size] == null) {
+            records[size] = template.copy();
+        }
+        ((RowRecord) records[size]).setRow(row);
+        rows[size++] = row;
+    }
+
+    /**
+     * Empties the batch, the records are kept to be re-used.
+     */
+    void clear() {
+        Arrays.fill(rows, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * @return the rows added since the last clear, null for the records added as they are
+     */
+    Row[] getRows() {
+        return rows;
+    }
+
+    private void ensureCapacity() {
+        if (size == records.length) {
+            records = Arrays.copyOf(records, size << 1);
+            rows = Arrays.copyOf(rows, size << 1);
+        }
+    }
+
+    /**
+     * @return the number of records, 0 once the end of the data has been reached
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param index
+     *          0 based position in the batch
+     * @return the record
+     * @exception IndexOutOfBoundsException if there is no such record
+     */
+    public Record get(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return records[index];
+    }
+
+    /**
+     * Resolves a column of the detail records once for getString(int, int) and getColumn(int).
+     *
+     * @param column
+     *          name of the column
+     * @return its index
+     * @exception NoSuchElementException if the batch is empty or has no such column
+     */
+    public int getColumnIndex(final String column) {
+        if (size == 0) {
+            throw new NoSuchElementException("The batch is empty");
+        }
+        if (records[0] instanceof RowRecord) {
+            return ((RowRecord) records[0]).getColumnIndex(column);
+        }
+        final int index = Arrays.asList(records[0].getColumns()).indexOf(column);
+        if (index < 0) {
+            throw new NoSuchElementException("Column [" + column + "] not found");
+        }
+        return index;
+    }
+
+    /**
+     * Same as get(index).getString() for a column index given by getColumnIndex(String).
+     *
+     * @param index
+     *          position of the record in the batch
+     * @param column
+     *          index of the column
+     * @return the value
+     */
+    public String getString(final int index, final int column) {
+        final Record record = get(index);
+        if (record instanceof RowRecord) {
+            return ((RowRecord) record).getString(column);
+        }
+        return record.getString(record.getColumns()[column]);
+    }
+
+    /**
+     * @param column
+     *          index of the column, see getColumnIndex(String)
+     * @return the values of the column for each record of the batch
+     */
+    public String[] getColumn(final int column) {
+        final String[] values = new String[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = getString(i, column);
+        }
+        return values;
+    }
+
+    @Override
+    public Iterator<Record> iterator() {
+        return Arrays.asList(records).subList(0, size).iterator();
+    }
+
+    public Stream<Record> stream() {
+        return StreamSupport.stream(Spliterators.spliterator(records, 0, size, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+}
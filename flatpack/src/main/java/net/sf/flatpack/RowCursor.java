@@ -0,0 +1,162 @@
+/*
+ * ObjectLab, http://www.objectlab.co.uk/open is supporting FlatPack.
+ *
+ * Based in London, we are world leaders in the design and development
+ * of bespoke applications for the securities financing markets.
+ *
+ * <a href="http://www.objectlab.co.uk/open">Click here to learn more</a>
+ *           ___  _     _           _   _          _
+ *          / _ \| |__ (_) ___  ___| |_| |    __ _| |__
+ *         | | | | '_ \| |/ _ \/ __| __| |   / _` | '_ \
+ *         | |_| | |_) | |  __/ (__| |_| |__| (_| | |_) |
+ *          \___/|_.__// |\___|\___|\__|_____\__,_|_.__/
+ *                   |__/
+ *
+ *                     www.ObjectLab.co.uk
+ *
+ * $Id: ColorProvider.java 74 2006-10-24 22:19:05Z benoitx $
+ *
+ * Copyright 2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sf.flatpack;
+
+import java.util.List;
+import java.util.Optional;
+
+import net.sf.flatpack.structure.Row;
+import net.sf.flatpack.structure.RowStore;
+
+/**
+ * Cursor over the RowStore of a frozen DefaultDataSet.  The store is no longer changed so
+ * the cursor only keeps its position and its current record; the records are copies of a
+ * template created with the settings of the DataSet when the cursor was created.
+ *
+ * @since 4.1
+ */
+final class RowCursor implements DataSetCursor {
+    private final RowStore rows;
+    private final boolean synchronizedReads;
+    private final RowRecord template;
+    private final boolean flyweightRecords;
+    private final List<DataError> errors;
+    private int pointer = -1;
+    private RowRecord flyweight;
+    private Optional<Record> current = Optional.empty();
+
+    RowCursor(final RowStore rows, final RowRecord template, final boolean flyweightRecords, final List<DataError> errors) {
+        this.rows = rows;
+        this.synchronizedReads = !rows.isConcurrentReadSafe();
+        this.template = template;
+        this.flyweightRecords = flyweightRecords;
+        this.errors = errors;
+    }
+
+    @Override
+    public boolean next() {
+        if (pointer + 1 < rows.size()) {
+            pointer++;
+            point();
+            return true;
+        }
+        // like DefaultDataSet, stay on the last row
+        current = Optional.empty();
+        return false;
+    }
+
+    @Override
+    public boolean previous() {
+        if (pointer <= 0) {
+            current = Optional.empty();
+            return false;
+        }
+        pointer--;
+        point();
+        return true;
+    }
+
+    @Override
+    public void absolute(final int position) {
+        if (position < 0 || position >= rows.size()) {
+            throw new IndexOutOfBoundsException("INVALID POINTER LOCATION: " + position);
+        }
+        pointer = position;
+        point();
+    }
+
+    @Override
+    public void goTop() {
+        pointer = -1;
+        current = Optional.empty();
+    }
+
+    @Override
+    public void goBottom() {
+        pointer = rows.size() - 1;
+        if (pointer >= 0) {
+            point();
+        } else {
+            current = Optional.empty();
+        }
+    }
+
+    @Override
+    public int getIndex() {
+        return pointer;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public Optional<Record> getRecord() {
+        return current;
+    }
+
+    @Override
+    public List<DataError> getErrors() {
+        return errors;
+    }
+
+    @Override
+    public int getErrorCount() {
+        return errors.size();
+    }
+
+    private void point() {
+        final Row row = read(rows, pointer, synchronizedReads);
+        if (flyweightRecords) {
+            if (flyweight == null) {
+                flyweight = (RowRecord) template.copy();
+                current = Optional.of(flyweight);
+            }
+            flyweight.setRow(row);
+        } else {
+            final RowRecord record = (RowRecord) template.copy();
+            record.setRow(row);
+            current = Optional.of(record);
+        }
+    }
+
+    static Row read(final RowStore rows, final int index, final boolean synchronizedReads) {
+        if (synchronizedReads) {
+            synchronized (rows) {
+                return rows.get(index);
+            }
+        }
+        return rows.get(index);
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * ObjectLab, http://www.objectlab.co.uk/open is supporting FlatPack.
+ *
+ * Based in London, we are world leaders in the design and development
+ * of bespoke applications for the securities financing markets.
+ *
+ * <a href="http://www.objectlab.co.uk/open">Click here to learn more</a>
+ *           ___  _     _           _   _          _
+ *          / _ \| |__ (_) ___  ___| |_| |    __ _| |__
+ *         | | | | '_ \| |/ _ \/ __| __| |   / _` | '_ \
+ *         | |_| | |_) | |  __/ (__| |_| |__| (_| | |_) |
+ *          \___/|_.__// |\___|\___|\__|_____\__,_|_.__/
+ *                   |__/
+ *
+ *                     www.ObjectLab.co.uk
+ *
+ * $Id: ColorProvider.java 74 2006-10-24 22:19:05Z benoitx $
+ *
+ * Copyright 2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sf.flatpack;
+
+import java.util.Arrays;
+
+import net.sf.flatpack.structure.Row;
+import net.sf.flatpack.structure.RowStore;
+
+/**
+ * Hash index from the values of some columns to the positions of the detail rows holding
+ * them.  The table is open addressed on the keys and the positions sharing a key are chained
+ * through an int array in ascending order, so no position is boxed.  The DataSet moves a
+ * position to its new key after setValue on an indexed column and shifts the positions after
+ * a removed row; it marks the index stale when the rows are re-ordered, which builds it again
+ * on the next lookup.
+ *
+ * @since 4.1
+ */
+final class RowIndex {
+    private static final int NONE = -1;
+
+    private final String[] columns;
+    private final int[] positions;
+    private String[] keys;
+    private int[] heads;
+    private int[] next;
+    /** slot of the key of each position, NONE if the row is not indexed */
+    private int[] slots;
+    /** number of positions */
+    private int size;
+    /** number of slots holding a key, some with an empty chain once their rows changed */
+    private int used;
+    private int mask;
+    private boolean stale = true;
+
+    /**
+     * @param columns
+     *          names of the indexed columns
+     * @param positions
+     *          their positions in the detail records
+     */
+    RowIndex(final String[] columns, final int[] positions) {
+        this.columns = columns.clone();
+        this.positions = positions;
+    }
+
+    boolean isStale() {
+        return stale;
+    }
+
+    void invalidate() {
+        if (!stale) {
+            stale = true;
+            // let the old table go before the rebuild needs the memory
+            keys = null;
+            heads = null;
+            next = null;
+            slots = null;
+        }
+    }
+
+    /**
+     * @return true if the column, of a detail record, is part of the key
+     */
+    boolean isIndexed(final int column) {
+        for (final int position : positions) {
+            if (position == column) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param rows
+     *          rows of the DataSet
+     * @param record
+     *          record re-pointed at each row to read the values as the DataSet getters do
+     * @param releaseLazyRows
+     *          true if rows split to read their keys are released afterwards
+     */
+    void build(final RowStore rows, final RowRecord record, final boolean releaseLazyRows) {
+        size = rows.size();
+        used = 0;
+        int capacity = 16;
+        while (capacity < size * 2) {
+            capacity <<= 1;
+        }
+        keys = new String[capacity];
+        heads = new int[capacity];
+        Arrays.fill(heads, NONE);
+        next = new int[size];
+        slots = new int[size];
+        mask = capacity - 1;
+        // backwards so that each chain ends up in ascending order
+        for (int i = size - 1; i >= 0; i--) {
+            final Row row = rows.get(i);
+            next[i] = NONE;
+            slots[i] = NONE;
+            if (row.getMdkey() != null) {
+                continue;
+            }
+            record.setRow(row);
+            final String key = key(row, record);
+            if (releaseLazyRows && row instanceof LazyRow) {
+                ((LazyRow) row).release();
+            }
+            if (key != null) {
+                final int slot = slot(key);
+                if (keys[slot] == null) {
+                    keys[slot] = key;
+                    used++;
+                }
+                next[i] = heads[slot];
+                heads[slot] = i;
+                slots[i] = slot;
+            }
+        }
+        stale = false;
+    }
+
+    /**
+     * Moves a detail row to the chain of its current values, after one of them changed.  The
+     * index is marked stale instead if the new key would fill more than half of the table.
+     *
+     * @param position
+     *          position of the row
+     * @param row
+     *          the row
+     * @param record
+     *          record re-pointed at the row to read its values
+     */
+    void update(final int position, final Row row, final RowRecord record) {
+        unlink(position);
+        record.setRow(row);
+        final String key = key(row, record);
+        if (key == null) {
+            return;
+        }
+        final int slot = slot(key);
+        if (keys[slot] == null) {
+            if (2 * (used + 1) > keys.length) {
+                invalidate();
+                return;
+            }
+            keys[slot] = key;
+            used++;
+        }
+        link(slot, position);
+    }
+
+    /**
+     * Drops a removed row and shifts the positions after it.
+     *
+     * @param position
+     *          position of the removed row
+     */
+    void remove(final int position) {
+        unlink(position);
+        size--;
+        System.arraycopy(next, position + 1, next, position, size - position);
+        System.arraycopy(slots, position + 1, slots, position, size - position);
+        for (int i = 0; i < size; i++) {
+            if (next[i] > position) {
+                next[i]--;
+            }
+        }
+        for (int i = 0; i < heads.length; i++) {
+            if (heads[i] > position) {
+                heads[i]--;
+            }
+        }
+    }
+
+    private void unlink(final int position) {
+        final int slot = slots[position];
+        if (slot == NONE) {
+            return;
+        }
+        if (heads[slot] == position) {
+            heads[slot] = next[position];
+        } else {
+            int p = heads[slot];
+            while (next[p] != position) {
+                p = next[p];
+            }
+            next[p] = next[position];
+        }
+        next[position] = NONE;
+        slots[position] = NONE;
+    }
+
+    /**
+     * Inserts the position in the chain of the slot, keeping it in ascending order.
+     */
+    private void link(final int slot, final int position) {
+        if (heads[slot] == NONE || heads[slot] > position) {
+            next[position] = heads[slot];
+            heads[slot] = position;
+        } else {
+            int p = heads[slot];
+            while (next[p] != NONE && next[p] < position) {
+                p = next[p];
+            }
+            next[position] = next[p];
+            next[p] = position;
+        }
+        slots[position] = slot;
+    }
+
+    /**
+     * @return the first position holding the values, -1 if none
+     */
+    int first(final String... values) {
+        if (values.length != positions.length) {
+            throw new IllegalArgumentException("The index is on " + positions.length + " column(s) " + Arrays.toString(columns) + ", got "
+                    + values.length + " value(s)");
+        }
+        final String key = key(values);
+        return key == null ? NONE : heads[slot(key)];
+    }
+
+    /**
+     * @return the next position holding the same values, -1 if none
+     */
+    int next(final int position) {
+        return next[position];
+    }
+
+    private String key(final Row row, final RowRecord record) {
+        final String[] values = new String[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            if (positions[i] >= row.getColumnCount()) {
+                return null;
+            }
+            values[i] = record.getString(positions[i]);
+        }
+        return key(values);
+    }
+
+    /**
+     * @return the values in one String, null if one of them is null
+     */
+    private static String key(final String[] values) {
+        if (values.length == 1) {
+            return values[0];
+        }
+        final StringBuilder buf = new StringBuilder();
+        for (final String value : values) {
+            if (value == null) {
+                return null;
+            }
+            // prefixed by their length so that no two lists give the same key
+            buf.append(value.length()).append(':').append(value);
+        }
+        return buf.toString();
+    }
+
+    /**
+     * @return the slot of the key, or the empty slot where it would go
+     */
+    private int slot(final String key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        int slot = h & mask;
+        while (keys[slot] != null && !keys[slot].equals(key)) {
+            slot = slot + 1 & mask;
+        }
+        return slot;
+    }
+}
@@ -4,6 +4,7 @@ import java.math.BigDecimal;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.Date;
 import java.util.Iterator;
@@ -17,13 +18,16 @@ import java.util.function.Supplier;
 
 import net.sf.flatpack.structure.ColumnMetaData;
 import net.sf.flatpack.structure.Row;
+import net.sf.flatpack.structure.TypedValues;
 import net.sf.flatpack.util.FPConstants;
 import net.sf.flatpack.util.FPStringUtils;
 import net.sf.flatpack.util.ParserUtils;
 import net.sf.flatpack.xml.MetaData;
 
 public class RowRecord implements Record {
-    private final Row row;
+    private static final String DEFAULT_DATE_FORMAT = "yyyyMMdd";
+    private static final String DEFAULT_LOCAL_DATE_FORMAT = "yyyy-MM-dd";
+    private Row row;
     private final boolean columnCaseSensitive;
     private final MetaData metaData;
     private Properties pzConvertProps = null;
@@ -31,10 +35,20 @@ public class RowRecord implements Record {
     private final boolean upperCase;
     private final boolean lowerCase;
     private final boolean nullEmptyString;
+    private final boolean cacheTypedValues;
     private String[] columns = null;
 
     public RowRecord(final Row row, final MetaData metaData, final boolean columnCaseSensitive, final Properties pzConvertProps,
             final boolean strictNumericParse, final boolean upperCase, final boolean lowerCase, final boolean nullEmptyString) {
+        this(row, metaData, columnCaseSensitive, pzConvertProps, strictNumericParse, upperCase, lowerCase, nullEmptyString, false);
+    }
+
+    /**
+     * @since 4.1
+     */
+    public RowRecord(final Row row, final MetaData metaData, final boolean columnCaseSensitive, final Properties pzConvertProps,
+            final boolean strictNumericParse, final boolean upperCase, final boolean lowerCase, final boolean nullEmptyString,
+            final boolean cacheTypedValues) {
         super();
         this.row = row;
         this.metaData = metaData;
@@ -44,6 +58,7 @@ public class RowRecord implements Record {
         this.upperCase = upperCase;
         this.lowerCase = lowerCase;
         this.nullEmptyString = nullEmptyString;
+        this.cacheTypedValues = cacheTypedValues;
     }
 
     @Override
@@ -74,6 +89,10 @@ public class RowRecord implements Record {
 
     @Override
     public boolean contains(final String column) {
+        if (metaData.getColumnIndex(row.getMdkey(), column) >= 0) {
+            return true;
+        }
+        // the index may be case sensitive, contains never was
         final Iterator<ColumnMetaData> cmds = ParserUtils.getColumnMetaData(row.getMdkey(), metaData).iterator();
         while (cmds.hasNext()) {
             final ColumnMetaData cmd = cmds.next();
@@ -146,12 +165,37 @@ public class RowRecord implements Record {
 
     @Override
     public Date getDate(final String column) throws ParseException {
-        return getDate(column, new SimpleDateFormat("yyyyMMdd"));
+        return getDate(columnIndex(column));
+    }
+
+    /**
+     * Same as getDate(String) for the index given by getColumnIndex(String).
+     *
+     * @since 4.1
+     */
+    public Date getDate(final int idx) throws ParseException {
+        final String format = declaredFormat(idx, ColumnMetaData.TYPE_DATE);
+        final TypedValues tv = typedValues();
+        if (tv != null) {
+            if (format != null && tv.hasLocalDate(idx, format)) {
+                return Date.from(LocalDate.ofEpochDay(tv.getLocalDateEpochDay(idx)).atStartOfDay(ZoneId.systemDefault()).toInstant());
+            } else if (format == null && tv.hasDate(idx)) {
+                return new Date(tv.getDateMillis(idx));
+            }
+        }
+        final Date d = parseDate(row.getValue(idx), new SimpleDateFormat(format != null ? format : DEFAULT_DATE_FORMAT));
+        if (format == null && d != null && isCaching(tv)) {
+            tv.putDateMillis(idx, d.getTime());
+        }
+        return d;
     }
 
     @Override
     public Date getDate(final String column, final SimpleDateFormat sdf) throws ParseException {
-        final String s = getStringValue(column);
+        return parseDate(getStringValue(column), sdf);
+    }
+
+    private static Date parseDate(final String s, final SimpleDateFormat sdf) throws ParseException {
         if (FPStringUtils.isBlank(s)) {
             // don't do the parse on empties
             return null;
@@ -179,7 +223,17 @@ public class RowRecord implements Record {
 
     @Override
     public LocalDate getLocalDate(final String column) throws ParseException {
-        return getLocalDate(column, "yyyy-MM-dd");
+        return getLocalDate(columnIndex(column));
+    }
+
+    /**
+     * Same as getLocalDate(String) for the index given by getColumnIndex(String).
+     *
+     * @since 4.1
+     */
+    public LocalDate getLocalDate(final int idx) throws ParseException {
+        final String format = declaredFormat(idx, ColumnMetaData.TYPE_DATE);
+        return getLocalDate(idx, format != null ? format : DEFAULT_LOCAL_DATE_FORMAT);
     }
 
     @Override
@@ -194,12 +248,29 @@ public class RowRecord implements Record {
 
     @Override
     public LocalDate getLocalDate(final String column, final String dateFormat) throws ParseException {
-        final String s = getStringValue(column);
+        return getLocalDate(columnIndex(column), dateFormat);
+    }
+
+    /**
+     * Same as getLocalDate(String, String) for the index given by getColumnIndex(String).
+     *
+     * @since 4.1
+     */
+    public LocalDate getLocalDate(final int idx, final String dateFormat) throws ParseException {
+        final TypedValues tv = typedValues();
+        if (tv != null && tv.hasLocalDate(idx, dateFormat)) {
+            return LocalDate.ofEpochDay(tv.getLocalDateEpochDay(idx));
+        }
+        final String s = row.getValue(idx);
         if (FPStringUtils.isBlank(s)) {
             // don't do the parse on empties
             return null;
         }
-        return LocalDate.parse(s, DateTimeFormatter.ofPattern(dateFormat));
+        final LocalDate d = LocalDate.parse(s, DateTimeFormatter.ofPattern(dateFormat));
+        if (isCaching(tv)) {
+            tv.putLocalDate(idx, dateFormat, d.toEpochDay());
+        }
+        return d;
     }
 
     @Override
@@ -213,16 +284,57 @@ public class RowRecord implements Record {
 
     @Override
     public double getDouble(final String column) {
-        final StringBuilder newString = new StringBuilder();
-        final String s = getStringValue(column);
+        return getDouble(columnIndex(column));
+    }
 
-        if (!strictNumericParse) {
-            newString.append(ParserUtils.stripNonDoubleChars(s));
-        } else {
-            newString.append(s);
+    /**
+     * Same as getDouble(String) for the index given by getColumnIndex(String).
+     *
+     * @since 4.1
+     */
+    public double getDouble(final int idx) {
+        final TypedValues tv = typedValues();
+        if (tv != null) {
+            if (tv.hasDouble(idx)) {
+                return tv.getDouble(idx);
+            } else if (tv.isStrictNumericParse() && tv.hasLong(idx)) {
+                return tv.getLong(idx);
+            } else if (tv.isStrictNumericParse() && tv.hasBigDecimal(idx)) {
+                return tv.getBigDecimal(idx).doubleValue();
+            }
         }
+        final String s = row.getValue(idx);
+        final double d = Double.parseDouble(strictNumericParse ? s : ParserUtils.stripNonDoubleChars(s));
+        if (isCaching(tv)) {
+            tv.putDouble(idx, d);
+        }
+        return d;
+    }
 
-        return Double.parseDouble(newString.toString());
+    @Override
+    public boolean getBoolean(final String column) {
+        return getBoolean(columnIndex(column));
+    }
+
+    /**
+     * Same as getBoolean(String) for the index given by getColumnIndex(String).
+     *
+     * @since 4.1
+     */
+    public boolean getBoolean(final int idx) {
+        final TypedValues tv = typedValues();
+        if (tv != null && tv.hasBoolean(idx)) {
+            return tv.getBoolean(idx);
+        }
+        final String s = row.getValue(idx);
+        if (FPStringUtils.isBlank(s)) {
+            return false;
+        }
+        final boolean b = ParserUtils.parseBoolean(s, declaredFormat(idx, ColumnMetaData.TYPE_BOOLEAN));
+        if (isCaching(tv)) {
+            tv.putBoolean(idx, b);
+        }
+        return b;
     }
 
     @Override
@@ -236,13 +348,29 @@ public class RowRecord implements Record {
 
     @Override
     public int getInt(final String column) {
-        final String s = getStringValue(column);
+        return getInt(columnIndex(column));
+    }
 
-        if (!strictNumericParse) {
-            return Integer.parseInt(ParserUtils.stripNonLongChars(s));
+    /**
+     * Same as getInt(String) for the index given by getColumnIndex(String).
+     *
+     * @since 4.1
+     */
+    public int getInt(final int idx) {
+        final TypedValues tv = typedValues();
+        if (tv != null && tv.hasLong(idx)) {
+            final long l = tv.getLong(idx);
+            if (l == (int) l) {
+                return (int) l;
+            }
+            // out of range for an int, let the parse below report it
         }
-
-        return Integer.parseInt(s);
+        final String s = row.getValue(idx);
+        final int i = Integer.parseInt(strictNumericParse ? s : ParserUtils.stripNonLongChars(s));
+        if (isCaching(tv)) {
+            tv.putLong(idx, i);
+        }
+        return i;
     }
 
     @Override
@@ -256,17 +384,85 @@ public class RowRecord implements Record {
 
     @Override
     public long getLong(final String column) {
-        final String s = getStringValue(column);
+        return getLong(columnIndex(column));
+    }
 
-        if (!strictNumericParse) {
-            return Long.parseLong(ParserUtils.stripNonLongChars(s));
+    /**
+     * Same as getLong(String) for the index given by getColumnIndex(String).
+     *
+     * @since 4.1
+     */
+    public long getLong(final int idx) {
+        final TypedValues tv = typedValues();
+        if (tv != null && tv.hasLong(idx)) {
+            return tv.getLong(idx);
+        }
+        final String s = row.getValue(idx);
+        final long l = Long.parseLong(strictNumericParse ? s : ParserUtils.stripNonLongChars(s));
+        if (isCaching(tv)) {
+            tv.putLong(idx, l);
         }
+        return l;
+    }
+
+    /**
+     * Resolves the position of a column in the current record type.  The index stays valid for
+     * every row with the same getRecordID() and can be passed to the index based getters to
+     * avoid looking the column up by name each time.
+     *
+     * @param column
+     *            - Name of the column
+     * @exception NoSuchElementException if no such column in the record
+     * @return the index of the column
+     * @since 4.1
+     */
+    public int getColumnIndex(final String column) {
+        return columnIndex(column);
+    }
 
-        return Long.parseLong(s);
+    private int columnIndex(final String column) {
+        return ParserUtils.getColumnIndex(row.getMdkey(), metaData, column, columnCaseSensitive);
     }
 
     private String getStringValue(final String column) {
-        return row.getValue(ParserUtils.getColumnIndex(row.getMdkey(), metaData, column, columnCaseSensitive));
+        return row.getValue(columnIndex(column));
+    }
+
+    /**
+     * @return the typed values of the row, converted by the parser for typed columns or
+     *         cached by the getters, null if there are none usable in this parsing mode
+     */
+    private TypedValues typedValues() {
+        final TypedValues tv = row.getTypedValues();
+        if (tv != null && (tv.isStrictNumericParse() || !strictNumericParse)) {
+            // values converted strictly are valid in either parsing mode
+            return tv;
+        }
+        if (!cacheTypedValues) {
+            return null;
+        }
+        final TypedValues created = new TypedValues(row.getColumnCount(), strictNumericParse);
+        row.setTypedValues(created);
+        return created;
+    }
+
+    /**
+     * @return true if values parsed by the getters can be kept in the typed values
+     */
+    private boolean isCaching(final TypedValues tv) {
+        return cacheTypedValues && tv != null && tv.isStrictNumericParse() == strictNumericParse;
+    }
+
+    /**
+     * @return the format declared in the mapping if the column has the given type, null otherwise
+     */
+    private String declaredFormat(final int idx, final String type) {
+        final List<ColumnMetaData> cmds = ParserUtils.getColumnMetaData(row.getMdkey(), metaData);
+        if (cmds == null || idx >= cmds.size()) {
+            return null;
+        }
+        final ColumnMetaData cmd = cmds.get(idx);
+        return type.equals(cmd.getType()) ? cmd.getFormat() : null;
     }
 
     @Override
@@ -286,7 +482,24 @@ public class RowRecord implements Record {
 
     @Override
     public BigDecimal getBigDecimal(final String column) {
-        String s = getStringValue(column);
+        return getBigDecimal(columnIndex(column));
+    }
+
+    /**
+     * Same as getBigDecimal(String) for the index given by getColumnIndex(String).
+     *
+     * @since 4.1
+     */
+    public BigDecimal getBigDecimal(final int idx) {
+        final TypedValues tv = typedValues();
+        if (tv != null) {
+            if (tv.hasBigDecimal(idx)) {
+                return tv.getBigDecimal(idx);
+            } else if (tv.isStrictNumericParse() && tv.hasLong(idx)) {
+                return BigDecimal.valueOf(tv.getLong(idx));
+            }
+        }
+        String s = row.getValue(idx);
         if (FPStringUtils.isBlank(s)) {
             // don't do the parse on empties
             return null;
@@ -298,7 +511,11 @@ public class RowRecord implements Record {
             // don't do the parse on empties
             return null;
         }
-        return new BigDecimal(s);
+        final BigDecimal bd = new BigDecimal(s);
+        if (isCaching(tv)) {
+            tv.putBigDecimal(idx, bd);
+        }
+        return bd;
     }
 
     @Override
@@ -312,7 +529,16 @@ public class RowRecord implements Record {
 
     @Override
     public String getString(final String column) {
-        String s = getStringValue(column);
+        return getString(columnIndex(column));
+    }
+
+    /**
+     * Same as getString(String) for the index given by getColumnIndex(String).
+     *
+     * @since 4.1
+     */
+    public String getString(final int idx) {
+        String s = row.getValue(idx);
 
         if (nullEmptyString && FPStringUtils.isBlank(s)) {
             s = null;
@@ -331,4 +557,19 @@ public class RowRecord implements Record {
         return row.getRawData();
     }
 
+    @Override
+    public Record copy() {
+        return new RowRecord(row, metaData, columnCaseSensitive, pzConvertProps, strictNumericParse, upperCase, lowerCase, nullEmptyString,
+                cacheTypedValues);
+    }
+
+    /**
+     * Re-points this record at another row; used by the DataSet when flyweight records are on.
+     *
+     * @param row the row to read from
+     */
+    void setRow(final Row row) {
+        this.row = row;
+    }
+
 }
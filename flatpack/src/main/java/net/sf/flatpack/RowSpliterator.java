@@ -0,0 +1,123 @@
+/*
+ * ObjectLab, http://www.objectlab.co.uk/open is supporting FlatPack.
+ *
+ * Based in London, we are world leaders in the design and development
+ * of bespoke applications for the securities financing markets.
+ *
+ * <a href="http://www.objectlab.co.uk/open">Click here to learn more</a>
+ *           ___  _     _           _   _          _
+ *          / _ \| |__ (_) ___  ___| |_| |    __ _| |__
+ *         | | | | '_ \| |/ _ \/ __| __| |   / _` | '_ \
+ *         | |_| | |_) | |  __/ (__| |_| |__| (_| | |_) |
+ *          \___/|_.__// |\___|\___|\__|_____\__,_|_.__/
+ *                   |__/
+ *
+ *                     www.ObjectLab.co.uk
+ *
+ * $Id: ColorProvider.java 74 2006-10-24 22:19:05Z benoitx $
+ *
+ * Copyright 2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sf.flatpack;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import net.sf.flatpack.structure.Row;
+import net.sf.flatpack.structure.RowStore;
+
+/**
+ * Spliterator over a range of the RowStore of a DefaultDataSet.  The size of each half is
+ * known so parallel streams split the rows evenly, and each row gets its own Record, copied
+ * from a template, so the threads share nothing but the store.  With flyweight records the
+ * template itself is re-pointed at each row, and each split gets a copy of it.
+ *
+ * @since 4.1
+ */
+final class RowSpliterator implements Spliterator<Record> {
+    private final RowStore rows;
+    private final RowRecord template;
+    /** true to hand out the template for every row */
+    private final boolean flyweight;
+    private final boolean synchronizedReads;
+    private final boolean releaseLazyRows;
+    /** true if the DataSet is frozen, its rows can then no longer change */
+    private final boolean immutable;
+    private int from;
+    private final int to;
+
+    RowSpliterator(final RowStore rows, final RowRecord template, final boolean flyweight, final boolean releaseLazyRows, final boolean immutable,
+            final int from, final int to) {
+        this.rows = rows;
+        this.template = template;
+        this.flyweight = flyweight;
+        this.synchronizedReads = !rows.isConcurrentReadSafe();
+        this.releaseLazyRows = releaseLazyRows;
+        this.immutable = immutable;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super Record> action) {
+        if (from >= to) {
+            return false;
+        }
+        accept(from++, action);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(final Consumer<? super Record> action) {
+        final int end = to;
+        for (int i = from; i < end; i++) {
+            accept(i, action);
+        }
+        from = end;
+    }
+
+    private void accept(final int index, final Consumer<? super Record> action) {
+        final Row row = RowCursor.read(rows, index, synchronizedReads);
+        final RowRecord record = flyweight ? template : (RowRecord) template.copy();
+        record.setRow(row);
+        action.accept(record);
+        if (releaseLazyRows && row instanceof LazyRow) {
+            ((LazyRow) row).release();
+        }
+    }
+
+    @Override
+    public Spliterator<Record> trySplit() {
+        final int mid = from + to >>> 1;
+        if (mid <= from) {
+            return null;
+        }
+        // the prefix may go to another thread, it cannot share a flyweight record
+        final Spliterator<Record> prefix = new RowSpliterator(rows, flyweight ? (RowRecord) template.copy() : template, flyweight, releaseLazyRows,
+                immutable, from, mid);
+        from = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return to - from;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL | (immutable ? IMMUTABLE : 0);
+    }
+}
@@ -2,7 +2,6 @@ package net.sf.flatpack;
 
 import java.util.Iterator;
 import java.util.NoSuchElementException;
-import java.util.Optional;
 import java.util.Spliterator;
 import java.util.Spliterators;
 import java.util.stream.Stream;
@@ -26,6 +25,9 @@ public interface StreamingDataSet extends RecordDataSet {
     }
 
     /**
+     * A DataSet with lazy rows must be frozen first, see DataSet.freeze(): its rows would
+     * otherwise be split by several threads at once.
+     *
      * @since 4.0
      * @return a stream of Records
      */
@@ -34,33 +36,46 @@ public interface StreamingDataSet extends RecordDataSet {
                 .stream(Spliterators.spliteratorUnknownSize(spliterator(), Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE), true);
     }
 
+    /**
+     * Reads up to maxRows records at once.  This default copies the records one by one, the
+     * DataSets of FlatPack fill a re-used batch directly from their rows, see RecordBatch.
+     *
+     * @param maxRows
+     *          the maximum number of records in the batch, greater than 0
+     * @return the batch, empty once all the records have been read
+     * @since 4.1
+     */
+    default RecordBatch nextBatch(final int maxRows) {
+        if (maxRows <= 0) {
+            throw new IllegalArgumentException("maxRows must be greater than 0, got " + maxRows);
+        }
+        final RecordBatch batch = new RecordBatch(Math.min(maxRows, 1024));
+        while (batch.size() < maxRows && next()) {
+            getRecord().ifPresent(r -> batch.add(r.copy()));
+        }
+        return batch;
+    }
+
     default Iterator<Record> spliterator() {
         return new Iterator<Record>() {
-            Optional<Record> nextData = Optional.empty();
+            Record nextData = null;
 
             @Override
             public boolean hasNext() {
-                if (nextData.isPresent()) {
-                    return true;
-                } else {
-                    if (StreamingDataSet.this.next()) {
-                        nextData = getRecord();
-                    } else {
-                        nextData = Optional.empty();
-                    }
-                    return nextData.isPresent();
+                if (nextData == null && StreamingDataSet.this.next()) {
+                    nextData = getRecord().orElse(null);
                 }
+                return nextData != null;
             }
 
             @Override
             public Record next() {
-                if (nextData.isPresent() || hasNext()) {
-                    final Record line = nextData.isPresent() ? nextData.get() : null;
-                    nextData = Optional.empty();
-                    return line;
-                } else {
+                if (!hasNext()) {
                     throw new NoSuchElementException();
                 }
+                final Record line = nextData;
+                nextData = null;
+                return line;
             }
         };
     }
@@ -3,6 +3,11 @@ package net.sf.flatpack;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import net.sf.flatpack.brparse.BuffReaderDataSet;
+import net.sf.flatpack.util.FPInvalidUsageException;
 
 public class StreamingRecord implements StreamingDataSet {
     private final DataSet dataSet;
@@ -12,6 +17,45 @@ public class StreamingRecord implements StreamingDataSet {
         this.dataSet = dataSet;
     }
 
+    /**
+     * An in memory DataSet is streamed from its rows, with the exact size, the others by
+     * calling next() until the end.
+     */
+    @Override
+    public Stream<Record> stream() {
+        if (isInMemory()) {
+            return StreamSupport.stream(((DefaultDataSet) dataSet).rowSpliterator(), false);
+        }
+        return StreamingDataSet.super.stream();
+    }
+
+    /**
+     * An in memory DataSet is split evenly between the threads, each Record being a
+     * separate instance.
+     *
+     * @exception FPInvalidUsageException if the DataSet has lazy rows and is not frozen, see
+     *          DataSet.freeze()
+     */
+    @Override
+    public Stream<Record> parallelStream() {
+        if (isInMemory()) {
+            return StreamSupport.stream(((DefaultDataSet) dataSet).parallelRowSpliterator(), true);
+        }
+        return StreamingDataSet.super.parallelStream();
+    }
+
+    @Override
+    public RecordBatch nextBatch(final int maxRows) {
+        if (dataSet instanceof DefaultDataSet) {
+            return ((DefaultDataSet) dataSet).nextBatch(maxRows);
+        }
+        return StreamingDataSet.super.nextBatch(maxRows);
+    }
+
+    private boolean isInMemory() {
+        return dataSet instanceof DefaultDataSet && !(dataSet instanceof BuffReaderDataSet);
+    }
+
     @Override
     public Optional<Record> getRecord() {
         return dataSet.getRecord();
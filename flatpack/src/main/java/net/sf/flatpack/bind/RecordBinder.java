@@ -0,0 +1,580 @@
+/*
+ * ObjectLab, http://www.objectlab.co.uk/open is supporting FlatPack.
+ *
+ * Based in London, we are world leaders in the design and development
+ * of bespoke applications for the securities financing markets.
+ *
+ * <a href="http://www.objectlab.co.uk/open">Click here to learn more</a>
+ *           ___  _     _           _   _          _
+ *          / _ \| |__ (_) ___  ___| |_| |    __ _| |__
+ *         | | | | '_ \| |/ _ \/ __| __| |   / _` | '_ \
+ *         | |_| | |_) | |  __/ (__| |_| |__| (_| | |_) |
+ *          \___/|_.__// |\___|\___|\__|_____\__,_|_.__/
+ *                   |__/
+ *
+ *                     www.ObjectLab.co.uk
+ *
+ * $Id: ColorProvider.java 74 2006-10-24 22:19:05Z benoitx $
+ *
+ * Copyright 2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sf.flatpack.bind;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+
+import net.sf.flatpack.Record;
+import net.sf.flatpack.RowRecord;
+import net.sf.flatpack.structure.ColumnMetaData;
+import net.sf.flatpack.util.FPException;
+import net.sf.flatpack.util.FPStringUtils;
+import net.sf.flatpack.util.ParserUtils;
+
+/**
+ * Binds Records to instances of a class, a field per column.
+ *
+ * The class is inspected once: its no-arg constructor and a setter per field (the public
+ * setXxx method or else the field itself) are turned into lambdas via LambdaMetafactory /
+ * MethodHandles, so binding a record involves no reflection.  Column indices are resolved
+ * once per record type and the values are read with the index based getters of RowRecord,
+ * without looking each column up by name.
+ *
+ * Supported field types are String, int, long, double, boolean (and their wrappers),
+ * BigDecimal, LocalDate and Date.  Columns missing from a record leave the field untouched;
+ * empty values give 0 / false for primitives and null for wrappers and objects.
+ *
+ * The format of a @FlatColumn is read as the generated mapper reads it: the pattern of a
+ * LocalDate or Date field, the "true/false" values of a boolean field.  A boolean column
+ * whose type is boolean is left to the parser, which converts it with its format.
+ *
+ * A RecordBinder keeps the column indices of the data it has seen, use one per DataSet.
+ *
+ * @param <T> the bound class
+ * @since 4.1
+ */
+public final class RecordBinder<T> {
+    private static final ClassValue<Mapping> MAPPINGS = new ClassValue<Mapping>() {
+        @Override
+        protected Mapping computeValue(final Class<?> type) {
+            return new Mapping(type);
+        }
+    };
+
+    private final Mapping mapping;
+
+    private final Map<String, int[]> indices = new ConcurrentHashMap<>();
+
+    /** indices of the last record type seen, most files only have one */
+    private volatile ResolvedIndices last;
+
+    private RecordBinder(final Mapping mapping) {
+        this.mapping = mapping;
+    }
+
+    /**
+     * @param type
+     *          class with a no-arg constructor
+     * @return a binder for the class
+     * @throws IllegalArgumentException
+     *          if the class cannot be instantiated or an annotated field has an unsupported type
+     */
+    public static <T> RecordBinder<T> of(final Class<T> type) {
+        return new RecordBinder<>(MAPPINGS.get(type));
+    }
+
+    /**
+     * Creates a new instance populated from the record.
+     *
+     * @param record
+     *          the record to read
+     * @return the new instance
+     */
+    @SuppressWarnings("unchecked")
+    public T bind(final Record record) {
+        final T target = (T) mapping.constructor.get();
+        final Property[] properties = mapping.properties;
+        if (record instanceof RowRecord) {
+            final RowRecord rowRecord = (RowRecord) record;
+            final int[] idx = resolve(rowRecord);
+            for (int i = 0; i < properties.length; i++) {
+                if (idx[i] >= 0) {
+                    properties[i].bind(target, rowRecord, idx[i]);
+                }
+            }
+        } else {
+            for (final Property property : properties) {
+                if (record.contains(property.column)) {
+                    property.bind(target, record);
+                }
+            }
+        }
+        return target;
+    }
+
+    private int[] resolve(final RowRecord record) {
+        final String recordId = record.getRecordID();
+        final ResolvedIndices resolved = last;
+        if (resolved != null && resolved.recordId.equals(recordId)) {
+            return resolved.indices;
+        }
+        final int[] idx = indices.computeIfAbsent(recordId, k -> columnIndices(record));
+        last = new ResolvedIndices(recordId, idx);
+        return idx;
+    }
+
+    private int[] columnIndices(final RowRecord record) {
+        final Property[] properties = mapping.properties;
+        final int[] idx = new int[properties.length];
+        for (int i = 0; i < properties.length; i++) {
+            try {
+                idx[i] = record.getColumnIndex(properties[i].column);
+            } catch (final NoSuchElementException ex) {
+                idx[i] = -1;
+            }
+        }
+        return idx;
+    }
+
+    private static final class ResolvedIndices {
+        private final String recordId;
+        private final int[] indices;
+
+        private ResolvedIndices(final String recordId, final int[] indices) {
+            this.recordId = recordId;
+            this.indices = indices;
+        }
+    }
+
+    /**
+     * Constructor and properties of a class, shared by all binders of the class.
+     */
+    private static final class Mapping {
+        private final Supplier<Object> constructor;
+        private final Property[] properties;
+
+        private Mapping(final Class<?> type) {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            constructor = constructor(lookup, type);
+
+            final List<Field> fields = new ArrayList<>();
+            boolean annotated = false;
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (final Field f : c.getDeclaredFields()) {
+                    final int mod = f.getModifiers();
+                    if (Modifier.isStatic(mod) || Modifier.isTransient(mod) || f.isSynthetic()) {
+                        continue;
+                    }
+                    annotated |= f.isAnnotationPresent(FlatColumn.class);
+                    fields.add(f);
+                }
+            }
+
+            final List<Property> result = new ArrayList<>();
+            for (final Field f : fields) {
+                final FlatColumn flatColumn = f.getAnnotation(FlatColumn.class);
+                if (annotated && flatColumn == null) {
+                    continue;
+                }
+                final String column = flatColumn != null && flatColumn.name().length() > 0 ? flatColumn.name() : f.getName();
+                if (flatColumn != null) {
+                    check(type, f, flatColumn);
+                }
+                final Property property = property(lookup, f, column, flatColumn);
+                if (property != null) {
+                    result.add(property);
+                } else if (flatColumn != null) {
+                    throw new IllegalArgumentException("Unsupported type " + f.getType().getName() + " for @FlatColumn " + type.getName() + "."
+                            + f.getName());
+                }
+            }
+            properties = result.toArray(new Property[result.size()]);
+        }
+    }
+
+    private static void check(final Class<?> type, final Field f, final FlatColumn flatColumn) {
+        final String columnType = flatColumn.type();
+        if (columnType.length() > 0 && !ColumnMetaData.TYPE_INT.equals(columnType) && !ColumnMetaData.TYPE_LONG.equals(columnType)
+                && !ColumnMetaData.TYPE_DOUBLE.equals(columnType) && !ColumnMetaData.TYPE_DECIMAL.equals(columnType)
+                && !ColumnMetaData.TYPE_DATE.equals(columnType) && !ColumnMetaData.TYPE_BOOLEAN.equals(columnType)) {
+            throw new IllegalArgumentException("Unknown @FlatColumn type " + columnType + " for " + type.getName() + "." + f.getName());
+        }
+        final String format = flatColumn.format();
+        if (format.length() > 0 && (f.getType() == boolean.class || f.getType() == Boolean.class) && format.indexOf('/') < 0) {
+            throw new IllegalArgumentException("@FlatColumn format of a boolean must be true/false, got " + format + " for " + type.getName() + "."
+                    + f.getName());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Supplier<Object> constructor(final MethodHandles.Lookup lookup, final Class<?> type) {
+        try {
+            final Constructor<?> c = type.getDeclaredConstructor();
+            if (Modifier.isPublic(type.getModifiers()) && Modifier.isPublic(c.getModifiers())) {
+                try {
+                    final CallSite site = LambdaMetafactory.metafactory(lookup, "get", MethodType.methodType(Supplier.class),
+                            MethodType.methodType(Object.class), lookup.unreflectConstructor(c), MethodType.methodType(type));
+                    return (Supplier<Object>) site.getTarget().invoke();
+                } catch (final Throwable e) {
+                    // constructor not accessible to a lambda, use a MethodHandle instead
+                }
+            }
+            c.setAccessible(true);
+            final MethodHandle mh = lookup.unreflectConstructor(c).asType(MethodType.methodType(Object.class));
+            return () -> {
+                try {
+                    return mh.invokeExact();
+                } catch (final Throwable e) {
+                    throw new FPException("Cannot create " + type.getName(), e);
+                }
+            };
+        } catch (final NoSuchMethodException e) {
+            throw new IllegalArgumentException(type.getName() + " needs a no-arg constructor", e);
+        } catch (final Throwable e) {
+            throw new IllegalArgumentException("Cannot bind " + type.getName(), e);
+        }
+    }
+
+    private static Property property(final MethodHandles.Lookup lookup, final Field f, final String column, final FlatColumn flatColumn) {
+        final Class<?> type = f.getType();
+        final String format = flatColumn != null && flatColumn.format().length() > 0 ? flatColumn.format() : null;
+        // a typed boolean column was converted with its format by the parser
+        final String booleanFormat = flatColumn != null && ColumnMetaData.TYPE_BOOLEAN.equals(flatColumn.type()) ? null : format;
+        if (type == int.class) {
+            final ObjIntConsumer<Object> setter = setter(lookup, f, ObjIntConsumer.class, int.class);
+            return new Property(column) {
+                @Override
+                void bind(final Object target, final RowRecord record, final int idx) {
+                    setter.accept(target, FPStringUtils.isBlank(record.getString(idx)) ? 0 : record.getInt(idx));
+                }
+
+                @Override
+                void bind(final Object target, final Record record) {
+                    setter.accept(target, FPStringUtils.isBlank(record.getString(column)) ? 0 : record.getInt(column));
+                }
+            };
+        } else if (type == long.class) {
+            final ObjLongConsumer<Object> setter = setter(lookup, f, ObjLongConsumer.class, long.class);
+            return new Property(column) {
+                @Override
+                void bind(final Object target, final RowRecord record, final int idx) {
+                    setter.accept(target, FPStringUtils.isBlank(record.getString(idx)) ? 0L : record.getLong(idx));
+                }
+
+                @Override
+                void bind(final Object target, final Record record) {
+                    setter.accept(target, FPStringUtils.isBlank(record.getString(column)) ? 0L : record.getLong(column));
+                }
+            };
+        } else if (type == double.class) {
+            final ObjDoubleConsumer<Object> setter = setter(lookup, f, ObjDoubleConsumer.class, double.class);
+            return new Property(column) {
+                @Override
+                void bind(final Object target, final RowRecord record, final int idx) {
+                    setter.accept(target, FPStringUtils.isBlank(record.getString(idx)) ? 0d : record.getDouble(idx));
+                }
+
+                @Override
+                void bind(final Object target, final Record record) {
+                    setter.accept(target, FPStringUtils.isBlank(record.getString(column)) ? 0d : record.getDouble(column));
+                }
+            };
+        } else if (type == boolean.class) {
+            final BiConsumer<Object, Object> setter = setter(lookup, f, BiConsumer.class, Object.class);
+            return new Property(column) {
+                @Override
+                void bind(final Object target, final RowRecord record, final int idx) {
+                    setter.accept(target, booleanFormat == null ? record.getBoolean(idx) : parseBoolean(record.getString(idx), booleanFormat));
+                }
+
+                @Override
+                void bind(final Object target, final Record record) {
+                    setter.accept(target, booleanFormat == null ? record.getBoolean(column) : parseBoolean(record.getString(column), booleanFormat));
+                }
+            };
+        }
+
+        final ValueReader reader = reader(type, format, booleanFormat);
+        if (reader == null) {
+            return null;
+        }
+        final BiConsumer<Object, Object> setter = setter(lookup, f, BiConsumer.class, Object.class);
+        return new Property(column) {
+            @Override
+            void bind(final Object target, final RowRecord record, final int idx) {
+                try {
+                    setter.accept(target, reader.read(record, idx));
+                } catch (final ParseException e) {
+                    throw new FPException("Cannot bind column " + column, e);
+                }
+            }
+
+            @Override
+            void bind(final Object target, final Record record) {
+                try {
+                    setter.accept(target, reader.read(record, column));
+                } catch (final ParseException e) {
+                    throw new FPException("Cannot bind column " + column, e);
+                }
+            }
+        };
+    }
+
+    private static ValueReader reader(final Class<?> type, final String format, final String booleanFormat) {
+        if (type == String.class) {
+            return new ValueReader() {
+                @Override
+                public Object read(final RowRecord record, final int idx) {
+                    return record.getString(idx);
+                }
+
+                @Override
+                public Object read(final Record record, final String column) {
+                    return record.getString(column);
+                }
+            };
+        } else if (type == Integer.class) {
+            return new ValueReader() {
+                @Override
+                public Object read(final RowRecord record, final int idx) {
+                    return FPStringUtils.isBlank(record.getString(idx)) ? null : record.getInt(idx);
+                }
+
+                @Override
+                public Object read(final Record record, final String column) {
+                    return FPStringUtils.isBlank(record.getString(column)) ? null : record.getInt(column);
+                }
+            };
+        } else if (type == Long.class) {
+            return new ValueReader() {
+                @Override
+                public Object read(final RowRecord record, final int idx) {
+                    return FPStringUtils.isBlank(record.getString(idx)) ? null : record.getLong(idx);
+                }
+
+                @Override
+                public Object read(final Record record, final String column) {
+                    return FPStringUtils.isBlank(record.getString(column)) ? null : record.getLong(column);
+                }
+            };
+        } else if (type == Double.class) {
+            return new ValueReader() {
+                @Override
+                public Object read(final RowRecord record, final int idx) {
+                    return FPStringUtils.isBlank(record.getString(idx)) ? null : record.getDouble(idx);
+                }
+
+                @Override
+                public Object read(final Record record, final String column) {
+                    return FPStringUtils.isBlank(record.getString(column)) ? null : record.getDouble(column);
+                }
+            };
+        } else if (type == Boolean.class) {
+            return new ValueReader() {
+                @Override
+                public Object read(final RowRecord record, final int idx) {
+                    if (FPStringUtils.isBlank(record.getString(idx))) {
+                        return null;
+                    }
+                    return booleanFormat == null ? record.getBoolean(idx) : parseBoolean(record.getString(idx), booleanFormat);
+                }
+
+                @Override
+                public Object read(final Record record, final String column) {
+                    if (FPStringUtils.isBlank(record.getString(column))) {
+                        return null;
+                    }
+                    return booleanFormat == null ? record.getBoolean(column) : parseBoolean(record.getString(column), booleanFormat);
+                }
+            };
+        } else if (type == BigDecimal.class) {
+            return new ValueReader() {
+                @Override
+                public Object read(final RowRecord record, final int idx) {
+                    return record.getBigDecimal(idx);
+                }
+
+                @Override
+                public Object read(final Record record, final String column) {
+                    return record.getBigDecimal(column);
+                }
+            };
+        } else if (type == LocalDate.class) {
+            return new ValueReader() {
+                @Override
+                public Object read(final RowRecord record, final int idx) throws ParseException {
+                    return format == null ? record.getLocalDate(idx) : record.getLocalDate(idx, format);
+                }
+
+                @Override
+                public Object read(final Record record, final String column) throws ParseException {
+                    return format == null ? record.getLocalDate(column) : record.getLocalDate(column, format);
+                }
+            };
+        } else if (type == Date.class) {
+            return new ValueReader() {
+                @Override
+                public Object read(final RowRecord record, final int idx) throws ParseException {
+                    return format == null ? record.getDate(idx) : parseDate(record.getString(idx), format);
+                }
+
+                @Override
+                public Object read(final Record record, final String column) throws ParseException {
+                    return format == null ? record.getDate(column) : parseDate(record.getString(column), format);
+                }
+            };
+        }
+        return null;
+    }
+
+    /**
+     * @return false for a blank value, as RowRecord.getBoolean
+     */
+    private static boolean parseBoolean(final String value, final String format) {
+        return !FPStringUtils.isBlank(value) && ParserUtils.parseBoolean(value, format);
+    }
+
+    private static Date parseDate(final String value, final String format) throws ParseException {
+        // SimpleDateFormat is not thread safe, a new one per value like the generated mapper
+        return FPStringUtils.isBlank(value) ? null : new SimpleDateFormat(format).parse(value);
+    }
+
+    /**
+     * Creates a functional interface setting the field: a lambda calling the public setter
+     * when there is one, otherwise a MethodHandle on the field.
+     *
+     * @param sam ObjIntConsumer, ObjLongConsumer, ObjDoubleConsumer or BiConsumer
+     * @param valueType int, long, double or Object, the second parameter of the sam
+     */
+    @SuppressWarnings("unchecked")
+    private static <S> S setter(final MethodHandles.Lookup lookup, final Field f, final Class<?> sam, final Class<?> valueType) {
+        final Class<?> owner = f.getDeclaringClass();
+        final Class<?> type = f.getType();
+        final Method m = findSetter(owner, f);
+        if (m != null) {
+            try {
+                final Class<?> instantiatedType = type.isPrimitive() && valueType == Object.class ? box(type) : type;
+                final CallSite site = LambdaMetafactory.metafactory(lookup, "accept", MethodType.methodType(sam),
+                        MethodType.methodType(void.class, Object.class, valueType), lookup.unreflect(m),
+                        MethodType.methodType(void.class, owner, instantiatedType));
+                return (S) site.getTarget().invoke();
+            } catch (final Throwable e) {
+                // setter not accessible to a lambda, set the field instead
+            }
+        }
+        try {
+            f.setAccessible(true);
+            final MethodHandle mh = lookup.unreflectSetter(f).asType(MethodType.methodType(void.class, Object.class, valueType));
+            final String name = owner.getName() + "." + f.getName();
+            if (valueType == int.class) {
+                return (S) (ObjIntConsumer<Object>) (t, v) -> {
+                    try {
+                        mh.invokeExact(t, v);
+                    } catch (final Throwable e) {
+                        throw new FPException("Cannot set " + name, e);
+                    }
+                };
+            } else if (valueType == long.class) {
+                return (S) (ObjLongConsumer<Object>) (t, v) -> {
+                    try {
+                        mh.invokeExact(t, v);
+                    } catch (final Throwable e) {
+                        throw new FPException("Cannot set " + name, e);
+                    }
+                };
+            } else if (valueType == double.class) {
+                return (S) (ObjDoubleConsumer<Object>) (t, v) -> {
+                    try {
+                        mh.invokeExact(t, v);
+                    } catch (final Throwable e) {
+                        throw new FPException("Cannot set " + name, e);
+                    }
+                };
+            }
+            return (S) (BiConsumer<Object, Object>) (t, v) -> {
+                try {
+                    mh.invokeExact(t, v);
+                } catch (final Throwable e) {
+                    throw new FPException("Cannot set " + name, e);
+                }
+            };
+        } catch (final Throwable e) {
+            throw new IllegalArgumentException("Cannot bind " + owner.getName() + "." + f.getName(), e);
+        }
+    }
+
+    private static Method findSetter(final Class<?> owner, final Field f) {
+        if (!Modifier.isPublic(owner.getModifiers())) {
+            return null;
+        }
+        final String name = "set" + f.getName().substring(0, 1).toUpperCase(Locale.ENGLISH) + f.getName().substring(1);
+        try {
+            final Method m = owner.getMethod(name, f.getType());
+            return Modifier.isStatic(m.getModifiers()) ? null : m;
+        } catch (final NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static Class<?> box(final Class<?> primitive) {
+        return primitive == boolean.class ? Boolean.class : primitive;
+    }
+
+    /**
+     * Reads a column into the field of a property.
+     */
+    private abstract static class Property {
+        final String column;
+
+        Property(final String column) {
+            this.column = column;
+        }
+
+        abstract void bind(Object target, RowRecord record, int idx);
+
+        abstract void bind(Object target, Record record);
+    }
+
+    /**
+     * Reads a column as the Object type of a field.
+     */
+    private interface ValueReader {
+        Object read(RowRecord record, int idx) throws ParseException;
+
+        Object read(Record record, String column) throws ParseException;
+    }
+}
@@ -32,12 +32,21 @@
  */
 package net.sf.flatpack.brparse;
 
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+
 import net.sf.flatpack.AbstractParser;
+import net.sf.flatpack.DataSetCursor;
 import net.sf.flatpack.DefaultDataSet;
 import net.sf.flatpack.Parser;
+import net.sf.flatpack.Record;
+import net.sf.flatpack.RecordBatch;
 import net.sf.flatpack.ordering.OrderBy;
 import net.sf.flatpack.structure.Row;
 import net.sf.flatpack.util.FPException;
+import net.sf.flatpack.util.FPInvalidUsageException;
 import net.sf.flatpack.xml.MetaData;
 
 /**
@@ -48,6 +57,11 @@ import net.sf.flatpack.xml.MetaData;
 public class BuffReaderDataSet extends DefaultDataSet {
     private final InterfaceBuffReaderParse brParser;
     private int index = 0;
+    // ring of the last rows read, see setLookBack
+    private Row[] window;
+    private int windowSize;
+    // 0 based position of the current row in the file
+    private int position = -1;
 
     /**
      *
@@ -61,6 +75,31 @@ public class BuffReaderDataSet extends DefaultDataSet {
         this.brParser = brParser;
     }
 
+    /**
+     * Keeps the last rows read so that previous(), absolute(int) and goTop() can move back
+     * within them; memory stays bounded by the number of rows kept.  Rows older than the
+     * window are gone, moving back to them is an error.
+     *
+     * @param rows
+     *            number of rows to keep, including the current one; 0, the default, keeps none
+     * @since 4.1
+     */
+    public void setLookBack(final int rows) {
+        if (rows < 0) {
+            throw new IllegalArgumentException("look-back must not be negative: " + rows);
+        }
+        window = rows == 0 ? null : new Row[rows];
+        windowSize = 0;
+    }
+
+    /**
+     * @return number of rows kept for previous(), 0 if none
+     * @since 4.1
+     */
+    public int getLookBack() {
+        return window == null ? 0 : window.length;
+    }
+
     @Override
     public boolean next() {
         if (brParser == null) {
@@ -68,6 +107,11 @@ public class BuffReaderDataSet extends DefaultDataSet {
             throw new FPException("No parser available to fetch row");
         }
 
+        if (window != null && position + 1 < index) {
+            // moved back, replay the window
+            return show(position + 1);
+        }
+
         if (getMetaData() == null) {
             setMetaData(((AbstractParser) brParser).getPzMetaData());
         }
@@ -76,19 +120,57 @@ public class BuffReaderDataSet extends DefaultDataSet {
         final Row r = brParser.buildRow(this);
         if (r != null) {
             addRow(r);
+            position = index;
             index++;
+            if (window != null) {
+                window[position % window.length] = r;
+                windowSize = Math.min(windowSize + 1, window.length);
+            }
         }
 
         return super.next();
     }
 
     /**
-     * Not Supported!
-     * @return boolean
+     * Builds the rows of the batch straight from the file, without going through the
+     * current row of the DataSet.  The rows of the batch are not kept in the look-back window.
+     */
+    @Override
+    public RecordBatch nextBatch(final int maxRows) {
+        clearRows();
+        windowSize = 0;
+        final RecordBatch batch = super.nextBatch(maxRows);
+        position = index - 1;
+        return batch;
+    }
+
+    @Override
+    protected Row fetchNextRow() {
+        if (getMetaData() == null) {
+            setMetaData(((AbstractParser) brParser).getPzMetaData());
+        }
+        final Row r = brParser.buildRow(this);
+        if (r != null) {
+            index++;
+        }
+        return r;
+    }
+
+    /**
+     * Moves back one row within the look-back window, see setLookBack.
+     *
+     * @return false if the previous row is not in the window
+     * @exception UnsupportedOperationException without a look-back window
      */
     @Override
     public boolean previous() {
-        throw new UnsupportedOperationException("previous() is Not Implemented");
+        checkLookBack("previous");
+        if (position <= firstInWindow()) {
+            clearRows();
+            super.next();
+            return false;
+        }
+        return show(position - 1);
     }
 
     /**
@@ -103,13 +185,43 @@ public class BuffReaderDataSet extends DefaultDataSet {
     }
 
     /**
-     * Not Supported!
-     * @param localPointer - int
-     * @exception UnsupportedOperationException unsupported
+     * Moves to a row within the look-back window, see setLookBack, or reads ahead to a
+     * later row.
+     *
+     * @param localPointer
+     *            0 based position of the row in the file
+     * @exception IndexOutOfBoundsException if the row has left the window or is past the end of the file
+     * @exception UnsupportedOperationException without a look-back window
      */
     @Override
     public void absolute(final int localPointer) {
-        throw new UnsupportedOperationException("absolute() is Not Implemented");
+        checkLookBack("absolute");
+        if (localPointer < firstInWindow()) {
+            throw new IndexOutOfBoundsException("INVALID POINTER LOCATION: " + localPointer + ", THE LOOK-BACK WINDOW STARTS AT " + firstInWindow());
+        }
+        while (index <= localPointer) {
+            if (!next()) {
+                throw new IndexOutOfBoundsException("INVALID POINTER LOCATION: " + localPointer);
+            }
+        }
+        show(localPointer);
+    }
+
+    private int firstInWindow() {
+        return index - windowSize;
+    }
+
+    private boolean show(final int rowPosition) {
+        position = rowPosition;
+        clearRows();
+        addRow(window[rowPosition % window.length]);
+        return super.next();
+    }
+
+    private void checkLookBack(final String method) {
+        if (window == null) {
+            throw new UnsupportedOperationException(method + "() is Not Implemented without setLookBack()");
+        }
     }
 
     /**
@@ -125,7 +237,7 @@ public class BuffReaderDataSet extends DefaultDataSet {
      */
     @Override
     public int getIndex() {
-        return index;
+        return position + 1;
     }
 
     /**
@@ -137,11 +249,19 @@ public class BuffReaderDataSet extends DefaultDataSet {
     }
 
     /**
-     * Not Supported!
+     * Moves before the first row of the file, possible while it is in the look-back window.
+     *
+     * @exception UnsupportedOperationException without a look-back window
      */
     @Override
     public void goTop() {
-        throw new UnsupportedOperationException("goTop() is Not Implemented");
+        checkLookBack("goTop");
+        if (firstInWindow() > 0) {
+            throw new FPInvalidUsageException("goTop() is not possible once the first row has left the look-back window");
+        }
+        position = -1;
+        clearRows();
+        super.next();
     }
 
     /**
@@ -159,4 +279,62 @@ public class BuffReaderDataSet extends DefaultDataSet {
     public int getRowCount() {
         throw new UnsupportedOperationException("getRowCount() is Not Implemented");
     }
+
+    @Override
+    public void saveSnapshot(final Path snapshot) {
+        throw new UnsupportedOperationException("saveSnapshot() is Not Implemented");
+    }
+
+    @Override
+    public void saveSnapshot(final Path snapshot, final Path source) {
+        throw new UnsupportedOperationException("saveSnapshot() is Not Implemented");
+    }
+
+    /**
+     * Not Supported!
+     */
+    @Override
+    public void createIndex(final String... columns) {
+        throw new UnsupportedOperationException("createIndex() is Not Implemented");
+    }
+
+    /**
+     * Not Supported!
+     */
+    @Override
+    public Optional<Record> findFirst(final String... key) {
+        throw new UnsupportedOperationException("findFirst() is Not Implemented");
+    }
+
+    /**
+     * Not Supported!
+     */
+    @Override
+    public List<Record> findAll(final String... key) {
+        throw new UnsupportedOperationException("findAll() is Not Implemented");
+    }
+
+    /**
+     * Not Supported!
+     */
+    @Override
+    public void freeze() {
+        throw new UnsupportedOperationException("freeze() is Not Implemented");
+    }
+
+    /**
+     * Not Supported!
+     */
+    @Override
+    public DataSetCursor newCursor() {
+        throw new UnsupportedOperationException("newCursor() is Not Implemented");
+    }
+
+    /**
+     * Not Supported!
+     */
+    @Override
+    public Spliterator<Record> rowSpliterator() {
+        throw new UnsupportedOperationException("rowSpliterator() is Not Implemented");
+    }
 }
@@ -32,16 +32,18 @@
  */
 package net.sf.flatpack.brparse;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import net.sf.flatpack.DataError;
 import net.sf.flatpack.DataSet;
 import net.sf.flatpack.DefaultDataSet;
 import net.sf.flatpack.DelimiterParser;
@@ -49,13 +51,25 @@ import net.sf.flatpack.structure.ColumnMetaData;
 import net.sf.flatpack.structure.Row;
 import net.sf.flatpack.util.FPConstants;
 import net.sf.flatpack.util.FPException;
+import net.sf.flatpack.util.FPInvalidUsageException;
 import net.sf.flatpack.util.ParserUtils;
+import net.sf.flatpack.xml.MetaData;
 
 public class BuffReaderDelimParser extends DelimiterParser implements InterfaceBuffReaderParse {
-    private BufferedReader br;
+    private CheckpointReader br;
 
     private boolean processedFirst = false;
 
+    private ParseCheckpoint resume;
+
+    private boolean resumePositioned;
+
+    private Charset charset;
+
+    private String header;
+
+    private int recordCount;
+
     private static final Logger LOGGER = LoggerFactory.getLogger(BuffReaderDelimParser.class);
 
     public BuffReaderDelimParser(final File pzmapXML, final File dataSource, final char delimiter, final char qualifier,
@@ -85,14 +99,89 @@ public class BuffReaderDelimParser extends DelimiterParser implements InterfaceB
         super(dataSourceStream, delimiter, qualifier, ignoreFirstRecord);
     }
 
+    /**
+     * @since 4.1
+     */
+    public BuffReaderDelimParser(final MetaData pzMetaData, final Reader dataSource, final char delimiter, final char qualifier,
+            final boolean ignoreFirstRecord) {
+        super(pzMetaData, dataSource, delimiter, qualifier, ignoreFirstRecord);
+    }
+
+    /**
+     * Carries on a parse from a checkpoint of an earlier parse of the same file, skipping
+     * the Reader of this parser from the start of the file to the checkpoint.  To be called
+     * before parse().
+     *
+     * @param checkpoint
+     *            from getCheckpoint()
+     * @since 4.1
+     */
+    @Override
+    public void resumeFrom(final ParseCheckpoint checkpoint) {
+        resume = checkpoint;
+        resumePositioned = false;
+    }
+
+    /**
+     * Gives the encoding of the file, so that getCheckpoint() also has the byte offset to
+     * seek the file to, see ParseCheckpoint.newReader().  To be called before parse().
+     *
+     * @param charset
+     *            encoding of the bytes the Reader of this parser decodes
+     * @since 4.1
+     */
+    @Override
+    public void setCharset(final Charset charset) {
+        this.charset = charset;
+    }
+
+    /**
+     * Same as resumeFrom, for a Reader already positioned at the offset of the checkpoint, such
+     * as one from ParseCheckpoint.newReader().
+     *
+     * @param checkpoint
+     *            from getCheckpoint()
+     * @since 4.1
+     */
+    @Override
+    public void resumeAt(final ParseCheckpoint checkpoint) {
+        resume = checkpoint;
+        resumePositioned = true;
+    }
+
+    /**
+     * @return the position after the last record read from the file, to resume the parse from
+     * @since 4.1
+     */
+    @Override
+    public ParseCheckpoint getCheckpoint() {
+        if (br == null) {
+            throw new FPInvalidUsageException("getCheckpoint() is only available once parse() has been called");
+        }
+        return new ParseCheckpoint(br.getOffset(), br.getByteOffset(), charset, getLineCount(), recordCount, br.isLineFeedPending(), header);
+    }
+
     @Override
     protected DataSet doParse() {
+        Reader reader = getDataSourceReader();
+        if (resume != null && resume.getLineCount() > 0) {
+            if (!resumePositioned) {
+                reader = resume.skipTo(reader);
+            }
+            setLineCount(resume.getLineCount());
+            recordCount = resume.getRecordCount();
+            processedFirst = true;
+            header = resume.getHeader();
+            if (header != null) {
+                setPzMetaData(ParserUtils.getPZMetaDataFromFile(header, getDelimiter(), getQualifier(), this, isAddSuffixToDuplicateColumnNames()));
+            }
+        }
         final DataSet ds = new BuffReaderDataSet(getPzMetaData(), this);
         try {
             // gather the conversion properties
             ds.setPZConvertProps(ParserUtils.loadConvertProperties());
 
-            br = new BufferedReader(getDataSourceReader());
+            br = new CheckpointReader(reader, resume, charset);
 
             return ds;
 
@@ -145,7 +234,12 @@ public class BuffReaderDelimParser extends DelimiterParser implements InterfaceB
                 continue;
             }
 
-            return createRow(line, columns, mdkey);
+            final Row row = createRow(line, columns, mdkey);
+            if (!convertTypedColumns(ds, row, cmds, line)) {
+                continue;
+            }
+            recordCount++;
+            return row;
         }
     }
 
@@ -155,6 +249,7 @@ public class BuffReaderDelimParser extends DelimiterParser implements InterfaceB
             return true;
         } else if (!processedFirst && shouldCreateMDFromFile()) {
             processedFirst = true;
+            header = line;
             setPzMetaData(ParserUtils.getPZMetaDataFromFile(line, getDelimiter(), getQualifier(), this, isAddSuffixToDuplicateColumnNames()));
             ds.setMetaData(getPzMetaData());
             return true;
@@ -162,6 +257,36 @@ public class BuffReaderDelimParser extends DelimiterParser implements InterfaceB
         return false;
     }
 
+    /**
+     * Same checks as buildRow, which does not look for an odd number of qualifiers.
+     */
+    @Override
+    protected List<String> checkRecord(final List<DataError> errors, final String line, final int lineNo) {
+        final List<String> columns = ParserUtils.splitLine(line, getDelimiter(), getQualifier(), FPConstants.SPLITLINE_SIZE_INIT,
+                isPreserveLeadingWhitespace(), isPreserveTrailingWhitespace());
+        final int columnCount = ParserUtils.getColumnMetaData(ParserUtils.getCMDKeyForDelimitedFile(getPzMetaData(), columns), getPzMetaData()).size();
+        final String lineData = isStoreRawDataToDataError() ? line : null;
+        if (columns.size() > columnCount) {
+            if (isIgnoreExtraColumns()) {
+                addError(errors, "TRUNCATED LINE TO CORRECT NUMBER OF COLUMNS", lineNo, 1, null);
+                return new ArrayList<>(columns.subList(0, columnCount));
+            }
+            addError(errors, "TOO MANY COLUMNS WANTED: " + columnCount + " GOT: " + columns.size(), lineNo, 2, lineData);
+            return null;
+        } else if (columns.size() < columnCount) {
+            if (isHandlingShortLines()) {
+                addError(errors, "PADDED LINE TO CORRECT NUMBER OF COLUMNS", lineNo, 1, null);
+                while (columns.size() < columnCount) {
+                    columns.add("");
+                }
+                return columns;
+            }
+            addError(errors, "TOO FEW COLUMNS WANTED: " + columnCount + " GOT: " + columns.size(), lineNo, 2, lineData);
+            return null;
+        }
+        return columns;
+    }
+
     private Row createRow(String line, List<String> columns, final String mdkey) {
         final Row row = new Row();
         row.setMdkey(mdkey.equals(FPConstants.DETAIL_ID) ? null : mdkey); // try
@@ -223,6 +348,26 @@ public class BuffReaderDelimParser extends DelimiterParser implements InterfaceB
         }
     }
 
+    /**
+     * Opens a forward only cursor on the file, re-using one Row and Record for every record
+     * instead of going through a DataSet.  Use either the cursor or parse(), not both.
+     *
+     * @return the cursor, to be closed once read
+     * @since 4.1
+     */
+    public ForwardCursor newForwardCursor() {
+        if (!isInitialised()) {
+            init();
+        }
+        return new ForwardCursor(this, getDataSourceReader(), getDelimiter(), getQualifier(), isIgnoreFirstRecord(),
+                shouldCreateMDFromFile() ? null : getPzMetaData(), shouldCreateMDFromFile() ? this::createMetaData : null);
+    }
+
+    private MetaData createMetaData(final String line) {
+        setPzMetaData(ParserUtils.getPZMetaDataFromFile(line, getDelimiter(), getQualifier(), this, isAddSuffixToDuplicateColumnNames()));
+        return getPzMetaData();
+    }
+
     /**
      * Closes out the file readers
      *
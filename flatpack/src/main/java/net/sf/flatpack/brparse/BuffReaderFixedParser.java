@@ -32,11 +32,11 @@
  */
 package net.sf.flatpack.brparse;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Map;
 
@@ -50,8 +50,10 @@ import net.sf.flatpack.structure.ColumnMetaData;
 import net.sf.flatpack.structure.Row;
 import net.sf.flatpack.util.FPConstants;
 import net.sf.flatpack.util.FPException;
+import net.sf.flatpack.util.FPInvalidUsageException;
 import net.sf.flatpack.util.FixedWidthParserUtils;
 import net.sf.flatpack.util.ParserUtils;
+import net.sf.flatpack.xml.MetaData;
 
 /**
  *
@@ -60,9 +62,13 @@ import net.sf.flatpack.util.ParserUtils;
  */
 public class BuffReaderFixedParser extends FixedLengthParser implements InterfaceBuffReaderParse {
     private static final Logger LOGGER = LoggerFactory.getLogger(BuffReaderFixedParser.class);
-    private BufferedReader br = null;
+    private CheckpointReader br = null;
     private int lineCount = 0;
+    private int recordCount = 0;
     private Map recordLengths = null;
+    private ParseCheckpoint resume;
+    private boolean resumePositioned;
+    private Charset charset;
 
     /**
      *
@@ -92,20 +98,93 @@ public class BuffReaderFixedParser extends FixedLengthParser implements Interfac
         super(pzmapXML, dataSource);
     }
 
+    /**
+     *
+     * @param pzMetaData
+     * @param dataSource
+     * @since 4.1
+     */
+    public BuffReaderFixedParser(final MetaData pzMetaData, final Reader dataSource) {
+        super(pzMetaData, dataSource);
+    }
+
     protected BuffReaderFixedParser(final Reader dataSourceReader, final String dataDefinition) {
         super(dataSourceReader, dataDefinition);
     }
 
+    /**
+     * Carries on a parse from a checkpoint of an earlier parse of the same file, skipping
+     * the Reader of this parser from the start of the file to the checkpoint.  To be called
+     * before parse().
+     *
+     * @param checkpoint
+     *            from getCheckpoint()
+     * @since 4.1
+     */
+    @Override
+    public void resumeFrom(final ParseCheckpoint checkpoint) {
+        resume = checkpoint;
+        resumePositioned = false;
+    }
+
+    /**
+     * Gives the encoding of the file, so that getCheckpoint() also has the byte offset to
+     * seek the file to, see ParseCheckpoint.newReader().  To be called before parse().
+     *
+     * @param charset
+     *            encoding of the bytes the Reader of this parser decodes
+     * @since 4.1
+     */
+    @Override
+    public void setCharset(final Charset charset) {
+        this.charset = charset;
+    }
+
+    /**
+     * Same as resumeFrom, for a Reader already positioned at the offset of the checkpoint,
+     * such as one from ParseCheckpoint.newReader().
+     *
+     * @param checkpoint
+     *            from getCheckpoint()
+     * @since 4.1
+     */
+    @Override
+    public void resumeAt(final ParseCheckpoint checkpoint) {
+        resume = checkpoint;
+        resumePositioned = true;
+    }
+
+    /**
+     * @return the position after the last record read from the file, to resume the parse from
+     * @since 4.1
+     */
+    @Override
+    public ParseCheckpoint getCheckpoint() {
+        if (br == null) {
+            throw new FPInvalidUsageException("getCheckpoint() is only available once parse() has been called");
+        }
+        return new ParseCheckpoint(br.getOffset(), br.getByteOffset(), charset, lineCount, recordCount, br.isLineFeedPending(), null);
+    }
+
     @Override
     protected DataSet doParse() {
         final DataSet ds = new BuffReaderDataSet(getPzMetaData(), this);
         lineCount = 0;
+        recordCount = 0;
+        Reader reader = getDataSourceReader();
+        if (resume != null && resume.getLineCount() > 0) {
+            if (!resumePositioned) {
+                reader = resume.skipTo(reader);
+            }
+            lineCount = resume.getLineCount();
+            recordCount = resume.getRecordCount();
+        }
         recordLengths = ParserUtils.calculateRecordLengths(getPzMetaData());
         try {
             // gather the conversion properties
             ds.setPZConvertProps(ParserUtils.loadConvertProperties());
 
-            br = new BufferedReader(getDataSourceReader());
+            br = new CheckpointReader(reader, resume, charset);
 
             return ds;
 
@@ -185,6 +264,11 @@ public class BuffReaderFixedParser extends FixedLengthParser implements Interfac
                     row.setRawData(line);
                 }
 
+                if (!convertTypedColumns(ds, row, cmds, line)) {
+                    continue;
+                }
+
+                recordCount++;
                 return row;
             }
 
@@ -195,6 +279,20 @@ public class BuffReaderFixedParser extends FixedLengthParser implements Interfac
         return null;
     }
 
+    /**
+     * Opens a forward only cursor on the file, re-using one Row and Record for every record
+     * instead of going through a DataSet.  Use either the cursor or parse(), not both.
+     *
+     * @return the cursor, to be closed once read
+     * @since 4.1
+     */
+    public ForwardCursor newForwardCursor() {
+        if (!isInitialised()) {
+            init();
+        }
+        return new ForwardCursor(this, getDataSourceReader(), (char) 0, FPConstants.NO_QUALIFIER, false, getPzMetaData(), null);
+    }
+
     /**
      * Closes out the file readers
      *
@@ -39,6 +39,7 @@ import java.sql.Connection;
 
 import net.sf.flatpack.Parser;
 import net.sf.flatpack.ParserFactory;
+import net.sf.flatpack.xml.MetaData;
 
 /**
  * Provides a PZParser which obtains records directly from
@@ -97,6 +98,11 @@ public class BuffReaderParseFactory implements ParserFactory {
         return new BuffReaderFixedParser(pzmapXMLStream, dataSource);
     }
 
+    @Override
+    public Parser newFixedLengthParser(final MetaData pzMetaData, final Reader dataSource) {
+        return new BuffReaderFixedParser(pzMetaData, dataSource);
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -179,4 +185,10 @@ public class BuffReaderParseFactory implements ParserFactory {
             final boolean ignoreFirstRecord) {
         return new BuffReaderDelimParser(pzmapXML, dataSource, delimiter, qualifier, ignoreFirstRecord);
     }
+
+    @Override
+    public Parser newDelimitedParser(final MetaData pzMetaData, final Reader dataSource, final char delimiter, final char qualifier,
+            final boolean ignoreFirstRecord) {
+        return new BuffReaderDelimParser(pzMetaData, dataSource, delimiter, qualifier, ignoreFirstRecord);
+    }
 }
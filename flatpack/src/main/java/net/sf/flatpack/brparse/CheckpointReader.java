@@ -0,0 +1,143 @@
+/*
+ * ObjectLab, http://www.objectlab.co.uk/open is supporting FlatPack.
+ *
+ * Based in London, we are world leaders in the design and development
+ * of bespoke applications for the securities financing markets.
+ *
+ * <a href="http://www.objectlab.co.uk/open">Click here to learn more</a>
+ *           ___  _     _           _   _          _
+ *          / _ \| |__ (_) ___  ___| |_| |    __ _| |__
+ *         | | | | '_ \| |/ _ \/ __| __| |   / _` | '_ \
+ *         | |_| | |_) | |  __/ (__| |_| |__| (_| | |_) |
+ *          \___/|_.__// |\___|\___|\__|_____\__,_|_.__/
+ *                   |__/
+ *
+ *                     www.ObjectLab.co.uk
+ *
+ * $Id: ColorProvider.java 74 2006-10-24 22:19:05Z benoitx $
+ *
+ * Copyright 2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sf.flatpack.brparse;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+import net.sf.flatpack.util.LineReader;
+
+/**
+ * The BufferedReader of the BuffReader parsers, reading lines through a LineReader so that
+ * the offset of the end of each line is known for a ParseCheckpoint.  The LineReader does
+ * the buffering: the other reads go through it too, from where the last line ended, and
+ * mark() is not supported.
+ */
+final class CheckpointReader extends BufferedReader {
+    private final LineReader lines;
+    private final long start;
+    private final long byteStart;
+
+    /**
+     * @param reader
+     *            the data source, already positioned at start
+     * @param checkpoint
+     *            where the reader is positioned, null for the start of the file
+     * @param charset
+     *            encoding of the data source to count the bytes read in, null if unknown
+     */
+    CheckpointReader(final Reader reader, final ParseCheckpoint checkpoint, final Charset charset) {
+        // the buffer of the BufferedReader is never used
+        super(reader, 1);
+        lines = new LineReader(reader);
+        if (charset != null) {
+            lines.setCharset(charset);
+        }
+        start = checkpoint != null ? checkpoint.getOffset() : 0L;
+        byteStart = charset == null ? -1L : checkpoint != null ? checkpoint.getByteOffset() : 0L;
+        if (checkpoint != null && checkpoint.isLineFeedPending()) {
+            lines.skipLineFeed();
+        }
+    }
+
+    @Override
+    public String readLine() throws IOException {
+        return lines.readLine() ? new String(lines.getLine(), 0, lines.getLength()) : null;
+    }
+
+    /**
+     * @return chars from the start of the file to the end of the last line read
+     */
+    long getOffset() {
+        return start + lines.getOffset();
+    }
+
+    /**
+     * @return bytes from the start of the file to the end of the last line read, -1 if unknown
+     */
+    long getByteOffset() {
+        return byteStart < 0 ? -1L : byteStart + lines.getByteOffset();
+    }
+
+    boolean isLineFeedPending() {
+        return lines.isLineFeedPending();
+    }
+
+    @Override
+    public int read() throws IOException {
+        return lines.read();
+    }
+
+    @Override
+    public int read(final char[] cbuf, final int off, final int len) throws IOException {
+        if (off < 0 || len < 0 || len > cbuf.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        return lines.read(cbuf, off, len);
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        if (n < 0L) {
+            throw new IllegalArgumentException("skip value is negative");
+        }
+        return lines.skip(n);
+    }
+
+    @Override
+    public boolean ready() throws IOException {
+        return lines.ready();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void mark(final int readAheadLimit) throws IOException {
+        throw new IOException("mark() not supported");
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("reset() not supported");
+    }
+
+    @Override
+    public void close() throws IOException {
+        lines.close();
+    }
+}
@@ -0,0 +1,464 @@
+/*
+ * ObjectLab, http://www.objectlab.co.uk/open is supporting FlatPack.
+ *
+ * Based in London, we are world leaders in the design and development
+ * of bespoke applications for the securities financing markets.
+ *
+ * <a href="http://www.objectlab.co.uk/open">Click here to learn more</a>
+ *           ___  _     _           _   _          _
+ *          / _ \| |__ (_) ___  ___| |_| |    __ _| |__
+ *         | | | | '_ \| |/ _ \/ __| __| |   / _` | '_ \
+ *         | |_| | |_) | |  __/ (__| |_| |__| (_| | |_) |
+ *          \___/|_.__// |\___|\___|\__|_____\__,_|_.__/
+ *                   |__/
+ *
+ *                     www.ObjectLab.co.uk
+ *
+ * $Id: ColorProvider.java 74 2006-10-24 22:19:05Z benoitx $
+ *
+ * Copyright 2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sf.flatpack.brparse;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Function;
+
+import net.sf.flatpack.DataError;
+import net.sf.flatpack.Parser;
+import net.sf.flatpack.Record;
+import net.sf.flatpack.RowRecord;
+import net.sf.flatpack.converter.FPConvertException;
+import net.sf.flatpack.structure.ColumnMetaData;
+import net.sf.flatpack.structure.Row;
+import net.sf.flatpack.util.FPConstants;
+import net.sf.flatpack.util.FPException;
+import net.sf.flatpack.util.FPInvalidUsageException;
+import net.sf.flatpack.util.LineReader;
+import net.sf.flatpack.util.LineSplitter;
+import net.sf.flatpack.util.ParserUtils;
+import net.sf.flatpack.xml.MetaData;
+
+/**
+ * Forward only cursor over a delimited or fixed length file, for files too large to keep any
+ * of.  The lines are read into re-used char arrays and split into one Row re-filled for each
+ * record, so next() stops allocating once it has seen the longest record; the values are
+ * only turned into Strings when the Record is read.
+ *
+ * <p>
+ * getRecord() always returns the same Record, valid until the next call to next(); use
+ * Record.copy() to keep one.  Only mappings with detail records are supported.  Typed
+ * columns and storeRawDataToDataSet still allocate for each record.
+ * </p>
+ *
+ * @since 4.1
+ */
+public final class ForwardCursor implements AutoCloseable {
+    private static final char[] LINE_BREAK = System.lineSeparator().toCharArray();
+
+    private final Parser parser;
+    private final LineReader reader;
+    /** 0 for a fixed length file */
+    private final char delimiter;
+    private final char qualifier;
+    private final boolean skipFirstRecord;
+    /** creates the MetaData from the first record, null if it comes from a mapping */
+    private final Function<String, MetaData> header;
+    private final Properties pzConvertProps;
+    /** null for a fixed length file */
+    private final LineSplitter splitter;
+    private final LineSplitter.Values addValue = this::addValue;
+    private final List<DataError> errors = new ArrayList<>();
+    private final Row row = new Row();
+    private CursorRecord record;
+    private List<ColumnMetaData> cmds;
+    private int recordLength;
+    private boolean typed;
+    private boolean processedFirst;
+    private int lineCount;
+
+    // the record as read
+    private char[] chars = new char[256];
+    private int length;
+    // trimmed copy of the current line
+    private char[] scratch = new char[256];
+    // the values back to back
+    private char[] values = new char[256];
+    private int valuesLength;
+    private int[] valueEnds = new int[16];
+    private int count;
+
+    ForwardCursor(final Parser parser, final Reader reader, final char delimiter, final char qualifier, final boolean skipFirstRecord,
+            final MetaData metaData, final Function<String, MetaData> header) {
+        this.parser = parser;
+        this.reader = new LineReader(reader);
+        this.delimiter = delimiter;
+        this.qualifier = qualifier;
+        this.skipFirstRecord = skipFirstRecord;
+        this.header = header;
+        this.splitter = delimiter != 0
+                ? new LineSplitter(delimiter, qualifier, parser.isPreserveLeadingWhitespace(), parser.isPreserveTrailingWhitespace())
+                : null;
+        try {
+            this.pzConvertProps = ParserUtils.loadConvertProperties();
+        } catch (final IOException e) {
+            throw new FPException("Error loading the conversion properties", e);
+        }
+        if (metaData != null) {
+            setMetaData(metaData);
+        }
+    }
+
+    private void setMetaData(final MetaData metaData) {
+        if (metaData.isAnyRecordFormatSpecified()) {
+            throw new FPInvalidUsageException("ForwardCursor only supports mappings with detail records, not <RECORD> elements");
+        }
+        cmds = metaData.getColumnsNames();
+        recordLength = 0;
+        typed = false;
+        for (final ColumnMetaData cmd : cmds) {
+            recordLength += cmd.getColLength();
+            typed |= cmd.getType() != null;
+        }
+        record = new CursorRecord(row, metaData, parser.isColumnNamesCaseSensitive(), pzConvertProps, parser.isNullEmptyStrings(),
+                parser.isCacheTypedValues());
+    }
+
+    /**
+     * Moves to the next valid record; records in error are skipped and reported by getErrors().
+     *
+     * @return false at the end of the file
+     */
+    public boolean next() {
+        try {
+            while (delimiter != 0 ? readDelimitedRecord() : readFixedRecord()) {
+                if (!processedFirst) {
+                    processedFirst = true;
+                    if (skipFirstRecord) {
+                        continue;
+                    } else if (header != null) {
+                        setMetaData(header.apply(new String(chars, 0, length)));
+                        continue;
+                    }
+                }
+                if (record == null) {
+                    throw new FPInvalidUsageException("No MetaData to read the records with");
+                }
+                if (delimiter != 0 ? !splitDelimited() : !splitFixed()) {
+                    continue;
+                }
+                row.setColumns(values, valueEnds, count);
+                row.setRowNumber(lineCount);
+                if (parser.isFlagEmptyRows()) {
+                    row.setEmpty(isBlank(values, valuesLength));
+                }
+                if (parser.isStoreRawDataToDataSet()) {
+                    row.setRawData(new String(chars, 0, length));
+                }
+                if (typed) {
+                    try {
+                        row.setTypedValues(ParserUtils.convertTypedColumns(cmds, row.getCols()));
+                    } catch (final FPConvertException ex) {
+                        addError(ex.getMessage(), 2, true);
+                        continue;
+                    }
+                }
+                return true;
+            }
+            return false;
+        } catch (final IOException e) {
+            throw new FPException("Error Fetching Record From File...", e);
+        }
+    }
+
+    /**
+     * @return the current record, the same instance for each record
+     */
+    public Record getRecord() {
+        return record;
+    }
+
+    /**
+     * @return the line number of the current record, the last line of a multi line record
+     */
+    public int getRowNo() {
+        return row.getRowNumber();
+    }
+
+    /**
+     * @return the errors and warnings found so far
+     */
+    public List<DataError> getErrors() {
+        return errors;
+    }
+
+    public int getErrorCount() {
+        return errors.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Same record assembly as AbstractDelimiterParser.fetchNextRecord: a qualified value may
+     * span lines, which are joined with the line separator.
+     */
+    private boolean readDelimitedRecord() throws IOException {
+        length = 0;
+        boolean multiline = false;
+        final boolean qualified = qualifier != FPConstants.NO_QUALIFIER;
+        while (reader.readLine()) {
+            lineCount++;
+            final char[] line = reader.getLine();
+            final int lineLength = reader.getLength();
+            int start = 0;
+            int end = lineLength;
+            while (start < end && line[start] <= ' ') {
+                start++;
+            }
+            while (end > start && line[end - 1] <= ' ') {
+                end--;
+            }
+            final int trimmedLength = end - start;
+            if (!multiline && trimmedLength == 0) {
+                // empty line skip past it
+                continue;
+            }
+            if (scratch.length < trimmedLength) {
+                scratch = new char[Math.max(trimmedLength, scratch.length << 1)];
+            }
+            System.arraycopy(line, start, scratch, 0, trimmedLength);
+
+            if (!multiline && qualified) {
+                multiline = ParserUtils.isMultiLine(scratch, trimmedLength, delimiter, qualifier);
+            }
+
+            if (multiline && trimmedLength > 0 && !isBlank(chars, length)) {
+                append(LINE_BREAK, 0, LINE_BREAK.length);
+                append(line, 0, lineLength);
+                multiline = ParserUtils.isMultiLineContinued(scratch, trimmedLength, delimiter, qualifier);
+                if (multiline) {
+                    continue;
+                }
+            } else {
+                if (trimmedLength == 0) {
+                    append(LINE_BREAK, 0, LINE_BREAK.length);
+                } else {
+                    append(line, 0, lineLength);
+                }
+                if (multiline) {
+                    continue;
+                }
+            }
+            return true;
+        }
+        return length > 0;
+    }
+
+    private boolean readFixedRecord() throws IOException {
+        while (reader.readLine()) {
+            lineCount++;
+            final char[] line = reader.getLine();
+            final int lineLength = reader.getLength();
+            if (isBlank(line, lineLength)) {
+                // empty line skip past it
+                continue;
+            }
+            length = 0;
+            append(line, 0, lineLength);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Same split as ParserUtils.splitLine, into the values array.
+     */
+    private boolean splitDelimited() {
+        count = 0;
+        valuesLength = 0;
+        splitter.split(chars, 0, length, addValue);
+        return validateColumns();
+    }
+
+    private boolean validateColumns() {
+        final int columnCount = cmds.size();
+        if (count > columnCount) {
+            if (parser.isIgnoreExtraColumns()) {
+                count = columnCount;
+                valuesLength = columnCount == 0 ? 0 : valueEnds[columnCount - 1];
+                addError("TRUNCATED LINE TO CORRECT NUMBER OF COLUMNS", 1, false);
+            } else {
+                addError("TOO MANY COLUMNS WANTED: " + columnCount + " GOT: " + count, 2, true);
+                return false;
+            }
+        } else if (count < columnCount) {
+            if (parser.isHandlingShortLines()) {
+                addError("PADDED LINE TO CORRECT NUMBER OF COLUMNS", 1, false);
+                while (count < columnCount) {
+                    addValue(chars, 0, 0);
+                }
+            } else {
+                addError("TOO FEW COLUMNS WANTED: " + columnCount + " GOT: " + count, 2, true);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean splitFixed() {
+        if (length > recordLength) {
+            if (parser.isIgnoreExtraColumns()) {
+                addError("TRUNCATED LINE TO CORRECT LENGTH", 1, false);
+            } else {
+                addError("LINE TOO LONG. LINE IS " + length + " LONG. SHOULD BE " + recordLength, 2, true);
+                return false;
+            }
+        } else if (length < recordLength) {
+            if (parser.isHandlingShortLines()) {
+                addError("PADDED LINE TO CORRECT RECORD LENGTH", 1, false);
+            } else {
+                addError("LINE TOO SHORT. LINE IS " + length + " LONG. SHOULD BE " + recordLength, 2, true);
+                return false;
+            }
+        }
+        ensureChars(recordLength);
+        for (int i = length; i < recordLength; i++) {
+            chars[i] = ' ';
+        }
+
+        count = 0;
+        valuesLength = 0;
+        int position = 0;
+        for (final ColumnMetaData cmd : cmds) {
+            int start = position;
+            int end = position + cmd.getColLength();
+            position = end;
+            if (!parser.isPreserveLeadingWhitespace()) {
+                start = lTrim(chars, start, end);
+            }
+            if (!parser.isPreserveTrailingWhitespace()) {
+                end = rTrim(chars, start, end);
+            }
+            addValue(chars, start, end);
+        }
+        return true;
+    }
+
+    private void addValue(final char[] source, final int start, final int end) {
+        final int len = end - start;
+        if (values.length < valuesLength + len) {
+            final char[] grown = new char[Math.max(valuesLength + len, values.length << 1)];
+            System.arraycopy(values, 0, grown, 0, valuesLength);
+            values = grown;
+        }
+        System.arraycopy(source, start, values, valuesLength, len);
+        valuesLength += len;
+        if (count == valueEnds.length) {
+            final int[] grown = new int[count << 1];
+            System.arraycopy(valueEnds, 0, grown, 0, count);
+            valueEnds = grown;
+        }
+        valueEnds[count++] = valuesLength;
+    }
+
+    private void append(final char[] source, final int start, final int len) {
+        ensureChars(length + len);
+        System.arraycopy(source, start, chars, length, len);
+        length += len;
+    }
+
+    private void ensureChars(final int capacity) {
+        if (chars.length < capacity) {
+            final char[] grown = new char[Math.max(capacity, chars.length << 1)];
+            System.arraycopy(chars, 0, grown, 0, length);
+            chars = grown;
+        }
+    }
+
+    private void addError(final String errorDesc, final int errorLevel, final boolean withLine) {
+        if (errorLevel == 1 && parser.isIgnoreParseWarnings()) {
+            // user has elected to ignore parse warnings, do not add
+            return;
+        }
+        errors.add(new DataError(errorDesc, lineCount, errorLevel,
+                withLine && parser.isStoreRawDataToDataError() ? new String(chars, 0, length) : null));
+    }
+
+    private static boolean isBlank(final char[] chrs, final int len) {
+        for (int i = 0; i < len; i++) {
+            if (chrs[i] > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int lTrim(final char[] chrs, final int start, final int end) {
+        int i = start;
+        while (i < end && (chrs[i] == ' ' || chrs[i] == '\t')) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int rTrim(final char[] chrs, final int start, final int end) {
+        int i = end;
+        while (i > start && (chrs[i - 1] == ' ' || chrs[i - 1] == '\t')) {
+            i--;
+        }
+        return i;
+    }
+
+    /**
+     * The record handed out for every row; a copy gets its own row.
+     */
+    private static final class CursorRecord extends RowRecord {
+        private final Row row;
+        private final MetaData metaData;
+        private final boolean columnCaseSensitive;
+        private final Properties pzConvertProps;
+        private final boolean nullEmptyString;
+        private final boolean cacheTypedValues;
+
+        CursorRecord(final Row row, final MetaData metaData, final boolean columnCaseSensitive, final Properties pzConvertProps,
+                final boolean nullEmptyString, final boolean cacheTypedValues) {
+            super(row, metaData, columnCaseSensitive, pzConvertProps, false, false, false, nullEmptyString, cacheTypedValues);
+            this.row = row;
+            this.metaData = metaData;
+            this.columnCaseSensitive = columnCaseSensitive;
+            this.pzConvertProps = pzConvertProps;
+            this.nullEmptyString = nullEmptyString;
+            this.cacheTypedValues = cacheTypedValues;
+        }
+
+        @Override
+        public Record copy() {
+            final Row copy = new Row();
+            copy.setCols(row.getCols());
+            copy.setRowNumber(row.getRowNumber());
+            copy.setMdkey(row.getMdkey());
+            copy.setEmpty(row.isEmpty());
+            copy.setRawData(row.getRawData());
+            copy.setTypedValues(row.getTypedValues());
+            return new RowRecord(copy, metaData, columnCaseSensitive, pzConvertProps, false, false, false, nullEmptyString, cacheTypedValues);
+        }
+    }
+}
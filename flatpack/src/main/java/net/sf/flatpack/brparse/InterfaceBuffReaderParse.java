@@ -1,5 +1,7 @@
 package net.sf.flatpack.brparse;
 
+import java.nio.charset.Charset;
+
 import net.sf.flatpack.DefaultDataSet;
 import net.sf.flatpack.structure.Row;
 
@@ -19,4 +21,34 @@ public interface InterfaceBuffReaderParse extends AutoCloseable {
      */
     public Row buildRow(final DefaultDataSet ds);
 
+    /**
+     * @return the position after the last record read from the file
+     * @since 4.1
+     */
+    public ParseCheckpoint getCheckpoint();
+
+    /**
+     * Carries on from a checkpoint, skipping the Reader from the start of the file to it.
+     *
+     * @param checkpoint
+     * @since 4.1
+     */
+    public void resumeFrom(final ParseCheckpoint checkpoint);
+
+    /**
+     * Carries on from a checkpoint with a Reader already positioned at it.
+     *
+     * @param checkpoint
+     * @since 4.1
+     */
+    public void resumeAt(final ParseCheckpoint checkpoint);
+
+    /**
+     * Gives the encoding of the file, for the byte offset of the checkpoints.
+     *
+     * @param charset
+     * @since 4.1
+     */
+    public void setCharset(final Charset charset);
+
 }
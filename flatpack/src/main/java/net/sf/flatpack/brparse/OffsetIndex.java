@@ -0,0 +1,432 @@
+/*
+ * ObjectLab, http://www.objectlab.co.uk/open is supporting FlatPack.
+ *
+ * Based in London, we are world leaders in the design and development
+ * of bespoke applications for the securities financing markets.
+ *
+ * <a href="http://www.objectlab.co.uk/open">Click here to learn more</a>
+ *           ___  _     _           _   _          _
+ *          / _ \| |__ (_) ___  ___| |_| |    __ _| |__
+ *         | | | | '_ \| |/ _ \/ __| __| |   / _` | '_ \
+ *         | |_| | |_) | |  __/ (__| |_| |__| (_| | |_) |
+ *          \___/|_.__// |\___|\___|\__|_____\__,_|_.__/
+ *                   |__/
+ *
+ *                     www.ObjectLab.co.uk
+ *
+ * $Id: ColorProvider.java 74 2006-10-24 22:19:05Z benoitx $
+ *
+ * Copyright 2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sf.flatpack.brparse;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+import net.sf.flatpack.DataSet;
+import net.sf.flatpack.Parser;
+import net.sf.flatpack.Record;
+import net.sf.flatpack.util.FPException;
+import net.sf.flatpack.util.FPInvalidUsageException;
+
+/**
+ * Sidecar index of a flat file, to read single records of a large file without parsing it
+ * up to them.  The index keeps a ParseCheckpoint every few records; a record is read by
+ * resuming a parser at the checkpoint before it.  Optionally the values of a key column are
+ * indexed too: a bloom filter answers most lookups of missing keys and a table of key
+ * hashes, sorted and left on disk, gives the records to check for the others.
+ *
+ * <p>
+ * Only the checkpoints and the bloom filter are held in memory.  The checkpoints keep the
+ * byte offset of their record whatever the encoding, a lookup seeks the source file to it.
+ * </p>
+ *
+ * <pre>
+ * Function&lt;Reader, InterfaceBuffReaderParse&gt; parsers = r -&gt; (InterfaceBuffReaderParse) BuffReaderParseFactory.getInstance()
+ *         .newDelimitedParser(r, ',', '"');
+ * try (OffsetIndex index = OffsetIndex.build(file, UTF_8, parsers, 1000, "ISIN", indexFile)) {
+ *     Optional&lt;Record&gt; record = index.get(1500000);
+ *     List&lt;Record&gt; matches = index.find("GB0002634946");
+ * }
+ * </pre>
+ *
+ * @since 4.1
+ */
+public final class OffsetIndex implements Closeable {
+    private static final int MAGIC = 0x46504958;
+    private static final int VERSION = 2;
+    private static final int BLOOM_HASHES = 7;
+    private static final int BLOOM_BITS_PER_KEY = 10;
+
+    private final Path source;
+    private final Charset charset;
+    private final Function<Reader, InterfaceBuffReaderParse> parsers;
+    private final int every;
+    private final int recordCount;
+    private final ParseCheckpoint[] checkpoints;
+    private final String keyColumn;
+    private final long[] bloom;
+    private final int entries;
+    private final RandomAccessFile table;
+    private final long tableStart;
+
+    private OffsetIndex(final Path sidecar, final Path source, final Charset charset, final Function<Reader, InterfaceBuffReaderParse> parsers)
+            throws IOException {
+        this.source = source;
+        this.charset = charset;
+        this.parsers = parsers;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(sidecar)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new FPException(sidecar + " is not an offset index");
+            }
+            final long length = in.readLong();
+            final long modified = in.readLong();
+            if (length != Files.size(source) || modified != Files.getLastModifiedTime(source).toMillis()) {
+                throw new FPException("The offset index " + sidecar + " is out of date for " + source);
+            }
+            every = in.readInt();
+            recordCount = in.readInt();
+            final String header = in.readBoolean() ? in.readUTF() : null;
+            checkpoints = new ParseCheckpoint[in.readInt()];
+            for (int i = 0; i < checkpoints.length; i++) {
+                checkpoints[i] = new ParseCheckpoint(in.readLong(), in.readLong(), charset, in.readInt(), in.readInt(), in.readBoolean(),
+                        i == 0 ? null : header);
+            }
+            if (in.readBoolean()) {
+                keyColumn = in.readUTF();
+                bloom = new long[in.readInt()];
+                for (int i = 0; i < bloom.length; i++) {
+                    bloom[i] = in.readLong();
+                }
+                entries = in.readInt();
+            } else {
+                keyColumn = null;
+                bloom = null;
+                entries = 0;
+            }
+        }
+        if (keyColumn != null) {
+            table = new RandomAccessFile(sidecar.toFile(), "r");
+            // the sorted key table is at the end of the file
+            tableStart = table.length() - 8L * entries;
+        } else {
+            table = null;
+            tableStart = 0;
+        }
+    }
+
+    /**
+     * Parses the source file once and writes its index.
+     *
+     * @param source
+     *            the flat file
+     * @param charset
+     *            encoding of the file
+     * @param parsers
+     *            creates a BuffReader parser of the file for a Reader
+     * @param every
+     *            number of records between two checkpoints; a lookup parses up to this many records
+     * @param keyColumn
+     *            column to index the values of, null for none
+     * @param sidecar
+     *            the index file to write
+     * @return the index, to be closed
+     * @throws IOException
+     *             if a file cannot be read or written
+     */
+    public static OffsetIndex build(final Path source, final Charset charset, final Function<Reader, InterfaceBuffReaderParse> parsers,
+            final int every, final String keyColumn, final Path sidecar) throws IOException {
+        if (every < 1) {
+            throw new IllegalArgumentException("every must be at least 1: " + every);
+        }
+        final List<ParseCheckpoint> checkpoints = new ArrayList<>();
+        long[] keys = new long[keyColumn != null ? 1024 : 0];
+        int count = 0;
+        String header = null;
+        final InterfaceBuffReaderParse parser = parsers.apply(Files.newBufferedReader(source, charset));
+        parser.setCharset(charset);
+        try {
+            final DataSet ds = ((Parser) parser).parse();
+            while (true) {
+                final ParseCheckpoint checkpoint = count % every == 0 ? parser.getCheckpoint() : null;
+                if (!ds.next()) {
+                    break;
+                }
+                if (checkpoint != null) {
+                    checkpoints.add(checkpoint);
+                }
+                if (keyColumn != null) {
+                    if (count == keys.length) {
+                        keys = Arrays.copyOf(keys, count << 1);
+                    }
+                    keys[count] = entry(hash(ds.getString(keyColumn)), count);
+                }
+                count++;
+            }
+            header = parser.getCheckpoint().getHeader();
+        } finally {
+            close(parser);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(sidecar)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(Files.size(source));
+            out.writeLong(Files.getLastModifiedTime(source).toMillis());
+            out.writeInt(every);
+            out.writeInt(count);
+            out.writeBoolean(header != null);
+            if (header != null) {
+                out.writeUTF(header);
+            }
+            out.writeInt(checkpoints.size());
+            for (final ParseCheckpoint checkpoint : checkpoints) {
+                out.writeLong(checkpoint.getOffset());
+                out.writeLong(checkpoint.getByteOffset());
+                out.writeInt(checkpoint.getLineCount());
+                out.writeInt(checkpoint.getRecordCount());
+                out.writeBoolean(checkpoint.isLineFeedPending());
+            }
+            out.writeBoolean(keyColumn != null);
+            if (keyColumn != null) {
+                out.writeUTF(keyColumn);
+                final long[] bloom = new long[Math.max(1, (int) (((long) count * BLOOM_BITS_PER_KEY + 63) / 64))];
+                for (int i = 0; i < count; i++) {
+                    final long hash = hashOf(keys[i]);
+                    for (int k = 0; k < BLOOM_HASHES; k++) {
+                        final int bit = bloomBit(hash, k, bloom.length);
+                        bloom[bit >>> 6] |= 1L << bit;
+                    }
+                }
+                out.writeInt(bloom.length);
+                for (final long word : bloom) {
+                    out.writeLong(word);
+                }
+                Arrays.sort(keys, 0, count);
+                out.writeInt(count);
+                for (int i = 0; i < count; i++) {
+                    out.writeLong(keys[i]);
+                }
+            }
+        }
+        return open(sidecar, source, charset, parsers);
+    }
+
+    /**
+     * Opens an index written by build().
+     *
+     * @param sidecar
+     *            the index file
+     * @param source
+     *            the flat file, unchanged since the index was built
+     * @param charset
+     *            encoding of the file
+     * @param parsers
+     *            creates a BuffReader parser of the file for a Reader, as for build()
+     * @return the index, to be closed
+     * @throws IOException
+     *             if the index cannot be read
+     * @exception FPException
+     *                if the index is not up to date with the source
+     */
+    public static OffsetIndex open(final Path sidecar, final Path source, final Charset charset,
+            final Function<Reader, InterfaceBuffReaderParse> parsers) throws IOException {
+        return new OffsetIndex(sidecar, source, charset, parsers);
+    }
+
+    /**
+     * @return number of records in the file
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @return the indexed key column, null if none
+     */
+    public String getKeyColumn() {
+        return keyColumn;
+    }
+
+    /**
+     * Reads one record, parsing at most the number of records between two checkpoints.
+     *
+     * @param recordNo
+     *            0 based position of the record among the records of the file, records in error not counted
+     * @return the record, empty if there are not that many records
+     */
+    public Optional<Record> get(final int recordNo) {
+        if (recordNo < 0 || recordNo >= recordCount) {
+            return Optional.empty();
+        }
+        final ParseCheckpoint checkpoint = checkpoints[recordNo / every];
+        final InterfaceBuffReaderParse parser = open(checkpoint);
+        try {
+            final DataSet ds = ((Parser) parser).parse();
+            for (int i = checkpoint.getRecordCount(); i < recordNo; i++) {
+                ds.next();
+            }
+            return ds.next() ? ds.getRecord() : Optional.empty();
+        } finally {
+            close(parser);
+        }
+    }
+
+    /**
+     * @param key
+     *            value of the key column
+     * @return false if no record has the key, true if one may have it
+     */
+    public boolean mightContain(final String key) {
+        checkKeyColumn();
+        final long hash = hash(key);
+        for (int k = 0; k < BLOOM_HASHES; k++) {
+            final int bit = bloomBit(hash, k, bloom.length);
+            if ((bloom[bit >>> 6] & 1L << bit) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param key
+     *            value of the key column
+     * @return the records with the key, in file order
+     */
+    public List<Record> find(final String key) {
+        if (!mightContain(key)) {
+            return Collections.emptyList();
+        }
+        final List<Record> found = new ArrayList<>();
+        final int hash = (int) hash(key);
+        for (final int recordNo : candidates(hash)) {
+            get(recordNo).filter(r -> key.equals(r.getString(keyColumn))).ifPresent(found::add);
+        }
+        return found;
+    }
+
+    private synchronized List<Integer> candidates(final int hash) {
+        try {
+            // lower bound of the first entry with the hash
+            final long first = entry(hash, 0);
+            int low = 0;
+            int high = entries;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (entryAt(mid) < first) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            final List<Integer> records = new ArrayList<>();
+            for (int i = low; i < entries; i++) {
+                final long entry = entryAt(i);
+                if ((int) (entry >> 32) != hash) {
+                    break;
+                }
+                records.add((int) entry);
+            }
+            return records;
+        } catch (final IOException e) {
+            throw new FPException("Error reading the offset index", e);
+        }
+    }
+
+    private long entryAt(final int i) throws IOException {
+        table.seek(tableStart + 8L * i);
+        return table.readLong();
+    }
+
+    private void checkKeyColumn() {
+        if (keyColumn == null) {
+            throw new FPInvalidUsageException("The offset index was built without a key column");
+        }
+    }
+
+    private InterfaceBuffReaderParse open(final ParseCheckpoint checkpoint) {
+        try {
+            final InterfaceBuffReaderParse parser = parsers.apply(checkpoint.newReader(source));
+            parser.setCharset(charset);
+            parser.resumeAt(checkpoint);
+            return parser;
+        } catch (final IOException e) {
+            throw new FPException("Error opening " + source, e);
+        }
+    }
+
+    private static void close(final InterfaceBuffReaderParse parser) {
+        try {
+            parser.close();
+        } catch (final Exception e) {
+            throw new FPException("Error closing the parser", e);
+        }
+    }
+
+    /**
+     * FNV-1a hash of the chars of the key; its low 32 bits are kept in the key table and
+     * feed the bloom filter.
+     */
+    private static long hash(final String key) {
+        long hash = 0xcbf29ce484222325L;
+        final String s = key != null ? key : "";
+        for (int i = 0; i < s.length(); i++) {
+            hash ^= s.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long entry(final long hash, final int recordNo) {
+        return (long) (int) hash << 32 | recordNo;
+    }
+
+    /**
+     * Rebuilds the hash used for the bloom filter from a table entry, which keeps the low
+     * 32 bits of the hash only.
+     */
+    private static long hashOf(final long entry) {
+        return entry >> 32;
+    }
+
+    private static int bloomBit(final long hash, final int k, final int words) {
+        final int h1 = (int) hash;
+        final int h2 = Integer.reverse(h1) | 1;
+        return (int) (((h1 + k * h2) & 0xFFFFFFFFL) % (64L * words));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (table != null) {
+            table.close();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * ObjectLab, http://www.objectlab.co.uk/open is supporting FlatPack.
+ *
+ * Based in London, we are world leaders in the design and development
+ * of bespoke applications for the securities financing markets.
+ *
+ * <a href="http://www.objectlab.co.uk/open">Click here to learn more</a>
+ *           ___  _     _           _   _          _
+ *          / _ \| |__ (_) ___  ___| |_| |    __ _| |__
+ *         | | | | '_ \| |/ _ \/ __| __| |   / _` | '_ \
+ *         | |_| | |_) | |  __/ (__| |_| |__| (_| | |_) |
+ *          \___/|_.__// |\___|\___|\__|_____\__,_|_.__/
+ *                   |__/
+ *
+ *                     www.ObjectLab.co.uk
+ *
+ * $Id: ColorProvider.java 74 2006-10-24 22:19:05Z benoitx $
+ *
+ * Copyright 2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sf.flatpack.brparse;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Serializable;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+
+import net.sf.flatpack.util.FPException;
+import net.sf.flatpack.util.FPInvalidUsageException;
+
+/**
+ * Position of a BuffReader parse after a record, from getCheckpoint() of BuffReaderDelimParser
+ * or BuffReaderFixedParser.  A parser over the same file given the checkpoint through
+ * resumeFrom() carries on with the next record, with the same line numbers, without parsing
+ * the records before it.  Checkpoints are Serializable so that they can be saved during a
+ * long run.
+ *
+ * <p>
+ * The offset counts chars, as the parsers read a Reader.  When the parser was given the
+ * charset of the file the checkpoint also has the byte offset, and newReader() opens the
+ * file seeked to it for resumeAt(), which does not read the file before the checkpoint;
+ * resumeFrom() decodes and skips the chars of a Reader at the start of the file instead.
+ * </p>
+ *
+ * @since 4.1
+ */
+public final class ParseCheckpoint implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final long offset;
+    private final long byteOffset;
+    private final String charset;
+    private final int lineCount;
+    private final int recordCount;
+    private final boolean lineFeedPending;
+    private final String header;
+
+    ParseCheckpoint(final long offset, final long byteOffset, final Charset charset, final int lineCount, final int recordCount,
+            final boolean lineFeedPending, final String header) {
+        this.offset = offset;
+        this.byteOffset = charset != null ? byteOffset : -1L;
+        this.charset = charset != null && byteOffset >= 0 ? charset.name() : null;
+        this.lineCount = lineCount;
+        this.recordCount = recordCount;
+        this.lineFeedPending = lineFeedPending;
+        this.header = header;
+    }
+
+    /**
+     * @return chars from the start of the file to the end of the last record read
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return bytes from the start of the file to the end of the last record read, -1 if the
+     *         parser was not given the charset of the file
+     */
+    public long getByteOffset() {
+        return byteOffset;
+    }
+
+    /**
+     * @return the encoding of the file the byte offset counts, null if the parser was not given it
+     */
+    public Charset getCharset() {
+        return charset != null ? Charset.forName(charset) : null;
+    }
+
+    /**
+     * @return lines read, the line number of the last record read
+     */
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @return records returned by the parser before the checkpoint, from the start of the file
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @return true if the last line ended with \r and a \n may follow at the offset
+     */
+    public boolean isLineFeedPending() {
+        return lineFeedPending;
+    }
+
+    /**
+     * @return the header record the columns were read from, null if they come from a mapping
+     */
+    public String getHeader() {
+        return header;
+    }
+
+    /**
+     * Opens the file at the checkpoint, for resumeAt(): the file is seeked to the byte offset
+     * so the records before the checkpoint are not read again.
+     *
+     * @param file
+     *            the file the checkpoint was taken on
+     * @return a Reader positioned at the checkpoint, to be closed by the parser
+     * @throws IOException
+     *             if the file cannot be opened
+     * @exception FPInvalidUsageException
+     *                if the parser was not given the charset of the file
+     */
+    public Reader newReader(final Path file) throws IOException {
+        if (charset == null) {
+            throw new FPInvalidUsageException("The checkpoint has no byte offset, call setCharset() on the parser or use resumeFrom()");
+        }
+        final FileChannel channel = FileChannel.open(file);
+        try {
+            channel.position(byteOffset);
+            return Channels.newReader(channel, getCharset().newDecoder(), -1);
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Skips the reader to the offset, for a reader opened at the start of the file.
+     *
+     * @param reader
+     *            reader at the start of the file
+     * @return the reader
+     */
+    Reader skipTo(final Reader reader) {
+        try {
+            long remaining = offset;
+            while (remaining > 0) {
+                final long skipped = reader.skip(remaining);
+                if (skipped <= 0) {
+                    if (reader.read() < 0) {
+                        throw new FPException("The data source ends before the checkpoint at " + offset);
+                    }
+                    remaining--;
+                } else {
+                    remaining -= skipped;
+                }
+            }
+            return reader;
+        } catch (final IOException e) {
+            throw new FPException("Error skipping to the checkpoint at " + offset, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ParseCheckpoint [offset=" + offset + ", byteOffset=" + byteOffset + ", lineCount=" + lineCount + ", recordCount=" + recordCount + "]";
+    }
+}
@@ -44,6 +44,7 @@ import java.util.Locale;
 
 import net.sf.flatpack.Parser;
 import net.sf.flatpack.structure.Row;
+import net.sf.flatpack.structure.TypedValues;
 import net.sf.flatpack.util.FPConstants;
 import net.sf.flatpack.util.ParserUtils;
 import net.sf.flatpack.xml.MetaData;
@@ -119,17 +120,15 @@ public class OrderBy implements Comparator<Row> {
         // into account when sorting
         Comparable comp0 = null;
         Comparable comp1 = null;
-        final String str0 = row0
-                .getValue(ParserUtils.getColumnIndex(row0.getMdkey(), metaData, oc.getColumnName(), parser.isColumnNamesCaseSensitive()))
-                .toLowerCase(Locale.getDefault());
-        final String str1 = row1
-                .getValue(ParserUtils.getColumnIndex(row1.getMdkey(), metaData, oc.getColumnName(), parser.isColumnNamesCaseSensitive()))
-                .toLowerCase(Locale.getDefault());
+        final int idx0 = ParserUtils.getColumnIndex(row0.getMdkey(), metaData, oc.getColumnName(), parser.isColumnNamesCaseSensitive());
+        final int idx1 = ParserUtils.getColumnIndex(row1.getMdkey(), metaData, oc.getColumnName(), parser.isColumnNamesCaseSensitive());
+        if (oc.getSelectedColType() == OrderColumn.COLTYPE_NUMERIC) {
+            // multiply by the sort indicator to get a ASC or DESC result
+            return Double.compare(getNumericValue(row0, idx0), getNumericValue(row1, idx1)) * oc.getSortIndicator();
+        }
+        final String str0 = row0.getValue(idx0).toLowerCase(Locale.getDefault());
+        final String str1 = row1.getValue(idx1).toLowerCase(Locale.getDefault());
         switch (oc.getSelectedColType()) {
-        case OrderColumn.COLTYPE_NUMERIC:
-            comp0 = Double.valueOf(ParserUtils.stripNonDoubleChars(str0));
-            comp1 = Double.valueOf(ParserUtils.stripNonDoubleChars(str1));
-            break;
         case OrderColumn.COLTYPE_DATE:
             final SimpleDateFormat sdf = new SimpleDateFormat(oc.getDateFormatPattern());
             try {
@@ -157,6 +156,30 @@ public class OrderBy implements Comparator<Row> {
         return result;
     }
 
+    /**
+     * Parse the numeric value of the cell, re-using the value cached on the row when the parser
+     * caches typed values.
+     */
+    private double getNumericValue(final Row row, final int idx) {
+        if (!parser.isCacheTypedValues()) {
+            return Double.parseDouble(ParserUtils.stripNonDoubleChars(row.getValue(idx)));
+        }
+        TypedValues tv = row.getTypedValues();
+        if (tv == null) {
+            tv = new TypedValues(row.getColumnCount(), false);
+            row.setTypedValues(tv);
+        } else if (tv.isStrictNumericParse()) {
+            // the sort always strips non numeric chars, do not mix with a strict cache
+            return Double.parseDouble(ParserUtils.stripNonDoubleChars(row.getValue(idx)));
+        }
+        if (tv.hasDouble(idx)) {
+            return tv.getDouble(idx);
+        }
+        final double d = Double.parseDouble(ParserUtils.stripNonDoubleChars(row.getValue(idx)));
+        tv.putDouble(idx, d);
+        return d;
+    }
+
     private Date getBadDateDefault() {
         final Calendar defaultBadDt = new GregorianCalendar();
         defaultBadDt.set(Calendar.MONTH, 1);
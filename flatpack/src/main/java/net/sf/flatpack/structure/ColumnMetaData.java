@@ -14,6 +14,8 @@
  */
 package net.sf.flatpack.structure;
 
+import java.time.format.DateTimeFormatter;
+
 /**
  * @author Paul zepernick
  *
@@ -24,6 +26,23 @@ package net.sf.flatpack.structure;
  * @version 2.0
  */
 public class ColumnMetaData {
+    /** type attribute value for a column converted to an int */
+    public static final String TYPE_INT = "int";
+
+    /** type attribute value for a column converted to a long */
+    public static final String TYPE_LONG = "long";
+
+    /** type attribute value for a column converted to a double */
+    public static final String TYPE_DOUBLE = "double";
+
+    /** type attribute value for a column converted to a BigDecimal, see scale */
+    public static final String TYPE_DECIMAL = "decimal";
+
+    /** type attribute value for a column converted to a date, see format */
+    public static final String TYPE_DATE = "date";
+
+    /** type attribute value for a column converted to a boolean, see format */
+    public static final String TYPE_BOOLEAN = "boolean";
 
     /** Column Name */
     private String colName = null;
@@ -37,6 +56,20 @@ public class ColumnMetaData {
     /** ending position */
     private int endPosition = 0;
 
+    /** declared type, null when the column is kept as a String only */
+    private String type = null;
+
+    /** date pattern or boolean true/false values */
+    private String format = null;
+
+    /** false when an empty value is a conversion error */
+    private boolean nullable = true;
+
+    /** scale of a decimal column, negative to keep the scale of the data */
+    private int scale = -1;
+
+    private DateTimeFormatter dateTimeFormatter = null;
+
     public ColumnMetaData() {
         super();
     }
@@ -125,11 +158,95 @@ public class ColumnMetaData {
         this.startPosition = startPosition;
     }
 
+    /**
+     * @return the declared type (one of the TYPE_ constants) or null if the column is untyped
+     * @since 4.1
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @param type
+     *            one of the TYPE_ constants, null to keep the column as a String only
+     * @since 4.1
+     */
+    public void setType(final String type) {
+        this.type = type;
+    }
+
+    /**
+     * @return the date pattern of a date column or the "true/false" values of a boolean column
+     * @since 4.1
+     */
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * @param format
+     *            the date pattern of a date column or the "true/false" values of a boolean column
+     * @since 4.1
+     */
+    public void setFormat(final String format) {
+        this.format = format;
+        this.dateTimeFormatter = null;
+    }
+
+    /**
+     * @return false if an empty value in a typed column is reported as an error
+     * @since 4.1
+     */
+    public boolean isNullable() {
+        return nullable;
+    }
+
+    /**
+     * @param nullable
+     *            false if an empty value in a typed column is reported as an error
+     * @since 4.1
+     */
+    public void setNullable(final boolean nullable) {
+        this.nullable = nullable;
+    }
+
+    /**
+     * @return the scale of a decimal column, negative to keep the scale of the data
+     * @since 4.1
+     */
+    public int getScale() {
+        return scale;
+    }
+
+    /**
+     * @param scale
+     *            the scale of a decimal column, negative to keep the scale of the data
+     * @since 4.1
+     */
+    public void setScale(final int scale) {
+        this.scale = scale;
+    }
+
+    /**
+     * @return the formatter for the date pattern of the column, created once
+     * @since 4.1
+     */
+    public DateTimeFormatter getDateTimeFormatter() {
+        if (dateTimeFormatter == null && format != null) {
+            dateTimeFormatter = DateTimeFormatter.ofPattern(format);
+        }
+        return dateTimeFormatter;
+    }
+
     @Override
     public String toString() {
         final StringBuilder buf = new StringBuilder();
         buf.append("Name:").append(colName).append(" Length:").append(colLength).append(" Start:").append(startPosition);
-        buf.append(" End:").append(endPosition).append(System.getProperty("line.separator"));
+        buf.append(" End:").append(endPosition);
+        if (type != null) {
+            buf.append(" Type:").append(type);
+        }
+        buf.append(System.getProperty("line.separator"));
         return buf.toString();
     }
 }
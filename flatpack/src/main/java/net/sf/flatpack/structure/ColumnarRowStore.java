@@ -0,0 +1,590 @@
+/*
+ * ObjectLab, http://www.objectlab.co.uk/open is supporting FlatPack.
+ *
+ * Based in London, we are world leaders in the design and development
+ * of bespoke applications for the securities financing markets.
+ *
+ * <a href="http://www.objectlab.co.uk/open">Click here to learn more</a>
+ *           ___  _     _           _   _          _
+ *          / _ \| |__ (_) ___  ___| |_| |    __ _| |__
+ *         | | | | '_ \| |/ _ \/ __| __| |   / _` | '_ \
+ *         | |_| | |_) | |  __/ (__| |_| |__| (_| | |_) |
+ *          \___/|_.__// |\___|\___|\__|_____\__,_|_.__/
+ *                   |__/
+ *
+ *                     www.ObjectLab.co.uk
+ *
+ * $Id: ColorProvider.java 74 2006-10-24 22:19:05Z benoitx $
+ *
+ * Copyright 2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sf.flatpack.structure;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.flatpack.util.FPException;
+
+/**
+ * RowStore keeping the rows column by column instead of a Row and a List of Strings per row.
+ *
+ * Each column is a single arena holding the text of all its cells back to back (one byte per
+ * char while the text is Latin-1, two after that) with the end offset of every cell in an
+ * int[].  Values converted at parse time (typed columns of the mapping) are kept in primitive
+ * arrays beside the text.  The record type is a byte code per row and the row numbers an int[].
+ * The per row overhead is a few ints instead of the Row, ArrayList and String objects of the
+ * ListRowStore, and scanning a column walks one contiguous array.
+ *
+ * get() returns a light Row view decoding the cells on access.  A view's setValue is kept by
+ * the store, the arena itself is append only.  remove() and sort() only re-order an index of
+ * the rows: removed rows keep their space until clear().
+ *
+ * Only the values converted at parse time are kept by the store.  The values cached by
+ * Parser.setCacheTypedValues, or by a numeric OrderBy, live in the view: they are re-used while
+ * the same Record is read, or during one sort, and are lost with the view.
+ *
+ * @since 4.1
+ */
+public class ColumnarRowStore implements RowStore {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int MAX_RECORD_TYPES = 256;
+
+    private static final byte LONG = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte DECIMAL = 3;
+    private static final byte DATE = 4;
+    private static final byte BOOLEAN = 5;
+    private static final byte LOCAL_DATE = 6;
+
+    /** position in the DataSet to physical row */
+    private int[] order;
+    private int size;
+    /** rows added so far, including removed ones */
+    private int physicalCount;
+
+    private int[] rowNumbers;
+    private byte[] recordTypes;
+    private int[] columnCounts;
+    private BitSet emptyRows;
+    /** rows that had typed values, and whether these were strict */
+    private BitSet typedRows;
+    private BitSet strictRows;
+
+    private List<String> mdkeys;
+    private Map<String, Integer> mdkeyCodes;
+
+    private Column[] columns;
+    private Column rawData;
+
+    /** cells changed with setValue, key is the physical row << 32 | column */
+    private Map<Long, String> changes;
+    private int changeCount;
+    /** estimated size of the columns and rawData, kept as they grow */
+    private long columnBytes;
+    /** estimated size of changes */
+    private long changeBytes;
+
+    public ColumnarRowStore() {
+        clear();
+    }
+
+    @Override
+    public void add(final Row row) {
+        final int p = physicalCount;
+        ensureCapacity(p + 1);
+
+        rowNumbers[p] = row.getRowNumber();
+        recordTypes[p] = recordType(row.getMdkey());
+        if (row.isEmpty()) {
+            emptyRows.set(p);
+        }
+
+        final int count = row.getColumnCount();
+        columnCounts[p] = count;
+        if (count > columns.length) {
+            final int previous = columns.length;
+            columns = Arrays.copyOf(columns, count);
+            for (int i = previous; i < count; i++) {
+                columns[i] = new Column(rowNumbers.length);
+                columnBytes += columns[i].estimatedSize();
+            }
+        }
+        final TypedValues tv = row.getTypedValues();
+        if (tv != null) {
+            typedRows.set(p);
+            if (tv.isStrictNumericParse()) {
+                strictRows.set(p);
+            }
+        }
+        for (int i = 0; i < columns.length; i++) {
+            final Column column = columns[i];
+            columnBytes -= column.estimatedSize();
+            if (i < count) {
+                column.add(p, row.getValue(i));
+                if (tv != null) {
+                    column.addTyped(p, tv, i);
+                }
+            } else {
+                // keep the offsets of the column aligned, the cell is never read
+                column.add(p, null);
+            }
+            columnBytes += column.estimatedSize();
+        }
+
+        final String raw = row.getRawData();
+        if (raw != null && rawData == null) {
+            rawData = new Column(rowNumbers.length);
+            for (int i = 0; i < p; i++) {
+                rawData.add(i, null);
+            }
+            columnBytes += rawData.estimatedSize();
+        }
+        if (rawData != null) {
+            columnBytes -= rawData.estimatedSize();
+            rawData.add(p, raw);
+            columnBytes += rawData.estimatedSize();
+        }
+
+        order[size++] = p;
+        physicalCount++;
+    }
+
+    @Override
+    public Row get(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return new ColumnarRow(order[index]);
+    }
+
+    @Override
+    public void set(final int index, final Row row) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (row instanceof ColumnarRow && ((ColumnarRow) row).store() == this && ((ColumnarRow) row).physical == order[index]) {
+            // a view of the row, its changes are already in the store
+            return;
+        }
+        final int last = size;
+        add(row);
+        order[index] = order[last];
+        size = last;
+    }
+
+    @Override
+    public void remove(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        System.arraycopy(order, index + 1, order, index, size - index - 1);
+        size--;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public final void clear() {
+        order = new int[INITIAL_CAPACITY];
+        size = 0;
+        physicalCount = 0;
+        rowNumbers = new int[INITIAL_CAPACITY];
+        recordTypes = new byte[INITIAL_CAPACITY];
+        columnCounts = new int[INITIAL_CAPACITY];
+        emptyRows = new BitSet();
+        typedRows = new BitSet();
+        strictRows = new BitSet();
+        mdkeys = new ArrayList<>();
+        mdkeys.add(null);
+        mdkeyCodes = new HashMap<>();
+        columns = new Column[0];
+        rawData = null;
+        changes = null;
+        columnBytes = 0;
+        changeBytes = 0;
+    }
+
+    @Override
+    public void sort(final Comparator<? super Row> comparator) {
+        // sort views, not the data, then keep their order
+        final ColumnarRow[] views = new ColumnarRow[size];
+        for (int i = 0; i < size; i++) {
+            views[i] = new ColumnarRow(order[i]);
+        }
+        Arrays.sort(views, comparator);
+        for (int i = 0; i < size; i++) {
+            order[i] = views[i].physical;
+        }
+    }
+
+    @Override
+    public long getEstimatedSize() {
+        long bytes = 16 + 4L * order.length + 16 + 4L * rowNumbers.length + 16 + recordTypes.length + 16 + 4L * columnCounts.length;
+        bytes += (emptyRows.size() + typedRows.size() + strictRows.size()) / 8 + 64L * mdkeys.size();
+        // checked for each added row by setMaxMemoryBytes, so not summed here
+        return bytes + columnBytes + changeBytes;
+    }
+
+    private byte recordType(final String mdkey) {
+        if (mdkey == null) {
+            return 0;
+        }
+        Integer code = mdkeyCodes.get(mdkey);
+        if (code == null) {
+            if (mdkeys.size() == MAX_RECORD_TYPES) {
+                throw new FPException("A columnar DataSet supports up to " + (MAX_RECORD_TYPES - 1) + " record types");
+            }
+            code = mdkeys.size();
+            mdkeys.add(mdkey);
+            mdkeyCodes.put(mdkey, code);
+        }
+        return (byte) code.intValue();
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (capacity > rowNumbers.length) {
+            final int newCapacity = Math.max(capacity, rowNumbers.length + (rowNumbers.length >> 1));
+            rowNumbers = Arrays.copyOf(rowNumbers, newCapacity);
+            recordTypes = Arrays.copyOf(recordTypes, newCapacity);
+            columnCounts = Arrays.copyOf(columnCounts, newCapacity);
+        }
+        if (capacity > order.length) {
+            order = Arrays.copyOf(order, Math.max(capacity, order.length + (order.length >> 1)));
+        }
+    }
+
+    private String value(final int physical, final int column) {
+        if (changes != null) {
+            final Long key = cell(physical, column);
+            final String changed = changes.get(key);
+            if (changed != null || changes.containsKey(key)) {
+                return changed;
+            }
+        }
+        return columns[column].get(physical);
+    }
+
+    private void setValue(final int physical, final int column, final String value) {
+        if (changes == null) {
+            changes = new HashMap<>();
+        }
+        final Long key = cell(physical, column);
+        if (changes.containsKey(key)) {
+            final String previous = changes.get(key);
+            changeBytes -= 80 + (previous != null ? previous.length() : 0);
+        }
+        changes.put(key, value);
+        changeBytes += 80 + (value != null ? value.length() : 0);
+        changeCount++;
+        columns[column].clearTyped(physical);
+    }
+
+    private static Long cell(final int physical, final int column) {
+        return Long.valueOf((long) physical << 32 | column);
+    }
+
+    private TypedValues typedValues(final int physical) {
+        if (!typedRows.get(physical)) {
+            return null;
+        }
+        final int count = columnCounts[physical];
+        final TypedValues tv = new TypedValues(count, strictRows.get(physical));
+        for (int i = 0; i < count; i++) {
+            columns[i].getTyped(physical, tv, i);
+        }
+        return tv;
+    }
+
+    /**
+     * The cells of one column: their text back to back and the end of each cell.
+     */
+    private static final class Column {
+        private byte[] latin1 = new byte[256];
+        /** replaces latin1 once a char above 0xFF is added */
+        private char[] chars;
+        private int length;
+        private int[] ends;
+        private BitSet nulls;
+
+        /** typed values, allocated with the first one */
+        private byte[] kinds;
+        private long[] bits;
+        /** BigDecimal values or the pattern of a LOCAL_DATE, allocated with the first one */
+        private Object[] objects;
+        private int decimals;
+
+        private Column(final int capacity) {
+            ends = new int[capacity];
+        }
+
+        private void add(final int row, final String value) {
+            if (row >= ends.length) {
+                ends = Arrays.copyOf(ends, Math.max(row + 1, ends.length + (ends.length >> 1)));
+            }
+            if (value == null) {
+                if (nulls == null) {
+                    nulls = new BitSet();
+                }
+                nulls.set(row);
+            } else {
+                append(value);
+            }
+            ends[row] = length;
+        }
+
+        private void append(final String value) {
+            final int len = value.length();
+            if (length + len < 0) {
+                throw new FPException("Column content exceeds 2GB, the columnar DataSet cannot hold it");
+            }
+            if (chars == null) {
+                if (length + len > latin1.length) {
+                    latin1 = Arrays.copyOf(latin1, Math.max(length + len, latin1.length << 1));
+                }
+                for (int i = 0; i < len; i++) {
+                    final char ch = value.charAt(i);
+                    if (ch > 0xFF) {
+                        inflate();
+                        value.getChars(i, len, chars, length);
+                        length += len - i;
+                        return;
+                    }
+                    latin1[length++] = (byte) ch;
+                }
+            } else {
+                if (length + len > chars.length) {
+                    chars = Arrays.copyOf(chars, Math.max(length + len, chars.length << 1));
+                }
+                value.getChars(0, len, chars, length);
+                length += len;
+            }
+        }
+
+        private void inflate() {
+            chars = new char[Math.max(latin1.length, 16) << 1];
+            for (int i = 0; i < length; i++) {
+                chars[i] = (char) (latin1[i] & 0xFF);
+            }
+            latin1 = null;
+        }
+
+        private String get(final int row) {
+            if (nulls != null && nulls.get(row)) {
+                return null;
+            }
+            final int start = row == 0 ? 0 : ends[row - 1];
+            final int len = ends[row] - start;
+            if (len == 0) {
+                return "";
+            }
+            return chars != null ? new String(chars, start, len) : new String(latin1, start, len, StandardCharsets.ISO_8859_1);
+        }
+
+        private void addTyped(final int row, final TypedValues tv, final int column) {
+            final byte kind;
+            long value = 0L;
+            Object object = null;
+            if (tv.hasLong(column)) {
+                kind = LONG;
+                value = tv.getLong(column);
+            } else if (tv.hasDouble(column)) {
+                kind = DOUBLE;
+                value = Double.doubleToRawLongBits(tv.getDouble(column));
+            } else if (tv.hasBigDecimal(column)) {
+                kind = DECIMAL;
+                object = tv.getBigDecimal(column);
+            } else if (tv.hasDate(column)) {
+                kind = DATE;
+                value = tv.getDateMillis(column);
+            } else if (tv.getLocalDatePattern(column) != null) {
+                kind = LOCAL_DATE;
+                value = tv.getLocalDateEpochDay(column);
+                object = tv.getLocalDatePattern(column);
+            } else if (tv.hasBoolean(column)) {
+                kind = BOOLEAN;
+                value = tv.getBoolean(column) ? 1L : 0L;
+            } else {
+                return;
+            }
+            if (kinds == null || row >= kinds.length) {
+                final int capacity = Math.max(row + 1, ends.length);
+                kinds = kinds == null ? new byte[capacity] : Arrays.copyOf(kinds, capacity);
+                bits = bits == null ? new long[capacity] : Arrays.copyOf(bits, capacity);
+            }
+            kinds[row] = kind;
+            bits[row] = value;
+            if (object != null) {
+                if (objects == null || row >= objects.length) {
+                    objects = objects == null ? new Object[kinds.length] : Arrays.copyOf(objects, kinds.length);
+                }
+                objects[row] = object;
+                if (object instanceof BigDecimal) {
+                    decimals++;
+                }
+            }
+        }
+
+        private void getTyped(final int row, final TypedValues tv, final int column) {
+            if (kinds == null || row >= kinds.length) {
+                return;
+            }
+            switch (kinds[row]) {
+            case LONG:
+                tv.putLong(column, bits[row]);
+                break;
+            case DOUBLE:
+                tv.putDouble(column, Double.longBitsToDouble(bits[row]));
+                break;
+            case DECIMAL:
+                tv.putBigDecimal(column, (BigDecimal) objects[row]);
+                break;
+            case DATE:
+                tv.putDateMillis(column, bits[row]);
+                break;
+            case LOCAL_DATE:
+                tv.putLocalDate(column, (String) objects[row], bits[row]);
+                break;
+            case BOOLEAN:
+                tv.putBoolean(column, bits[row] != 0L);
+                break;
+            default:
+                break;
+            }
+        }
+
+        private void clearTyped(final int row) {
+            if (kinds != null && row < kinds.length) {
+                kinds[row] = 0;
+            }
+        }
+
+        private long estimatedSize() {
+            long bytes = 32 + (latin1 != null ? 16 + latin1.length : 0) + (chars != null ? 16 + 2L * chars.length : 0) + 16 + 4L * ends.length;
+            if (nulls != null) {
+                bytes += nulls.size() / 8;
+            }
+            if (kinds != null) {
+                bytes += 16 + kinds.length + 16 + 8L * bits.length;
+            }
+            if (objects != null) {
+                // the patterns are shared with the mapping
+                bytes += 16 + 4L * objects.length + 48L * decimals;
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * Row reading its cells from the store.
+     */
+    private final class ColumnarRow extends Row {
+        private final int physical;
+        private int seenChanges;
+
+        private ColumnarRow(final int physical) {
+            this.physical = physical;
+            this.seenChanges = changeCount;
+            setRowNumber(rowNumbers[physical]);
+            setMdkey(mdkeys.get(recordTypes[physical] & 0xFF));
+            setEmpty(emptyRows.get(physical));
+            setTypedValues(typedValues(physical));
+        }
+
+        private ColumnarRowStore store() {
+            return ColumnarRowStore.this;
+        }
+
+        @Override
+        public String getValue(final int colPosition) {
+            checkColumn(colPosition);
+            return value(physical, colPosition);
+        }
+
+        @Override
+        public void setValue(final int columnIndex, final String value) {
+            checkColumn(columnIndex);
+            ColumnarRowStore.this.setValue(physical, columnIndex, value);
+            if (getTypedValues() != null) {
+                getTypedValues().clear(columnIndex);
+            }
+        }
+
+        /**
+         * Drops the typed values of the view once a cell was changed through another view.
+         */
+        @Override
+        public TypedValues getTypedValues() {
+            if (seenChanges != changeCount) {
+                seenChanges = changeCount;
+                setTypedValues(typedValues(physical));
+            }
+            return super.getTypedValues();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columnCounts[physical];
+        }
+
+        /**
+         * @return a copy of the values, changing it does not change the row
+         */
+        @Override
+        public List<String> getCols() {
+            final int count = columnCounts[physical];
+            final List<String> cols = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                cols.add(value(physical, i));
+            }
+            return cols;
+        }
+
+        @Override
+        public void setCols(final List<String> cols) {
+            throw new UnsupportedOperationException("setCols() is not supported on a columnar row");
+        }
+
+        @Override
+        public void addColumn(final String colValue) {
+            throw new UnsupportedOperationException("addColumn() is not supported on a columnar row");
+        }
+
+        @Override
+        public void addColumn(final List<String> cols) {
+            throw new UnsupportedOperationException("addColumn() is not supported on a columnar row");
+        }
+
+        @Override
+        public String getRawData() {
+            return rawData != null ? rawData.get(physical) : null;
+        }
+
+        private void checkColumn(final int column) {
+            if (column < 0 || column >= columnCounts[physical]) {
+                throw new IndexOutOfBoundsException("Index: " + column + ", Size: " + columnCounts[physical]);
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * ObjectLab, http://www.objectlab.co.uk/open is supporting FlatPack.
+ *
+ * Based in London, we are world leaders in the design and development
+ * of bespoke applications for the securities financing markets.
+ *
+ * <a href="http://www.objectlab.co.uk/open">Click here to learn more</a>
+ *           ___  _     _           _   _          _
+ *          / _ \| |__ (_) ___  ___| |_| |    __ _| |__
+ *         | | | | '_ \| |/ _ \/ __| __| |   / _` | '_ \
+ *         | |_| | |_) | |  __/ (__| |_| |__| (_| | |_) |
+ *          \___/|_.__// |\___|\___|\__|_____\__,_|_.__/
+ *                   |__/
+ *
+ *                     www.ObjectLab.co.uk
+ *
+ * $Id: ColorProvider.java 74 2006-10-24 22:19:05Z benoitx $
+ *
+ * Copyright 2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sf.flatpack.structure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * RowStore keeping the Row objects in a List.
+ *
+ * @since 4.1
+ */
+public class ListRowStore implements RowStore {
+    private final List<Row> rows = new ArrayList<>();
+    /** estimated size of each row, as it was when added or set */
+    private long[] estimates = new long[16];
+    /** sum of the estimates */
+    private long rowBytes;
+
+    @Override
+    public void add(final Row row) {
+        final int index = rows.size();
+        if (index == estimates.length) {
+            estimates = Arrays.copyOf(estimates, index + (index >> 1));
+        }
+        rows.add(row);
+        estimates[index] = row.getEstimatedSize();
+        rowBytes += estimates[index];
+    }
+
+    @Override
+    public Row get(final int index) {
+        return rows.get(index);
+    }
+
+    @Override
+    public void set(final int index, final Row row) {
+        rows.set(index, row);
+        // also when the row changed in place, as DefaultDataSet.setValue does
+        final long estimate = row.getEstimatedSize();
+        rowBytes += estimate - estimates[index];
+        estimates[index] = estimate;
+    }
+
+    @Override
+    public void remove(final int index) {
+        rows.remove(index);
+        rowBytes -= estimates[index];
+        System.arraycopy(estimates, index + 1, estimates, index, rows.size() - index);
+    }
+
+    @Override
+    public int size() {
+        return rows.size();
+    }
+
+    @Override
+    public void clear() {
+        rows.clear();
+        estimates = new long[16];
+        rowBytes = 0;
+    }
+
+    @Override
+    public void sort(final Comparator<? super Row> comparator) {
+        rows.sort(comparator);
+        // the estimates follow their rows, the rows may also have changed in place
+        rowBytes = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            estimates[i] = rows.get(i).getEstimatedSize();
+            rowBytes += estimates[i];
+        }
+    }
+
+    @Override
+    public long getEstimatedSize() {
+        return rowBytes + 16 + 4L * rows.size() + 16 + 8L * estimates.length;
+    }
+}
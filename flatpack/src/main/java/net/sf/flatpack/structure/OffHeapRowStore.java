@@ -0,0 +1,882 @@
+/*
+ * ObjectLab, http://www.objectlab.co.uk/open is supporting FlatPack.
+ *
+ * Based in London, we are world leaders in the design and development
+ * of bespoke applications for the securities financing markets.
+ *
+ * <a href="http://www.objectlab.co.uk/open">Click here to learn more</a>
+ *           ___  _     _           _   _          _
+ *          / _ \| |__ (_) ___  ___| |_| |    __ _| |__
+ *         | | | | '_ \| |/ _ \/ __| __| |   / _` | '_ \
+ *         | |_| | |_) | |  __/ (__| |_| |__| (_| | |_) |
+ *          \___/|_.__// |\___|\___|\__|_____\__,_|_.__/
+ *                   |__/
+ *
+ *                     www.ObjectLab.co.uk
+ *
+ * $Id: ColorProvider.java 74 2006-10-24 22:19:05Z benoitx $
+ *
+ * Copyright 2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sf.flatpack.structure;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.flatpack.util.FPException;
+
+/**
+ * RowStore keeping the rows outside of the Java heap, in direct ByteBuffers or in memory mapped
+ * temporary files, so very large files can be parsed once and navigated without a large heap
+ * (and its GC pauses).  Only the Row views handed out by get() live on the heap.
+ *
+ * Each row is serialized once into a chunk of memory: row number, record type, flags, the end
+ * offset of each column, optional raw data and typed values, then the text of the columns
+ * (Latin-1 when possible, else UTF-8).  A view reads a column straight from the chunk.  The
+ * address of each row and, once rows have been removed or sorted, the order of the rows are
+ * kept off heap as well.
+ *
+ * The chunks start at 64KB and double up to the chunk size, 64MB by default, so a small
+ * DataSet does not reserve much.  Direct memory is limited by -XX:MaxDirectMemorySize, which
+ * defaults to the maximum heap size: once a direct chunk cannot be allocated the store maps
+ * temporary files instead, as the mapped store does from the start, so a DataSet larger than
+ * the limit still fits.  Raise the limit to keep such a DataSet in memory.
+ *
+ * setValue on a view writes a new copy of the row; like removed rows, the old copy keeps its
+ * space until clear().  The memory is released when the store is cleared or garbage collected.
+ * As in the ColumnarRowStore, only the values converted at parse time are serialized, those
+ * cached later live in the view.
+ *
+ * write() puts rows in a file in the same form and map() reads them back in place, see
+ * DataSetSnapshot.
+ *
+ * @since 4.1
+ */
+public class OffHeapRowStore implements RowStore {
+    /** 64MB */
+    public static final int DEFAULT_CHUNK_SIZE = 64 << 20;
+    /** 64KB, size of the first chunk */
+    private static final int INITIAL_CHUNK_SIZE = 64 << 10;
+    private static final int MAX_RECORD_TYPES = 256;
+
+    private static final int FLAG_EMPTY = 1;
+    private static final int FLAG_RAW = 2;
+    private static final int FLAG_TYPED = 4;
+    private static final int FLAG_STRICT = 8;
+    private static final int FLAG_UTF8 = 16;
+
+    private static final int NULL_MARK = 0x80000000;
+    /** row number, record type, flags and column count */
+    private static final int HEADER = 10;
+
+    /** 1GB, a row written to a file never crosses a segment so that each can be mapped */
+    private static final int FILE_SEGMENT_SIZE = 1 << 30;
+    /** segment size, row count and data length */
+    private static final int FILE_HEADER = 16;
+    private static final int FILE_BUFFER = 1 << 20;
+
+    private static final byte LONG = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte DECIMAL = 3;
+    private static final byte DATE = 4;
+    private static final byte BOOLEAN = 5;
+    private static final byte LOCAL_DATE = 6;
+
+    /** true once direct memory ran out, or from the start for the mapped store */
+    private boolean mapped;
+    private final int chunkSize;
+
+    private List<ByteBuffer> chunks;
+    private int chunkPosition;
+    /** bytes of all chunks */
+    private long allocated;
+
+    /** physical row to its address: chunk << 32 | offset */
+    private LongArray addresses;
+    /** position in the DataSet to physical row, null while they are the same */
+    private LongArray order;
+    private int size;
+
+    private List<String> mdkeys;
+    private Map<String, Integer> mdkeyCodes;
+
+    /**
+     * A store using direct ByteBuffers.
+     */
+    public OffHeapRowStore() {
+        this(false, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param mapped
+     *          true to map temporary files (in java.io.tmpdir) instead of allocating direct memory,
+     *          the OS can then page rows out to disk
+     * @param chunkSize
+     *          maximum bytes allocated at a time, the chunks grow from 64KB up to it; a larger
+     *          row gets a chunk of its own
+     */
+    public OffHeapRowStore(final boolean mapped, final int chunkSize) {
+        if (chunkSize <= HEADER) {
+            throw new IllegalArgumentException("chunkSize too small: " + chunkSize);
+        }
+        this.mapped = mapped;
+        this.chunkSize = chunkSize;
+        clear();
+    }
+
+    @Override
+    public void add(final Row row) {
+        final long address = write(row);
+        addresses.add(address);
+        if (order != null) {
+            order.add(addresses.size() - 1);
+        }
+        size++;
+    }
+
+    @Override
+    public Row get(final int index) {
+        return new OffHeapRow(physical(index));
+    }
+
+    @Override
+    public void set(final int index, final Row row) {
+        final int physical = physical(index);
+        if (row instanceof OffHeapRow && ((OffHeapRow) row).store() == this && ((OffHeapRow) row).physical == physical) {
+            // a view of the row, its changes are already in the store
+            return;
+        }
+        addresses.set(physical, write(row));
+    }
+
+    @Override
+    public void remove(final int index) {
+        physical(index);
+        ensureOrder();
+        order.remove(index);
+        size--;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public final void clear() {
+        chunks = new ArrayList<>();
+        chunkPosition = 0;
+        allocated = 0;
+        addresses = new LongArray();
+        order = null;
+        size = 0;
+        mdkeys = new ArrayList<>();
+        mdkeys.add(null);
+        mdkeyCodes = new HashMap<>();
+    }
+
+    /**
+     * Stable merge sort of the order of the rows, comparing two re-used views so the sort does
+     * not allocate per row.
+     */
+    @Override
+    public void sort(final Comparator<? super Row> comparator) {
+        if (size < 2) {
+            return;
+        }
+        ensureOrder();
+        final OffHeapRow left = new OffHeapRow(physical(0));
+        final OffHeapRow right = new OffHeapRow(physical(0));
+        final LongArray temp = new LongArray();
+        for (int i = 0; i < size; i++) {
+            temp.add(0L);
+        }
+        for (int width = 1; width < size; width <<= 1) {
+            for (int lo = 0; lo < size - width; lo += width << 1) {
+                merge(comparator, left, right, temp, lo, lo + width, Math.min(lo + (width << 1), size));
+            }
+        }
+    }
+
+    private void merge(final Comparator<? super Row> comparator, final OffHeapRow left, final OffHeapRow right, final LongArray temp, final int lo,
+            final int mid, final int hi) {
+        int i = lo;
+        int j = mid;
+        for (int k = lo; k < hi; k++) {
+            temp.set(k, order.get(k));
+        }
+        for (int k = lo; k < hi; k++) {
+            if (i >= mid) {
+                order.set(k, temp.get(j++));
+            } else if (j >= hi) {
+                order.set(k, temp.get(i++));
+            } else {
+                left.point((int) temp.get(i));
+                right.point((int) temp.get(j));
+                if (comparator.compare(right, left) < 0) {
+                    order.set(k, temp.get(j++));
+                } else {
+                    order.set(k, temp.get(i++));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the heap used by the record types, the rows are off heap, see getAllocatedBytes()
+     */
+    @Override
+    public long getEstimatedSize() {
+        return 128 + 64L * mdkeys.size();
+    }
+
+    /**
+     * @return bytes of memory allocated outside of the heap
+     */
+    public long getAllocatedBytes() {
+        return allocated + addresses.allocatedBytes() + (order != null ? order.allocatedBytes() : 0L);
+    }
+
+    /**
+     * Writes rows in the serialized form of this store, for map() to read them back in place:
+     * segment size, row count and data length, the address of each row, the rows, then the
+     * record types.
+     *
+     * @param rows
+     *          the rows to write, in order
+     * @param channel
+     *          the file to write to
+     * @param position
+     *          where to write in the file
+     * @return the position following the rows
+     * @throws IOException if the file cannot be written
+     */
+    public static long write(final RowStore rows, final FileChannel channel, final long position) throws IOException {
+        return write(rows, channel, position, FILE_SEGMENT_SIZE);
+    }
+
+    static long write(final RowStore rows, final FileChannel channel, final long position, final int segmentSize) throws IOException {
+        final int count = rows.size();
+        final long indexStart = position + FILE_HEADER;
+        final long dataStart = indexStart + 8L * count;
+        final List<String> types = new ArrayList<>();
+        types.add(null);
+        final Map<String, Integer> codes = new HashMap<>();
+
+        final ByteBuffer index = ByteBuffer.allocate(FILE_BUFFER);
+        long indexPosition = indexStart;
+        ByteBuffer data = ByteBuffer.allocate(FILE_BUFFER);
+        // data is buffered from dataFlushed, relative to dataStart
+        long dataFlushed = 0;
+        long dataLength = 0;
+        for (int i = 0; i < count; i++) {
+            final Row row = rows.get(i);
+            final EncodedRow encoded = new EncodedRow(row);
+            final byte recordType = recordType(row.getMdkey(), types, codes);
+            if (encoded.length > segmentSize) {
+                throw new FPException("Row " + row.getRowNumber() + " is too large to be written, " + encoded.length + " bytes");
+            }
+            if (dataLength % segmentSize + encoded.length > segmentSize) {
+                // the end of the segment stays unused
+                dataLength += segmentSize - dataLength % segmentSize;
+            }
+            if (dataLength - dataFlushed + encoded.length > data.capacity()) {
+                writeFully(channel, data, dataStart + dataFlushed);
+                dataFlushed = dataLength;
+                if (encoded.length > data.capacity()) {
+                    data = ByteBuffer.allocate(encoded.length);
+                }
+            }
+            encoded.put(data, (int) (dataLength - dataFlushed), recordType);
+            data.position((int) (dataLength - dataFlushed) + encoded.length);
+
+            if (!index.hasRemaining()) {
+                indexPosition += writeFully(channel, index, indexPosition);
+            }
+            index.putLong(dataLength / segmentSize << 32 | dataLength % segmentSize);
+            dataLength += encoded.length;
+        }
+        writeFully(channel, index, indexPosition);
+        writeFully(channel, data, dataStart + dataFlushed);
+
+        final ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+        header.putInt(segmentSize).putInt(count).putLong(dataLength);
+        writeFully(channel, header, position);
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(types.size());
+            for (int i = 1; i < types.size(); i++) {
+                out.writeUTF(types.get(i));
+            }
+        }
+        final ByteBuffer typesBuffer = ByteBuffer.allocate(bytes.size());
+        typesBuffer.put(bytes.toByteArray());
+        final long typesStart = dataStart + dataLength;
+        return typesStart + writeFully(channel, typesBuffer, typesStart);
+    }
+
+    /**
+     * Reads rows written by write(), the rows are mapped and read in place.  Rows added or
+     * changed afterwards go to direct memory, the file is never modified.
+     *
+     * @param channel
+     *          the file, open for reading
+     * @param position
+     *          where the rows were written
+     * @return a store of the rows
+     * @throws IOException if the file cannot be read
+     */
+    public static OffHeapRowStore map(final FileChannel channel, final long position) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+        readFully(channel, header, position);
+        final int segmentSize = header.getInt(0);
+        final int count = header.getInt(4);
+        final long dataLength = header.getLong(8);
+        final long indexStart = position + FILE_HEADER;
+        final long dataStart = indexStart + 8L * count;
+
+        final OffHeapRowStore store = new OffHeapRowStore();
+        for (long p = 0; p < dataLength; p += segmentSize) {
+            store.chunks.add(channel.map(FileChannel.MapMode.READ_ONLY, dataStart + p, Math.min(segmentSize, dataLength - p)));
+        }
+        if (!store.chunks.isEmpty()) {
+            // new rows go to new chunks
+            store.chunkPosition = store.chunks.get(store.chunks.size() - 1).capacity();
+        }
+        store.addresses.read(channel, indexStart, count);
+        store.size = count;
+
+        final DataInputStream in = new DataInputStream(Channels.newInputStream(channel.position(dataStart + dataLength)));
+        final int typeCount = in.readInt();
+        for (int code = 1; code < typeCount; code++) {
+            final String mdkey = in.readUTF();
+            store.mdkeys.add(mdkey);
+            store.mdkeyCodes.put(mdkey, code);
+        }
+        return store;
+    }
+
+    private static int writeFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+        buffer.flip();
+        final int length = buffer.remaining();
+        long p = position;
+        while (buffer.hasRemaining()) {
+            p += channel.write(buffer, p);
+        }
+        buffer.clear();
+        return length;
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+        long p = position;
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, p);
+            if (read < 0) {
+                throw new FPException("Unexpected end of file at " + p);
+            }
+            p += read;
+        }
+    }
+
+    private int physical(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return order != null ? (int) order.get(index) : index;
+    }
+
+    private void ensureOrder() {
+        if (order == null) {
+            order = new LongArray();
+            for (int i = 0; i < size; i++) {
+                order.add(i);
+            }
+        }
+    }
+
+    private static byte recordType(final String mdkey, final List<String> mdkeys, final Map<String, Integer> mdkeyCodes) {
+        if (mdkey == null) {
+            return 0;
+        }
+        Integer code = mdkeyCodes.get(mdkey);
+        if (code == null) {
+            if (mdkeys.size() == MAX_RECORD_TYPES) {
+                throw new FPException("An off heap DataSet supports up to " + (MAX_RECORD_TYPES - 1) + " record types");
+            }
+            code = mdkeys.size();
+            mdkeys.add(mdkey);
+            mdkeyCodes.put(mdkey, code);
+        }
+        return (byte) code.intValue();
+    }
+
+    // --------------------------------------------------------------- serialization
+
+    private long write(final Row row) {
+        final EncodedRow encoded = new EncodedRow(row);
+        final byte recordType = recordType(row.getMdkey(), mdkeys, mdkeyCodes);
+        final long address = allocate(encoded.length);
+        encoded.put(chunks.get((int) (address >>> 32)), (int) address, recordType);
+        return address;
+    }
+
+    private static byte[] typed(final TypedValues tv, final int count) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(count * 13);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (int i = 0; i < count; i++) {
+                if (tv.hasLong(i)) {
+                    writeTyped(out, i, LONG, tv.getLong(i));
+                } else if (tv.hasDouble(i)) {
+                    writeTyped(out, i, DOUBLE, Double.doubleToRawLongBits(tv.getDouble(i)));
+                } else if (tv.hasDate(i)) {
+                    writeTyped(out, i, DATE, tv.getDateMillis(i));
+                } else if (tv.hasBoolean(i)) {
+                    writeTyped(out, i, BOOLEAN, tv.getBoolean(i) ? 1L : 0L);
+                } else if (tv.getLocalDatePattern(i) != null) {
+                    // the epoch day, then the pattern it was converted with
+                    writeTyped(out, i, LOCAL_DATE, tv.getLocalDateEpochDay(i));
+                    final byte[] pattern = tv.getLocalDatePattern(i).getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(pattern.length);
+                    out.write(pattern);
+                } else if (tv.hasBigDecimal(i)) {
+                    // kept as text, a BigDecimal has no fixed size form
+                    final byte[] text = tv.getBigDecimal(i).toString().getBytes(StandardCharsets.ISO_8859_1);
+                    out.writeInt(i);
+                    out.writeByte(DECIMAL);
+                    out.writeInt(text.length);
+                    out.write(text);
+                }
+            }
+        } catch (final IOException e) {
+            throw new FPException("Cannot serialize typed values", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeTyped(final DataOutputStream out, final int column, final byte kind, final long bits) throws IOException {
+        out.writeInt(column);
+        out.writeByte(kind);
+        out.writeLong(bits);
+    }
+
+    private long allocate(final int length) {
+        ByteBuffer chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+        if (chunk == null || chunk.capacity() - chunkPosition < length) {
+            // each chunk twice the size of the last one, up to chunkSize
+            final int next = chunk == null ? INITIAL_CHUNK_SIZE : (int) Math.min(chunkSize, 2L * chunk.capacity());
+            chunk = newChunk(Math.max(length, Math.min(next, chunkSize)));
+            chunks.add(chunk);
+            chunkPosition = 0;
+            allocated += chunk.capacity();
+        }
+        final long address = (long) (chunks.size() - 1) << 32 | chunkPosition;
+        chunkPosition += length;
+        return address;
+    }
+
+    private ByteBuffer newChunk(final int capacity) {
+        if (!mapped) {
+            try {
+                return ByteBuffer.allocateDirect(capacity);
+            } catch (final OutOfMemoryError e) {
+                // over -XX:MaxDirectMemorySize, carry on in mapped files
+                mapped = true;
+            }
+        }
+        try {
+            final File file = File.createTempFile("flatpack", ".rows");
+            file.deleteOnExit();
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+                // the mapping stays valid once the channel is closed
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            } finally {
+                // no-op on systems which cannot delete a mapped file, deleteOnExit covers them
+                file.delete();
+            }
+        } catch (final IOException e) {
+            throw new FPException("Cannot map a temporary file for the rows", e);
+        }
+    }
+
+    private static void put(final ByteBuffer chunk, final int position, final byte[] bytes) {
+        final ByteBuffer dup = chunk.duplicate();
+        dup.position(position);
+        dup.put(bytes);
+    }
+
+    private static boolean isLatin1(final String s) {
+        if (s != null) {
+            for (int i = 0; i < s.length(); i++) {
+                if (s.charAt(i) > 0xFF) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A row serialized, ready to be put at an address.
+     */
+    private static final class EncodedRow {
+        private final int rowNumber;
+        private final int count;
+        private final int flags;
+        private final byte[][] encoded;
+        private final byte[] typed;
+        private final boolean raw;
+        private final int length;
+
+        private EncodedRow(final Row row) {
+            rowNumber = row.getRowNumber();
+            count = row.getColumnCount();
+            final String[] values = new String[count];
+            boolean latin1 = true;
+            for (int i = 0; i < count; i++) {
+                values[i] = row.getValue(i);
+                latin1 &= isLatin1(values[i]);
+            }
+            final String rawData = row.getRawData();
+            latin1 &= isLatin1(rawData);
+            encoded = new byte[count + 1][];
+            int textLength = 0;
+            for (int i = 0; i <= count; i++) {
+                final String s = i < count ? values[i] : rawData;
+                if (s != null) {
+                    encoded[i] = s.getBytes(latin1 ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+                    textLength += encoded[i].length;
+                }
+            }
+            typed = row.getTypedValues() != null ? typed(row.getTypedValues(), count) : null;
+            raw = rawData != null;
+
+            int f = 0;
+            if (row.isEmpty()) {
+                f |= FLAG_EMPTY;
+            }
+            if (raw) {
+                f |= FLAG_RAW;
+            }
+            if (typed != null) {
+                f |= FLAG_TYPED;
+                if (row.getTypedValues().isStrictNumericParse()) {
+                    f |= FLAG_STRICT;
+                }
+            }
+            if (!latin1) {
+                f |= FLAG_UTF8;
+            }
+            flags = f;
+            final long total = (long) HEADER + 4L * count + (raw ? 4 : 0) + (typed != null ? 4 + typed.length : 0) + textLength;
+            if (total > Integer.MAX_VALUE) {
+                throw new FPException("Row " + rowNumber + " is too large for an off heap DataSet");
+            }
+            length = (int) total;
+        }
+
+        private void put(final ByteBuffer chunk, final int position, final byte recordType) {
+            int p = position;
+            chunk.putInt(p, rowNumber);
+            chunk.put(p + 4, recordType);
+            chunk.put(p + 5, (byte) flags);
+            chunk.putInt(p + 6, count);
+            p += HEADER;
+            int end = 0;
+            for (int i = 0; i < count; i++) {
+                if (encoded[i] == null) {
+                    chunk.putInt(p, end | NULL_MARK);
+                } else {
+                    end += encoded[i].length;
+                    chunk.putInt(p, end);
+                }
+                p += 4;
+            }
+            if (raw) {
+                chunk.putInt(p, end + encoded[count].length);
+                p += 4;
+            }
+            if (typed != null) {
+                chunk.putInt(p, typed.length);
+                p += 4;
+                OffHeapRowStore.put(chunk, p, typed);
+                p += typed.length;
+            }
+            for (final byte[] b : encoded) {
+                if (b != null) {
+                    OffHeapRowStore.put(chunk, p, b);
+                    p += b.length;
+                }
+            }
+        }
+    }
+
+    /**
+     * Row reading its columns from the chunk holding it.
+     */
+    private final class OffHeapRow extends Row {
+        private int physical;
+        private long address;
+        private ByteBuffer chunk;
+        private int offset;
+        private int count;
+        private int flags;
+        private int textStart;
+
+        private OffHeapRow(final int physical) {
+            point(physical);
+        }
+
+        private void point(final int physical) {
+            this.physical = physical;
+            address = addresses.get(physical);
+            chunk = chunks.get((int) (address >>> 32));
+            offset = (int) address;
+            count = chunk.getInt(offset + 6);
+            flags = chunk.get(offset + 5);
+            int p = offset + HEADER + 4 * count;
+            if ((flags & FLAG_RAW) != 0) {
+                p += 4;
+            }
+            final int typedStart = p;
+            if ((flags & FLAG_TYPED) != 0) {
+                p += 4 + chunk.getInt(p);
+            }
+            textStart = p;
+            setRowNumber(chunk.getInt(offset));
+            setMdkey(mdkeys.get(chunk.get(offset + 4) & 0xFF));
+            setEmpty((flags & FLAG_EMPTY) != 0);
+            setTypedValues((flags & FLAG_TYPED) != 0 ? readTyped(typedStart) : null);
+        }
+
+        private OffHeapRowStore store() {
+            return OffHeapRowStore.this;
+        }
+
+        /**
+         * Follows the row if it was re-written by setValue through another view.
+         */
+        private void refresh() {
+            if (addresses.get(physical) != address) {
+                point(physical);
+            }
+        }
+
+        @Override
+        public String getValue(final int colPosition) {
+            refresh();
+            if (colPosition < 0 || colPosition >= count) {
+                throw new IndexOutOfBoundsException("Index: " + colPosition + ", Size: " + count);
+            }
+            final int end = chunk.getInt(offset + HEADER + 4 * colPosition);
+            if ((end & NULL_MARK) != 0) {
+                return null;
+            }
+            final int start = colPosition == 0 ? 0 : chunk.getInt(offset + HEADER + 4 * (colPosition - 1)) & ~NULL_MARK;
+            return text(start, end);
+        }
+
+        @Override
+        public void setValue(final int columnIndex, final String value) {
+            refresh();
+            if (columnIndex < 0 || columnIndex >= count) {
+                throw new IndexOutOfBoundsException("Index: " + columnIndex + ", Size: " + count);
+            }
+            final Row copy = new Row();
+            copy.setCols(getCols());
+            copy.setValue(columnIndex, value);
+            copy.setRowNumber(getRowNumber());
+            copy.setMdkey(getMdkey());
+            copy.setEmpty(isEmpty());
+            copy.setRawData(getRawData());
+            final TypedValues tv = getTypedValues();
+            if (tv != null) {
+                tv.clear(columnIndex);
+                copy.setTypedValues(tv);
+            }
+            addresses.set(physical, write(copy));
+            point(physical);
+        }
+
+        @Override
+        public TypedValues getTypedValues() {
+            refresh();
+            return super.getTypedValues();
+        }
+
+        @Override
+        public int getColumnCount() {
+            refresh();
+            return count;
+        }
+
+        @Override
+        public String getRawData() {
+            refresh();
+            if ((flags & FLAG_RAW) == 0) {
+                return null;
+            }
+            final int start = count == 0 ? 0 : chunk.getInt(offset + HEADER + 4 * (count - 1)) & ~NULL_MARK;
+            return text(start, chunk.getInt(offset + HEADER + 4 * count));
+        }
+
+        @Override
+        public void setCols(final List<String> cols) {
+            throw new UnsupportedOperationException("setCols() is not supported on an off heap row");
+        }
+
+        @Override
+        public void addColumn(final String colValue) {
+            throw new UnsupportedOperationException("addColumn() is not supported on an off heap row");
+        }
+
+        @Override
+        public void addColumn(final List<String> cols) {
+            throw new UnsupportedOperationException("addColumn() is not supported on an off heap row");
+        }
+
+        private String text(final int start, final int end) {
+            final int len = end - start;
+            if (len == 0) {
+                return "";
+            }
+            final byte[] bytes = new byte[len];
+            final ByteBuffer dup = chunk.duplicate();
+            dup.position(textStart + start);
+            dup.get(bytes);
+            return new String(bytes, (flags & FLAG_UTF8) != 0 ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1);
+        }
+
+        private TypedValues readTyped(final int position) {
+            final TypedValues tv = new TypedValues(count, (flags & FLAG_STRICT) != 0);
+            final int end = position + 4 + chunk.getInt(position);
+            int p = position + 4;
+            while (p < end) {
+                final int column = chunk.getInt(p);
+                final byte kind = chunk.get(p + 4);
+                p += 5;
+                if (kind == DECIMAL) {
+                    final byte[] text = new byte[chunk.getInt(p)];
+                    final ByteBuffer dup = chunk.duplicate();
+                    dup.position(p + 4);
+                    dup.get(text);
+                    tv.putBigDecimal(column, new BigDecimal(new String(text, StandardCharsets.ISO_8859_1)));
+                    p += 4 + text.length;
+                    continue;
+                }
+                final long bits = chunk.getLong(p);
+                p += 8;
+                if (kind == LOCAL_DATE) {
+                    final byte[] pattern = new byte[chunk.getInt(p)];
+                    final ByteBuffer dup = chunk.duplicate();
+                    dup.position(p + 4);
+                    dup.get(pattern);
+                    tv.putLocalDate(column, new String(pattern, StandardCharsets.UTF_8), bits);
+                    p += 4 + pattern.length;
+                    continue;
+                }
+                switch (kind) {
+                case LONG:
+                    tv.putLong(column, bits);
+                    break;
+                case DOUBLE:
+                    tv.putDouble(column, Double.longBitsToDouble(bits));
+                    break;
+                case DATE:
+                    tv.putDateMillis(column, bits);
+                    break;
+                case BOOLEAN:
+                    tv.putBoolean(column, bits != 0L);
+                    break;
+                default:
+                    break;
+                }
+            }
+            return tv;
+        }
+    }
+
+    /**
+     * Growable array of longs in direct memory.
+     */
+    private static final class LongArray {
+        private static final int SEGMENT_SHIFT = 17;
+        private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+        private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+        private final List<ByteBuffer> segments = new ArrayList<>();
+        private int size;
+
+        private void add(final long value) {
+            if ((size >>> SEGMENT_SHIFT) == segments.size()) {
+                segments.add(ByteBuffer.allocateDirect(SEGMENT_SIZE * 8));
+            }
+            set(size++, value);
+        }
+
+        /**
+         * Reads longs written in a file, straight into new segments.
+         */
+        private void read(final FileChannel channel, final long position, final int count) throws IOException {
+            long p = position;
+            for (int done = 0; done < count; done += SEGMENT_SIZE) {
+                final ByteBuffer segment = ByteBuffer.allocateDirect(SEGMENT_SIZE * 8);
+                segment.limit(Math.min(SEGMENT_SIZE, count - done) * 8);
+                readFully(channel, segment, p);
+                p += segment.limit();
+                segment.clear();
+                segments.add(segment);
+            }
+            size = count;
+        }
+
+        private long get(final int index) {
+            return segments.get(index >>> SEGMENT_SHIFT).getLong((index & SEGMENT_MASK) << 3);
+        }
+
+        private void set(final int index, final long value) {
+            segments.get(index >>> SEGMENT_SHIFT).putLong((index & SEGMENT_MASK) << 3, value);
+        }
+
+        private void remove(final int index) {
+            for (int i = index; i < size - 1; i++) {
+                set(i, get(i + 1));
+            }
+            size--;
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private long allocatedBytes() {
+            return (long) segments.size() * SEGMENT_SIZE * 8;
+        }
+    }
+}
@@ -32,7 +32,10 @@
  */
 package net.sf.flatpack.structure;
 
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 
 /**
@@ -42,8 +45,25 @@ import java.util.List;
  * @author Paul Zepernick
  */
 public class Row {
-    /** List to hold all columns that exist in the row */
-    private List<String> cols = new ArrayList<>();
+    private static final byte[] NO_DATA = new byte[0];
+    private static final char[] NO_ENDS = new char[0];
+
+    /**
+     * The values of all columns back to back, in Latin-1 while every char of the row fits,
+     * else in UTF-8.  One array per row instead of a String (and its array) per column.
+     */
+    private byte[] data = NO_DATA;
+
+    /** end offset of each column in data, as chars while data is under 64K */
+    private char[] ends = NO_ENDS;
+
+    /** replaces ends for rows of 64K or more */
+    private int[] wideEnds;
+
+    private boolean utf8;
+
+    /** columns set to null */
+    private BitSet nulls;
 
     /** Row number in flat file */
     private int rowNumber;
@@ -55,6 +75,9 @@ public class Row {
 
     private String rawData;
 
+    /** typed conversions of the columns, only present when the parser caches them */
+    private TypedValues typedValues;
+
     /**
      * Adds a column to a row
      *
@@ -62,7 +85,7 @@ public class Row {
      *            String value to add to the row
      */
     public void addColumn(final String colValue) {
-        cols.add(colValue);
+        append(new String[] { colValue });
     }
 
     /**
@@ -72,7 +95,7 @@ public class Row {
      *            List of Strings to append to the row
      */
     public void addColumn(final List<String> columns) {
-        cols.addAll(columns);
+        append(columns.toArray(new String[columns.size()]));
     }
 
     /**
@@ -83,7 +106,19 @@ public class Row {
      * @return String value of column
      */
     public String getValue(final int colPosition) {
-        return cols.get(colPosition);
+        final int count = getColumnCount();
+        if (colPosition < 0 || colPosition >= count) {
+            throw new IndexOutOfBoundsException("Index: " + colPosition + ", Size: " + count);
+        }
+        if (nulls != null && nulls.get(colPosition)) {
+            return null;
+        }
+        final int start = colPosition == 0 ? 0 : end(colPosition - 1);
+        final int len = end(colPosition) - start;
+        if (len == 0) {
+            return "";
+        }
+        return new String(data, start, len, utf8 ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1);
     }
 
     /**
@@ -95,7 +130,113 @@ public class Row {
      *            String column value
      */
     public void setValue(final int columnIndex, final String value) {
-        cols.set(columnIndex, value);
+        final String[] values = values();
+        if (columnIndex < 0 || columnIndex >= values.length) {
+            throw new IndexOutOfBoundsException("Index: " + columnIndex + ", Size: " + values.length);
+        }
+        values[columnIndex] = value;
+        clearColumns();
+        append(values);
+        if (typedValues != null) {
+            typedValues.clear(columnIndex);
+        }
+    }
+
+    /**
+     * Replaces the columns with values held back to back in a char array.  The arrays of the
+     * row are re-used when they are large enough, so a row refilled for each record of a file
+     * stops allocating once it has seen the longest record.
+     *
+     * @param chars
+     *            the values, back to back from index 0
+     * @param valueEnds
+     *            end of each value in chars
+     * @param count
+     *            number of columns
+     * @since 4.1
+     */
+    public void setColumns(final char[] chars, final int[] valueEnds, final int count) {
+        final int length = count == 0 ? 0 : valueEnds[count - 1];
+        boolean latin1 = true;
+        for (int i = 0; i < length && latin1; i++) {
+            latin1 = chars[i] <= 0xFF;
+        }
+        // a UTF-8 char takes up to 3 bytes, a surrogate pair 4 for 2 chars
+        final int maxBytes = latin1 ? length : 3 * length;
+        if (data.length < maxBytes) {
+            data = new byte[Math.max(maxBytes, data.length + (data.length >> 1))];
+        }
+        final boolean wide = maxBytes > Character.MAX_VALUE;
+        if (wide) {
+            if (wideEnds == null || wideEnds.length != count) {
+                wideEnds = new int[count];
+            }
+            ends = NO_ENDS;
+        } else {
+            if (ends.length != count) {
+                ends = new char[count];
+            }
+            wideEnds = null;
+        }
+        utf8 = !latin1;
+        nulls = null;
+        typedValues = null;
+
+        int pos = 0;
+        int start = 0;
+        for (int c = 0; c < count; c++) {
+            final int end = valueEnds[c];
+            pos = latin1 ? putLatin1(chars, start, end, pos) : putUtf8(chars, start, end, pos);
+            if (wide) {
+                wideEnds[c] = pos;
+            } else {
+                ends[c] = (char) pos;
+            }
+            start = end;
+        }
+    }
+
+    private int putLatin1(final char[] chars, final int start, final int end, final int pos) {
+        int p = pos;
+        for (int i = start; i < end; i++) {
+            data[p++] = (byte) chars[i];
+        }
+        return p;
+    }
+
+    private int putUtf8(final char[] chars, final int start, final int end, final int pos) {
+        int p = pos;
+        for (int i = start; i < end; i++) {
+            final char ch = chars[i];
+            if (ch < 0x80) {
+                data[p++] = (byte) ch;
+            } else if (ch < 0x800) {
+                data[p++] = (byte) (0xC0 | ch >> 6);
+                data[p++] = (byte) (0x80 | ch & 0x3F);
+            } else if (Character.isHighSurrogate(ch) && i + 1 < end && Character.isLowSurrogate(chars[i + 1])) {
+                final int cp = Character.toCodePoint(ch, chars[++i]);
+                data[p++] = (byte) (0xF0 | cp >> 18);
+                data[p++] = (byte) (0x80 | cp >> 12 & 0x3F);
+                data[p++] = (byte) (0x80 | cp >> 6 & 0x3F);
+                data[p++] = (byte) (0x80 | cp & 0x3F);
+            } else if (Character.isSurrogate(ch)) {
+                // unpaired, replaced as String.getBytes does
+                data[p++] = (byte) '?';
+            } else {
+                data[p++] = (byte) (0xE0 | ch >> 12);
+                data[p++] = (byte) (0x80 | ch >> 6 & 0x3F);
+                data[p++] = (byte) (0x80 | ch & 0x3F);
+            }
+        }
+        return p;
+    }
+
+    /**
+     * @return the number of columns in the row, same as getCols().size()
+     * @since 4.1
+     */
+    public int getColumnCount() {
+        return wideEnds != null ? wideEnds.length : ends.length;
     }
 
     /**
@@ -118,12 +259,13 @@ public class Row {
     }
 
     /**
-     * Returns the cols for the row.
+     * Returns the cols for the row.  The List reads from and writes to the row: set() is
+     * setValue() and add() at the end is addColumn().
      *
      * @return Vector
      */
     public List<String> getCols() {
-        return cols;
+        return new Columns();
     }
 
     /**
@@ -133,7 +275,9 @@ public class Row {
      *            Vector of Strings
      */
     public void setCols(final List<String> cols) {
-        this.cols = cols;
+        clearColumns();
+        append(cols.toArray(new String[cols.size()]));
+        this.typedValues = null;
     }
 
     /**
@@ -186,4 +330,182 @@ public class Row {
     public void setRawData(final String rawData) {
         this.rawData = rawData;
     }
+
+    /**
+     * Typed values already converted from the columns of this row
+     *
+     * @return the typedValues, null if none have been converted
+     */
+    public TypedValues getTypedValues() {
+        return typedValues;
+    }
+
+    /**
+     * Typed values already converted from the columns of this row
+     *
+     * @param typedValues the typedValues to set
+     */
+    public void setTypedValues(final TypedValues typedValues) {
+        this.typedValues = typedValues;
+    }
+
+    /**
+     * @return an estimate of the heap retained by this row, in bytes
+     * @since 4.1
+     */
+    public long getEstimatedSize() {
+        // object header and fields, then the arrays with their own headers
+        long size = 56 + 16 + data.length + 16 + 2L * ends.length;
+        if (wideEnds != null) {
+            size += 16 + 4L * wideEnds.length;
+        }
+        if (nulls != null) {
+            size += 40;
+        }
+        if (rawData != null) {
+            size += 40 + rawData.length();
+        }
+        if (typedValues != null) {
+            size += typedValues.estimatedSize();
+        }
+        return size;
+    }
+
+    private int end(final int column) {
+        return wideEnds != null ? wideEnds[column] : ends[column];
+    }
+
+    private String[] values() {
+        final String[] values = new String[getColumnCount()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = getValue(i);
+        }
+        return values;
+    }
+
+    private void clearColumns() {
+        data = NO_DATA;
+        ends = NO_ENDS;
+        wideEnds = null;
+        utf8 = false;
+        nulls = null;
+    }
+
+    /**
+     * Encodes the values after the existing columns.
+     */
+    private void append(final String[] values) {
+        if (!utf8 && !isLatin1(values)) {
+            // re-encode the whole row in UTF-8
+            final String[] existing = values();
+            final String[] all = Arrays.copyOf(existing, existing.length + values.length);
+            System.arraycopy(values, 0, all, existing.length, values.length);
+            clearColumns();
+            utf8 = true;
+            encode(all);
+        } else {
+            encode(values);
+        }
+    }
+
+    private void encode(final String[] values) {
+        final int count = getColumnCount();
+        byte[][] encoded = null;
+        int added = 0;
+        for (int i = 0; i < values.length; i++) {
+            final String s = values[i];
+            if (s == null) {
+                continue;
+            }
+            if (utf8) {
+                if (encoded == null) {
+                    encoded = new byte[values.length][];
+                }
+                encoded[i] = s.getBytes(StandardCharsets.UTF_8);
+                added += encoded[i].length;
+            } else {
+                added += s.length();
+            }
+        }
+
+        int pos = count == 0 ? 0 : end(count - 1);
+        final byte[] newData = Arrays.copyOf(data, pos + added);
+        final int[] newEnds = new int[count + values.length];
+        for (int i = 0; i < count; i++) {
+            newEnds[i] = end(i);
+        }
+        for (int i = 0; i < values.length; i++) {
+            final String s = values[i];
+            if (s == null) {
+                if (nulls == null) {
+                    nulls = new BitSet();
+                }
+                nulls.set(count + i);
+            } else if (utf8) {
+                System.arraycopy(encoded[i], 0, newData, pos, encoded[i].length);
+                pos += encoded[i].length;
+            } else {
+                for (int c = 0; c < s.length(); c++) {
+                    newData[pos++] = (byte) s.charAt(c);
+                }
+            }
+            newEnds[count + i] = pos;
+        }
+
+        data = newData;
+        if (pos <= Character.MAX_VALUE) {
+            final char[] packed = new char[newEnds.length];
+            for (int i = 0; i < packed.length; i++) {
+                packed[i] = (char) newEnds[i];
+            }
+            ends = packed;
+            wideEnds = null;
+        } else {
+            wideEnds = newEnds;
+            ends = NO_ENDS;
+        }
+    }
+
+    private static boolean isLatin1(final String[] values) {
+        for (final String s : values) {
+            if (s != null) {
+                for (int i = 0; i < s.length(); i++) {
+                    if (s.charAt(i) > 0xFF) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * List view of the columns.
+     */
+    private final class Columns extends AbstractList<String> {
+        @Override
+        public String get(final int index) {
+            return getValue(index);
+        }
+
+        @Override
+        public String set(final int index, final String element) {
+            final String previous = getValue(index);
+            setValue(index, element);
+            return previous;
+        }
+
+        @Override
+        public void add(final int index, final String element) {
+            if (index != size()) {
+                throw new UnsupportedOperationException("columns can only be added at the end of the row");
+            }
+            addColumn(element);
+        }
+
+        @Override
+        public int size() {
+            return getColumnCount();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,126 @@
+/*
+ * ObjectLab, http://www.objectlab.co.uk/open is supporting FlatPack.
+ *
+ * Based in London, we are world leaders in the design and development
+ * of bespoke applications for the securities financing markets.
+ *
+ * <a href="http://www.objectlab.co.uk/open">Click here to learn more</a>
+ *           ___  _     _           _   _          _
+ *          / _ \| |__ (_) ___  ___| |_| |    __ _| |__
+ *         | | | | '_ \| |/ _ \/ __| __| |   / _` | '_ \
+ *         | |_| | |_) | |  __/ (__| |_| |__| (_| | |_) |
+ *          \___/|_.__// |\___|\___|\__|_____\__,_|_.__/
+ *                   |__/
+ *
+ *                     www.ObjectLab.co.uk
+ *
+ * $Id: ColorProvider.java 74 2006-10-24 22:19:05Z benoitx $
+ *
+ * Copyright 2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sf.flatpack.structure;
+
+import java.util.Comparator;
+
+/**
+ * Storage of the rows of a DefaultDataSet, in DataSet order.
+ *
+ * A store may keep its rows in another form than Row objects, get() then returns a Row
+ * view that reads from the store; changes made with setValue on that view are kept.
+ *
+ * @since 4.1
+ */
+public interface RowStore {
+    /** a List of Row objects, the default */
+    String LIST = "list";
+
+    /** rows kept column by column, see ColumnarRowStore */
+    String COLUMNAR = "columnar";
+
+    /** rows serialized outside of the heap in direct memory, see OffHeapRowStore */
+    String OFF_HEAP = "offheap";
+
+    /** rows serialized outside of the heap in memory mapped temporary files, see OffHeapRowStore */
+    String MAPPED = "mapped";
+
+    /** rows kept on the heap up to a memory budget, the others in a temporary file, see SpillRowStore */
+    String SPILL = "spill";
+
+    /**
+     * Adds a row at the end of the store.  The store may copy the row, do not change it
+     * afterwards.
+     *
+     * @param row
+     *          the row to add
+     */
+    void add(Row row);
+
+    /**
+     * @param index
+     *          position of the row, 0 based
+     * @return the row or a view of it
+     * @exception IndexOutOfBoundsException if there is no such row
+     */
+    Row get(int index);
+
+    /**
+     * Replaces the row at a position.
+     *
+     * @param index
+     *          position of the row, 0 based
+     * @param row
+     *          the new row, or the view returned by get(index)
+     */
+    void set(int index, Row row);
+
+    /**
+     * Removes the row at a position, the following rows move up by one.
+     *
+     * @param index
+     *          position of the row, 0 based
+     */
+    void remove(int index);
+
+    /**
+     * @return the number of rows
+     */
+    int size();
+
+    /**
+     * Removes all rows.
+     */
+    void clear();
+
+    /**
+     * Sorts the rows, the sort is stable.
+     *
+     * @param comparator
+     *          the order of the rows
+     */
+    void sort(Comparator<? super Row> comparator);
+
+    /**
+     * @return an estimate of the heap retained by the rows of the store, in bytes
+     */
+    long getEstimatedSize();
+
+    /**
+     * @return true if get() may be called by several threads at once while the store is not
+     *         changed, false if the readers have to synchronize on the store
+     */
+    default boolean isConcurrentReadSafe() {
+        return true;
+    }
+}
@@ -0,0 +1,547 @@
+/*
+ * ObjectLab, http://www.objectlab.co.uk/open is supporting FlatPack.
+ *
+ * Based in London, we are world leaders in the design and development
+ * of bespoke applications for the securities financing markets.
+ *
+ * <a href="http://www.objectlab.co.uk/open">Click here to learn more</a>
+ *           ___  _     _           _   _          _
+ *          / _ \| |__ (_) ___  ___| |_| |    __ _| |__
+ *         | | | | '_ \| |/ _ \/ __| __| |   / _` | '_ \
+ *         | |_| | |_) | |  __/ (__| |_| |__| (_| | |_) |
+ *          \___/|_.__// |\___|\___|\__|_____\__,_|_.__/
+ *                   |__/
+ *
+ *                     www.ObjectLab.co.uk
+ *
+ * $Id: ColorProvider.java 74 2006-10-24 22:19:05Z benoitx $
+ *
+ * Copyright 2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sf.flatpack.structure;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import net.sf.flatpack.util.FPException;
+
+/**
+ * RowStore keeping the rows on the heap up to a memory budget, beyond which blocks of rows are
+ * written to a temporary file and read back when needed.  Random access (absolute(), previous(),
+ * orderRows()) then works on files larger than the heap, as long as the rows accessed together
+ * fit in the budget.
+ *
+ * Rows are grouped in blocks of consecutive rows, as added by the parser.  The blocks in memory
+ * are kept in least recently used order; once their estimated size exceeds the budget, the least
+ * recently used blocks are written to the file (unless an unchanged copy is there already) and
+ * dropped.  The block holding the row just accessed always stays in memory.  A block changed by
+ * set() is written again at the end of the file, the space of its older copy is only released
+ * by clear().
+ *
+ * Typed values cached on a row when it is read do not make its block change, they may be
+ * dropped with the block and are then converted again.
+ *
+ * sort() is an external merge sort: blocks of rows are sorted into runs written to another
+ * temporary file, which are merged back into new blocks reading each run in sequence.
+ *
+ * @since 4.1
+ */
+public class SpillRowStore implements RowStore {
+    /** 64MB */
+    public static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    private static final int FLAG_EMPTY = 1;
+    private static final int FLAG_TYPED = 2;
+
+    private final long memoryBudget;
+    private final int blockSize;
+
+    private List<Block> blocks;
+    /** blocks in memory, least recently used first */
+    private LinkedHashMap<Block, Block> resident;
+    private long residentBytes;
+    /** position in the DataSet to physical row, null while they are the same */
+    private int[] order;
+    private int size;
+    /** rows added, including the removed ones */
+    private int added;
+
+    private File file;
+    private RandomAccessFile spill;
+
+    /**
+     * A store with the default budget and block size.
+     */
+    public SpillRowStore() {
+        this(DEFAULT_MEMORY_BUDGET, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param memoryBudget
+     *          estimated bytes of rows kept in memory, see Row.getEstimatedSize()
+     * @param blockSize
+     *          number of rows written to or read from the file at a time
+     */
+    public SpillRowStore(final long memoryBudget, final int blockSize) {
+        if (memoryBudget <= 0) {
+            throw new IllegalArgumentException("memoryBudget must be positive: " + memoryBudget);
+        }
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be positive: " + blockSize);
+        }
+        this.memoryBudget = memoryBudget;
+        this.blockSize = blockSize;
+        clear();
+    }
+
+    @Override
+    public void add(final Row row) {
+        Block block = blocks.isEmpty() ? null : blocks.get(blocks.size() - 1);
+        if (block == null || block.count == blockSize) {
+            block = new Block(blockSize);
+            blocks.add(block);
+            resident.put(block, block);
+        } else {
+            load(block);
+        }
+        block.rows[block.count++] = row;
+        block.dirty = true;
+        final long bytes = row.getEstimatedSize();
+        block.bytes += bytes;
+        residentBytes += bytes;
+
+        if (order != null) {
+            if (size == order.length) {
+                order = Arrays.copyOf(order, size + (size >> 1) + 1);
+            }
+            order[size] = added;
+        }
+        added++;
+        size++;
+        evict(block);
+    }
+
+    @Override
+    public Row get(final int index) {
+        final int physical = physical(index);
+        final Block block = blocks.get(physical / blockSize);
+        load(block);
+        return block.rows[physical % blockSize];
+    }
+
+    @Override
+    public void set(final int index, final Row row) {
+        final int physical = physical(index);
+        final Block block = blocks.get(physical / blockSize);
+        load(block);
+        block.rows[physical % blockSize] = row;
+        block.dirty = true;
+        // the row may be the one already held, changed by setValue
+        residentBytes -= block.bytes;
+        block.bytes = 0;
+        for (int i = 0; i < block.count; i++) {
+            block.bytes += block.rows[i].getEstimatedSize();
+        }
+        residentBytes += block.bytes;
+        evict(block);
+    }
+
+    @Override
+    public void remove(final int index) {
+        physical(index);
+        ensureOrder();
+        System.arraycopy(order, index + 1, order, index, size - index - 1);
+        size--;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public final void clear() {
+        reset();
+        if (spill != null) {
+            try {
+                spill.close();
+            } catch (final IOException e) {
+                throw new FPException("Cannot close " + file, e);
+            } finally {
+                spill = null;
+                file.delete();
+                file = null;
+            }
+        }
+    }
+
+    /**
+     * Sorts blockSize rows at a time, in the DataSet order, into runs written to a temporary
+     * file, then merges the runs into new blocks in the sorted order.  Each run is read in
+     * sequence, with a buffer sized for all of them to fit in the budget.  Rows that compare
+     * equal keep their order.  Until a block has been spilled the rows are sorted in memory.
+     */
+    @Override
+    public void sort(final Comparator<? super Row> comparator) {
+        if (spill == null) {
+            // all the rows are in memory
+            final Row[] rows = new Row[size];
+            for (int i = 0; i < size; i++) {
+                rows[i] = get(i);
+            }
+            Arrays.sort(rows, comparator);
+            reset();
+            for (final Row row : rows) {
+                add(row);
+            }
+            return;
+        }
+
+        final File runFile;
+        try {
+            runFile = File.createTempFile("flatpack", ".runs");
+        } catch (final IOException e) {
+            throw new FPException("Cannot create a temporary file to sort the rows", e);
+        }
+        runFile.deleteOnExit();
+        try (RandomAccessFile runs = new RandomAccessFile(runFile, "rw")) {
+            final List<Run> sortedRuns = new ArrayList<>();
+            long position = 0;
+            for (int start = 0; start < size; start += blockSize) {
+                // the order only ever skips removed rows, the blocks are read in sequence
+                final Row[] rows = new Row[Math.min(blockSize, size - start)];
+                for (int i = 0; i < rows.length; i++) {
+                    rows[i] = get(start + i);
+                }
+                Arrays.sort(rows, comparator);
+                final byte[] bytes = serialize(rows, rows.length);
+                runs.write(bytes);
+                sortedRuns.add(new Run(runs, sortedRuns.size(), position, position + bytes.length));
+                position += bytes.length;
+            }
+
+            // every row is in a run, the blocks and their file are no longer needed
+            reset();
+            spill.setLength(0);
+
+            final int bufferSize = (int) Math.max(4096, Math.min(1 << 20, memoryBudget / 2 / sortedRuns.size()));
+            final PriorityQueue<Run> heads = new PriorityQueue<>(sortedRuns.size(), (a, b) -> {
+                final int c = comparator.compare(a.row, b.row);
+                return c != 0 ? c : Integer.compare(a.index, b.index);
+            });
+            for (final Run run : sortedRuns) {
+                run.buffer = new byte[bufferSize];
+                if (run.next()) {
+                    heads.add(run);
+                }
+            }
+            while (!heads.isEmpty()) {
+                final Run run = heads.poll();
+                add(run.row);
+                if (run.next()) {
+                    heads.add(run);
+                }
+            }
+        } catch (final IOException e) {
+            throw new FPException("Cannot sort the rows through " + runFile, e);
+        } finally {
+            runFile.delete();
+        }
+    }
+
+    /**
+     * @return the estimated size of the rows in memory and of the blocks and order kept
+     */
+    @Override
+    public long getEstimatedSize() {
+        return residentBytes + resident.size() * (16 + 4L * blockSize) + 48L * blocks.size() + (order != null ? 16 + 4L * order.length : 0L);
+    }
+
+    /**
+     * A read may load a block and spill another one.
+     */
+    @Override
+    public boolean isConcurrentReadSafe() {
+        return false;
+    }
+
+    /**
+     * @return the number of bytes written to the temporary file so far
+     */
+    public long getSpilledBytes() {
+        try {
+            return spill != null ? spill.length() : 0L;
+        } catch (final IOException e) {
+            throw new FPException("Cannot read the length of " + file, e);
+        }
+    }
+
+    private void reset() {
+        blocks = new ArrayList<>();
+        resident = new LinkedHashMap<>(16, 0.75f, true);
+        residentBytes = 0;
+        order = null;
+        size = 0;
+        added = 0;
+    }
+
+    private int physical(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return order != null ? order[index] : index;
+    }
+
+    private void ensureOrder() {
+        if (order == null) {
+            order = new int[Math.max(size, 16)];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+        }
+    }
+
+    private void load(final Block block) {
+        if (block.rows != null) {
+            resident.get(block);
+            return;
+        }
+        final byte[] bytes = new byte[block.length];
+        try {
+            spill.seek(block.position);
+            spill.readFully(bytes);
+            final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            block.rows = new Row[blockSize];
+            for (int i = 0; i < block.count; i++) {
+                block.rows[i] = readRow(in);
+            }
+        } catch (final IOException e) {
+            throw new FPException("Cannot read rows back from " + file, e);
+        }
+        resident.put(block, block);
+        residentBytes += block.bytes;
+        evict(block);
+    }
+
+    private void evict(final Block keep) {
+        final Iterator<Block> it = resident.keySet().iterator();
+        while (residentBytes > memoryBudget && it.hasNext()) {
+            final Block block = it.next();
+            if (block == keep) {
+                continue;
+            }
+            if (block.dirty) {
+                write(block);
+            }
+            block.rows = null;
+            residentBytes -= block.bytes;
+            it.remove();
+        }
+    }
+
+    private void write(final Block block) {
+        final byte[] bytes = serialize(block.rows, block.count);
+        block.bytes = 0;
+        for (int i = 0; i < block.count; i++) {
+            block.bytes += block.rows[i].getEstimatedSize();
+        }
+        try {
+            if (spill == null) {
+                file = File.createTempFile("flatpack", ".spill");
+                file.deleteOnExit();
+                spill = new RandomAccessFile(file, "rw");
+            }
+            block.position = spill.length();
+            block.length = bytes.length;
+            spill.seek(block.position);
+            spill.write(bytes);
+        } catch (final IOException e) {
+            throw new FPException("Cannot write rows to " + file, e);
+        }
+        block.dirty = false;
+    }
+
+    private static byte[] serialize(final Row[] rows, final int count) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (int i = 0; i < count; i++) {
+                writeRow(out, rows[i]);
+            }
+        } catch (final IOException e) {
+            throw new FPException("Cannot serialize rows", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeRow(final DataOutputStream out, final Row row) throws IOException {
+        final int count = row.getColumnCount();
+        final TypedValues tv = row.getTypedValues();
+        out.writeInt(row.getRowNumber());
+        writeString(out, row.getMdkey());
+        out.writeByte((row.isEmpty() ? FLAG_EMPTY : 0) | (tv != null ? FLAG_TYPED : 0));
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            writeString(out, row.getValue(i));
+        }
+        writeString(out, row.getRawData());
+        if (tv != null) {
+            tv.write(out);
+        }
+    }
+
+    private static Row readRow(final DataInputStream in) throws IOException {
+        final Row row = new Row();
+        row.setRowNumber(in.readInt());
+        row.setMdkey(readString(in));
+        final int flags = in.readByte();
+        row.setEmpty((flags & FLAG_EMPTY) != 0);
+        final String[] values = new String[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readString(in);
+        }
+        row.addColumn(Arrays.asList(values));
+        row.setRawData(readString(in));
+        if ((flags & FLAG_TYPED) != 0) {
+            row.setTypedValues(TypedValues.read(in));
+        }
+        return row;
+    }
+
+    private static void writeString(final DataOutputStream out, final String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+        } else {
+            // not writeUTF, a column can be longer than 64K
+            final byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(b.length);
+            out.write(b);
+        }
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] b = new byte[length];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A sorted run in the run file, read a buffer at a time from its own position.
+     */
+    private static final class Run extends InputStream {
+        private final RandomAccessFile file;
+        /** rank of the run, keeps equal rows in their order */
+        private final int index;
+        private final long end;
+        private final DataInputStream in = new DataInputStream(this);
+        private long position;
+        private byte[] buffer;
+        private int offset;
+        private int limit;
+        /** the current row */
+        private Row row;
+
+        private Run(final RandomAccessFile file, final int index, final long start, final long end) {
+            this.file = file;
+            this.index = index;
+            this.position = start;
+            this.end = end;
+        }
+
+        /**
+         * @return false at the end of the run
+         */
+        private boolean next() throws IOException {
+            if (offset == limit && position == end) {
+                row = null;
+                return false;
+            }
+            row = readRow(in);
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (offset == limit && !fill()) {
+                return -1;
+            }
+            return buffer[offset++] & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (offset == limit && !fill()) {
+                return -1;
+            }
+            final int n = Math.min(len, limit - offset);
+            System.arraycopy(buffer, offset, b, off, n);
+            offset += n;
+            return n;
+        }
+
+        private boolean fill() throws IOException {
+            final int n = (int) Math.min(buffer.length, end - position);
+            if (n <= 0) {
+                return false;
+            }
+            file.seek(position);
+            file.readFully(buffer, 0, n);
+            position += n;
+            offset = 0;
+            limit = n;
+            return true;
+        }
+    }
+
+    /**
+     * Consecutive rows, in memory or in the file.
+     */
+    private static final class Block {
+        private Row[] rows;
+        private int count;
+        /** estimated size of the rows */
+        private long bytes;
+        /** changed since last written */
+        private boolean dirty;
+        private long position;
+        private int length;
+
+        private Block(final int blockSize) {
+            rows = new Row[blockSize];
+        }
+    }
+}
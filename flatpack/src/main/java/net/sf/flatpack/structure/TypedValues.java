@@ -0,0 +1,279 @@
+/*
+ * ObjectLab, http://www.objectlab.co.uk/open is supporting FlatPack.
+ *
+ * Based in London, we are world leaders in the design and development
+ * of bespoke applications for the securities financing markets.
+ *
+ * <a href="http://www.objectlab.co.uk/open">Click here to learn more</a>
+ *           ___  _     _           _   _          _
+ *          / _ \| |__ (_) ___  ___| |_| |    __ _| |__
+ *         | | | | '_ \| |/ _ \/ __| __| |   / _` | '_ \
+ *         | |_| | |_) | |  __/ (__| |_| |__| (_| | |_) |
+ *          \___/|_.__// |\___|\___|\__|_____\__,_|_.__/
+ *                   |__/
+ *
+ *                     www.ObjectLab.co.uk
+ *
+ * $Id: ColorProvider.java 74 2006-10-24 22:19:05Z benoitx $
+ *
+ * Copyright 2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sf.flatpack.structure;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Typed values converted from the String columns of a Row, kept next to the Row so that
+ * repeated getInt()/getLong()/getDouble()/getBigDecimal()/getDate() calls on the same cell
+ * do not strip and parse the String again.  Columns with a type declared in the mapping
+ * are converted into this structure by the parser.
+ *
+ * Numbers and dates are held in a single primitive long per column (doubles as their raw
+ * bits, dates as epoch millis or epoch days), only BigDecimal values need an object slot.
+ * Each column remembers the last conversion made on it.
+ *
+ * @since 4.1
+ */
+public final class TypedValues {
+    private static final byte NONE = 0;
+    private static final byte INTEGRAL = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte DECIMAL = 3;
+    private static final byte DATE = 4;
+    private static final byte LOCAL_DATE = 5;
+    private static final byte BOOLEAN = 6;
+
+    private final boolean strictNumericParse;
+
+    private byte[] kinds;
+
+    private long[] values;
+
+    /** BigDecimal values or the pattern used for a LOCAL_DATE, allocated on first use */
+    private Object[] objects;
+
+    /**
+     * @param columnCount
+     *          number of columns in the row
+     * @param strictNumericParse
+     *          the numeric parsing mode the values were converted with
+     */
+    public TypedValues(final int columnCount, final boolean strictNumericParse) {
+        this.strictNumericParse = strictNumericParse;
+        this.kinds = new byte[columnCount];
+        this.values = new long[columnCount];
+    }
+
+    /**
+     * @return the numeric parsing mode the values were converted with
+     */
+    public boolean isStrictNumericParse() {
+        return strictNumericParse;
+    }
+
+    public boolean hasLong(final int column) {
+        return kindOf(column) == INTEGRAL;
+    }
+
+    public long getLong(final int column) {
+        return values[column];
+    }
+
+    public void putLong(final int column, final long value) {
+        put(column, INTEGRAL, value, null);
+    }
+
+    public boolean hasDouble(final int column) {
+        return kindOf(column) == DOUBLE;
+    }
+
+    public double getDouble(final int column) {
+        return Double.longBitsToDouble(values[column]);
+    }
+
+    public void putDouble(final int column, final double value) {
+        put(column, DOUBLE, Double.doubleToRawLongBits(value), null);
+    }
+
+    public boolean hasBigDecimal(final int column) {
+        return kindOf(column) == DECIMAL;
+    }
+
+    public BigDecimal getBigDecimal(final int column) {
+        return (BigDecimal) objects[column];
+    }
+
+    public void putBigDecimal(final int column, final BigDecimal value) {
+        put(column, DECIMAL, 0L, value);
+    }
+
+    /**
+     * @param column
+     *          column index
+     * @return true if a date in the default yyyyMMdd format has been converted for the column
+     */
+    public boolean hasDate(final int column) {
+        return kindOf(column) == DATE;
+    }
+
+    public long getDateMillis(final int column) {
+        return values[column];
+    }
+
+    public void putDateMillis(final int column, final long millis) {
+        put(column, DATE, millis, null);
+    }
+
+    /**
+     * @param column
+     *          column index
+     * @param pattern
+     *          the pattern the date is requested with
+     * @return true if a LocalDate has been converted for the column using the same pattern
+     */
+    public boolean hasLocalDate(final int column, final String pattern) {
+        return kindOf(column) == LOCAL_DATE && pattern.equals(objects[column]);
+    }
+
+    /**
+     * @param column
+     *          column index
+     * @return the pattern of the LocalDate converted for the column, null if there is none
+     */
+    public String getLocalDatePattern(final int column) {
+        return kindOf(column) == LOCAL_DATE ? (String) objects[column] : null;
+    }
+
+    public long getLocalDateEpochDay(final int column) {
+        return values[column];
+    }
+
+    public void putLocalDate(final int column, final String pattern, final long epochDay) {
+        put(column, LOCAL_DATE, epochDay, pattern);
+    }
+
+    public boolean hasBoolean(final int column) {
+        return kindOf(column) == BOOLEAN;
+    }
+
+    public boolean getBoolean(final int column) {
+        return values[column] != 0L;
+    }
+
+    public void putBoolean(final int column, final boolean value) {
+        put(column, BOOLEAN, value ? 1L : 0L, null);
+    }
+
+    /**
+     * Forgets the value held for a column, called when the String value changes.
+     *
+     * @param column
+     *          column index
+     */
+    public void clear(final int column) {
+        if (column < kinds.length) {
+            kinds[column] = NONE;
+            if (objects != null) {
+                objects[column] = null;
+            }
+        }
+    }
+
+    long estimatedSize() {
+        long size = 32 + 16 + kinds.length + 16 + 8L * values.length;
+        if (objects != null) {
+            size += 16 + 4L * objects.length;
+            for (final Object o : objects) {
+                if (o != null) {
+                    size += 48;
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Writes the values held, to be read back by read().
+     */
+    void write(final DataOutput out) throws IOException {
+        int held = 0;
+        for (final byte kind : kinds) {
+            if (kind != NONE) {
+                held++;
+            }
+        }
+        out.writeBoolean(strictNumericParse);
+        out.writeInt(kinds.length);
+        out.writeInt(held);
+        for (int i = 0; i < kinds.length; i++) {
+            if (kinds[i] == NONE) {
+                continue;
+            }
+            out.writeInt(i);
+            out.writeByte(kinds[i]);
+            if (kinds[i] == DECIMAL || kinds[i] == LOCAL_DATE) {
+                out.writeUTF(objects[i].toString());
+            }
+            if (kinds[i] != DECIMAL) {
+                out.writeLong(values[i]);
+            }
+        }
+    }
+
+    static TypedValues read(final DataInput in) throws IOException {
+        final boolean strict = in.readBoolean();
+        final TypedValues tv = new TypedValues(in.readInt(), strict);
+        final int held = in.readInt();
+        for (int n = 0; n < held; n++) {
+            final int column = in.readInt();
+            final byte kind = in.readByte();
+            if (kind == DECIMAL) {
+                tv.put(column, kind, 0L, new BigDecimal(in.readUTF()));
+            } else if (kind == LOCAL_DATE) {
+                final String pattern = in.readUTF();
+                tv.put(column, kind, in.readLong(), pattern);
+            } else {
+                tv.put(column, kind, in.readLong(), null);
+            }
+        }
+        return tv;
+    }
+
+    private byte kindOf(final int column) {
+        return column < kinds.length ? kinds[column] : NONE;
+    }
+
+    private void put(final int column, final byte kind, final long value, final Object object) {
+        if (column >= kinds.length) {
+            kinds = Arrays.copyOf(kinds, column + 1);
+            values = Arrays.copyOf(values, column + 1);
+            if (objects != null) {
+                objects = Arrays.copyOf(objects, column + 1);
+            }
+        }
+        if (object != null && objects == null) {
+            objects = new Object[kinds.length];
+        }
+        values[column] = value;
+        if (objects != null) {
+            objects[column] = object;
+        }
+        kinds[column] = kind;
+    }
+}
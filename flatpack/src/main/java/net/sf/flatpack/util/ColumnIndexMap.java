@@ -0,0 +1,197 @@
+/*
+ * ObjectLab, http://www.objectlab.co.uk/open is supporting FlatPack.
+ *
+ * Based in London, we are world leaders in the design and development
+ * of bespoke applications for the securities financing markets.
+ *
+ * <a href="http://www.objectlab.co.uk/open">Click here to learn more</a>
+ *           ___  _     _           _   _          _
+ *          / _ \| |__ (_) ___  ___| |_| |    __ _| |__
+ *         | | | | '_ \| |/ _ \/ __| __| |   / _` | '_ \
+ *         | |_| | |_) | |  __/ (__| |_| |__| (_| | |_) |
+ *          \___/|_.__// |\___|\___|\__|_____\__,_|_.__/
+ *                   |__/
+ *
+ *                     www.ObjectLab.co.uk
+ *
+ * $Id: ColorProvider.java 74 2006-10-24 22:19:05Z benoitx $
+ *
+ * Copyright 2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sf.flatpack.util;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import net.sf.flatpack.structure.ColumnMetaData;
+
+/**
+ * Read-only map of column name to column index, as built by ParserUtils.buidColumnIndexMap.
+ *
+ * When the column names are not case sensitive, indexOf hashes and compares the name ignoring
+ * case, char by char, so the lookup does not lower-case.  The last name looked up in each slot of
+ * a small cache is kept with its index, by identity: the same String instance (typically a literal
+ * in the caller's code) is then resolved without hashing at all.  A slot holds an immutable entry
+ * and is overwritten without locking, so the map can be shared by the threads of a parse.
+ *
+ * The entries keep the keys of earlier versions: the column names, lower-cased with the default
+ * Locale when a parser does not want case sensitive names, as written when there is no parser.
+ *
+ * @since 4.1
+ */
+public final class ColumnIndexMap extends AbstractMap<String, Integer> {
+    private static final int CACHE_SIZE = 16;
+
+    private final boolean caseSensitive;
+    private final Map<String, Integer> entries;
+    /** open addressing table of the column names and their index */
+    private final String[] names;
+    private final int[] indices;
+    private final int mask;
+    /** last name looked up in each slot, by identity */
+    private final Cached[] cache = new Cached[CACHE_SIZE];
+
+    /**
+     * @param columns
+     *          the columns, in record order
+     * @param caseSensitive
+     *          false if lookups ignore the case of the column names
+     */
+    public ColumnIndexMap(final List<ColumnMetaData> columns, final boolean caseSensitive) {
+        this(columns, caseSensitive, !caseSensitive);
+    }
+
+    /**
+     * @param lowerCaseKeys
+     *          true if the keys of the entries are the lower-cased column names
+     */
+    ColumnIndexMap(final List<ColumnMetaData> columns, final boolean caseSensitive, final boolean lowerCaseKeys) {
+        this.caseSensitive = caseSensitive;
+        final Map<String, Integer> map = new LinkedHashMap<>();
+        int size = 4;
+        while (size < columns.size() * 2) {
+            size <<= 1;
+        }
+        names = new String[size];
+        indices = new int[size];
+        mask = size - 1;
+
+        int idx = 0;
+        for (final ColumnMetaData meta : columns) {
+            final String colName = meta.getColName();
+            map.put(lowerCaseKeys ? colName.toLowerCase(Locale.getDefault()) : colName, idx);
+            // like the HashMap it replaces, the last of duplicate names wins
+            int slot = hash(colName) & mask;
+            while (names[slot] != null && !matches(names[slot], colName)) {
+                slot = slot + 1 & mask;
+            }
+            names[slot] = colName;
+            indices[slot] = idx++;
+        }
+        entries = Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * @param columnName
+     *          name of the column
+     * @return the index of the column, -1 if there is no such column
+     */
+    public int indexOf(final String columnName) {
+        final int cacheSlot = columnName.hashCode() & CACHE_SIZE - 1;
+        final Cached cached = cache[cacheSlot];
+        if (cached != null && cached.name == columnName) {
+            return cached.index;
+        }
+
+        int idx = -1;
+        int slot = hash(columnName) & mask;
+        String name;
+        while ((name = names[slot]) != null) {
+            if (matches(name, columnName)) {
+                idx = indices[slot];
+                break;
+            }
+            slot = slot + 1 & mask;
+        }
+        // a racy write: the entry is immutable, a lost update only costs a later miss
+        cache[cacheSlot] = new Cached(columnName, idx);
+        return idx;
+    }
+
+    public boolean isCaseSensitive() {
+        return caseSensitive;
+    }
+
+    @Override
+    public Integer get(final Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        final int idx = indexOf((String) key);
+        return idx < 0 ? null : Integer.valueOf(idx);
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return key instanceof String && indexOf((String) key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public Set<Entry<String, Integer>> entrySet() {
+        return entries.entrySet();
+    }
+
+    private int hash(final String s) {
+        if (caseSensitive) {
+            return spread(s.hashCode());
+        }
+        int h = 0;
+        for (int i = 0; i < s.length(); i++) {
+            h = 31 * h + Character.toLowerCase(Character.toUpperCase(s.charAt(i)));
+        }
+        return spread(h);
+    }
+
+    private static int spread(final int h) {
+        return h ^ h >>> 16;
+    }
+
+    private boolean matches(final String name, final String s) {
+        if (caseSensitive) {
+            return name.equals(s);
+        }
+        return name.length() == s.length() && name.regionMatches(true, 0, s, 0, s.length());
+    }
+
+    private static final class Cached {
+        private final String name;
+        private final int index;
+
+        private Cached(final String name, final int index) {
+            this.name = name;
+            this.index = index;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * ObjectLab, http://www.objectlab.co.uk/open is supporting FlatPack.
+ *
+ * Based in London, we are world leaders in the design and development
+ * of bespoke applications for the securities financing markets.
+ *
+ * <a href="http://www.objectlab.co.uk/open">Click here to learn more</a>
+ *           ___  _     _           _   _          _
+ *          / _ \| |__ (_) ___  ___| |_| |    __ _| |__
+ *         | | | | '_ \| |/ _ \/ __| __| |   / _` | '_ \
+ *         | |_| | |_) | |  __/ (__| |_| |__| (_| | |_) |
+ *          \___/|_.__// |\___|\___|\__|_____\__,_|_.__/
+ *                   |__/
+ *
+ *                     www.ObjectLab.co.uk
+ *
+ * $Id: ColorProvider.java 74 2006-10-24 22:19:05Z benoitx $
+ *
+ * Copyright 2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sf.flatpack.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Counts the lines of a file in parallel on its bytes, for files where a line break is a
+ * '\n' byte.  Chunks of the file are counted on the common fork join pool and the lines
+ * crossing their boundaries are joined afterwards.
+ *
+ * @since 4.1
+ */
+public final class LineCounter {
+    private static final int CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private LineCounter() {
+    }
+
+    /**
+     * @param charset
+     *            encoding of the file
+     * @return true if the line breaks and blanks of the encoding are single ASCII bytes,
+     *         and no other char uses those bytes
+     */
+    public static boolean isSupported(final Charset charset) {
+        try {
+            return Arrays.equals("\n\r ".getBytes(charset), new byte[] { '\n', '\r', ' ' })
+                    && (StandardCharsets.UTF_8.equals(charset) || charset.newEncoder().maxBytesPerChar() == 1.0f);
+        } catch (final UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Counts the lines with a char other than whitespace (String.trim()), as a parse reading
+     * the file with BufferedReader.readLine() would.
+     *
+     * @param file
+     *            the file, in an encoding for which isSupported is true
+     * @return the number of non blank lines, -1 if the file has a line ending with a '\r' alone
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    public static long countNonBlankLines(final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file)) {
+            final long size = channel.size();
+            final int chunks = (int) ((size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+            final Chunk[] counted;
+            try {
+                counted = IntStream.range(0, chunks).parallel().mapToObj(i -> count(channel, (long) i * CHUNK_SIZE, size)).toArray(Chunk[]::new);
+            } catch (final UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            long lines = 0;
+            boolean content = false;
+            boolean endsWithCarriageReturn = false;
+            for (final Chunk chunk : counted) {
+                if (chunk.loneCarriageReturn || endsWithCarriageReturn && !chunk.startsWithLineFeed && chunk.length > 0) {
+                    return -1;
+                }
+                if (chunk.lineFeed) {
+                    lines += (content || chunk.leadingContent ? 1 : 0) + chunk.lines;
+                    content = chunk.trailingContent;
+                } else {
+                    content |= chunk.leadingContent;
+                }
+                endsWithCarriageReturn = chunk.endsWithCarriageReturn;
+            }
+            return lines + (content ? 1 : 0);
+        }
+    }
+
+    private static Chunk count(final FileChannel channel, final long position, final long size) {
+        final int length = (int) Math.min(CHUNK_SIZE, size - position);
+        final MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final Chunk chunk = new Chunk();
+        chunk.length = length;
+        boolean content = false;
+        for (int i = 0; i < length; i++) {
+            final int b = buffer.get(i) & 0xFF;
+            if (b == '\n') {
+                if (chunk.lineFeed) {
+                    chunk.lines += content ? 1 : 0;
+                } else {
+                    chunk.lineFeed = true;
+                    chunk.leadingContent = content;
+                }
+                content = false;
+            } else if (b == '\r') {
+                if (i + 1 < length && buffer.get(i + 1) != '\n') {
+                    chunk.loneCarriageReturn = true;
+                }
+            } else if (b > ' ') {
+                content = true;
+            }
+        }
+        if (chunk.lineFeed) {
+            chunk.trailingContent = content;
+        } else {
+            chunk.leadingContent = content;
+        }
+        chunk.startsWithLineFeed = length > 0 && buffer.get(0) == '\n';
+        chunk.endsWithCarriageReturn = length > 0 && buffer.get(length - 1) == '\r';
+        return chunk;
+    }
+
+    private static final class Chunk {
+        private int length;
+        // a '\n' is in the chunk
+        private boolean lineFeed;
+        // non blank chars before the first '\n', or in the whole chunk without one
+        private boolean leadingContent;
+        // non blank lines ending at the second '\n' onwards
+        private long lines;
+        // non blank chars after the last '\n'
+        private boolean trailingContent;
+        private boolean loneCarriageReturn;
+        private boolean startsWithLineFeed;
+        private boolean endsWithCarriageReturn;
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ * ObjectLab, http://www.objectlab.co.uk/open is supporting FlatPack.
+ *
+ * Based in London, we are world leaders in the design and development
+ * of bespoke applications for the securities financing markets.
+ *
+ * <a href="http://www.objectlab.co.uk/open">Click here to learn more</a>
+ *           ___  _     _           _   _          _
+ *          / _ \| |__ (_) ___  ___| |_| |    __ _| |__
+ *         | | | | '_ \| |/ _ \/ __| __| |   / _` | '_ \
+ *         | |_| | |_) | |  __/ (__| |_| |__| (_| | |_) |
+ *          \___/|_.__// |\___|\___|\__|_____\__,_|_.__/
+ *                   |__/
+ *
+ *                     www.ObjectLab.co.uk
+ *
+ * $Id: ColorProvider.java 74 2006-10-24 22:19:05Z benoitx $
+ *
+ * Copyright 2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sf.flatpack.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads the lines of a Reader into a char array re-used from one line to the next, where
+ * BufferedReader.readLine() creates a String per line.  A line ends with \n, \r or \r\n,
+ * which are not part of it.
+ *
+ * @since 4.1
+ */
+public class LineReader implements Closeable {
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final char[] buffer;
+    private int position;
+    private int limit;
+    // chars read before the buffer
+    private long consumed;
+    private boolean skipLineFeed;
+    private char[] line = new char[256];
+    private int length;
+    // byte counting, see setCharset: 1 for a single byte charset, 0 for UTF-8, -1 to encode
+    private boolean byteCounting;
+    private int bytesPerChar;
+    private CharsetEncoder encoder;
+    private ByteBuffer encoded;
+    private long bytes;
+    // chars of the buffer whose bytes are in bytes
+    private int counted;
+
+    public LineReader(final Reader reader) {
+        this(reader, DEFAULT_BUFFER_SIZE);
+    }
+
+    public LineReader(final Reader reader, final int bufferSize) {
+        this.reader = reader;
+        this.buffer = new char[bufferSize];
+    }
+
+    /**
+     * Counts the bytes of the chars read in the encoding of the data source, so that
+     * getByteOffset() gives the position to seek the file to.  To be called before the first
+     * read.
+     *
+     * @param charset
+     *            encoding of the bytes the Reader decodes
+     * @return this LineReader
+     */
+    public LineReader setCharset(final Charset charset) {
+        byteCounting = true;
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            bytesPerChar = 0;
+        } else {
+            encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+            if (encoder.maxBytesPerChar() == 1.0f) {
+                bytesPerChar = 1;
+                encoder = null;
+            } else {
+                bytesPerChar = -1;
+                encoded = ByteBuffer.allocate(1024);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Reads the next line, available through getLine() and getLength() until the next call.
+     *
+     * @return false at the end of the Reader
+     * @throws IOException if the Reader fails
+     */
+    public boolean readLine() throws IOException {
+        length = 0;
+        boolean read = false;
+        while (true) {
+            if (!available()) {
+                return read;
+            }
+            read = true;
+            int i = position;
+            while (i < limit && buffer[i] != '\n' && buffer[i] != '\r') {
+                i++;
+            }
+            append(position, i);
+            if (i < limit) {
+                position = i + 1;
+                if (buffer[i] == '\r') {
+                    if (position < limit) {
+                        // \r\n within the buffer, take both
+                        if (buffer[position] == '\n') {
+                            position++;
+                        }
+                    } else {
+                        skipLineFeed = true;
+                    }
+                }
+                return true;
+            }
+            position = limit;
+        }
+    }
+
+    /**
+     * Reads chars as Reader.read(char[], int, int), from where the last line ended.  As with
+     * a BufferedReader, a \n following a line which ended with \r is skipped.
+     *
+     * @return the number of chars read, -1 at the end of the Reader
+     * @throws IOException if the Reader fails
+     */
+    public int read(final char[] cbuf, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!available()) {
+            return -1;
+        }
+        final int n = Math.min(len, limit - position);
+        System.arraycopy(buffer, position, cbuf, off, n);
+        position += n;
+        return n;
+    }
+
+    /**
+     * @return the next char, -1 at the end of the Reader
+     * @throws IOException if the Reader fails
+     */
+    public int read() throws IOException {
+        return available() ? buffer[position++] : -1;
+    }
+
+    /**
+     * @return the number of chars skipped, less than n only at the end of the Reader
+     * @throws IOException if the Reader fails
+     */
+    public long skip(final long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && available()) {
+            final int count = (int) Math.min(n - skipped, limit - position);
+            position += count;
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    /**
+     * @return true if a char can be read without blocking
+     * @throws IOException if the Reader fails
+     */
+    public boolean ready() throws IOException {
+        return position < limit || reader.ready();
+    }
+
+    /**
+     * @return true if a char is buffered, once the \n of a pending line break is skipped
+     */
+    private boolean available() throws IOException {
+        while (true) {
+            if (position == limit && !fill()) {
+                return false;
+            }
+            if (!skipLineFeed) {
+                return true;
+            }
+            skipLineFeed = false;
+            if (buffer[position] == '\n') {
+                position++;
+            }
+        }
+    }
+
+    private boolean fill() throws IOException {
+        int n;
+        do {
+            n = reader.read(buffer, 0, buffer.length);
+        } while (n == 0);
+        if (n < 0) {
+            return false;
+        }
+        countBytes();
+        consumed += limit;
+        position = 0;
+        counted = 0;
+        limit = n;
+        return true;
+    }
+
+    /**
+     * Adds the bytes of the chars read from the buffer since the last call.
+     */
+    private void countBytes() {
+        if (!byteCounting || counted >= position) {
+            counted = position;
+            return;
+        }
+        if (bytesPerChar == 1) {
+            bytes += position - counted;
+        } else if (bytesPerChar == 0) {
+            for (int i = counted; i < position; i++) {
+                final char c = buffer[i];
+                if (c < 0x80) {
+                    bytes++;
+                } else if (c < 0x800) {
+                    bytes += 2;
+                } else if (Character.isSurrogate(c)) {
+                    // 4 bytes for the pair
+                    bytes += 2;
+                } else {
+                    bytes += 3;
+                }
+            }
+        } else {
+            final CharBuffer in = CharBuffer.wrap(buffer, counted, position - counted);
+            CoderResult result;
+            do {
+                encoded.clear();
+                result = encoder.encode(in, encoded, false);
+                bytes += encoded.position();
+            } while (result.isOverflow());
+        }
+        counted = position;
+    }
+
+    private void append(final int from, final int to) {
+        final int count = to - from;
+        if (length + count > line.length) {
+            line = Arrays.copyOf(line, Math.max(length + count, line.length << 1));
+        }
+        System.arraycopy(buffer, from, line, length, count);
+        length += count;
+    }
+
+    /**
+     * @return the chars of the current line, from index 0 to getLength(); the array is re-used
+     */
+    public char[] getLine() {
+        return line;
+    }
+
+    /**
+     * @return the number of chars of the current line
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @return number of chars read up to the end of the current line, with its line break
+     *         unless isLineFeedPending()
+     */
+    public long getOffset() {
+        return consumed + position;
+    }
+
+    /**
+     * @return number of bytes read up to the end of the current line, as getOffset() counts
+     *         chars; -1 unless setCharset was called
+     */
+    public long getByteOffset() {
+        if (!byteCounting) {
+            return -1L;
+        }
+        countBytes();
+        return bytes;
+    }
+
+    /**
+     * @return true if the current line ended with \r at the end of the buffer, the \n that
+     *         may follow has not been read yet
+     */
+    public boolean isLineFeedPending() {
+        return skipLineFeed;
+    }
+
+    /**
+     * Skips a \n at the start of the Reader, for a Reader positioned where isLineFeedPending()
+     * was true.
+     */
+    public void skipLineFeed() {
+        skipLineFeed = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * ObjectLab, http://www.objectlab.co.uk/open is supporting FlatPack.
+ *
+ * Based in London, we are world leaders in the design and development
+ * of bespoke applications for the securities financing markets.
+ *
+ * <a href="http://www.objectlab.co.uk/open">Click here to learn more</a>
+ *           ___  _     _           _   _          _
+ *          / _ \| |__ (_) ___  ___| |_| |    __ _| |__
+ *         | | | | '_ \| |/ _ \/ __| __| |   / _` | '_ \
+ *         | |_| | |_) | |  __/ (__| |_| |__| (_| | |_) |
+ *          \___/|_.__// |\___|\___|\__|_____\__,_|_.__/
+ *                   |__/
+ *
+ *                     www.ObjectLab.co.uk
+ *
+ * $Id: ColorProvider.java 74 2006-10-24 22:19:05Z benoitx $
+ *
+ * Copyright 2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package net.sf.flatpack.util;
+
+/**
+ * Splits a delimited line held in a char array, the rules of ParserUtils.splitLine without a
+ * String per line: the values are handed over as ranges of a block re-used from one line to
+ * the next.  ParserUtils.splitLine and the ForwardCursor both split with it.
+ *
+ * Unqualified values have their leading and trailing spaces and tabs removed unless
+ * preserved, doubled qualifiers inside a qualified value become one, and a qualifier not
+ * followed by a delimiter is part of the value.
+ *
+ * @since 4.1
+ */
+public final class LineSplitter {
+    /**
+     * Receives the values of a line, in order.
+     */
+    public interface Values {
+        /**
+         * @param chars
+         *          holds the value, only valid during the call
+         * @param start
+         *          first char of the value
+         * @param end
+         *          end of the value, exclusive
+         */
+        void add(char[] chars, int start, int end);
+    }
+
+    private final char delimiter;
+    private final char qualifier;
+    private final boolean preserveLeadingWhitespace;
+    private final boolean preserveTrailingWhitespace;
+    // block of the value being split
+    private char[] block;
+
+    public LineSplitter(final char delimiter, final char qualifier, final boolean preserveLeadingWhitespace, final boolean preserveTrailingWhitespace) {
+        this(delimiter, qualifier, preserveLeadingWhitespace, preserveTrailingWhitespace, 256);
+    }
+
+    /**
+     * @param initialBlockSize
+     *          chars to hold the value being split, grown for a longer line
+     */
+    public LineSplitter(final char delimiter, final char qualifier, final boolean preserveLeadingWhitespace, final boolean preserveTrailingWhitespace,
+            final int initialBlockSize) {
+        this.delimiter = delimiter;
+        this.qualifier = qualifier;
+        this.preserveLeadingWhitespace = preserveLeadingWhitespace;
+        this.preserveTrailingWhitespace = preserveTrailingWhitespace;
+        this.block = new char[initialBlockSize];
+    }
+
+    /**
+     * Splits chars[from, to) into values; an empty line gives one empty value.
+     *
+     * @param chars
+     *          the line, without its line break
+     * @param from
+     *          first char of the line
+     * @param to
+     *          end of the line, exclusive
+     * @param values
+     *          receives the values
+     */
+    public void split(final char[] chars, final int from, final int to, final Values values) {
+        int start = from;
+        int end = to;
+        if (delimiter != '\t' && delimiter != ' ') {
+            // skip the trim for these delimiters, doing the trim will mess up the parse
+            // on empty records which contain just the delimiter
+            if (!preserveTrailingWhitespace) {
+                end = rTrim(chars, start, end);
+            } else if (!preserveLeadingWhitespace) {
+                start = lTrim(chars, start, end);
+            }
+        }
+        if (start == end) {
+            values.add(block, 0, 0);
+            return;
+        }
+        if (block.length < end - start) {
+            block = new char[Math.max(end - start, block.length << 1)];
+        }
+
+        boolean insideQualifier = false;
+        char previousChar = 0;
+        boolean blockWasInQualifier = false;
+        int sizeSelected = 0;
+        for (int i = start; i < end; i++) {
+            final char currentChar = chars[i];
+            if (currentChar == '\uFEFF') {
+                continue; // skip bad char
+            }
+            if ((currentChar != delimiter || insideQualifier) && currentChar != qualifier) {
+                previousChar = currentChar;
+                block[sizeSelected++] = currentChar;
+                continue;
+            }
+
+            if (currentChar == delimiter) {
+                // we've found the delimiter (eg ,)
+                if (!insideQualifier) {
+                    int blockStart = 0;
+                    int blockEnd = sizeSelected;
+                    if (!blockWasInQualifier) {
+                        if (!preserveLeadingWhitespace) {
+                            blockStart = lTrim(block, blockStart, blockEnd);
+                        }
+                        if (!preserveTrailingWhitespace) {
+                            blockEnd = rTrim(block, blockStart, blockEnd);
+                        }
+                    }
+                    if (blockEnd - blockStart == 1 && (block[blockStart] == delimiter || block[blockStart] == qualifier)) {
+                        values.add(block, 0, 0);
+                    } else {
+                        values.add(block, blockStart, collapseQualifiers(blockStart, blockEnd));
+                    }
+                    blockWasInQualifier = false;
+                    sizeSelected = 0;
+                }
+            } else if (currentChar == qualifier) {
+                if (!insideQualifier && previousChar != qualifier) {
+                    if (previousChar == delimiter || previousChar == 0 || previousChar == ' ') {
+                        insideQualifier = true;
+                        sizeSelected = 0;
+                    } else {
+                        block[sizeSelected++] = currentChar;
+                    }
+                } else if (insideQualifier && i + 1 < end && chars[i + 1] == qualifier) {
+                    // doubled qualifier, collapsed when the block is added
+                    block[sizeSelected++] = qualifier;
+                    block[sizeSelected++] = qualifier;
+                    i++;
+                    previousChar = qualifier;
+                    continue;
+                } else {
+                    if (i + 1 < end && delimiter != ' ') {
+                        // this is used to allow unescaped qualifiers to be contained within the element
+                        // do not run this check is a space is being used as a delimiter
+                        // loop until we find a char that is not a space, or we reach the end of the line.
+                        int next = i + 1;
+                        char charToCheck = chars[next];
+                        while (charToCheck == ' ') {
+                            next++;
+                            if (next == end) {
+                                break;
+                            }
+                            charToCheck = chars[next];
+                        }
+                        if (charToCheck != delimiter) {
+                            previousChar = currentChar;
+                            block[sizeSelected++] = currentChar;
+                            continue;
+                        }
+                    }
+                    insideQualifier = false;
+                    blockWasInQualifier = true;
+                    // last column (e.g. finishes with ")
+                    if (i == end - 1) {
+                        values.add(block, 0, collapseQualifiers(0, sizeSelected));
+                        sizeSelected = 0;
+                    }
+                }
+            }
+            previousChar = currentChar;
+        }
+
+        if (sizeSelected > 0) {
+            int blockEnd = collapseQualifiers(0, sizeSelected);
+            int blockStart = 0;
+            if (blockWasInQualifier) {
+                if (block[blockEnd - 1] == qualifier) {
+                    blockEnd--;
+                }
+            } else {
+                if (!preserveLeadingWhitespace) {
+                    blockStart = lTrim(block, blockStart, blockEnd);
+                }
+                if (!preserveTrailingWhitespace) {
+                    blockEnd = rTrim(block, blockStart, blockEnd);
+                }
+            }
+            values.add(block, blockStart, blockEnd);
+        } else if (chars[end - 1] == delimiter) {
+            // the line ends with a delimiter, there is one more empty column
+            values.add(block, 0, 0);
+        }
+    }
+
+    /**
+     * Replaces doubled qualifiers in the block by one.
+     *
+     * @return the new end of the block
+     */
+    private int collapseQualifiers(final int start, final int end) {
+        int to = start;
+        for (int i = start; i < end; i++) {
+            block[to++] = block[i];
+            if (block[i] == qualifier && i + 1 < end && block[i + 1] == qualifier) {
+                i++;
+            }
+        }
+        return to;
+    }
+
+    private static int lTrim(final char[] chrs, final int start, final int end) {
+        int i = start;
+        while (i < end && (chrs[i] == ' ' || chrs[i] == '\t')) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int rTrim(final char[] chrs, final int start, final int end) {
+        int i = end;
+        while (i > start && (chrs[i - 1] == ' ' || chrs[i - 1] == '\t')) {
+            i--;
+        }
+        return i;
+    }
+}
@@ -33,11 +33,15 @@
 package net.sf.flatpack.util;
 
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.net.URL;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -54,6 +58,7 @@ import net.sf.flatpack.Parser;
 import net.sf.flatpack.converter.Converter;
 import net.sf.flatpack.converter.FPConvertException;
 import net.sf.flatpack.structure.ColumnMetaData;
+import net.sf.flatpack.structure.TypedValues;
 import net.sf.flatpack.xml.MetaData;
 import net.sf.flatpack.xml.XMLRecordElement;
 
@@ -108,146 +113,8 @@ public final class ParserUtils {
             return list;
         }
 
-        String trimmedLine;
-        if (delimiter == '\t' || delimiter == ' ') {
-            // skip the trim for these delimiters, doing the trim will mess up the parse
-            // on empty records which contain just the delimiter
-            trimmedLine = line;
-        } else {
-            trimmedLine = line;
-            if (!preserveLeadingWhitespace) {
-                trimmedLine = ParserUtils.lTrim(line);
-            }
-            if (!preserveTrailingWhitespace) {
-                trimmedLine = ParserUtils.rTrim(line);
-            }
-        }
-
-        final int size = trimmedLine.length();
-
-        if (size == 0) {
-            list.add("");
-            return list;
-        }
-
-        boolean insideQualifier = false;
-        char previousChar = 0;
-        boolean blockWasInQualifier = false;
-
-        final String doubleQualifier = "" + qualifier + qualifier;
-
-        char[] newBlock = new char[size];
-        int sizeSelected = 0;
-
-        for (int i = 0; i < size; i++) {
-
-            final char currentChar = trimmedLine.charAt(i);
-
-            if (currentChar == '\uFEFF') {
-                continue; // skip bad char
-            }
-
-            if ((currentChar != delimiter || insideQualifier) && currentChar != qualifier) {
-                previousChar = currentChar;
-                newBlock[sizeSelected++] = currentChar;
-                continue;
-            }
-
-            if (currentChar == delimiter) {
-                // we've found the delimiter (eg ,)
-                if (!insideQualifier) {
-                    String trimmed = String.valueOf(newBlock, 0, sizeSelected);
-                    if (!blockWasInQualifier) {
-                        if (!preserveLeadingWhitespace) {
-                            trimmed = ParserUtils.lTrim(trimmed);
-                        }
-                        if (!preserveTrailingWhitespace) {
-                            trimmed = ParserUtils.rTrim(trimmed);
-                        }
-                    }
-
-                    if (trimmed == null || trimmed.length() == 1 && (trimmed.charAt(0) == delimiter || trimmed.charAt(0) == qualifier)) {
-                        list.add("");
-                    } else {
-                        list.add(replace(trimmed, doubleQualifier, String.valueOf(qualifier), -1));
-                    }
-                    blockWasInQualifier = false;
-                    sizeSelected = 0;
-                }
-            } else if (currentChar == qualifier) {
-                if (!insideQualifier && previousChar != qualifier) {
-                    if (previousChar == delimiter || previousChar == 0 || previousChar == ' ') {
-                        insideQualifier = true;
-                        sizeSelected = 0;
-                    } else {
-                        newBlock[sizeSelected++] = currentChar;
-                    }
-                } else if (insideQualifier && currentChar == qualifier && i + 1 < size && trimmedLine.charAt(i + 1) == qualifier) {
-                    newBlock[sizeSelected++] = qualifier;
-                    newBlock[sizeSelected++] = qualifier;
-                    i += 1;
-                    previousChar = qualifier;
-                    continue;
-                } else {
-                    if (i + 1 < size && delimiter != ' ') {
-                        // this is used to allow unescaped qualifiers to be contained within the element
-                        // do not run this check is a space is being used as a delimiter
-                        // we don't want to trim the delimiter off
-                        // loop until we find a char that is not a space, or we reach the end of the line.
-                        int start = i + 1;
-                        char charToCheck = trimmedLine.charAt(start);
-                        while (charToCheck == ' ') {
-                            start++;
-                            if (start == size) {
-                                break;
-                            }
-                            charToCheck = trimmedLine.charAt(start);
-                        }
-
-                        if (charToCheck != delimiter) {
-                            previousChar = currentChar;
-                            newBlock[sizeSelected++] = currentChar;
-                            continue;
-                        }
-
-                    }
-                    insideQualifier = false;
-                    blockWasInQualifier = true;
-                    // last column (e.g. finishes with ")
-                    if (i == size - 1) {
-                        String str = String.valueOf(newBlock, 0, sizeSelected);
-                        str = replace(str, doubleQualifier, String.valueOf(qualifier), -1);
-                        list.add(str);
-                        sizeSelected = 0;
-                    }
-                }
-            }
-            previousChar = currentChar;
-        }
-
-        if (sizeSelected > 0) {
-            String str = String.valueOf(newBlock, 0, sizeSelected);
-            str = replace(str, doubleQualifier, String.valueOf(qualifier), -1);
-            if (blockWasInQualifier) {
-                if (str.charAt(str.length() - 1) == qualifier) {
-                    list.add(str.substring(0, str.length() - 1));
-                } else {
-                    list.add(str);
-                }
-            } else {
-                String s = str;
-                if (!preserveLeadingWhitespace) {
-                    s = ParserUtils.lTrim(s);
-                }
-                if (!preserveTrailingWhitespace) {
-                    s = ParserUtils.rTrim(s);
-                }
-                list.add(s);
-            }
-        } else if (trimmedLine.charAt(size - 1) == delimiter) {
-            list.add("");
-        }
-
+        new LineSplitter(delimiter, qualifier, preserveLeadingWhitespace, preserveTrailingWhitespace, line.length()).split(line.toCharArray(), 0,
+                line.length(), (chars, start, end) -> list.add(new String(chars, start, end - start)));
         return list;
     }
 
@@ -443,13 +310,32 @@ public final class ParserUtils {
      * @return boolean
      */
     public static boolean isMultiLine(final char[] chrArry, final char delimiter, final char qualifier) {
+        return isMultiLine(chrArry, chrArry.length, delimiter, qualifier);
+    }
+
+    /**
+     * Same as isMultiLine(char[], char, char) for the first length chars of the array, so
+     * that a buffer can be re-used from one line to the next.
+     *
+     * @param chrArry -
+     *            char data of the line, from index 0
+     * @param length -
+     *            number of chars of the line
+     * @param delimiter -
+     *            delimiter being used
+     * @param qualifier -
+     *            qualifier being used
+     * @return boolean
+     * @since 4.1
+     */
+    public static boolean isMultiLine(final char[] chrArry, final int length, final char delimiter, final char qualifier) {
 
         // check if the last char is the qualifier, if so then this a good
         // chance it is not multiline
-        if (chrArry[chrArry.length - 1] != qualifier) {
+        if (chrArry[length - 1] != qualifier) {
             // could be a potential line break
             boolean qualiFound = false;
-            for (int i = chrArry.length - 1; i >= 0; i--) {
+            for (int i = length - 1; i >= 0; i--) {
                 if (chrArry[i] == ' ') {
                     continue;
                 }
@@ -463,12 +349,12 @@ public final class ParserUtils {
                         // I think we have to go back to the beginning of the line and see if we are inside a qualified
                         // field or not?
                         boolean qualifiedContent = chrArry[0] == qualifier;
-                        for (int index = 0; index < chrArry.length; index++) {
+                        for (int index = 0; index < length; index++) {
                             final char currentChar = chrArry[index];
                             qualifiedContent = currentChar == qualifier;
                             if (qualifiedContent) {
                                 // go until first occurence of closing qualifierdelimiter combination
-                                for (; chrArry.length > 0 && index < chrArry.length - 1; index++) {
+                                for (; length > 0 && index < length - 1; index++) {
                                     if (chrArry[index] == delimiter && chrArry[++index] == qualifier) {
                                         qualifiedContent = false;
                                     }
@@ -505,8 +391,8 @@ public final class ParserUtils {
             // data,data,"
             // data
             // /data"
-            for (int i = chrArry.length - 1; i >= 0; i--) {
-                if (i == chrArry.length - 1 || chrArry[i] == ' ') {
+            for (int i = length - 1; i >= 0; i--) {
+                if (i == length - 1 || chrArry[i] == ' ') {
                     // skip the first char, or any spaces we come across between
                     // the delimiter and qualifier
                     continue;
@@ -516,12 +402,12 @@ public final class ParserUtils {
                     // I think we have to go back to the beginning of the line and see if we are inside a qualified
                     // field or not?
                     boolean qualifiedContent = chrArry[0] == qualifier;
-                    for (int index = 0; index < chrArry.length; index++) {
+                    for (int index = 0; index < length; index++) {
                         final char currentChar = chrArry[index];
                         qualifiedContent = currentChar == qualifier;
                         if (qualifiedContent) {
                             // go until first occurence of closing qualifierdelimiter combination
-                            for (; index < chrArry.length; index++) {
+                            for (; index < length; index++) {
                                 if (chrArry[index] == delimiter && chrArry[++index] == qualifier) {
                                     qualifiedContent = false;
                                 }
@@ -537,6 +423,47 @@ public final class ParserUtils {
         return false;
     }
 
+    /**
+     * Determines if a multiline record goes on past the given line, which follows its first
+     * line.  The record ends on this line when it ends with a single qualifier, or when a
+     * qualifier followed by a delimiter closes the value and the rest of the line does not
+     * start another multiline value.
+     *
+     * @param chrArry -
+     *            trimmed char data of the line, from index 0
+     * @param length -
+     *            number of chars of the line, more than 0
+     * @param delimiter -
+     *            delimiter being used
+     * @param qualifier -
+     *            qualifier being used
+     * @return true if the record continues on the next line
+     * @since 4.1
+     */
+    public static boolean isMultiLineContinued(final char[] chrArry, final int length, final char delimiter, final char qualifier) {
+        // excel will escape a quote in the data with another quote: here is some data ""
+        if (chrArry[length - 1] == qualifier && !(length > 1 && chrArry[length - 2] == qualifier)) {
+            // it is safe to assume we have reached the end of the line break
+            return false;
+        }
+        // looking for a qualifier followed by a delimiter
+        boolean qualiFound = false;
+        for (int i = 0; i < length; i++) {
+            final char c = chrArry[i];
+            if (qualiFound) {
+                if (c == ' ') {
+                    continue;
+                } else if (c == delimiter) {
+                    return isMultiLine(chrArry, length, delimiter, qualifier);
+                }
+                qualiFound = false;
+            } else if (c == qualifier) {
+                qualiFound = true;
+            }
+        }
+        return true;
+    }
+
     public static Map<String, Integer> calculateRecordLengths(final MetaData columnMD) {
         final Map<String, Integer> recordLengths = new HashMap<>();
 
@@ -608,16 +535,15 @@ public final class ParserUtils {
     }
 
     public static int getColumnIndex(final String key, final MetaData columnMD, final String colName, final boolean columNameCaseSensitive) {
-        int idx = -1;
-        String column = colName;
-        if (!columNameCaseSensitive) {
-            column = colName.toLowerCase(Locale.getDefault());
+        // a ColumnIndexMap built for a case insensitive parser ignores the case itself
+        int idx = columnMD.getColumnIndex(key, colName);
+        if (idx < 0 && !columNameCaseSensitive) {
+            idx = columnMD.getColumnIndex(key, colName.toLowerCase(Locale.getDefault()));
         }
-        idx = columnMD.getColumnIndex(key, column);
 
         if (idx < 0) {
             throw new NoSuchElementException(
-                    "Column [" + column + "] does not exist, check case/spelling." + (key != null ? " key:[" + key + "]" : ""));
+                    "Column [" + colName + "] does not exist, check case/spelling." + (key != null ? " key:[" + key + "]" : ""));
         }
         return idx;
     }
@@ -667,22 +593,13 @@ public final class ParserUtils {
      * @param p
      *         Reference to Parser which can provide additional options on how the
      *         map should be build.  This can be NULL.
-     * @return a new Map
+     * @return a new ColumnIndexMap, null if there are no columns
      */
     public static Map<String, Integer> buidColumnIndexMap(final List<ColumnMetaData> columns, final Parser p) {
         Map<String, Integer> map = null;
         if (columns != null && !columns.isEmpty()) {
-            map = new HashMap<>();
-            int idx = 0;
-            for (final ColumnMetaData meta : columns) {
-                String colName = meta.getColName();
-                if (p != null && !p.isColumnNamesCaseSensitive()) {
-                    // user has selected to make column names case sensitive
-                    // on lookups
-                    colName = colName.toLowerCase(Locale.getDefault());
-                }
-                map.put(colName, idx++);
-            }
+            // without a parser the names are kept as written but looked up ignoring case
+            map = p == null ? new ColumnIndexMap(columns, false, false) : new ColumnIndexMap(columns, p.isColumnNamesCaseSensitive());
         }
         return map;
     }
@@ -747,6 +664,109 @@ public final class ParserUtils {
         return newString.toString();
     }
 
+    /**
+     * Converts the columns which declare a type in the mapping (type attribute on
+     * the &lt;COLUMN&gt; element).  Leading and trailing spaces are ignored,
+     * empty values are left unconverted unless the column is not nullable.
+     *
+     * @param cmds
+     *          column meta data of the record
+     * @param cols
+     *          String values of the row
+     * @return the converted values, null if no column declares a type
+     * @throws FPConvertException
+     *          if a value cannot be converted to the declared type
+     * @since 4.1
+     */
+    public static TypedValues convertTypedColumns(final List<ColumnMetaData> cmds, final List<String> cols) {
+        TypedValues typedValues = null;
+        final int size = Math.min(cmds.size(), cols.size());
+        for (int i = 0; i < size; i++) {
+            final ColumnMetaData cmd = cmds.get(i);
+            if (cmd.getType() == null) {
+                continue;
+            }
+            if (typedValues == null) {
+                typedValues = new TypedValues(cols.size(), true);
+            }
+            convertTypedColumn(typedValues, i, cmd, cols.get(i));
+        }
+        return typedValues;
+    }
+
+    private static void convertTypedColumn(final TypedValues typedValues, final int idx, final ColumnMetaData cmd, final String value) {
+        final String s = value != null ? value.trim() : "";
+        if (s.length() == 0) {
+            if (!cmd.isNullable()) {
+                throw new FPConvertException("Column [" + cmd.getColName() + "] is not nullable");
+            }
+            return;
+        }
+        try {
+            switch (cmd.getType()) {
+            case ColumnMetaData.TYPE_INT:
+                typedValues.putLong(idx, Integer.parseInt(s));
+                break;
+            case ColumnMetaData.TYPE_LONG:
+                typedValues.putLong(idx, Long.parseLong(s));
+                break;
+            case ColumnMetaData.TYPE_DOUBLE:
+                typedValues.putDouble(idx, Double.parseDouble(s));
+                break;
+            case ColumnMetaData.TYPE_DECIMAL:
+                BigDecimal bd = new BigDecimal(replace(s, ",", "", -1));
+                if (cmd.getScale() >= 0) {
+                    bd = bd.setScale(cmd.getScale(), RoundingMode.HALF_UP);
+                }
+                typedValues.putBigDecimal(idx, bd);
+                break;
+            case ColumnMetaData.TYPE_DATE:
+                typedValues.putLocalDate(idx, cmd.getFormat(), LocalDate.parse(s, cmd.getDateTimeFormatter()).toEpochDay());
+                break;
+            case ColumnMetaData.TYPE_BOOLEAN:
+                typedValues.putBoolean(idx, parseBoolean(s, cmd.getFormat()));
+                break;
+            default:
+                break;
+            }
+        } catch (final NumberFormatException | DateTimeParseException ex) {
+            throw new FPConvertException("Column [" + cmd.getColName() + "] cannot convert [" + value + "] to " + cmd.getType(), ex);
+        }
+    }
+
+    /**
+     * Parses a boolean value.  Without a format true/y/yes/1 and false/n/no/0 are
+     * recognised, ignoring case.  A format of "T/F" gives the true and false values.
+     *
+     *      ParserUtils.parseBoolean("Y", null) = true
+     *      ParserUtils.parseBoolean("F", "T/F") = false
+     *
+     * @param value
+     *          the value to parse
+     * @param format
+     *          "true/false" values or null
+     * @return boolean
+     * @throws NumberFormatException
+     *          if the value is none of the recognised values
+     * @since 4.1
+     */
+    public static boolean parseBoolean(final String value, final String format) {
+        final String s = value.trim();
+        if (format != null) {
+            final int slash = format.indexOf('/');
+            if (s.equalsIgnoreCase(format.substring(0, slash))) {
+                return true;
+            } else if (s.equalsIgnoreCase(format.substring(slash + 1))) {
+                return false;
+            }
+        } else if ("true".equalsIgnoreCase(s) || "y".equalsIgnoreCase(s) || "yes".equalsIgnoreCase(s) || "1".equals(s)) {
+            return true;
+        } else if ("false".equalsIgnoreCase(s) || "n".equalsIgnoreCase(s) || "no".equalsIgnoreCase(s) || "0".equals(s)) {
+            return false;
+        }
+        throw new NumberFormatException("Not a boolean value [" + value + "]");
+    }
+
     /**
      * Retrieves the conversion table for use with the getObject()
      * method in IDataSet
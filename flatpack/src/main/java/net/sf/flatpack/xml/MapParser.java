@@ -39,6 +39,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -69,6 +70,11 @@ public final class MapParser {
     private static final Logger LOGGER = LoggerFactory.getLogger(MapParser.class);
     private static final String COLUMN = "COLUMN";
     private static final String LENGTH = "length";
+    private static final String TYPE = "type";
+    private static final String FORMAT = "format";
+    private static final String NULLABLE = "nullable";
+    private static final String SCALE = "scale";
+    private static final String DEFAULT_DATE_FORMAT = "yyyyMMdd";
     private static boolean showDebug = false;
 
     /**
@@ -185,12 +191,58 @@ public final class MapParser {
                                 ex);
                     }
                 }
+                setColumnType(cmd, attributes);
                 columnResults.add(cmd);
             }
         }
         return columnResults;
     }
 
+    // optional type, format, nullable and scale attributes
+    private static void setColumnType(final ColumnMetaData cmd, final NamedNodeMap attributes) {
+        final String type = getAttributeValue(attributes, TYPE);
+        if (type == null || type.trim().length() == 0) {
+            return;
+        }
+        final String t = type.trim().toLowerCase(Locale.ENGLISH);
+        if (!ColumnMetaData.TYPE_INT.equals(t) && !ColumnMetaData.TYPE_LONG.equals(t) && !ColumnMetaData.TYPE_DOUBLE.equals(t)
+                && !ColumnMetaData.TYPE_DECIMAL.equals(t) && !ColumnMetaData.TYPE_DATE.equals(t) && !ColumnMetaData.TYPE_BOOLEAN.equals(t)) {
+            throw new IllegalArgumentException(
+                    "TYPE ATTRIBUTE ON COLUMN " + cmd.getColName() + " MUST BE int, long, double, decimal, date OR boolean.  GOT: " + type);
+        }
+        cmd.setType(t);
+
+        final String format = getAttributeValue(attributes, FORMAT);
+        if (format != null && format.length() > 0) {
+            cmd.setFormat(format);
+        } else if (ColumnMetaData.TYPE_DATE.equals(t)) {
+            cmd.setFormat(DEFAULT_DATE_FORMAT);
+        }
+        if (ColumnMetaData.TYPE_DATE.equals(t)) {
+            try {
+                cmd.getDateTimeFormatter();
+            } catch (final IllegalArgumentException ex) {
+                throw new IllegalArgumentException("FORMAT ATTRIBUTE ON COLUMN " + cmd.getColName() + " IS NOT A VALID DATE PATTERN: " + format, ex);
+            }
+        } else if (ColumnMetaData.TYPE_BOOLEAN.equals(t) && cmd.getFormat() != null && cmd.getFormat().indexOf('/') < 0) {
+            throw new IllegalArgumentException("FORMAT ATTRIBUTE ON BOOLEAN COLUMN " + cmd.getColName() + " MUST BE true/false.  GOT: " + format);
+        }
+
+        final String nullable = getAttributeValue(attributes, NULLABLE);
+        if (nullable != null) {
+            cmd.setNullable(!"false".equalsIgnoreCase(nullable.trim()));
+        }
+
+        final String scale = getAttributeValue(attributes, SCALE);
+        if (scale != null) {
+            try {
+                cmd.setScale(Integer.parseInt(scale.trim()));
+            } catch (final NumberFormatException ex) {
+                throw new IllegalArgumentException("SCALE ATTRIBUTE ON COLUMN ELEMENT MUST BE AN INTEGER.  GOT: " + scale, ex);
+            }
+        }
+    }
+
     // helper to convert to integer
     private static int convertAttributeToInt(final String attribute) {
         if (attribute == null) {
@@ -232,7 +284,7 @@ public final class MapParser {
                         xmlrecEle.getEndPositition(), xmlrecEle.getElementNumber(), xmlrecEle.getIndicator());
             }
             for (final ColumnMetaData cmd : columns) {
-                LOGGER.debug("Column Name: {} LENGTH: {}", cmd.getColName(), cmd.getColLength());
+                LOGGER.debug("Column Name: {} LENGTH: {} TYPE: {}", cmd.getColName(), cmd.getColLength(), cmd.getType());
 
             }
         }
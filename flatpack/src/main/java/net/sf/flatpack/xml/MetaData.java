@@ -11,6 +11,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 import net.sf.flatpack.structure.ColumnMetaData;
+import net.sf.flatpack.util.ColumnIndexMap;
 import net.sf.flatpack.util.FPConstants;
 
 /**
@@ -24,11 +25,20 @@ public class MetaData {
 
     public MetaData(final List<ColumnMetaData> columnNames, final Map columnIndexMap) {
         this.columnsNames = Collections.unmodifiableList(columnNames);
-        this.columnIndexMap = Collections.unmodifiableMap(columnIndexMap);
+        this.columnIndexMap = columnIndexMap instanceof ColumnIndexMap ? columnIndexMap : Collections.unmodifiableMap(columnIndexMap);
         this.xmlRecordElements = new HashMap();
     }
 
-    MetaData(final List<ColumnMetaData> columnNames, final Map columnIndexMap, final Map<String, XMLRecordElement> xmlRecordElements) {
+    /**
+     * @param columnNames
+     *          columns of the detail records
+     * @param columnIndexMap
+     *          index of the detail columns by name
+     * @param xmlRecordElements
+     *          the &lt;RECORD&gt; elements by id, in the order they are matched
+     * @since 4.1
+     */
+    public MetaData(final List<ColumnMetaData> columnNames, final Map columnIndexMap, final Map<String, XMLRecordElement> xmlRecordElements) {
         this.columnsNames = Collections.unmodifiableList(columnNames);
         this.columnIndexMap = columnIndexMap;
         this.xmlRecordElements = xmlRecordElements;
@@ -66,6 +76,8 @@ public class MetaData {
         int idx = -1;
         if (key != null && !key.equals(FPConstants.DETAIL_ID) && !key.equals(FPConstants.COL_IDX)) {
             idx = xmlRecordElements.get(key).getColumnIndex(columnName);
+        } else if (columnIndexMap instanceof ColumnIndexMap && (key == null || key.equals(FPConstants.DETAIL_ID))) {
+            idx = ((ColumnIndexMap) columnIndexMap).indexOf(columnName);
         } else if (key == null || key.equals(FPConstants.DETAIL_ID)) {
             final Integer i = (Integer) columnIndexMap.get(columnName);
             if (i != null) { // happens when the col name does not exist in the
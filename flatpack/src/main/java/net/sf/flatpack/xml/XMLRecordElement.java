@@ -19,6 +19,7 @@ import java.util.Map;
 
 import net.sf.flatpack.Parser;
 import net.sf.flatpack.structure.ColumnMetaData;
+import net.sf.flatpack.util.ColumnIndexMap;
 import net.sf.flatpack.util.ParserUtils;
 
 /**
@@ -123,7 +124,9 @@ public class XMLRecordElement {
      */
     public int getColumnIndex(final String colName) {
         int idx = -1;
-        if (columnIndex != null) {
+        if (columnIndex instanceof ColumnIndexMap) {
+            idx = ((ColumnIndexMap) columnIndex).indexOf(colName);
+        } else if (columnIndex != null) {
             final Integer i = columnIndex.get(colName);
             if (i != null) {
                 idx = i.intValue();
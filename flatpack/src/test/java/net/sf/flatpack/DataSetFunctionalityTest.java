@@ -3,14 +3,36 @@ package net.sf.flatpack;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.assertj.core.util.Arrays;
 
 import junit.framework.TestCase;
+import net.sf.flatpack.ordering.OrderBy;
+import net.sf.flatpack.ordering.OrderColumn;
+import net.sf.flatpack.structure.Row;
+import net.sf.flatpack.structure.RowStore;
+import net.sf.flatpack.structure.SpillRowStore;
+import net.sf.flatpack.structure.TypedValues;
 import net.sf.flatpack.util.FPConstants;
+import net.sf.flatpack.util.FPException;
+import net.sf.flatpack.util.FPInvalidUsageException;
 
 /**
  * Test methods in the DataSet
@@ -195,4 +217,582 @@ public class DataSetFunctionalityTest extends TestCase {
         // t.contains("column1"));
         // });
     }
+
+    public void testFlyweightRecords() {
+        final String cols = "column1,column2\r\nvalue1,value2\r\nvalue1a,value2a";
+        final Parser p = DefaultParserFactory.newCsvParser(new StringReader(cols));
+        p.setFlyweightRecords(true);
+        final DataSet ds = p.parse();
+        assertTrue(ds.next());
+        final Record first = ds.getRecord().get();
+        final Record kept = first.copy();
+        assertTrue(ds.next());
+        assertSame("record is re-pointed", first, ds.getRecord().get());
+        assertEquals("flyweight follows the cursor", "value1a", first.getString("column1"));
+        assertEquals("copy keeps its row", "value1", kept.getString("column1"));
+        ds.absolute(0);
+        assertEquals("absolute re-points", "value1", ds.getRecord().get().getString("column1"));
+        assertEquals("copy of the DataSet", "value1", ds.copy().getString("column1"));
+    }
+
+    public void testCopyWithoutCurrentRecord() {
+        final DataSet ds = DefaultParserFactory.newCsvParser(new StringReader("column1\r\nvalue1")).parse();
+        try {
+            ds.copy();
+            fail("copy() before next() should be refused");
+        } catch (final FPInvalidUsageException e) {
+            assertThat(e.getMessage()).contains("current record");
+        }
+    }
+
+    public void testCacheTypedValues() throws Exception {
+        checkCacheTypedValues(RowStore.LIST);
+        checkCacheTypedValues(RowStore.COLUMNAR);
+        checkCacheTypedValues(RowStore.OFF_HEAP);
+        checkCacheTypedValues(RowStore.SPILL);
+    }
+
+    private void checkCacheTypedValues(final String rowStorage) throws Exception {
+        final String cols = "amount,day\r\n10,2020-01-31\r\n2,2021-02-01\r\n30,2019-12-25";
+        final Parser p = DefaultParserFactory.newCsvParser(new StringReader(cols));
+        p.setCacheTypedValues(true).setRowStorage(rowStorage);
+        final DataSet ds = p.parse();
+        assertTrue(ds.next());
+        assertEquals(10, ds.getInt("amount"));
+        assertEquals("cached value", 10L, ds.getLong("amount"));
+        assertEquals(LocalDate.of(2020, 1, 31), ds.getLocalDate("day"));
+        assertEquals("cached date", LocalDate.of(2020, 1, 31), ds.getLocalDate("day"));
+        ds.setValue("amount", "11");
+        assertEquals("setValue drops the cached value", 11, ds.getInt("amount"));
+
+        final OrderBy ob = new OrderBy();
+        ob.addOrderColumn(new OrderColumn("amount", false, OrderColumn.COLTYPE_NUMERIC));
+        ds.orderRows(ob);
+        assertTrue(ds.next());
+        assertEquals(2.0, ds.getDouble("amount"));
+        assertTrue(ds.next());
+        assertEquals(11.0, ds.getDouble("amount"));
+        assertTrue(ds.next());
+        assertEquals(30.0, ds.getDouble("amount"));
+    }
+
+    public void testColumnarRowStorage() throws Exception {
+        checkRowStorage(RowStore.COLUMNAR);
+    }
+
+    public void testOffHeapRowStorage() throws Exception {
+        checkRowStorage(RowStore.OFF_HEAP);
+        checkRowStorage(RowStore.MAPPED);
+    }
+
+    public void testSpillRowStorage() throws Exception {
+        checkRowStorage(RowStore.SPILL);
+
+        final SpillRowStore store = new SpillRowStore(1, 3);
+        for (int i = 0; i < 10; i++) {
+            final Row row = new Row();
+            row.setRowNumber(i + 1);
+            row.setCols(java.util.Arrays.asList("row" + i, i % 2 == 0 ? null : "日本"));
+            if (i == 9) {
+                final TypedValues tv = new TypedValues(2, true);
+                tv.putLong(0, 9L);
+                tv.putLocalDate(1, "yyyyMMdd", 18000L);
+                row.setTypedValues(tv);
+            }
+            store.add(row);
+        }
+        assertTrue("blocks written to disk", store.getSpilledBytes() > 0);
+        assertEquals("row0", store.get(0).getValue(0));
+        assertNull(store.get(0).getValue(1));
+        assertEquals("row9", store.get(9).getValue(0));
+        assertEquals("日本", store.get(5).getValue(1));
+        final TypedValues tv = store.get(9).getTypedValues();
+        assertTrue(tv.isStrictNumericParse());
+        assertEquals(9L, tv.getLong(0));
+        assertTrue(tv.hasLocalDate(1, "yyyyMMdd"));
+        assertEquals(18000L, tv.getLocalDateEpochDay(1));
+
+        final Row row = store.get(4);
+        row.setValue(0, "changed");
+        store.set(4, row);
+        store.get(9);
+        assertEquals("change kept after the block was written again", "changed", store.get(4).getValue(0));
+
+        store.remove(0);
+        assertEquals(9, store.size());
+        store.sort((a, b) -> b.getRowNumber() - a.getRowNumber());
+        assertEquals("row9", store.get(0).getValue(0));
+        assertEquals("changed", store.get(5).getValue(0));
+        assertEquals(2, store.get(8).getRowNumber());
+
+        // merged from several runs, equal rows keep their order
+        store.sort((a, b) -> a.getRowNumber() % 3 - b.getRowNumber() % 3);
+        final int[] rowNumbers = new int[store.size()];
+        for (int i = 0; i < rowNumbers.length; i++) {
+            rowNumbers[i] = store.get(i).getRowNumber();
+        }
+        assertThat(rowNumbers).containsExactly(9, 6, 3, 10, 7, 4, 8, 5, 2);
+        assertEquals("changed", store.get(7).getValue(0));
+        assertEquals(9L, store.get(3).getTypedValues().getLong(0));
+
+        store.clear();
+        assertEquals(0, store.size());
+        assertEquals(0L, store.getSpilledBytes());
+    }
+
+    private void checkRowStorage(final String rowStorage) throws Exception {
+        final String cols = "name,amount,note\r\nzoë,10,first\r\nbob,2,\r\nann,30,\"日本\"\r\neve,7,last";
+        final Parser p = DefaultParserFactory.newCsvParser(new StringReader(cols));
+        p.setRowStorage(rowStorage).setStoreRawDataToDataSet(true);
+        final DataSet ds = p.parse();
+        assertEquals(4, ds.getRowCount());
+
+        assertTrue(ds.next());
+        assertEquals("zoë", ds.getString("name"));
+        assertEquals(10, ds.getInt("amount"));
+        assertEquals(2, ds.getRowNo());
+        assertEquals("zoë,10,first", ds.getRawData());
+        assertTrue(ds.next());
+        assertEquals("", ds.getString("note"));
+        assertTrue(ds.next());
+        assertEquals("日本", ds.getString("note"));
+
+        ds.absolute(1);
+        ds.setValue("note", "changed");
+        assertEquals("changed", ds.getString("note"));
+        assertTrue(ds.previous());
+        assertEquals("zoë", ds.getString("name"));
+
+        final OrderBy ob = new OrderBy();
+        ob.addOrderColumn(new OrderColumn("amount", false, OrderColumn.COLTYPE_NUMERIC));
+        ds.orderRows(ob);
+        assertTrue(ds.next());
+        assertEquals("bob", ds.getString("name"));
+        assertEquals("changed", ds.getString("note"));
+        ds.remove();
+        assertEquals(3, ds.getRowCount());
+        assertTrue(ds.next());
+        assertEquals("eve", ds.getString("name"));
+        assertTrue(ds.next());
+        assertEquals("zoë", ds.getString("name"));
+        assertTrue(ds.next());
+        assertEquals("ann", ds.getString("name"));
+        assertFalse(ds.next());
+    }
+
+    public void testMaxMemoryBytes() {
+        final StringBuilder csv = new StringBuilder("name,amount,note\r\n");
+        for (int i = 0; i < 20000; i++) {
+            csv.append("name").append(i).append(',').append(i).append(",some note\r\n");
+        }
+        final DataSet ds = DefaultParserFactory.newCsvParser(new StringReader(csv.toString())).parse();
+        final long size = ds.getEstimatedSize();
+        assertThat(size).isGreaterThan(20000L * 20);
+        final DataSet withRaw = DefaultParserFactory.newCsvParser(new StringReader(csv.toString())).setStoreRawDataToDataSet(true).parse();
+        assertThat(withRaw.getEstimatedSize()).isGreaterThan(size);
+
+        try {
+            DefaultParserFactory.newCsvParser(new StringReader(csv.toString())).setMaxMemoryBytes(size / 2).parse();
+            fail("over the limit");
+        } catch (final FPException e) {
+            assertThat(e.getMessage()).contains("setMaxMemoryBytes");
+        }
+
+        final Parser spill = DefaultParserFactory.newCsvParser(new StringReader(csv.toString()));
+        spill.setRowStorage(RowStore.SPILL).setMemoryBudget(size / 10).setMaxMemoryBytes(size / 2);
+        final DataSet spilled = spill.parse();
+        assertEquals(20000, spilled.getRowCount());
+        assertThat(spilled.getEstimatedSize()).isLessThan(size / 2);
+        spilled.absolute(5);
+        assertEquals("name5", spilled.getString("name"));
+
+        // a row changed in place by setValue is estimated again
+        ds.absolute(0);
+        ds.setValue("note", new String(new char[10000]).replace('\0', 'x'));
+        assertThat(ds.getEstimatedSize()).isGreaterThan(size + 9000);
+        // the estimate follows its row through a sort
+        final OrderBy ob = new OrderBy();
+        ob.addOrderColumn(new OrderColumn("name", true));
+        ds.orderRows(ob);
+        while (ds.next() && !"name0".equals(ds.getString("name"))) {
+            continue;
+        }
+        ds.remove();
+        assertThat(ds.getEstimatedSize()).isLessThan(size);
+        while (ds.getRowCount() > 0) {
+            ds.absolute(0);
+            ds.remove();
+        }
+        assertThat(ds.getEstimatedSize()).isBetween(0L, size / 10);
+    }
+
+    public void testColumnarEstimatedSize() {
+        final StringBuilder csv = new StringBuilder("name,amount,note\r\n");
+        for (int i = 0; i < 2000; i++) {
+            csv.append("name").append(i).append(',').append(i).append(",some note\r\n");
+        }
+        final DataSet ds = DefaultParserFactory.newCsvParser(new StringReader(csv.toString())).setRowStorage(RowStore.COLUMNAR).parse();
+        final long size = ds.getEstimatedSize();
+        assertThat(size).isGreaterThan(2000L * 20);
+
+        ds.absolute(0);
+        ds.setValue("note", new String(new char[10000]).replace('\0', 'x'));
+        assertThat(ds.getEstimatedSize()).isGreaterThan(size + 9000);
+        // a change replacing another one is only counted once
+        ds.setValue("note", "short");
+        assertThat(ds.getEstimatedSize()).isLessThan(size + 1000);
+
+        try {
+            DefaultParserFactory.newCsvParser(new StringReader(csv.toString())).setRowStorage(RowStore.COLUMNAR).setMaxMemoryBytes(size / 2).parse();
+            fail("over the limit");
+        } catch (final FPException e) {
+            assertThat(e.getMessage()).contains("setMaxMemoryBytes");
+        }
+    }
+
+    public void testIndex() {
+        final String cols = "code,ccy,name\r\nA,GBP,first\r\nB,USD,second\r\nA,USD,third\r\nC,GBP,fourth\r\nA,GBP,fifth";
+        final DataSet ds = DefaultParserFactory.newCsvParser(new StringReader(cols)).parse();
+        try {
+            ds.findFirst("A");
+            fail("no index");
+        } catch (final FPInvalidUsageException e) {
+            // expected
+        }
+        ds.createIndex("code");
+        assertThat(ds.findFirst("A").get().getString("name")).isEqualTo("first");
+        assertThat(ds.findAll("A").stream().map(r -> r.getString("name")).collect(Collectors.toList())).containsExactly("first", "third",
+                "fifth");
+        assertThat(ds.findFirst("Z")).isEmpty();
+        assertThat(ds.findAll("Z")).isEmpty();
+        assertFalse(ds.getRecord().isPresent());
+
+        final OrderBy ob = new OrderBy();
+        ob.addOrderColumn(new OrderColumn("name", false));
+        ds.orderRows(ob);
+        assertThat(ds.findAll("A").stream().map(r -> r.getString("name")).collect(Collectors.toList())).containsExactly("fifth", "first",
+                "third");
+        ds.next();
+        ds.remove();
+        ds.next();
+        ds.setValue("code", "C");
+        assertThat(ds.findAll("A").stream().map(r -> r.getString("name")).collect(Collectors.toList())).containsExactly("third");
+        assertThat(ds.findAll("C").stream().map(r -> r.getString("name")).collect(Collectors.toList())).containsExactly("first", "fourth");
+
+        ds.createIndex("ccy", "code");
+        assertThat(ds.findAll("GBP", "C").stream().map(r -> r.getString("name")).collect(Collectors.toList())).containsExactly("first",
+                "fourth");
+        assertThat(ds.findFirst("USD", "A").get().getString("name")).isEqualTo("third");
+        try {
+            ds.findFirst("GBP");
+            fail("two columns");
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testIndexFollowsChanges() {
+        final StringBuilder csv = new StringBuilder("code,name\r\n");
+        for (int i = 0; i < 2000; i++) {
+            csv.append('k').append(i % 37).append(",name").append(i).append("\r\n");
+        }
+        final DataSet ds = DefaultParserFactory.newCsvParser(new StringReader(csv.toString())).parse();
+        ds.createIndex("code");
+        final Random random = new Random(42);
+        for (int n = 0; n < 600; n++) {
+            ds.absolute(random.nextInt(ds.getRowCount()));
+            switch (n % 3) {
+            case 0:
+                ds.remove();
+                break;
+            case 1:
+                ds.setValue("code", "k" + random.nextInt(60));
+                break;
+            default:
+                ds.setValue("name", "changed" + n);
+                break;
+            }
+            final String code = "k" + random.nextInt(60);
+            final List<String> scanned = new ArrayList<>();
+            ds.goTop();
+            while (ds.next()) {
+                if (code.equals(ds.getString("code"))) {
+                    scanned.add(ds.getString("name"));
+                }
+            }
+            assertThat(ds.findAll(code).stream().map(r -> r.getString("name")).collect(Collectors.toList())).isEqualTo(scanned);
+        }
+        assertEquals(1800, ds.getRowCount());
+    }
+
+    public void testCursors() throws Exception {
+        final StringBuilder csv = new StringBuilder("name,amount\r\n");
+        long total = 0;
+        for (int i = 0; i < 5000; i++) {
+            csv.append("name").append(i).append(',').append(i).append("\r\n");
+            total += i;
+        }
+        for (final String storage : new String[] { RowStore.LIST, RowStore.SPILL }) {
+            final Parser p = DefaultParserFactory.newCsvParser(new StringReader(csv.toString()));
+            p.setRowStorage(storage).setMemoryBudget(1024).setLazyRows(true);
+            final DataSet ds = p.parse();
+            final DataSetCursor first = ds.newCursor();
+            assertTrue(ds.isFrozen());
+            final DataSetCursor second = ds.newCursor();
+            assertTrue(first.next());
+            assertTrue(first.next());
+            assertTrue(second.next());
+            assertEquals("name1", first.getRecord().get().getString("name"));
+            assertEquals("name0", second.getRecord().get().getString("name"));
+            second.goBottom();
+            assertEquals("name4999", second.getRecord().get().getString("name"));
+            assertTrue(second.previous());
+            assertEquals("name4998", second.getRecord().get().getString("name"));
+            first.absolute(10);
+            assertEquals(10, first.getRecord().get().getInt("amount"));
+            assertFalse(ds.getRecord().isPresent());
+            try {
+                ds.setValue("name", "x");
+                fail("frozen");
+            } catch (final FPInvalidUsageException e) {
+                assertThat(e.getMessage()).contains("frozen");
+            }
+
+            final ExecutorService pool = Executors.newFixedThreadPool(4);
+            try {
+                final List<Future<Long>> sums = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    final DataSetCursor cursor = ds.newCursor();
+                    sums.add(pool.submit(() -> cursor.stream().mapToLong(r -> r.getLong("amount")).sum()));
+                }
+                for (final Future<Long> sum : sums) {
+                    assertEquals(storage, total, sum.get().longValue());
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    public void testCursorMovesAsTheDataSet() {
+        final DataSet ds = DefaultParserFactory.newCsvParser(new StringReader("name\r\na\r\nb\r\nc")).parse();
+        final DataSetCursor cursor = ds.newCursor();
+        while (ds.next()) {
+            assertTrue(cursor.next());
+        }
+        assertFalse(cursor.next());
+        assertFalse(cursor.getRecord().isPresent());
+        assertEquals(ds.getIndex(), cursor.getIndex());
+        assertTrue(ds.previous());
+        assertTrue(cursor.previous());
+        assertEquals("b", ds.getString("name"));
+        assertEquals("b", cursor.getRecord().get().getString("name"));
+        assertTrue(ds.previous());
+        assertTrue(cursor.previous());
+        assertFalse(ds.previous());
+        assertFalse(cursor.previous());
+        assertFalse(cursor.getRecord().isPresent());
+        assertEquals(0, ds.getIndex());
+        assertEquals(0, cursor.getIndex());
+        assertTrue(ds.next());
+        assertTrue(cursor.next());
+        assertEquals("b", cursor.getRecord().get().getString("name"));
+
+        ds.goBottom();
+        cursor.goBottom();
+        assertEquals(ds.getIndex(), cursor.getIndex());
+        assertTrue(ds.previous());
+        assertTrue(cursor.previous());
+        assertEquals("b", ds.getString("name"));
+        assertEquals("b", cursor.getRecord().get().getString("name"));
+    }
+
+    public void testParallelStream() {
+        final StringBuilder csv = new StringBuilder("name,amount\r\n");
+        for (int i = 0; i < 10000; i++) {
+            csv.append("name").append(i).append(',').append(i).append("\r\n");
+        }
+        final DataSet ds = DefaultParserFactory.newCsvParser(new StringReader(csv.toString())).parse();
+        final Spliterator<Record> split = ((DefaultDataSet) ds).rowSpliterator();
+        assertTrue(split.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+        assertFalse("rows can still change", split.hasCharacteristics(Spliterator.IMMUTABLE));
+        assertEquals(10000, split.getExactSizeIfKnown());
+        final Spliterator<Record> prefix = split.trySplit();
+        assertEquals(5000, prefix.estimateSize());
+        assertEquals(5000, split.estimateSize());
+
+        final StreamingDataSet streaming = new StreamingRecord(ds);
+        assertEquals(49995000L, streaming.parallelStream().mapToLong(r -> r.getLong("amount")).sum());
+        assertThat(streaming.parallelStream().map(r -> r.getString("name")).distinct().count()).isEqualTo(10000L);
+        assertEquals(-1, ds.getIndex());
+
+        ds.absolute(9997);
+        assertThat(new StreamingRecord(ds).stream().map(r -> r.getString("name")).collect(Collectors.toList())).containsExactly("name9998",
+                "name9999");
+
+        // flyweight: one record per split, re-pointed at each row
+        final DataSet flyweight = DefaultParserFactory.newCsvParser(new StringReader(csv.toString())).setFlyweightRecords(true).parse();
+        final Set<Record> records = Collections.newSetFromMap(new IdentityHashMap<>());
+        assertEquals(49995000L, new StreamingRecord(flyweight).stream().peek(records::add).mapToLong(r -> r.getLong("amount")).sum());
+        assertEquals(1, records.size());
+        assertEquals(49995000L, new StreamingRecord(flyweight).parallelStream().mapToLong(r -> r.getLong("amount")).sum());
+
+        // lazy rows must be split, and their errors added, before the threads read them
+        for (int i = 0; i < 10000; i += 7) {
+            csv.append("short").append(i).append("\r\n");
+        }
+        final DataSet lazy = DefaultParserFactory.newCsvParser(new StringReader(csv.toString())).setLazyRows(true).setHandlingShortLines(true)
+                .parse();
+        assertEquals(0, lazy.getErrorCount());
+        try {
+            new StreamingRecord(lazy).parallelStream();
+            fail("lazy rows not frozen");
+        } catch (final FPInvalidUsageException e) {
+            assertThat(e.getMessage()).contains("freeze()");
+        }
+        assertFalse(lazy.isFrozen());
+        lazy.freeze();
+        assertEquals(11429L, new StreamingRecord(lazy).parallelStream().count());
+        assertEquals(1429, lazy.getErrorCount());
+        assertTrue(((DefaultDataSet) lazy).rowSpliterator().hasCharacteristics(Spliterator.IMMUTABLE));
+    }
+
+    public void testNextBatch() {
+        final StringBuilder csv = new StringBuilder("name,amount\r\n");
+        for (int i = 0; i < 250; i++) {
+            csv.append("name").append(i).append(',').append(i).append("\r\n");
+        }
+        final DataSet ds = DefaultParserFactory.newCsvParser(new StringReader(csv.toString())).setLazyRows(true).parse();
+        final StreamingDataSet streaming = new StreamingRecord(ds);
+        long total = 0;
+        int batches = 0;
+        for (RecordBatch batch = streaming.nextBatch(100); !batch.isEmpty(); batch = streaming.nextBatch(100)) {
+            final int amount = batch.getColumnIndex("amount");
+            for (int i = 0; i < batch.size(); i++) {
+                total += Long.parseLong(batch.getString(i, amount));
+            }
+            batches++;
+        }
+        assertEquals(3, batches);
+        assertEquals(31125L, total);
+        assertEquals(249, ds.getIndex());
+
+        ds.goTop();
+        final RecordBatch first = ((DefaultDataSet) ds).nextBatch(2);
+        assertThat(first.stream().map(r -> r.getString("name")).collect(Collectors.toList())).containsExactly("name0", "name1");
+        assertTrue(ds.next());
+        assertEquals("name2", ds.getString("name"));
+    }
+
+    public void testLazyRows() throws Exception {
+        final String cols = "name,amount,note\r\nann,10,first\r\nbob,2,x,extra\r\neve,7,\"multi\r\nline\"";
+        final Parser p = DefaultParserFactory.newCsvParser(new StringReader(cols));
+        final DataSet ds = p.setLazyRows(true).setHandlingShortLines(true).parse();
+        assertEquals("bad rows are only found when split", 3, ds.getRowCount());
+        assertEquals(0, ds.getErrorCount());
+
+        assertTrue(ds.next());
+        assertEquals(10, ds.getInt("amount"));
+        ds.setValue("note", "changed");
+        assertTrue(ds.next());
+        assertEquals("bob", ds.getString("name"));
+        assertEquals("x", ds.getString("note"));
+        assertEquals(1, ds.getErrors().size());
+        assertEquals(3, ds.getErrors().get(0).getLineNo());
+        assertTrue(ds.next());
+        assertThat(ds.getString("note")).startsWith("multi").endsWith("line");
+
+        ds.absolute(1);
+        assertEquals("split again", "bob", ds.getString("name"));
+        assertEquals("error reported once", 1, ds.getErrors().size());
+        ds.absolute(0);
+        assertEquals("changes are kept", "changed", ds.getString("note"));
+
+        final OrderBy ob = new OrderBy();
+        ob.addOrderColumn(new OrderColumn("amount", false, OrderColumn.COLTYPE_NUMERIC));
+        ds.orderRows(ob);
+        assertTrue(ds.next());
+        assertEquals("bob", ds.getString("name"));
+
+        final String mapping = "<PZMAP><COLUMN name=\"code\" length=\"3\" /><COLUMN name=\"qty\" length=\"2\" /></PZMAP>";
+        final DataSet fixed = DefaultParserFactory.getInstance()
+                .newFixedLengthParser(new StringReader(mapping), new StringReader("abc12\r\nde 3\r\nxyz45"))
+                .setLazyRows(true)
+                .setCacheLazyRows(true)
+                .setHandlingShortLines(true)
+                .parse();
+        assertEquals(3, fixed.getRowCount());
+        assertEquals("short line padded at parse", 1, fixed.getErrorCount());
+        fixed.absolute(2);
+        assertEquals("xyz", fixed.getString("code"));
+        assertEquals(45, fixed.getInt("qty"));
+        assertTrue(fixed.previous());
+        assertEquals(3, fixed.getInt("qty"));
+    }
+
+    public void testSnapshot() throws Exception {
+        final Path dir = Files.createTempDirectory("flatpack");
+        final Path file = dir.resolve("data.csv");
+        final Path snapshot = dir.resolve("data.snapshot");
+        try {
+            Files.write(file, "name,amount\r\nzoë,10\r\nbob\r\nann,30\r\n".getBytes(StandardCharsets.UTF_8));
+            final Parser parser = DefaultParserFactory.newCsvParser(Files.newBufferedReader(file, StandardCharsets.UTF_8));
+            final DataSet parsed = parser.setStoreRawDataToDataSet(true).parse();
+            parsed.saveSnapshot(snapshot, file);
+
+            final DataSet ds = DataSetSnapshot.load(snapshot, file, parser).get();
+            assertEquals(2, ds.getRowCount());
+            assertEquals(1, ds.getErrorCount());
+            assertEquals(3, ds.getErrors().get(0).getLineNo());
+            assertThat(ds.getColumns()).containsExactly("name", "amount");
+            assertTrue(ds.next());
+            assertEquals("zoë", ds.getString("name"));
+            assertEquals("zoë,10", ds.getRawData());
+            assertTrue(ds.next());
+            assertEquals(30, ds.getInt("AMOUNT"));
+            ds.setValue("amount", "31");
+            assertEquals(31, ds.getInt("amount"));
+
+            Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() - 60000));
+            assertTrue("same content", DataSetSnapshot.load(snapshot, file, parser).isPresent());
+            Files.write(file, "name,amount\r\nzoë,11\r\nbob\r\nann,30\r\n".getBytes(StandardCharsets.UTF_8));
+            assertFalse("file changed", DataSetSnapshot.load(snapshot, file, parser).isPresent());
+            assertTrue("not checked", DataSetSnapshot.load(snapshot, null, parser).isPresent());
+            assertFalse(DataSetSnapshot.load(dir.resolve("missing"), file, parser).isPresent());
+        } finally {
+            Files.deleteIfExists(snapshot);
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    public void testCompactRow() {
+        final Row row = new Row();
+        row.setCols(java.util.Arrays.asList("abc", "", "déjà"));
+        assertEquals(3, row.getColumnCount());
+        assertEquals("déjà", row.getValue(2));
+        row.addColumn("日本");
+        assertEquals("utf-8 from now on", "déjà", row.getValue(2));
+        assertEquals("日本", row.getValue(3));
+        row.setValue(1, null);
+        assertNull(row.getValue(1));
+        row.getCols().set(0, "xyz");
+        row.getCols().add("last");
+        assertThat(row.getCols()).containsExactly("xyz", null, "déjà", "日本", "last");
+
+        final StringBuilder big = new StringBuilder();
+        for (int i = 0; i < 70000; i++) {
+            big.append('x');
+        }
+        row.addColumn(big.toString());
+        row.addColumn("after");
+        assertEquals(70000, row.getValue(5).length());
+        assertEquals("after", row.getValue(6));
+        try {
+            row.getValue(7);
+            fail("no such column");
+        } catch (final IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
 }
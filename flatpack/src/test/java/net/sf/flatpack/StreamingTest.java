@@ -2,10 +2,17 @@ package net.sf.flatpack;
 
 import java.io.StringReader;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import junit.framework.TestCase;
+import net.sf.flatpack.util.FPException;
+import net.sf.flatpack.util.FPInvalidUsageException;
+import net.sf.flatpack.xml.MapParser;
+import net.sf.flatpack.xml.MetaData;
 
 /**
  * JDK 8 Streaming test.
@@ -56,4 +63,113 @@ public class StreamingTest extends TestCase {
         assertEquals("Item", "Surface3", test.getItemName());
         assertTrue("Price", new BigDecimal("850").compareTo(test.getPrice()) == 0);
     }
+
+    public void testPipeline() {
+        final StringBuilder cols = new StringBuilder("item,price\r\n");
+        for (int i = 0; i < 5000; i++) {
+            cols.append("item").append(i).append(',').append(i % 7 == 0 ? "\"1,2\",3" : String.valueOf(i)).append("\r\n");
+        }
+        final DataSet expected = CsvParserFactory.newInMemoryParser(new StringReader(cols.toString())).parse();
+        try (PipelinedDataSet ds = CsvParserFactory.newInMemoryParser(new StringReader(cols.toString())).parseAsPipeline(3)) {
+            while (expected.next()) {
+                assertTrue(ds.next());
+                assertEquals(expected.getRowNo(), ds.getRecord().get().getRowNo());
+                assertEquals(expected.getString("item"), ds.getRecord().get().getString("item"));
+                assertEquals(expected.getString("price"), ds.getRecord().get().getString("price"));
+            }
+            assertFalse(ds.next());
+            assertEquals(expected.getErrors().toString(), ds.getErrors().toString());
+        }
+
+        final String fixed = "<?xml version=\"1.0\"?><PZMAP><COLUMN name=\"code\" length=\"3\" /><COLUMN name=\"amount\" length=\"5\" /></PZMAP>";
+        final Parser p = DefaultParserFactory.getInstance().newFixedLengthParser(new StringReader(fixed),
+                new StringReader("abc   12\n\nxy\ndef   34"));
+        p.setHandlingShortLines(true);
+        try (PipelinedDataSet ds = p.parseAsPipeline(2)) {
+            assertEquals("[   12, ,    34]", ds.stream().map(r -> r.getString("amount")).collect(Collectors.toList()).toString());
+            assertEquals("PADDED LINE TO CORRECT RECORD LENGTH", ds.getErrors().get(0).getErrorDesc());
+        }
+
+        // closed before the end, the threads stop and next() returns false
+        final PipelinedDataSet ds = CsvParserFactory.newInMemoryParser(new StringReader(cols.toString())).parseAsPipeline(1);
+        assertTrue(ds.next());
+        ds.close();
+        assertFalse(ds.next());
+        assertFalse(ds.getRecord().isPresent());
+
+        final AbstractParser custom = new AbstractParser(new StringReader("abc")) {
+            @Override
+            protected DataSet doParse() {
+                return null;
+            }
+
+            @Override
+            protected void init() {
+            }
+        };
+        try {
+            custom.parseAsPipeline(1);
+            fail("Expected FPInvalidUsageException");
+        } catch (final FPInvalidUsageException e) {
+            assertTrue(e.getMessage().endsWith("cannot be parsed as a pipeline"));
+        }
+        try {
+            custom.countRecords();
+            fail("Expected FPInvalidUsageException");
+        } catch (final FPInvalidUsageException e) {
+            assertTrue(e.getMessage().endsWith("does not support countRecords() and validate()"));
+        }
+    }
+
+    public void testParseService() throws Exception {
+        final MetaData mapping = MapParser.parseMap(
+                new StringReader("<?xml version=\"1.0\"?><PZMAP><COLUMN name=\"code\" length=\"3\" /><COLUMN name=\"amount\" length=\"5\" /></PZMAP>"),
+                null);
+        final List<String> sources = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            sources.add(i == 7 ? null : String.format("f%02d%5d\nx%02d%5d", i, i, i, i));
+        }
+        sources.set(3, "abc   12\nshort");
+        final Function<String, Parser> parsers = s -> DefaultParserFactory.getInstance().newFixedLengthParser(mapping, new StringReader(s));
+
+        try (ParseService service = new ParseService(4)) {
+            final List<ParseResult<String>> results = service.parseAll(sources, parsers);
+            assertEquals(20, results.size());
+            assertSame(sources.get(12), results.get(12).getSource());
+            assertEquals("x12", results.get(12).stream().skip(1).findFirst().get().getString("code"));
+            assertEquals(1, results.get(3).getErrorCount());
+            assertFalse(results.get(7).isSuccess());
+            assertTrue(results.get(7).getFailure().get() instanceof NullPointerException);
+            assertTrue(results.get(8).isSuccess());
+
+            // an Error only fails its own source
+            final Function<String, Parser> failing = s -> {
+                if (s.startsWith("f01")) {
+                    throw new NoClassDefFoundError("missing");
+                }
+                return parsers.apply(s);
+            };
+            final List<ParseResult<String>> withError = service.parseAll(sources.subList(0, 3), failing);
+            assertTrue(withError.get(1).getFailure().get() instanceof NoClassDefFoundError);
+            assertTrue(withError.get(0).isSuccess());
+            assertTrue(withError.get(2).isSuccess());
+
+            final List<String> codes = service.parseMerged(sources.subList(8, 20), parsers).map(r -> r.getString("code")).collect(Collectors.toList());
+            assertEquals(24, codes.size());
+            assertEquals("[f08, x08, f09, x09]", codes.subList(0, 4).toString());
+            assertEquals("x19", codes.get(23));
+
+            try (Stream<Record> merged = service.parseMerged(sources, parsers)) {
+                merged.count();
+                fail("source 7 cannot be parsed");
+            } catch (final FPException e) {
+                assertTrue(e.getCause() instanceof NullPointerException);
+            }
+        }
+        try (ParseService service = new ParseService(2, false)) {
+            assertFalse(service.isUsingVirtualThreads());
+            assertEquals("[f00, f01, f02, abc, f04]", service.parseInOrder(sources.subList(0, 5), parsers).filter(ParseResult::isSuccess)
+                    .map(r -> r.stream().findFirst().get().getString("code")).collect(Collectors.toList()).toString());
+        }
+    }
 }
@@ -0,0 +1,157 @@
+package net.sf.flatpack.bind;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import junit.framework.TestCase;
+import net.sf.flatpack.DataSet;
+import net.sf.flatpack.DefaultParserFactory;
+import net.sf.flatpack.Parser;
+
+public class RecordBinderTest extends TestCase {
+    private static final String CSV = "name,qty,price,shipped,active,note\r\n" //
+            + "apple,3,1.25,2020-01-31,y,first\r\n" //
+            + "pear,,2,2020-02-01,n,\r\n";
+
+    public static class Fruit {
+        private String name;
+        private int qty;
+        private BigDecimal price;
+        private LocalDate shipped;
+        private boolean active;
+
+        public void setName(final String name) {
+            this.name = name;
+        }
+
+        public void setQty(final int qty) {
+            this.qty = qty;
+        }
+
+        public void setPrice(final BigDecimal price) {
+            this.price = price;
+        }
+
+        public void setShipped(final LocalDate shipped) {
+            this.shipped = shipped;
+        }
+
+        public void setActive(final boolean active) {
+            this.active = active;
+        }
+    }
+
+    static class Annotated {
+        @FlatColumn(name = "name")
+        private String label;
+        @FlatColumn(name = "qty")
+        private Integer quantity;
+        @FlatColumn
+        private String note;
+        private String price;
+    }
+
+    public void testStreamOfBeans() {
+        final Parser p = DefaultParserFactory.newCsvParser(new StringReader(CSV));
+        final List<Fruit> fruits = p.stream(Fruit.class).collect(Collectors.toList());
+        assertThat(fruits).hasSize(2);
+        final Fruit apple = fruits.get(0);
+        assertThat(apple.name).isEqualTo("apple");
+        assertThat(apple.qty).isEqualTo(3);
+        assertThat(apple.price).isEqualTo(new BigDecimal("1.25"));
+        assertThat(apple.shipped).isEqualTo(LocalDate.of(2020, 1, 31));
+        assertTrue(apple.active);
+        assertThat(fruits.get(1).qty).isEqualTo(0);
+        assertFalse(fruits.get(1).active);
+    }
+
+    public void testAnnotatedFieldsOnly() {
+        final Parser p = DefaultParserFactory.newCsvParser(new StringReader(CSV));
+        final DataSet ds = p.parse();
+        final List<Annotated> rows = ds.mapTo(Annotated.class).collect(Collectors.toList());
+        assertThat(rows).hasSize(2);
+        assertThat(rows.get(0).label).isEqualTo("apple");
+        assertThat(rows.get(0).quantity).isEqualTo(3);
+        assertThat(rows.get(0).note).isEqualTo("first");
+        assertThat(rows.get(0).price).as("not annotated").isNull();
+        assertThat(rows.get(1).quantity).as("empty wrapper").isNull();
+    }
+
+    static class Formatted {
+        @FlatColumn(format = "dd/MM/yyyy")
+        private LocalDate shipped;
+        @FlatColumn(format = "yyyy.MM.dd")
+        private Date paid;
+        @FlatColumn(format = "ok/ko")
+        private boolean active;
+        @FlatColumn(format = "ok/ko")
+        private Boolean checked;
+        @FlatColumn
+        private long qty;
+    }
+
+    public void testFormatAndBlankPrimitives() {
+        final String csv = "shipped,paid,active,checked,qty\r\n31/01/2020,2020.02.03,ok,KO,7\r\n,,,,\r\n";
+        final DataSet ds = DefaultParserFactory.newCsvParser(new StringReader(csv)).parse();
+        ds.setStrictNumericParse(true);
+        final List<Formatted> rows = ds.mapTo(Formatted.class).collect(Collectors.toList());
+        final Formatted first = rows.get(0);
+        assertThat(first.shipped).isEqualTo(LocalDate.of(2020, 1, 31));
+        final Calendar paid = Calendar.getInstance();
+        paid.setTime(first.paid);
+        assertThat(paid.get(Calendar.DAY_OF_MONTH)).isEqualTo(3);
+        assertTrue(first.active);
+        assertThat(first.checked).isFalse();
+        assertThat(first.qty).isEqualTo(7L);
+
+        final Formatted blank = rows.get(1);
+        assertThat(blank.shipped).isNull();
+        assertThat(blank.paid).isNull();
+        assertFalse(blank.active);
+        assertThat(blank.checked).isNull();
+        assertThat(blank.qty).isEqualTo(0L);
+    }
+
+    public void testBadBooleanFormat() {
+        try {
+            RecordBinder.of(BadFormat.class);
+            fail("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException e) {
+            assertThat(e.getMessage()).contains("true/false");
+        }
+    }
+
+    static class BadFormat {
+        @FlatColumn(format = "yes")
+        private boolean flag;
+    }
+
+    public void testMissingColumnIsSkipped() {
+        final Parser p = DefaultParserFactory.newCsvParser(new StringReader("name\r\nkiwi\r\n"));
+        final List<Fruit> fruits = p.stream(Fruit.class).collect(Collectors.toList());
+        assertThat(fruits).hasSize(1);
+        assertThat(fruits.get(0).name).isEqualTo("kiwi");
+        assertThat(fruits.get(0).price).isNull();
+    }
+
+    public void testUnsupportedAnnotatedType() {
+        try {
+            RecordBinder.of(Unsupported.class);
+            fail("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException e) {
+            assertThat(e.getMessage()).contains("Unsupported type");
+        }
+    }
+
+    static class Unsupported {
+        @FlatColumn(name = "name")
+        private StringBuilder name;
+    }
+}
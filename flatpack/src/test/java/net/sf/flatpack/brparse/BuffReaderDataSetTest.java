@@ -1,6 +1,7 @@
 package net.sf.flatpack.brparse;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.io.StringReader;
 
@@ -8,6 +9,7 @@ import junit.framework.TestCase;
 import net.sf.flatpack.CsvParserFactory;
 import net.sf.flatpack.DataSet;
 import net.sf.flatpack.Parser;
+import net.sf.flatpack.util.FPInvalidUsageException;
 
 public class BuffReaderDataSetTest extends TestCase {
     private static final String CSV = "col1,col2" + System.getProperty("line.separator") + "val1,val2";
@@ -20,4 +22,36 @@ public class BuffReaderDataSetTest extends TestCase {
         assertThat(ds.getString("col1")).isEqualToIgnoringCase("val1");
         assertThat(ds.getString("col2")).isEqualToIgnoringCase("val2");
     }
+
+    public void testLookBack() {
+        final Parser parser = CsvParserFactory.newForwardParser(new StringReader("name\na\nb\nc\nd\ne"));
+        final BuffReaderDataSet ds = (BuffReaderDataSet) parser.parse();
+        assertThatThrownBy(ds::previous).isInstanceOf(UnsupportedOperationException.class);
+        ds.setLookBack(3);
+        assertThat(ds.next()).isTrue();
+        assertThat(ds.next()).isTrue();
+        assertThat(ds.previous()).isTrue();
+        assertThat(ds.getString("name")).isEqualTo("a");
+        assertThat(ds.getIndex()).isEqualTo(1);
+        assertThat(ds.previous()).isFalse();
+        ds.goTop();
+        assertThat(ds.next()).isTrue();
+        assertThat(ds.getString("name")).isEqualTo("a");
+        ds.absolute(3);
+        assertThat(ds.getString("name")).isEqualTo("d");
+        ds.absolute(1);
+        assertThat(ds.getString("name")).isEqualTo("b");
+        assertThatThrownBy(() -> ds.absolute(0)).isInstanceOf(IndexOutOfBoundsException.class);
+        assertThat(ds.next()).isTrue();
+        assertThat(ds.next()).isTrue();
+        assertThat(ds.getString("name")).isEqualTo("d");
+        assertThat(ds.next()).isTrue();
+        assertThat(ds.getString("name")).isEqualTo("e");
+        assertThat(ds.next()).isFalse();
+        assertThat(ds.previous()).isTrue();
+        assertThat(ds.getString("name")).isEqualTo("d");
+        assertThat(ds.previous()).isTrue();
+        assertThat(ds.previous()).isFalse();
+        assertThatThrownBy(ds::goTop).isInstanceOf(FPInvalidUsageException.class);
+    }
 }
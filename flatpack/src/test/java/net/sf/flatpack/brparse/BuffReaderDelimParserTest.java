@@ -1,11 +1,28 @@
 package net.sf.flatpack.brparse;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import com.sun.management.ThreadMXBean;
 
 import junit.framework.TestCase;
+import net.sf.flatpack.DataSet;
 import net.sf.flatpack.DefaultDataSet;
 import net.sf.flatpack.Parser;
+import net.sf.flatpack.Record;
+import net.sf.flatpack.RecordBatch;
+import net.sf.flatpack.StreamingDataSet;
 import net.sf.flatpack.structure.Row;
+import net.sf.flatpack.util.FPInvalidUsageException;
 
 /**
  * Test misc methods in the BuffReaderFixedParser class
@@ -46,6 +63,204 @@ public class BuffReaderDelimParserTest extends TestCase {
         return rawData;
     }
 
+    public void testNextBatch() {
+        final String cols = "name,amount\r\nann,1\r\nbob,2\r\neve,3\r\nian,4\r\nkim,5";
+        final Parser parser = BuffReaderParseFactory.getInstance().newDelimitedParser(new StringReader(cols), DELIMTER, QUALIFIER);
+        final StreamingDataSet ds = parser.parseAsStream();
+        RecordBatch batch = ds.nextBatch(2);
+        assertEquals(2, batch.size());
+        final int name = batch.getColumnIndex("name");
+        assertEquals("ann", batch.getString(0, name));
+        assertEquals("bob", batch.get(1).getString("name"));
+        assertSame(batch, ds.nextBatch(2));
+        assertEquals("[eve, ian]", Arrays.toString(batch.getColumn(name)));
+        assertTrue(ds.next());
+        assertEquals("kim", ds.getRecord().get().getString("name"));
+        batch = ds.nextBatch(2);
+        assertTrue(batch.isEmpty());
+    }
+
+    public void testForwardCursor() throws IOException {
+        final String cols = "name,note,amount\r\n\uFEFFann , \"say \"\"hi\"\"\",1\r\n\r\nbob,\"two\r\nlines\",2\r\neve,,\r\nian,x\r\n";
+        final DataSet expected = BuffReaderParseFactory.getInstance().newDelimitedParser(new StringReader(cols), DELIMTER, QUALIFIER).parse();
+        final BuffReaderDelimParser parser = (BuffReaderDelimParser) BuffReaderParseFactory.getInstance().newDelimitedParser(
+                new StringReader(cols), DELIMTER, QUALIFIER);
+        try (ForwardCursor cursor = parser.newForwardCursor()) {
+            Record first = null;
+            while (expected.next()) {
+                assertTrue(cursor.next());
+                if (first == null) {
+                    first = cursor.getRecord();
+                }
+                assertSame(first, cursor.getRecord());
+                assertEquals(expected.getRowNo(), cursor.getRowNo());
+                for (final String column : expected.getColumns()) {
+                    assertEquals(expected.getString(column), cursor.getRecord().getString(column));
+                }
+            }
+            assertFalse(cursor.next());
+            assertEquals(expected.getErrorCount(), cursor.getErrorCount());
+        }
+    }
+
+    public void testForwardCursorAllocation() throws IOException {
+        if (!(ManagementFactory.getThreadMXBean() instanceof ThreadMXBean)) {
+            return;
+        }
+        final ThreadMXBean allocations = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!allocations.isThreadAllocatedMemorySupported()) {
+            return;
+        }
+        final StringBuilder cols = new StringBuilder("name,note,amount\n");
+        for (int i = 0; i < 40000; i++) {
+            cols.append("name").append(i % 97).append(",\"a, b\",").append(i).append('\n');
+        }
+        final BuffReaderDelimParser parser = (BuffReaderDelimParser) BuffReaderParseFactory.getInstance().newDelimitedParser(
+                new StringReader(cols.toString()), DELIMTER, QUALIFIER);
+        try (ForwardCursor cursor = parser.newForwardCursor()) {
+            for (int i = 0; i < 20000; i++) {
+                assertTrue(cursor.next());
+            }
+            final long before = allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+            int rows = 0;
+            while (cursor.next()) {
+                rows += cursor.getRowNo() > 0 ? 1 : 0;
+            }
+            final long allocated = allocations.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+            assertEquals(20000, rows);
+            assertTrue("allocated " + allocated, allocated < 64 * 1024);
+        }
+    }
+
+    public void testCheckpoint() {
+        final String cols = "name,note\r\nann,one\r\nbob,\"two\r\nlines\"\r\n\r\neve,three\r\nian,four";
+        final BuffReaderDelimParser parser = (BuffReaderDelimParser) BuffReaderParseFactory.getInstance().newDelimitedParser(
+                new StringReader(cols), DELIMTER, QUALIFIER);
+        final DataSet ds = parser.parse();
+        assertTrue(ds.next());
+        assertTrue(ds.next());
+        final ParseCheckpoint checkpoint = parser.getCheckpoint();
+        assertEquals(4, checkpoint.getLineCount());
+        assertEquals(2, checkpoint.getRecordCount());
+        assertEquals("name,note", checkpoint.getHeader());
+
+        final BuffReaderDelimParser resumed = (BuffReaderDelimParser) BuffReaderParseFactory.getInstance().newDelimitedParser(
+                new StringReader(cols), DELIMTER, QUALIFIER);
+        resumed.resumeFrom(checkpoint);
+        final DataSet rest = resumed.parse();
+        assertTrue(rest.next());
+        assertEquals("eve", rest.getString("name"));
+        assertEquals(6, rest.getRowNo());
+        assertTrue(rest.next());
+        assertEquals("four", rest.getString("note"));
+        assertFalse(rest.next());
+        assertEquals(4, resumed.getCheckpoint().getRecordCount());
+    }
+
+    public void testCheckpointByteOffset() throws IOException {
+        final String cols = "name,note\r\nann,\u00e9t\u00e9\r\nbob,\"\u20ac\r\n\ud83d\ude00\"\r\neve,three\r\nian,four";
+        final Path file = Files.createTempFile("checkpoint", ".csv");
+        try {
+            for (final Charset charset : Arrays.asList(StandardCharsets.UTF_8, StandardCharsets.UTF_16LE, StandardCharsets.ISO_8859_1)) {
+                final String data = charset.newEncoder().canEncode(cols) ? cols : "name,note\r\nann,x\r\nbob,\"y\r\nz\"\r\neve,three\r\nian,four";
+                Files.write(file, data.getBytes(charset));
+                final BuffReaderDelimParser parser = (BuffReaderDelimParser) BuffReaderParseFactory.getInstance().newDelimitedParser(
+                        Files.newBufferedReader(file, charset), DELIMTER, QUALIFIER);
+                parser.setCharset(charset);
+                final DataSet ds = parser.parse();
+                assertTrue(ds.next());
+                assertTrue(ds.next());
+                final ParseCheckpoint checkpoint = parser.getCheckpoint();
+                parser.close();
+                final String read = data.substring(0, data.indexOf("eve"));
+                assertEquals(charset.name(), read.length(), checkpoint.getOffset());
+                assertEquals(charset.name(), read.getBytes(charset).length, checkpoint.getByteOffset());
+                assertEquals(charset, checkpoint.getCharset());
+
+                final BuffReaderDelimParser resumed = (BuffReaderDelimParser) BuffReaderParseFactory.getInstance().newDelimitedParser(
+                        checkpoint.newReader(file), DELIMTER, QUALIFIER);
+                resumed.setCharset(charset);
+                resumed.resumeAt(checkpoint);
+                final DataSet rest = resumed.parse();
+                assertTrue(rest.next());
+                assertEquals("eve", rest.getString("name"));
+                assertEquals(5, rest.getRowNo());
+                assertTrue(rest.next());
+                assertEquals(data.getBytes(charset).length, resumed.getCheckpoint().getByteOffset());
+                assertFalse(rest.next());
+                resumed.close();
+            }
+        } finally {
+            Files.delete(file);
+        }
+
+        // without the charset there is no byte offset to seek to
+        final BuffReaderDelimParser parser = (BuffReaderDelimParser) BuffReaderParseFactory.getInstance().newDelimitedParser(
+                new StringReader(cols), DELIMTER, QUALIFIER);
+        parser.parse().next();
+        assertEquals(-1L, parser.getCheckpoint().getByteOffset());
+        assertNull(parser.getCheckpoint().getCharset());
+        try {
+            parser.getCheckpoint().newReader(file);
+            fail("Expected FPInvalidUsageException");
+        } catch (final FPInvalidUsageException e) {
+            assertTrue(e.getMessage().startsWith("The checkpoint has no byte offset"));
+        }
+    }
+
+    public void testCheckpointReaderReads() throws IOException {
+        try (CheckpointReader reader = new CheckpointReader(new StringReader("ann,one\r\nbob,two\r\neve"), null, null)) {
+            assertEquals("ann,one", reader.readLine());
+            assertEquals('b', reader.read());
+            assertEquals(3, reader.skip(3));
+            final char[] cbuf = new char[4];
+            assertEquals(4, reader.read(cbuf, 0, 4));
+            assertEquals("two\r", new String(cbuf));
+            assertEquals(17, reader.getOffset());
+            assertEquals("", reader.readLine());
+            assertEquals("eve", reader.readLine());
+            assertEquals(-1, reader.read());
+            assertNull(reader.readLine());
+        }
+        try (CheckpointReader reader = new CheckpointReader(new StringReader("ann\r\nbob"), null, null)) {
+            assertEquals("ann", reader.readLine());
+            assertEquals(5, reader.getOffset());
+            assertEquals('b', reader.read());
+            assertEquals(2, reader.read(new char[10], 0, 10));
+            assertEquals(8, reader.getOffset());
+        }
+    }
+
+    public void testOffsetIndex() throws IOException {
+        final StringBuilder cols = new StringBuilder("code,name\r\n");
+        for (int i = 0; i < 100; i++) {
+            cols.append('K').append(i % 50).append(",\"n\u00e9\r\n").append(i).append("\"\r\n");
+        }
+        final Path source = Files.createTempFile("offsetindex", ".csv");
+        final Path sidecar = Files.createTempFile("offsetindex", ".idx");
+        final Function<Reader, InterfaceBuffReaderParse> parsers = r -> (InterfaceBuffReaderParse) BuffReaderParseFactory.getInstance()
+                .newDelimitedParser(r, DELIMTER, QUALIFIER);
+        try {
+            for (final Charset charset : Arrays.asList(StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1, StandardCharsets.UTF_16LE)) {
+                Files.write(source, cols.toString().getBytes(charset));
+                try (OffsetIndex index = OffsetIndex.build(source, charset, parsers, 7, "code", sidecar)) {
+                    assertEquals(100, index.getRecordCount());
+                    assertEquals("n\u00e9" + System.lineSeparator() + "0", index.get(0).get().getString("name"));
+                    assertEquals("K15", index.get(65).get().getString("code"));
+                    assertEquals(133, index.get(65).get().getRowNo());
+                    assertFalse(index.get(100).isPresent());
+                    final List<Record> found = index.find("K42");
+                    assertEquals(2, found.size());
+                    assertTrue(found.get(1).getString("name").endsWith("92"));
+                    assertTrue(index.find("K50").isEmpty());
+                }
+            }
+        } finally {
+            Files.delete(source);
+            Files.delete(sidecar);
+        }
+    }
+
     public void testBuildExactRow() {
         final String rawData = this.parseRawData(PZ_MAP_XML_STRING, EXACT_LINE_STRING);
         assertTrue("The raw data does not match the orginal line", rawData.equals(EXACT_LINE_STRING));
@@ -1,8 +1,10 @@
 package net.sf.flatpack.brparse;
 
+import java.io.IOException;
 import java.io.StringReader;
 
 import junit.framework.TestCase;
+import net.sf.flatpack.DataSet;
 import net.sf.flatpack.DefaultDataSet;
 import net.sf.flatpack.Parser;
 import net.sf.flatpack.structure.Row;
@@ -61,6 +63,44 @@ public class BuffReaderFixedParserTest extends TestCase {
         assertTrue("The raw data does not match the orginal line", rawData.equals(LONG_LINE_STRING));
     }
 
+    public void testForwardCursor() throws IOException {
+        final String lines = EXACT_LINE_STRING + "\n\n" + SHORT_LINE_STRING + "\n" + LONG_LINE_STRING;
+        final BuffReaderFixedParser parser = (BuffReaderFixedParser) BuffReaderParseFactory.getInstance().newFixedLengthParser(
+                new StringReader(PZ_MAP_XML_STRING), new StringReader(lines));
+        parser.setHandlingShortLines(true);
+        try (ForwardCursor cursor = parser.newForwardCursor()) {
+            assertTrue(cursor.next());
+            assertEquals("characters", cursor.getRecord().getString("FIELD_THREE"));
+            assertTrue(cursor.next());
+            assertEquals(3, cursor.getRowNo());
+            assertEquals("than", cursor.getRecord().getString("FIELD_TWO"));
+            assertEquals("thirty", cursor.getRecord().getString("FIELD_THREE"));
+            assertFalse(cursor.next());
+            assertEquals(2, cursor.getErrorCount());
+            assertEquals("LINE TOO LONG. LINE IS 40 LONG. SHOULD BE 30", cursor.getErrors().get(1).getErrorDesc());
+        }
+    }
+
+    public void testCheckpoint() {
+        final String lines = EXACT_LINE_STRING + "\r" + EXACT_LINE_STRING.toUpperCase() + "\n" + EXACT_LINE_STRING.replace('e', 'E');
+        final BuffReaderFixedParser parser = (BuffReaderFixedParser) BuffReaderParseFactory.getInstance().newFixedLengthParser(
+                new StringReader(PZ_MAP_XML_STRING), new StringReader(lines));
+        assertTrue(parser.parse().next());
+        final ParseCheckpoint checkpoint = parser.getCheckpoint();
+        assertEquals(31, checkpoint.getOffset());
+
+        final BuffReaderFixedParser resumed = (BuffReaderFixedParser) BuffReaderParseFactory.getInstance().newFixedLengthParser(
+                new StringReader(PZ_MAP_XML_STRING), new StringReader(lines.substring((int) checkpoint.getOffset())));
+        resumed.resumeAt(checkpoint);
+        final DataSet ds = resumed.parse();
+        assertTrue(ds.next());
+        assertEquals("EXACTLY", ds.getString("FIELD_ONE"));
+        assertEquals(2, ds.getRowNo());
+        assertTrue(ds.next());
+        assertEquals("Exactly", ds.getString("FIELD_ONE"));
+        assertFalse(ds.next());
+    }
+
     public static void main(final String[] args) {
         junit.textui.TestRunner.run(BuffReaderFixedParserTest.class);
     }
@@ -2,10 +2,12 @@ package net.sf.flatpack.parserutils;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import junit.framework.TestCase;
 import net.sf.flatpack.util.FPConstants;
+import net.sf.flatpack.util.LineSplitter;
 import net.sf.flatpack.util.ParserUtils;
 import net.sf.flatpack.utilities.UnitTestUtils;
 
@@ -248,6 +250,30 @@ public class ParserUtilsSplitLineTest extends TestCase {
 
     }
 
+    public void testLineSplitterSameAsSplitLine() {
+        final String[] lines = { "Bob, Smith,\"\"\"Test\"\" , 2, also part of the string.\",11111111", "  a , \"b,c\" ,", "", "\"x\"", "a,,\"\"" };
+        final LineSplitter splitter = new LineSplitter(',', '"', false, false, 4);
+        for (final String line : lines) {
+            // the line in the middle of a larger array
+            final char[] chars = ("##" + line + "##").toCharArray();
+            final List<String> values = new ArrayList<>();
+            splitter.split(chars, 2, chars.length - 2, (c, start, end) -> values.add(new String(c, start, end - start)));
+            assertThat(values).as(line).isEqualTo(ParserUtils.splitLine(line, ',', '"', 10, false, false));
+        }
+    }
+
+    public void testMultiLineContinued() {
+        assertFalse(isMultiLineContinued("end of value\",b"));
+        assertFalse(isMultiLineContinued("end of value\""));
+        assertTrue(isMultiLineContinued("still \"\"quoted\"\""));
+        assertTrue(isMultiLineContinued("no qualifier"));
+    }
+
+    private static boolean isMultiLineContinued(final String line) {
+        // trailing spaces after the array are not part of the line
+        return ParserUtils.isMultiLineContinued((line + "   ").toCharArray(), line.length(), ',', '"');
+    }
+
     public static void main(final String[] args) {
         junit.textui.TestRunner.run(ParserUtilsSplitLineTest.class);
     }
@@ -5,10 +5,13 @@ import static org.assertj.core.api.Assertions.assertThat;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import junit.framework.TestCase;
+import net.sf.flatpack.util.ColumnIndexMap;
 import net.sf.flatpack.util.FPConstants;
+import net.sf.flatpack.util.FlatpackWriterUtil;
 import net.sf.flatpack.util.ParserUtils;
 
 /**
@@ -203,4 +206,53 @@ public class ParserUtilsTest extends TestCase {
         testFancyCsvSplit("Simple Fancy Qualifier CSV Split with Multi Delimiter Inside 2nd of 3 Col", "|col1|,|col2|,|col3|||", "col1", "col2",
                 "col3|");
     }
+
+    public void testColumnIndexMapIgnoringCase() {
+        final ColumnIndexMap map = new ColumnIndexMap(FlatpackWriterUtil.buildColumns("Name,QTY,price,Name2"), false);
+        assertEquals(0, map.indexOf("name"));
+        assertEquals(0, map.indexOf("NAME"));
+        assertEquals(1, map.indexOf("Qty"));
+        assertEquals(3, map.indexOf("nAmE2"));
+        assertEquals(-1, map.indexOf("nam"));
+        // second lookup of the same instance comes from the identity cache
+        final String col = "PRICE";
+        assertEquals(2, map.indexOf(col));
+        assertEquals(2, map.indexOf(col));
+        final String missing = "amount";
+        assertEquals(-1, map.indexOf(missing));
+        assertEquals(-1, map.indexOf(missing));
+        // other instances still resolve once the slots of the cache are taken
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i % 4 == 3 ? 3 : 1, map.indexOf(new String(i % 4 == 3 ? "NAME2" : "qty")));
+        }
+        assertEquals(2, map.indexOf(col));
+        // the last name looked up in a slot replaces the one before
+        final String transient1 = new String("price");
+        final String transient2 = new String("price");
+        assertEquals(transient1.hashCode(), transient2.hashCode());
+        assertEquals(2, map.indexOf(transient1));
+        assertEquals(2, map.indexOf(transient2));
+        assertEquals(2, map.indexOf(transient1));
+        assertThat(map.get("Price")).isEqualTo(2);
+        assertThat(map.keySet()).containsExactly("name", "qty", "price", "name2");
+    }
+
+    public void testColumnIndexMapCaseSensitive() {
+        final Map<String, Integer> map = new ColumnIndexMap(FlatpackWriterUtil.buildColumns("Name,name,QTY"), true);
+        assertThat(map.get("Name")).isEqualTo(0);
+        assertThat(map.get("name")).isEqualTo(1);
+        assertThat(map.get("qty")).isNull();
+        assertThat(map).hasSize(3);
+    }
+
+    public void testColumnIndexMapWithoutParser() {
+        final Map<String, Integer> map = ParserUtils.buidColumnIndexMap(FlatpackWriterUtil.buildColumns("Name,QTY"), null);
+        assertThat(map).isInstanceOf(ColumnIndexMap.class);
+        assertThat(map.get("Name")).isEqualTo(0);
+        assertThat(map.get("name")).isEqualTo(0);
+        assertThat(map.get("qty")).isEqualTo(1);
+        assertThat(map.get("price")).isNull();
+        // the keys are the names as written, as the writers expect
+        assertThat(map.keySet()).containsExactly("Name", "QTY");
+    }
 }
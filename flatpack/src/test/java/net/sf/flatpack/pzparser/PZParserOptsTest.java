@@ -1,7 +1,11 @@
 package net.sf.flatpack.pzparser;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.StringReader;
+import java.nio.file.Files;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 import junit.framework.TestCase;
@@ -266,6 +270,55 @@ public class PZParserOptsTest extends TestCase {
 
     }
 
+    public void testValidate() {
+        final String cols = "COLUMN1,column2,Column3\r\n\"value1\",value2,value3,value4\r\nvalue1\r\n\r\n\"val\r\nue1\",value2,value3\r\n\"x,y";
+        Parser p = DefaultParserFactory.getInstance().newDelimitedParser(new StringReader(cols), ',', '"');
+        final DataSet ds = p.parse();
+        p = DefaultParserFactory.getInstance().newDelimitedParser(new StringReader(cols), ',', '"');
+        assertEquals(ds.getErrors().toString(), p.validate().toString());
+        p = DefaultParserFactory.getInstance().newDelimitedParser(new StringReader(cols), ',', '"');
+        assertEquals(5, p.countRecords());
+
+        Parser br = BuffReaderParseFactory.getInstance().newDelimitedParser(new StringReader(cols), ',', '"').setIgnoreExtraColumns(true);
+        final DataSet brds = br.parse();
+        while (brds.next()) {
+            assertNotNull(brds.getString("column2"));
+        }
+        br = BuffReaderParseFactory.getInstance().newDelimitedParser(new StringReader(cols), ',', '"').setIgnoreExtraColumns(true);
+        final List<DataError> errors = br.validate();
+        assertEquals(brds.getErrors().toString(), errors.toString());
+        assertEquals("TRUNCATED LINE TO CORRECT NUMBER OF COLUMNS", errors.get(0).getErrorDesc());
+    }
+
+    public void testCountFixedWidthRecords() throws IOException {
+        final String xml = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?> \r\n" + "<!DOCTYPE PZMAP SYSTEM	\"pzfilereader.dtd\" > \r\n"
+                + "	<PZMAP>\r\n" + "		<RECORD id=\"header\" startPosition=\"1\" endPosition=\"1\" indicator=\"H\">"
+                + "			<COLUMN name=\"recordtype\" length=\"1\" /> \r\n" + "			<COLUMN name=\"headerdata1\" length=\"20\" /> \r\n"
+                + "		</RECORD>" + "		<COLUMN name=\"recordtype\" length=\"1\" /> \r\n"
+                + "		<COLUMN name=\"detaildata1\" length=\"10\" /> \r\n" + "	</PZMAP>";
+        final String cols = "HHEADER DATA         \r\n" + "DDETAIL DATA         \r\n  \r\n\nDDETAIL\nDDETAIL DATA";
+
+        Parser p = DefaultParserFactory.getInstance().newFixedLengthParser(new StringReader(xml), new StringReader(cols));
+        final DataSet ds = p.parse();
+        p = DefaultParserFactory.getInstance().newFixedLengthParser(new StringReader(xml), new StringReader(cols));
+        final List<DataError> errors = p.validate();
+        assertEquals(ds.getErrors().toString(), errors.toString());
+        assertEquals("LINE TOO LONG. LINE IS 21 LONG. SHOULD BE 11", errors.get(0).getErrorDesc());
+
+        final File xmlFile = File.createTempFile("fixed", ".pzmap.xml");
+        final File file = File.createTempFile("fixed", ".txt");
+        try {
+            Files.write(xmlFile.toPath(), xml.getBytes("ISO-8859-1"));
+            Files.write(file.toPath(), cols.getBytes("ISO-8859-1"));
+            assertEquals(4, DefaultParserFactory.getInstance().newFixedLengthParser(xmlFile, file).countRecords());
+            p = DefaultParserFactory.getInstance().newFixedLengthParser(new StringReader(xml), new StringReader(cols));
+            assertEquals(4, p.countRecords());
+        } finally {
+            xmlFile.delete();
+            file.delete();
+        }
+    }
+
     public void testSorting() {
         DataSet ds;
         String cols = "fname,lname,dob,anumber\r\npaul,zepernick,06/21/1981,2\r\nbenoit,xhenseval,05/01/1970,12";
@@ -0,0 +1,74 @@
+package net.sf.flatpack.structure;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class OffHeapRowStoreTest extends TestCase {
+
+    public void testWriteAndMapAcrossSegments() throws Exception {
+        final ListRowStore rows = new ListRowStore();
+        for (int i = 0; i < 50; i++) {
+            final Row row = new Row();
+            row.setRowNumber(i + 1);
+            row.setMdkey(i % 10 == 0 ? "header" : null);
+            row.setCols(Arrays.asList("row" + i, i % 3 == 0 ? null : "日本" + i));
+            rows.add(row);
+        }
+        final File file = File.createTempFile("flatpack", ".rows");
+        file.deleteOnExit();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // small segments, the rows do not fill them exactly
+            final long end = OffHeapRowStore.write(rows, channel, 7, 100);
+            assertEquals(end, channel.size());
+
+            final OffHeapRowStore store = OffHeapRowStore.map(channel, 7);
+            assertEquals(50, store.size());
+            for (int i = 0; i < 50; i++) {
+                final Row row = store.get(i);
+                assertEquals(i + 1, row.getRowNumber());
+                assertEquals(i % 10 == 0 ? "header" : null, row.getMdkey());
+                assertEquals("row" + i, row.getValue(0));
+                assertEquals(i % 3 == 0 ? null : "日本" + i, row.getValue(1));
+            }
+
+            final Row row = store.get(3);
+            row.setValue(0, "changed");
+            store.set(3, row);
+            final Row added = new Row();
+            added.setCols(Arrays.asList("new", "row"));
+            store.add(added);
+            assertEquals("changed", store.get(3).getValue(0));
+            assertEquals("new", store.get(50).getValue(0));
+            assertEquals("row4", store.get(4).getValue(0));
+        }
+        file.delete();
+    }
+
+    public void testChunksGrowFromSmall() {
+        final OffHeapRowStore store = new OffHeapRowStore();
+        for (int i = 0; i < 10; i++) {
+            final Row row = new Row();
+            row.setCols(Arrays.asList("row" + i, "value"));
+            store.add(row);
+        }
+        // 64KB for the rows and a segment of row addresses, not a 64MB chunk
+        final long small = store.getAllocatedBytes();
+        assertTrue(String.valueOf(small), small < 2 << 20);
+
+        final char[] text = new char[10000];
+        Arrays.fill(text, 'x');
+        for (int i = 0; i < 100; i++) {
+            final Row row = new Row();
+            row.setCols(Arrays.asList(new String(text)));
+            store.add(row);
+        }
+        assertEquals(110, store.size());
+        assertEquals("row3", store.get(3).getValue(0));
+        assertEquals(10000, store.get(109).getValue(0).length());
+        assertTrue(store.getAllocatedBytes() < 4 << 20);
+    }
+}
@@ -5,6 +5,13 @@ import static org.assertj.core.api.Assertions.assertThat;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -13,9 +20,15 @@ import javax.xml.parsers.ParserConfigurationException;
 import org.xml.sax.SAXException;
 
 import junit.framework.TestCase;
+import net.sf.flatpack.DataSet;
 import net.sf.flatpack.DefaultParserFactory;
 import net.sf.flatpack.Parser;
 import net.sf.flatpack.structure.ColumnMetaData;
+import net.sf.flatpack.structure.ColumnarRowStore;
+import net.sf.flatpack.structure.OffHeapRowStore;
+import net.sf.flatpack.structure.Row;
+import net.sf.flatpack.structure.RowStore;
+import net.sf.flatpack.structure.TypedValues;
 import net.sf.flatpack.util.FPConstants;
 
 public class MapParserTest extends TestCase {
@@ -57,6 +70,17 @@ public class MapParserTest extends TestCase {
             "    <COLUMN name=\"ZIP\" />\n" + //
             "</PZMAP> \n";
 
+    private static final String PZ_TYPED_MAP = "<?xml version='1.0'?>\n" +  //
+            "<!DOCTYPE PZMAP SYSTEM\n" + //
+            "    \"flatpack.dtd\" >\n" + //
+            "<PZMAP>\n" + //
+            "    <COLUMN name=\"NAME\" />\n" + //
+            "    <COLUMN name=\"QTY\" type=\"int\" nullable=\"false\" />\n" + //
+            "    <COLUMN name=\"PRICE\" type=\"decimal\" scale=\"2\" />\n" + //
+            "    <COLUMN name=\"SHIPPED\" type=\"date\" format=\"dd/MM/yyyy\" />\n" + //
+            "    <COLUMN name=\"ACTIVE\" type=\"boolean\" format=\"T/F\" />\n" + //
+            "</PZMAP> \n";
+
     public void testInvalidMap() throws IOException, ParserConfigurationException, SAXException {
         try {
             final Map<String, Object> parse = MapParser
@@ -127,6 +151,97 @@ public class MapParserTest extends TestCase {
         assertThat(colIndex).containsOnlyKeys("FIRSTnAME", "LASTNAME", "ADDRESS", "CITY", "STATE", "ZIP");
     }
 
+    public void testParseTypedColumns() throws IOException, ParserConfigurationException, SAXException {
+        final Map<String, Object> parse = MapParser.parse(new StringReader(PZ_TYPED_MAP), null);
+        final List<ColumnMetaData> details = (List<ColumnMetaData>) parse.get(FPConstants.DETAIL_ID);
+        assertThat(details).extracting("type").containsExactly(null, "int", "decimal", "date", "boolean");
+        assertThat(details).extracting("nullable").containsExactly(true, false, true, true, true);
+        assertThat(details.get(2).getScale()).isEqualTo(2);
+        assertThat(details.get(3).getFormat()).isEqualTo("dd/MM/yyyy");
+    }
+
+    public void testTypedColumnsConvertedAtParse() throws Exception {
+        checkTypedColumnsConvertedAtParse(RowStore.LIST);
+    }
+
+    public void testTypedColumnsInOtherStorages() throws Exception {
+        checkTypedColumnsConvertedAtParse(RowStore.COLUMNAR);
+        checkTypedColumnsConvertedAtParse(RowStore.OFF_HEAP);
+        checkTypedColumnsConvertedAtParse(RowStore.SPILL);
+    }
+
+    private void checkTypedColumnsConvertedAtParse(final String rowStorage) throws Exception {
+        final String data = "apple,3,1.255,31/01/2020,T\n" //
+                + "pear,x,2,01/02/2020,F\n" //
+                + "plum,,2,01/02/2020,F\n" //
+                + "kiwi,7,,,F\n";
+        final Parser parser = DefaultParserFactory.getInstance().newDelimitedParser(new StringReader(PZ_TYPED_MAP), new StringReader(data), ',',
+                FPConstants.NO_QUALIFIER, false);
+        parser.setRowStorage(rowStorage);
+        final DataSet ds = parser.parse();
+        assertThat(ds.getErrors()).extracting("lineNo").containsExactly(2, 3);
+        assertThat(ds.getErrors()).extracting("errorLevel").containsOnly(2);
+
+        assertTrue(ds.next());
+        assertThat(ds.getInt("QTY")).isEqualTo(3);
+        assertThat(ds.getDouble("QTY")).isEqualTo(3.0);
+        assertThat(ds.getBigDecimal("PRICE")).isEqualTo(new BigDecimal("1.26"));
+        assertThat(ds.getLocalDate("SHIPPED")).isEqualTo(LocalDate.of(2020, 1, 31));
+        assertTrue(ds.getBoolean("ACTIVE"));
+        assertThat(ds.getString("PRICE")).isEqualTo("1.255");
+
+        assertTrue(ds.next());
+        assertThat(ds.getString("NAME")).isEqualTo("kiwi");
+        assertThat(ds.getBigDecimal("PRICE")).isNull();
+        assertThat(ds.getLocalDate("SHIPPED")).isNull();
+        assertFalse(ds.getBoolean("ACTIVE"));
+        assertFalse(ds.next());
+    }
+
+    public void testTypedValuesKeptByTheStores() throws IOException {
+        checkTypedValuesKept(new ColumnarRowStore());
+        checkTypedValuesKept(new OffHeapRowStore());
+        checkTypedValuesKept(new OffHeapRowStore(true, 1 << 16));
+
+        // as in a DataSetSnapshot
+        final OffHeapRowStore rows = new OffHeapRowStore();
+        checkTypedValuesKept(rows);
+        final Path file = Files.createTempFile("typed", ".bin");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            OffHeapRowStore.write(rows, channel, 0);
+            checkTypedValues(OffHeapRowStore.map(channel, 0).get(0).getTypedValues());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private void checkTypedValuesKept(final RowStore store) {
+        final Row row = new Row();
+        row.addColumn(Arrays.asList("3", "1.5", "1.26", "31/01/2020", "T"));
+        final TypedValues tv = new TypedValues(5, true);
+        tv.putLong(0, 3L);
+        tv.putDouble(1, 1.5);
+        tv.putBigDecimal(2, new BigDecimal("1.26"));
+        tv.putLocalDate(3, "dd/MM/yyyy", LocalDate.of(2020, 1, 31).toEpochDay());
+        tv.putBoolean(4, true);
+        row.setTypedValues(tv);
+        store.add(row);
+        checkTypedValues(store.get(0).getTypedValues());
+    }
+
+    private void checkTypedValues(final TypedValues kept) {
+        assertTrue(kept.isStrictNumericParse());
+        assertTrue(kept.hasLong(0));
+        assertThat(kept.getLong(0)).isEqualTo(3L);
+        assertTrue(kept.hasDouble(1));
+        assertThat(kept.getBigDecimal(2)).isEqualTo(new BigDecimal("1.26"));
+        assertTrue(kept.hasLocalDate(3, "dd/MM/yyyy"));
+        assertFalse(kept.hasLocalDate(3, "yyyyMMdd"));
+        assertThat(kept.getLocalDateEpochDay(3)).isEqualTo(LocalDate.of(2020, 1, 31).toEpochDay());
+        assertTrue(kept.hasBoolean(4));
+        assertTrue(kept.getBoolean(4));
+    }
+
     public void testParseIgnoreCase() throws SAXException, IOException, ParserConfigurationException {
         final Parser parser = DefaultParserFactory.getInstance().newDelimitedParser(new StringReader("hello"), ',', '"');
         parser.setColumnNamesCaseSensitive(false);